@@ -0,0 +1,44 @@
+package com.figma.export.cache;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Optional;
+
+/**
+ * Корневой каталог для данных, которые переживают перезапуск сервиса (индексы, подготовленные ресурсы).
+ * Если каталог недоступен для записи, кэши работают только в памяти.
+ */
+@Component
+public class CacheDirectory {
+
+    private static final Logger logger = LoggerFactory.getLogger(CacheDirectory.class);
+
+    private final Path root;
+
+    public CacheDirectory(@Value("${export.cache-dir:${java.io.tmpdir}/figma-export-cache}") String root) {
+        this.root = root == null || root.isBlank() ? null : Path.of(root.trim()).toAbsolutePath();
+    }
+
+    /**
+     * Возвращает подкаталог с указанным именем, создавая его при необходимости.
+     */
+    public Optional<Path> resolve(String name) {
+        if (root == null) {
+            return Optional.empty();
+        }
+        Path directory = root.resolve(name);
+        try {
+            Files.createDirectories(directory);
+            return Optional.of(directory);
+        } catch (IOException ex) {
+            logger.warn("Каталог кэша '{}' недоступен, данные не будут сохраняться на диск: {}", directory, ex.getMessage());
+            return Optional.empty();
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package com.figma.export.cache;
+
+/**
+ * Снимок счётчиков {@link WeightedLruCache} для логов и диагностики.
+ */
+public record CacheStats(String name,
+                         long hits,
+                         long misses,
+                         long evictions,
+                         int entries,
+                         long weight,
+                         long maxWeight) {
+
+    public double hitRatio() {
+        long requests = hits + misses;
+        return requests == 0 ? 0d : (double) hits / requests;
+    }
+}
@@ -0,0 +1,102 @@
+package com.figma.export.cache;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
+
+/**
+ * Потокобезопасный LRU-кэш, ограниченный суммарным «весом» значений (обычно байтами).
+ * Загрузка значения выполняется вне блокировки: при гонке два потока могут загрузить один ключ,
+ * в кэше останется первое значение.
+ */
+public final class WeightedLruCache<K, V> {
+
+    private final String name;
+    private final long maxWeight;
+    private final ToLongFunction<? super V> weigher;
+    private final LinkedHashMap<K, WeightedValue<V>> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    private long totalWeight;
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    public WeightedLruCache(String name, long maxWeight, ToLongFunction<? super V> weigher) {
+        if (maxWeight < 0) {
+            throw new IllegalArgumentException("maxWeight не может быть отрицательным");
+        }
+        this.name = Objects.requireNonNull(name, "name");
+        this.maxWeight = maxWeight;
+        this.weigher = Objects.requireNonNull(weigher, "weigher");
+    }
+
+    public synchronized V get(K key) {
+        WeightedValue<V> entry = entries.get(key);
+        if (entry == null) {
+            misses++;
+            return null;
+        }
+        hits++;
+        return entry.value();
+    }
+
+    /**
+     * Возвращает значение из кэша либо загружает его через {@code loader}. Если загрузчик вернул
+     * {@code null}, ничего не кэшируется.
+     */
+    public V computeIfAbsent(K key, Function<? super K, ? extends V> loader) {
+        V cached = get(key);
+        if (cached != null) {
+            return cached;
+        }
+        V loaded = loader.apply(key);
+        if (loaded == null) {
+            return null;
+        }
+        return putIfAbsent(key, loaded);
+    }
+
+    /**
+     * Кладёт значение, если ключа ещё нет, и возвращает актуальное значение из кэша.
+     * Значения тяжелее всего лимита не кэшируются, но возвращаются вызывающему.
+     */
+    public synchronized V putIfAbsent(K key, V value) {
+        WeightedValue<V> existing = entries.get(key);
+        if (existing != null) {
+            return existing.value();
+        }
+        long weight = Math.max(0L, weigher.applyAsLong(value));
+        if (weight > maxWeight) {
+            return value;
+        }
+        entries.put(key, new WeightedValue<>(value, weight));
+        totalWeight += weight;
+        evictIfNeeded();
+        return value;
+    }
+
+    public synchronized void invalidateAll() {
+        entries.clear();
+        totalWeight = 0L;
+    }
+
+    public synchronized CacheStats stats() {
+        return new CacheStats(name, hits, misses, evictions, entries.size(), totalWeight, maxWeight);
+    }
+
+    private void evictIfNeeded() {
+        Iterator<Map.Entry<K, WeightedValue<V>>> iterator = entries.entrySet().iterator();
+        while (totalWeight > maxWeight && iterator.hasNext()) {
+            Map.Entry<K, WeightedValue<V>> eldest = iterator.next();
+            totalWeight -= eldest.getValue().weight();
+            iterator.remove();
+            evictions++;
+        }
+    }
+
+    private record WeightedValue<V>(V value, long weight) {
+    }
+}
@@ -0,0 +1,100 @@
+package com.figma.export.color;
+
+import com.figma.export.cache.CacheStats;
+import com.figma.export.cache.WeightedLruCache;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.awt.color.ICC_ColorSpace;
+
+/**
+ * Перевод отдельных цветов (векторные заливки и обводки) из sRGB в CMYK по ICC-профилю.
+ * {@link ICC_ColorSpace#fromRGB} дорог на каждый вызов, а палитра макетов Figma невелика, поэтому
+ * результаты запоминаются по паре (профиль, 24-битный RGB) и общие для всех запросов. Кэш — LRU
+ * с общим лимитом записей на все профили; вес в статистике — оценка занимаемых байт.
+ * Два цвета профилю не отдаются: белый всегда 0/0/0/0, нейтральный серый не ярче 2% — 0/0/0/1.
+ */
+@Component
+public class CmykColorConverter {
+
+    /**
+     * Оценка памяти на запись: ключ, массив из четырёх float, обёртка веса и узел LinkedHashMap.
+     */
+    static final int ENTRY_BYTES = 128;
+
+    private final WeightedLruCache<ColorKey, float[]> colors;
+
+    public CmykColorConverter(@Value("${export.color.vector-cache-max-entries:65536}") int maxEntries) {
+        this.colors = new WeightedLruCache<>("vector-cmyk-colors", (long) Math.max(0, maxEntries) * ENTRY_BYTES,
+                cmyk -> ENTRY_BYTES);
+    }
+
+    /**
+     * Переводит цвет с компонентами в [0, 1]; компоненты квантуются до 8 бит. Цвета SVG заданы
+     * 8-битными значениями, и iText пишет их в контент как {@code n/255}, поэтому для них
+     * квантование обратимо и результат совпадает с {@link #toCmyk(ColorProfile, int)}. Произвольный
+     * цвет сдвигается не больше чем на полшага (1/510) по каждой компоненте до перевода в CMYK.
+     */
+    public void toCmyk(ColorProfile profile, double r, double g, double b, double[] cmyk) {
+        float[] cached = lookup(profile, (quantize(r) << 16) | (quantize(g) << 8) | quantize(b));
+        for (int i = 0; i < 4; i++) {
+            cmyk[i] = cached[i];
+        }
+    }
+
+    /**
+     * Переводит цвет {@code 0xRRGGBB}; возвращает новый массив из четырёх компонент.
+     */
+    public float[] toCmyk(ColorProfile profile, int rgb) {
+        return lookup(profile, rgb & 0xFFFFFF).clone();
+    }
+
+    public CacheStats getCacheStats() {
+        return colors.stats();
+    }
+
+    private float[] lookup(ColorProfile profile, int rgb) {
+        return colors.computeIfAbsent(new ColorKey(profile.getId(), rgb), key -> convert(profile.getColorSpace(), rgb));
+    }
+
+    private static float[] convert(ICC_ColorSpace colorSpace, int rgb) {
+        int red = (rgb >> 16) & 0xFF;
+        int green = (rgb >> 8) & 0xFF;
+        int blue = rgb & 0xFF;
+        float[] cmyk = colorSpace.fromRGB(new float[]{red / 255f, green / 255f, blue / 255f});
+        for (int i = 0; i < cmyk.length; i++) {
+            if (cmyk[i] < 0f) {
+                cmyk[i] = 0f;
+            } else if (cmyk[i] > 1f) {
+                cmyk[i] = 1f;
+            }
+        }
+        if (rgb == 0xFFFFFF) {
+            // Белый — это бумага: профиль даёт следовые доли красок, которые в печати не нужны.
+            cmyk[0] = 0f;
+            cmyk[1] = 0f;
+            cmyk[2] = 0f;
+            cmyk[3] = 0f;
+        } else if (red == green && green == blue && red / 255f <= 0.02f) {
+            // Почти чёрный нейтральный цвет печатается только краской K, без составного чёрного.
+            cmyk[0] = 0f;
+            cmyk[1] = 0f;
+            cmyk[2] = 0f;
+            cmyk[3] = 1f;
+        }
+        return cmyk;
+    }
+
+    private static int quantize(double component) {
+        if (component <= 0d) {
+            return 0;
+        }
+        if (component >= 1d) {
+            return 255;
+        }
+        return (int) Math.round(component * 255d);
+    }
+
+    private record ColorKey(String profileId, int rgb) {
+    }
+}
@@ -0,0 +1,130 @@
+package com.figma.export.color;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+/**
+ * Хранит таблицы {@link CmykLut} на диске, чтобы узлы сетки считались движком ICC один раз.
+ * Файл привязан к ключу — хэшу байтов профиля, размера сетки и версии JDK (в ней поставляется
+ * движок ICC); при несовпадении таблица строится заново и перезаписывается.
+ */
+final class CmykLutStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(CmykLutStore.class);
+
+    private static final int MAGIC = 0x434C5554; // 'CLUT'
+    private static final int FORMAT_VERSION = 1;
+
+    private final Path directory;
+
+    /**
+     * @param directory каталог кэша; {@code null} — таблицы только в памяти
+     */
+    CmykLutStore(Path directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * Загружает таблицу профиля с диска или строит её и сохраняет.
+     */
+    CmykLut loadOrBuild(ColorProfile profile) {
+        String key = computeKey(profile);
+        Path file = directory != null ? directory.resolve(profile.getId() + ".lut") : null;
+        if (file != null && Files.isRegularFile(file)) {
+            try (InputStream input = new BufferedInputStream(Files.newInputStream(file))) {
+                CmykLut lut = read(input, key);
+                if (lut != null) {
+                    logger.info("CMYK LUT профиля '{}' загружена из '{}'.", profile.getId(), file);
+                    return lut;
+                }
+                logger.info("CMYK LUT '{}' устарела и будет пересобрана.", file);
+            } catch (IOException | RuntimeException ex) {
+                logger.warn("Не удалось прочитать CMYK LUT '{}': {}", file, ex.getMessage());
+            }
+        }
+
+        long startNs = System.nanoTime();
+        CmykLut lut = CmykLut.build(profile.getColorSpace());
+        logger.info("CMYK LUT профиля '{}' ({}³) построена за {} мс.", profile.getId(), CmykLut.GRID,
+                (System.nanoTime() - startNs) / 1_000_000L);
+        if (file != null) {
+            save(file, key, lut);
+        }
+        return lut;
+    }
+
+    private static void save(Path file, String key, CmykLut lut) {
+        Path tempFile = null;
+        try {
+            tempFile = Files.createTempFile(file.getParent(), file.getFileName().toString(), ".tmp");
+            try (OutputStream output = new BufferedOutputStream(Files.newOutputStream(tempFile))) {
+                write(output, key, lut);
+            }
+            Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException ex) {
+            logger.warn("Не удалось сохранить CMYK LUT в '{}': {}", file, ex.getMessage());
+            if (tempFile != null) {
+                try {
+                    Files.deleteIfExists(tempFile);
+                } catch (IOException ignored) {
+                    // временный файл будет перезаписан при следующей попытке
+                }
+            }
+        }
+    }
+
+    static String computeKey(ColorProfile profile) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(profile.getIccBytes());
+            digest.update(("/" + CmykLut.GRID + "/" + FORMAT_VERSION + "/" + System.getProperty("java.version"))
+                    .getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException("SHA-256 недоступен", ex);
+        }
+    }
+
+    static CmykLut read(InputStream input, String expectedKey) throws IOException {
+        DataInputStream in = new DataInputStream(input);
+        if (in.readInt() != MAGIC) {
+            throw new IOException("Файл не является CMYK LUT");
+        }
+        if (in.readInt() != FORMAT_VERSION || !expectedKey.equals(in.readUTF())) {
+            return null;
+        }
+        int[] nodes = new int[in.readInt()];
+        for (int i = 0; i < nodes.length; i++) {
+            nodes[i] = in.readUnsignedShort();
+        }
+        return new CmykLut(nodes);
+    }
+
+    static void write(OutputStream output, String key, CmykLut lut) throws IOException {
+        DataOutputStream out = new DataOutputStream(output);
+        out.writeInt(MAGIC);
+        out.writeInt(FORMAT_VERSION);
+        out.writeUTF(key);
+        int[] nodes = lut.nodes();
+        out.writeInt(nodes.length);
+        for (int node : nodes) {
+            out.writeShort(node);
+        }
+        out.flush();
+    }
+}
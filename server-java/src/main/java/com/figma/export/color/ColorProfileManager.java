@@ -1,8 +1,10 @@
 package com.figma.export.color;
 
+import com.figma.export.cache.CacheDirectory;
 import org.apache.commons.io.IOUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.core.io.ClassPathResource;
 import org.springframework.core.io.Resource;
 import org.springframework.stereotype.Component;
@@ -11,6 +13,7 @@ import java.awt.color.ICC_ColorSpace;
 import java.awt.color.ICC_Profile;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
@@ -26,8 +29,23 @@ public class ColorProfileManager {
     public static final String DEFAULT_PROFILE_ID = "coated_fogra39";
 
     private final Map<String, ColorProfile> profiles = new ConcurrentHashMap<>();
+    private final Map<String, CmykLut> cmykLuts = new ConcurrentHashMap<>();
+    private final CmykLutStore cmykLutStore;
 
+    /**
+     * Без каталога кэша: таблицы {@link CmykLut} строятся заново при каждом запуске.
+     */
     public ColorProfileManager() {
+        this((Path) null);
+    }
+
+    @Autowired
+    public ColorProfileManager(CacheDirectory cacheDirectory) {
+        this(cacheDirectory.resolve("lut").orElse(null));
+    }
+
+    private ColorProfileManager(Path lutDirectory) {
+        this.cmykLutStore = new CmykLutStore(lutDirectory);
         loadProfiles(List.of(
                 ColorProfileDescriptor.builder()
                         .id(DEFAULT_PROFILE_ID)
@@ -108,6 +126,13 @@ public class ColorProfileManager {
         return new ArrayList<>(profiles.values());
     }
 
+    /**
+     * Таблица sRGB → CMYK профиля; строится (или читается с диска) при первом обращении.
+     */
+    public CmykLut getCmykLut(ColorProfile profile) {
+        return cmykLuts.computeIfAbsent(profile.getId(), id -> cmykLutStore.loadOrBuild(profile));
+    }
+
     private static final class ColorProfileDescriptor {
         private final String id;
         private final String displayName;
@@ -0,0 +1,22 @@
+package com.figma.export.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.ForkJoinPool;
+
+@Configuration
+public class ConcurrencyConfig {
+
+    /**
+     * Пул для CPU-тяжёлой отрисовки (растеризация SVG полосами). Отдельный от общего
+     * {@link ForkJoinPool#commonPool()}, чтобы экспорт не конкурировал с parallel stream'ами.
+     * Значение {@code 0} — по числу доступных ядер.
+     */
+    @Bean(destroyMethod = "shutdown")
+    public ForkJoinPool renderPool(@Value("${export.render.parallelism:0}") int parallelism) {
+        int effective = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+        return new ForkJoinPool(effective);
+    }
+}
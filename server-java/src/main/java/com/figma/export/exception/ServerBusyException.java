@@ -0,0 +1,12 @@
+package com.figma.export.exception;
+
+/**
+ * Сервер временно не принимает задачу (например, переполнена очередь тяжёлых экспортов).
+ * Отдаётся клиенту как 503, запрос можно повторить позже.
+ */
+public class ServerBusyException extends RuntimeException {
+
+    public ServerBusyException(String message) {
+        super(message);
+    }
+}
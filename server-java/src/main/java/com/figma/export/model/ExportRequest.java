@@ -33,6 +33,11 @@ public class ExportRequest {
 
     @Pattern(regexp = "(?i)embed|outline", message = "svgTextMode должен быть embed или outline")
     private String svgTextMode;
+
+    @Pattern(regexp = "(?i)itext|graphics2d", message = "svgOutlineRenderer должен быть itext или graphics2d")
+    private String svgOutlineRenderer;
+
+    private boolean fontSubset;
     
     private boolean batch;
     
@@ -106,6 +111,22 @@ public class ExportRequest {
         this.svgTextMode = svgTextMode;
     }
 
+    public String getSvgOutlineRenderer() {
+        return svgOutlineRenderer;
+    }
+
+    public void setSvgOutlineRenderer(String svgOutlineRenderer) {
+        this.svgOutlineRenderer = svgOutlineRenderer;
+    }
+
+    public boolean isFontSubset() {
+        return fontSubset;
+    }
+
+    public void setFontSubset(boolean fontSubset) {
+        this.fontSubset = fontSubset;
+    }
+
     public Map<Integer, Integer> getWidthPxMap() {
         return widthPxMap;
     }
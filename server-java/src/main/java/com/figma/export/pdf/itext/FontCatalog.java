@@ -0,0 +1,231 @@
+package com.figma.export.pdf.itext;
+
+import com.figma.export.cache.CacheStats;
+import com.figma.export.cache.WeightedLruCache;
+import com.itextpdf.io.font.FontProgram;
+import com.itextpdf.io.font.PdfEncodings;
+import com.itextpdf.kernel.exceptions.PdfException;
+import com.itextpdf.kernel.font.PdfFont;
+import com.itextpdf.kernel.font.PdfFontFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+/**
+ * Общий для всех запросов индекс шрифтов. Хранит только метаданные; {@link FontProgram} загружается
+ * при первом выборе шрифта документом и живёт в LRU-кэше, ограниченном суммарным размером шрифтов.
+ */
+public final class FontCatalog {
+
+    private static final Logger logger = LoggerFactory.getLogger(FontCatalog.class);
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    private final List<FontIndexEntry> entries;
+    private final Map<String, List<FontIndexEntry>> aliasIndex;
+    private final FontBytesSource bytesSource;
+    private final FontFileStore fileStore;
+    private final WeightedLruCache<String, LoadedFont> programCache;
+    private final WeightedLruCache<SubsetCachingTrueTypeFont.SubsetKey, byte[]> subsetCache;
+    private final Set<String> rejectedFonts;
+    private volatile String defaultFamily;
+
+    /**
+     * @param fontDirectory каталог для извлечённых шрифтов; {@code null} — шрифты читаются в память
+     */
+    FontCatalog(List<FontIndexEntry> entries,
+                FontBytesSource bytesSource,
+                Path fontDirectory,
+                long maxCacheBytes,
+                long maxSubsetCacheBytes) {
+        this(entries, bytesSource, new FontFileStore(fontDirectory, bytesSource),
+                new WeightedLruCache<>("font-programs", maxCacheBytes, LoadedFont::weight),
+                new WeightedLruCache<>("font-subsets", maxSubsetCacheBytes, bytes -> bytes.length),
+                ConcurrentHashMap.newKeySet());
+    }
+
+    private FontCatalog(List<FontIndexEntry> entries,
+                        FontBytesSource bytesSource,
+                        FontFileStore fileStore,
+                        WeightedLruCache<String, LoadedFont> programCache,
+                        WeightedLruCache<SubsetCachingTrueTypeFont.SubsetKey, byte[]> subsetCache,
+                        Set<String> rejectedFonts) {
+        this.entries = List.copyOf(entries);
+        this.aliasIndex = buildAliasIndex(this.entries);
+        this.bytesSource = bytesSource;
+        this.fileStore = fileStore;
+        this.programCache = programCache;
+        this.subsetCache = subsetCache;
+        this.rejectedFonts = rejectedFonts;
+    }
+
+    /**
+     * Создаёт каталог с другим набором записей, сохраняя уже загруженные шрифты и сабсеты.
+     * Записи кэшей привязаны к контрольной сумме шрифта, поэтому изменённый файл загрузится заново.
+     */
+    FontCatalog withEntries(List<FontIndexEntry> newEntries) {
+        return new FontCatalog(newEntries, bytesSource, fileStore, programCache, subsetCache, rejectedFonts);
+    }
+
+    List<FontIndexEntry> entries() {
+        return entries;
+    }
+
+    /**
+     * Гарнитура по умолчанию — первый шрифт каталога, который удалось загрузить. Определяется при
+     * первом обращении, а не при создании каталога, чтобы старт сервиса и обновление системных
+     * шрифтов не разбирали шрифты. При гонке два потока получат одно и то же имя.
+     */
+    String defaultFamily() {
+        String family = defaultFamily;
+        if (family == null) {
+            family = resolveDefaultFamily();
+            defaultFamily = family;
+        }
+        return family;
+    }
+
+    /**
+     * Возвращает все начертания, зарегистрированные под именем гарнитуры или алиасом.
+     * Поиск — одно обращение к хэш-таблице по нормализованному имени, без учёта регистра.
+     */
+    List<FontIndexEntry> resolve(String family) {
+        if (family == null) {
+            return List.of();
+        }
+        return aliasIndex.getOrDefault(normalizeFamily(family), List.of());
+    }
+
+    /**
+     * Ключ поиска гарнитуры: имя без кавычек и лишних пробелов в нижнем регистре.
+     */
+    public static String normalizeFamily(String family) {
+        String trimmed = family.trim();
+        if (trimmed.length() >= 2 && (trimmed.charAt(0) == '"' || trimmed.charAt(0) == '\'')
+                && trimmed.charAt(trimmed.length() - 1) == trimmed.charAt(0)) {
+            trimmed = trimmed.substring(1, trimmed.length() - 1).trim();
+        }
+        return WHITESPACE.matcher(trimmed).replaceAll(" ").toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Возвращает разобранный шрифт из кэша или загружает его. Шрифты, которые не удалось разобрать
+     * или встроить, запоминаются и больше не загружаются.
+     */
+    FontProgram loadProgram(FontIndexEntry entry) {
+        String cacheKey = entry.cacheKey();
+        if (rejectedFonts.contains(cacheKey)) {
+            return null;
+        }
+        LoadedFont loaded = programCache.computeIfAbsent(cacheKey, key -> createProgram(entry));
+        if (loaded == null) {
+            rejectedFonts.add(cacheKey);
+            return null;
+        }
+        return loaded.program();
+    }
+
+    CacheStats cacheStats() {
+        return programCache.stats();
+    }
+
+    CacheStats subsetCacheStats() {
+        return subsetCache.stats();
+    }
+
+    private LoadedFont createProgram(FontIndexEntry entry) {
+        String displayName = entry.displayName();
+        long startNs = System.nanoTime();
+        try {
+            // Шрифт создаётся напрямую, минуя глобальный кэш iText, иначе LRU теряет смысл.
+            FontProgram program = fileStore.isEnabled()
+                    ? createProgramFromFile(entry, fileStore.resolve(entry))
+                    : createProgramFromBytes(entry);
+            PdfFont pdfFont = PdfFontFactory.createFont(program, PdfEncodings.IDENTITY_H);
+            pdfFont.setSubset(false);
+            if (logger.isDebugEnabled()) {
+                logger.debug("Шрифт '{}' загружен за {} мс, кэш: {}", displayName,
+                        (System.nanoTime() - startNs) / 1_000_000L, programCache.stats());
+            }
+            return new LoadedFont(program, entry.length());
+        } catch (PdfException | com.itextpdf.io.exceptions.IOException ex) {
+            logger.warn("Шрифт '{}' пропущен: {}", displayName, ex.getMessage());
+            return null;
+        } catch (IOException ex) {
+            logger.warn("Не удалось прочитать шрифт '{}'.", displayName, ex);
+            return null;
+        }
+    }
+
+    /**
+     * Шрифт открывается по пути: iText читает его через memory-mapped источник, не копируя файл в кучу.
+     */
+    private FontProgram createProgramFromFile(FontIndexEntry entry, Path file) throws IOException {
+        return SubsetCachingTrueTypeFont.fromFile(file, entry.ttcIndex(), entry.cacheKey(), subsetCache);
+    }
+
+    private FontProgram createProgramFromBytes(FontIndexEntry entry) throws IOException {
+        String displayName = entry.displayName();
+        byte[] bytes = FontEmbeddingUtil.ensureEmbeddable(bytesSource.read(entry), displayName, logger);
+        if (entry.checksum() != FontFileStore.checksum(bytes)) {
+            logger.warn("Шрифт '{}' изменился после построения индекса, метаданные могут быть неточными.", displayName);
+        }
+        return SubsetCachingTrueTypeFont.fromBytes(bytes, entry.ttcIndex(), entry.cacheKey(), subsetCache);
+    }
+
+    private String resolveDefaultFamily() {
+        for (FontIndexEntry entry : entries) {
+            if (loadProgram(entry) != null) {
+                return entry.fontName();
+            }
+        }
+        return "Helvetica";
+    }
+
+    private static Map<String, List<FontIndexEntry>> buildAliasIndex(List<FontIndexEntry> entries) {
+        Map<String, List<FontIndexEntry>> index = new HashMap<>();
+        for (FontIndexEntry entry : entries) {
+            Set<String> keys = new LinkedHashSet<>();
+            keys.add(entry.fontName());
+            keys.addAll(entry.aliases());
+            for (String key : keys) {
+                addToIndex(index, normalizeFamily(key), entry);
+            }
+        }
+        Map<String, List<FontIndexEntry>> immutable = new HashMap<>(index.size());
+        index.forEach((key, value) -> immutable.put(key, List.copyOf(value)));
+        return Collections.unmodifiableMap(immutable);
+    }
+
+    private static void addToIndex(Map<String, List<FontIndexEntry>> index, String key, FontIndexEntry entry) {
+        List<FontIndexEntry> keyEntries = index.computeIfAbsent(key, k -> new ArrayList<>());
+        if (!keyEntries.contains(entry)) {
+            keyEntries.add(entry);
+        }
+    }
+
+    /**
+     * Разобранный шрифт и его вес в кэше (размер файла как оценка памяти, включая отображённую).
+     */
+    private record LoadedFont(FontProgram program, long weight) {
+    }
+
+    /**
+     * Источник байтов шрифта по записи индекса.
+     */
+    @FunctionalInterface
+    interface FontBytesSource {
+        byte[] read(FontIndexEntry entry) throws IOException;
+    }
+}
@@ -24,6 +24,10 @@ public final class FontEmbeddingUtil {
             return fontBytes;
         }
 
+        if (!hasRestrictedFsType(fontBytes)) {
+            return fontBytes;
+        }
+
         byte[] patched = fontBytes.clone();
         ByteBuffer buffer = ByteBuffer.wrap(patched).order(ByteOrder.BIG_ENDIAN);
         int numTables = readUnsignedShort(buffer, 4);
@@ -95,6 +99,25 @@ public final class FontEmbeddingUtil {
         return patched;
     }
 
+    /**
+     * Проверяет fsType без копирования массива: большинство шрифтов уже разрешают встраивание.
+     */
+    private static boolean hasRestrictedFsType(byte[] fontBytes) {
+        ByteBuffer buffer = ByteBuffer.wrap(fontBytes).order(ByteOrder.BIG_ENDIAN);
+        int numTables = readUnsignedShort(buffer, 4);
+        for (int i = 0; i < numTables; i++) {
+            int entryOffset = 12 + i * 16;
+            if (entryOffset + 16 > fontBytes.length) {
+                break;
+            }
+            if (buffer.getInt(entryOffset) == 0x4F532F32) {
+                int fsTypeOffset = buffer.getInt(entryOffset + 8) + 8;
+                return fsTypeOffset < 8 || fsTypeOffset + 2 > fontBytes.length || buffer.getShort(fsTypeOffset) != 0;
+            }
+        }
+        return false;
+    }
+
     private static int readUnsignedShort(ByteBuffer buffer, int offset) {
         return Short.toUnsignedInt(buffer.getShort(offset));
     }
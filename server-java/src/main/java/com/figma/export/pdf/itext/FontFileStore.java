@@ -0,0 +1,88 @@
+package com.figma.export.pdf.itext;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.CRC32;
+
+/**
+ * Локальное хранилище файлов шрифтов, готовых к встраиванию. Шрифт из jar извлекается один раз
+ * (уже со сброшенным fsType), после чего iText открывает его как файл через memory-mapped источник,
+ * и байты шрифта живут в page cache, а не копируются в кучу для каждого запроса.
+ */
+final class FontFileStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(FontFileStore.class);
+
+    private final Path directory;
+    private final FontCatalog.FontBytesSource bytesSource;
+    private final Map<String, Path> resolvedFiles = new ConcurrentHashMap<>();
+
+    FontFileStore(Path directory, FontCatalog.FontBytesSource bytesSource) {
+        this.directory = directory;
+        this.bytesSource = bytesSource;
+    }
+
+    boolean isEnabled() {
+        return directory != null;
+    }
+
+    /**
+     * Возвращает путь к файлу шрифта, который можно встраивать без изменений. Системный шрифт с
+     * нулевым fsType используется на месте, остальные извлекаются в каталог хранилища.
+     */
+    Path resolve(FontIndexEntry entry) throws IOException {
+        Path resolved = resolvedFiles.get(entry.cacheKey());
+        if (resolved != null) {
+            return resolved;
+        }
+        resolved = materialize(entry);
+        resolvedFiles.put(entry.cacheKey(), resolved);
+        return resolved;
+    }
+
+    private Path materialize(FontIndexEntry entry) throws IOException {
+        Path target = directory.resolve(storedFileName(entry));
+        if (Files.isRegularFile(target) && Files.size(target) == entry.length()) {
+            return target;
+        }
+        byte[] original = bytesSource.read(entry);
+        byte[] embeddable = FontEmbeddingUtil.ensureEmbeddable(original, entry.displayName(), logger);
+        if (entry.origin() == FontIndexEntry.Origin.FILE && embeddable == original) {
+            return Path.of(entry.location());
+        }
+        if (entry.checksum() != checksum(embeddable)) {
+            logger.warn("Шрифт '{}' изменился после построения индекса, метаданные могут быть неточными.", entry.displayName());
+        }
+        Path tempFile = Files.createTempFile(directory, target.getFileName().toString(), ".tmp");
+        try {
+            Files.write(tempFile, embeddable);
+            Files.move(tempFile, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+        logger.debug("Шрифт '{}' извлечён в '{}'", entry.displayName(), target);
+        return target;
+    }
+
+    static long checksum(byte[] bytes) {
+        CRC32 crc = new CRC32();
+        crc.update(bytes);
+        return crc.getValue();
+    }
+
+    private static String storedFileName(FontIndexEntry entry) {
+        String location = entry.location();
+        int slash = Math.max(location.lastIndexOf('/'), location.lastIndexOf('\\'));
+        String fileName = slash >= 0 ? location.substring(slash + 1) : location;
+        String safeName = fileName.replaceAll("[^A-Za-z0-9._-]", "_");
+        return String.format(Locale.ROOT, "%08x-%s", entry.checksum(), safeName);
+    }
+}
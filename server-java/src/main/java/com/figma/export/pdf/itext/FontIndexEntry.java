@@ -0,0 +1,52 @@
+package com.figma.export.pdf.itext;
+
+import java.util.List;
+
+/**
+ * Запись лёгкого индекса шрифтов: имена, начертание и место, откуда шрифт можно загрузить.
+ *
+ * @param location путь ресурса в classpath (например {@code fonts/Jost-Regular.ttf}) или файла на диске
+ * @param ttcIndex индекс начертания в TrueType Collection либо {@code -1} для одиночного шрифта
+ * @param length   размер файла шрифта в байтах, используется как вес в кэше FontProgram
+ * @param checksum CRC32 байтов шрифта после сброса fsType, которые встраиваются в PDF
+ */
+record FontIndexEntry(String id,
+                      Origin origin,
+                      String location,
+                      int ttcIndex,
+                      long length,
+                      long checksum,
+                      String fontName,
+                      String familyName,
+                      String fullName,
+                      int weight,
+                      boolean italic,
+                      List<String> aliases) {
+
+    enum Origin {
+        CLASSPATH,
+        FILE
+    }
+
+    FontIndexEntry {
+        aliases = List.copyOf(aliases);
+    }
+
+    static String createId(Origin origin, String location, int ttcIndex) {
+        String base = origin.name().toLowerCase(java.util.Locale.ROOT) + ":" + location;
+        return ttcIndex >= 0 ? base + "#" + ttcIndex : base;
+    }
+
+    /**
+     * Ключ загруженного шрифта в кэшах: тот же файл с другим содержимым получает другой ключ.
+     */
+    String cacheKey() {
+        return id + "@" + Long.toHexString(checksum);
+    }
+
+    String displayName() {
+        int slash = Math.max(location.lastIndexOf('/'), location.lastIndexOf('\\'));
+        String fileName = slash >= 0 ? location.substring(slash + 1) : location;
+        return ttcIndex >= 0 ? fileName + "#" + ttcIndex : fileName;
+    }
+}
@@ -0,0 +1,189 @@
+package com.figma.export.pdf.itext;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+
+/**
+ * Двоичный индекс шрифтов на диске. Файл привязан к ключу — хэшу списка шрифтов; при любом
+ * изменении набора (новый jar, обновлённые системные шрифты) ключ не совпадёт и индекс будет пересобран.
+ */
+final class FontIndexStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(FontIndexStore.class);
+
+    private static final int MAGIC = 0x46494458; // 'FIDX'
+    private static final int FORMAT_VERSION = 2;
+
+    private final Path indexFile;
+
+    /**
+     * @param directory каталог кэша; {@code null} — индекс не сохраняется
+     * @param fileName  имя файла индекса в каталоге
+     */
+    FontIndexStore(Path directory, String fileName) {
+        this.indexFile = directory != null ? directory.resolve(fileName) : null;
+    }
+
+    /**
+     * Вычисляет ключ индекса по описаниям файлов шрифтов (путь, размер, дата изменения).
+     * Порядок описаний не важен.
+     */
+    static String computeKey(List<String> fingerprints) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(Integer.toString(FORMAT_VERSION).getBytes(StandardCharsets.UTF_8));
+            fingerprints.stream().sorted().forEach(fingerprint -> {
+                digest.update((byte) '\n');
+                digest.update(fingerprint.getBytes(StandardCharsets.UTF_8));
+            });
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException("SHA-256 недоступен", ex);
+        }
+    }
+
+    /**
+     * Возвращает сохранённые записи или {@code null}, если индекса нет, он повреждён или собран
+     * для другого набора шрифтов.
+     */
+    List<FontIndexEntry> load(String key) {
+        if (indexFile == null || !Files.isRegularFile(indexFile)) {
+            return null;
+        }
+        try (InputStream input = new BufferedInputStream(Files.newInputStream(indexFile))) {
+            List<FontIndexEntry> entries = read(input, key);
+            if (entries == null) {
+                logger.info("Индекс шрифтов '{}' устарел и будет пересобран.", indexFile);
+            }
+            return entries;
+        } catch (IOException | RuntimeException ex) {
+            logger.warn("Не удалось прочитать индекс шрифтов '{}': {}", indexFile, ex.getMessage());
+            return null;
+        }
+    }
+
+    void save(String key, List<FontIndexEntry> entries) {
+        if (indexFile == null) {
+            return;
+        }
+        Path tempFile = null;
+        try {
+            tempFile = Files.createTempFile(indexFile.getParent(), indexFile.getFileName().toString(), ".tmp");
+            try (OutputStream output = new BufferedOutputStream(Files.newOutputStream(tempFile))) {
+                write(output, key, entries);
+            }
+            Files.move(tempFile, indexFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            logger.info("Индекс шрифтов сохранён в '{}' ({} записей).", indexFile, entries.size());
+        } catch (IOException ex) {
+            logger.warn("Не удалось сохранить индекс шрифтов в '{}': {}", indexFile, ex.getMessage());
+            if (tempFile != null) {
+                try {
+                    Files.deleteIfExists(tempFile);
+                } catch (IOException ignored) {
+                    // временный файл будет перезаписан при следующей попытке
+                }
+            }
+        }
+    }
+
+    static List<FontIndexEntry> read(InputStream input, String expectedKey) throws IOException {
+        DataInputStream in = new DataInputStream(input);
+        if (in.readInt() != MAGIC) {
+            throw new IOException("Файл не является индексом шрифтов");
+        }
+        if (in.readInt() != FORMAT_VERSION) {
+            return null;
+        }
+        String key = in.readUTF();
+        if (expectedKey != null && !expectedKey.equals(key)) {
+            return null;
+        }
+        int count = in.readInt();
+        List<FontIndexEntry> entries = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            FontIndexEntry.Origin origin = FontIndexEntry.Origin.values()[in.readUnsignedByte()];
+            String location = in.readUTF();
+            int ttcIndex = in.readInt();
+            long length = in.readLong();
+            long checksum = in.readLong();
+            String fontName = in.readUTF();
+            String familyName = readNullableUtf(in);
+            String fullName = readNullableUtf(in);
+            int weight = in.readUnsignedShort();
+            boolean italic = in.readBoolean();
+            int aliasCount = in.readInt();
+            List<String> aliases = new ArrayList<>(aliasCount);
+            for (int a = 0; a < aliasCount; a++) {
+                aliases.add(in.readUTF());
+            }
+            entries.add(new FontIndexEntry(
+                    FontIndexEntry.createId(origin, location, ttcIndex),
+                    origin,
+                    location,
+                    ttcIndex,
+                    length,
+                    checksum,
+                    fontName,
+                    familyName,
+                    fullName,
+                    weight,
+                    italic,
+                    aliases
+            ));
+        }
+        return entries;
+    }
+
+    static void write(OutputStream output, String key, List<FontIndexEntry> entries) throws IOException {
+        DataOutputStream out = new DataOutputStream(output);
+        out.writeInt(MAGIC);
+        out.writeInt(FORMAT_VERSION);
+        out.writeUTF(key);
+        out.writeInt(entries.size());
+        for (FontIndexEntry entry : entries) {
+            out.writeByte(entry.origin().ordinal());
+            out.writeUTF(entry.location());
+            out.writeInt(entry.ttcIndex());
+            out.writeLong(entry.length());
+            out.writeLong(entry.checksum());
+            out.writeUTF(entry.fontName());
+            writeNullableUtf(out, entry.familyName());
+            writeNullableUtf(out, entry.fullName());
+            out.writeShort(entry.weight());
+            out.writeBoolean(entry.italic());
+            out.writeInt(entry.aliases().size());
+            for (String alias : entry.aliases()) {
+                out.writeUTF(alias);
+            }
+        }
+        out.flush();
+    }
+
+    private static String readNullableUtf(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    private static void writeNullableUtf(DataOutputStream out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+}
@@ -0,0 +1,170 @@
+package com.figma.export.pdf.itext;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Строит записи индекса шрифтов: сбрасывает fsType, считает контрольную сумму, читает имена и
+ * собирает алиасы гарнитур. Используется и при старте сервиса, и при сборке манифеста шрифтов.
+ */
+final class FontIndexer {
+
+    private static final Logger logger = LoggerFactory.getLogger(FontIndexer.class);
+
+    private FontIndexer() {
+    }
+
+    static List<FontIndexEntry> index(FontIndexEntry.Origin origin,
+                                      String location,
+                                      String displayName,
+                                      byte[] bytes) throws IOException {
+        byte[] embeddable = FontEmbeddingUtil.ensureEmbeddable(bytes, displayName, logger);
+        long checksum = FontFileStore.checksum(embeddable);
+        boolean collection = displayName.toLowerCase(Locale.ROOT).endsWith(".ttc");
+
+        List<FontMetadata> faces = FontMetadataReader.readFaces(embeddable);
+        List<FontIndexEntry> entries = new ArrayList<>(faces.size());
+        for (int i = 0; i < faces.size(); i++) {
+            int ttcIndex = collection ? i : -1;
+            FontIndexEntry entry = createIndexEntry(origin, location, ttcIndex, bytes.length, checksum, faces.get(i), displayName);
+            if (entry != null) {
+                entries.add(entry);
+            }
+        }
+        return entries;
+    }
+
+    private static FontIndexEntry createIndexEntry(FontIndexEntry.Origin origin,
+                                                   String location,
+                                                   int ttcIndex,
+                                                   long length,
+                                                   long checksum,
+                                                   FontMetadata metadata,
+                                                   String displayName) {
+        String fontName = metadata.fontName();
+        if (!isValidName(fontName)) {
+            logger.warn("Пропущен шрифт '{}': некорректное имя '{}'.", displayName, fontName);
+            return null;
+        }
+        Set<String> aliases = collectFontAliases(metadata);
+        if (logger.isDebugEnabled()) {
+            if (!aliases.isEmpty()) {
+                logger.debug("Font '{}' indexed with aliases: {}", displayName, aliases);
+            } else {
+                logger.debug("Font '{}' indexed without additional aliases", displayName);
+            }
+        }
+        return new FontIndexEntry(
+                FontIndexEntry.createId(origin, location, ttcIndex),
+                origin,
+                location,
+                ttcIndex,
+                length,
+                checksum,
+                fontName,
+                metadata.familyName(),
+                metadata.fullName(),
+                metadata.weight(),
+                metadata.italic(),
+                new ArrayList<>(aliases)
+        );
+    }
+
+    private static boolean isValidName(String name) {
+        return name != null && name.chars().anyMatch(Character::isLetter);
+    }
+
+    /**
+     * Собирает имена, под которыми шрифт ищется по font-family: полные и семейные имена, имя без
+     * суффикса начертания и префиксы до дефиса/пробела. Регистр не различается — имена, совпадающие
+     * после {@link FontCatalog#normalizeFamily(String)}, хранятся один раз.
+     */
+    private static Set<String> collectFontAliases(FontMetadata metadata) {
+        Map<String, String> aliases = new LinkedHashMap<>();
+        String fontName = metadata.fontName();
+        addSimpleVariants(aliases, fontName);
+        addAllVariants(aliases, metadata.fullNames());
+        addAllVariants(aliases, metadata.familyNames());
+        aliases.remove(FontCatalog.normalizeFamily(fontName));
+        return new LinkedHashSet<>(aliases.values());
+    }
+
+    private static void addAllVariants(Map<String, String> aliases, Collection<String> names) {
+        for (String name : names) {
+            if (isValidName(name)) {
+                addSimpleVariants(aliases, name);
+            }
+        }
+    }
+
+    private static void addSimpleVariants(Map<String, String> aliases, String name) {
+        if (name == null) {
+            return;
+        }
+        String trimmed = name.trim();
+        if (!isValidName(trimmed)) {
+            return;
+        }
+        addAlias(aliases, trimmed);
+        addAlias(aliases, removeStyleSuffix(trimmed));
+
+        int hyphenIndex = trimmed.indexOf('-');
+        if (hyphenIndex > 0) {
+            addAlias(aliases, trimmed.substring(0, hyphenIndex).trim());
+        }
+
+        int spaceIndex = trimmed.indexOf(' ');
+        if (spaceIndex > 0) {
+            addAlias(aliases, trimmed.substring(0, spaceIndex).trim());
+        }
+    }
+
+    private static void addAlias(Map<String, String> aliases, String alias) {
+        if (isValidName(alias)) {
+            aliases.putIfAbsent(FontCatalog.normalizeFamily(alias), alias);
+        }
+    }
+
+    private static String removeStyleSuffix(String name) {
+        if (name == null) {
+            return null;
+        }
+        String trimmed = name.trim();
+        if (trimmed.isEmpty()) {
+            return trimmed;
+        }
+        int lastSpace = trimmed.lastIndexOf(' ');
+        if (lastSpace > 0) {
+            String suffix = trimmed.substring(lastSpace + 1);
+            if (isStyleDescriptor(suffix)) {
+                return trimmed.substring(0, lastSpace);
+            }
+        }
+        int lastHyphen = trimmed.lastIndexOf('-');
+        if (lastHyphen > 0) {
+            String suffix = trimmed.substring(lastHyphen + 1);
+            if (isStyleDescriptor(suffix)) {
+                return trimmed.substring(0, lastHyphen);
+            }
+        }
+        return trimmed;
+    }
+
+    private static boolean isStyleDescriptor(String value) {
+        if (value == null || value.isBlank()) {
+            return false;
+        }
+        String normalized = value.trim().toLowerCase(Locale.ROOT);
+        return normalized.matches("(regular|italic|oblique|bold|semibold|medium|light|thin|extrathin|extralight|black|heavy|book|roman|condensed|expanded)");
+    }
+}
@@ -0,0 +1,112 @@
+package com.figma.export.pdf.itext;
+
+import com.itextpdf.io.font.FontProgram;
+import com.itextpdf.io.font.FontProgramFactory;
+import com.itextpdf.io.font.PdfEncodings;
+import com.itextpdf.kernel.exceptions.PdfException;
+import com.itextpdf.kernel.font.PdfFontFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.stream.Stream;
+
+/**
+ * Шаг сборки (exec-maven-plugin, фаза process-classes): сбрасывает fsType у шрифтов в
+ * {@code target/classes/fonts}, проверяет, что iText может их разобрать и встроить, удаляет
+ * негодные и записывает манифест {@value #MANIFEST_LOCATION}. При наличии манифеста сервис
+ * не сканирует и не разбирает встроенные шрифты на старте.
+ */
+public final class FontManifestGenerator {
+
+    static final String MANIFEST_LOCATION = "fonts/font-index.bin";
+
+    private static final Logger logger = LoggerFactory.getLogger(FontManifestGenerator.class);
+    private static final String FONT_DIRECTORY = "fonts";
+
+    private FontManifestGenerator() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 1) {
+            throw new IllegalArgumentException("Ожидается один аргумент: каталог скомпилированных ресурсов (target/classes)");
+        }
+        Path outputDirectory = Path.of(args[0]);
+        Path fontDirectory = outputDirectory.resolve(FONT_DIRECTORY);
+        Path manifest = outputDirectory.resolve(MANIFEST_LOCATION);
+        if (!Files.isDirectory(fontDirectory)) {
+            logger.info("Каталог шрифтов '{}' не найден, манифест не создаётся.", fontDirectory);
+            Files.deleteIfExists(manifest);
+            return;
+        }
+
+        List<Path> fontFiles;
+        try (Stream<Path> paths = Files.walk(fontDirectory)) {
+            fontFiles = paths.filter(Files::isRegularFile)
+                    .filter(path -> isSupportedFontFile(path.getFileName().toString()))
+                    .sorted()
+                    .toList();
+        }
+
+        List<FontIndexEntry> entries = new ArrayList<>();
+        List<String> fingerprints = new ArrayList<>();
+        int removed = 0;
+        for (Path file : fontFiles) {
+            String location = outputDirectory.relativize(file).toString().replace('\\', '/');
+            List<FontIndexEntry> fileEntries = preprocess(file, location);
+            if (fileEntries.isEmpty()) {
+                Files.delete(file);
+                removed++;
+                continue;
+            }
+            entries.addAll(fileEntries);
+            fingerprints.add(location + ":" + fileEntries.get(0).checksum());
+        }
+
+        try (OutputStream output = new BufferedOutputStream(Files.newOutputStream(manifest))) {
+            FontIndexStore.write(output, FontIndexStore.computeKey(fingerprints), entries);
+        }
+        logger.info("Манифест шрифтов записан в '{}': шрифтов={}, записей={}, удалено негодных={}",
+                manifest, fontFiles.size() - removed, entries.size(), removed);
+    }
+
+    /**
+     * Сбрасывает fsType на месте и проверяет шрифт так же, как каталог при загрузке.
+     * Пустой результат означает, что шрифт нужно исключить из сборки.
+     */
+    private static List<FontIndexEntry> preprocess(Path file, String location) {
+        String displayName = file.getFileName().toString();
+        try {
+            byte[] original = Files.readAllBytes(file);
+            byte[] embeddable = FontEmbeddingUtil.ensureEmbeddable(original, displayName, logger);
+            FontProgram program = FontProgramFactory.createFont(embeddable, false);
+            PdfFontFactory.createFont(program, PdfEncodings.IDENTITY_H);
+            List<FontIndexEntry> entries = FontIndexer.index(FontIndexEntry.Origin.CLASSPATH, location, displayName, embeddable);
+            if (entries.isEmpty()) {
+                return entries;
+            }
+            if (embeddable != original) {
+                Files.write(file, embeddable);
+            }
+            return entries;
+        } catch (PdfException | com.itextpdf.io.exceptions.IOException ex) {
+            logger.warn("Шрифт '{}' исключён из сборки: {}", displayName, ex.getMessage());
+            return List.of();
+        } catch (IOException ex) {
+            logger.warn("Шрифт '{}' исключён из сборки: не удалось прочитать ({})", displayName, ex.getMessage());
+            return List.of();
+        }
+    }
+
+    private static boolean isSupportedFontFile(String fileName) {
+        String lowerName = fileName.toLowerCase(Locale.ROOT);
+        return lowerName.endsWith(".ttf") || lowerName.endsWith(".otf");
+    }
+}
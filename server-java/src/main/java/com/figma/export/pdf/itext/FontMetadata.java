@@ -0,0 +1,15 @@
+package com.figma.export.pdf.itext;
+
+import java.util.Set;
+
+/**
+ * Имена и начертание шрифта, прочитанные из таблиц name/OS/2 без разбора глифов.
+ */
+record FontMetadata(String fontName,
+                    String familyName,
+                    String fullName,
+                    int weight,
+                    boolean italic,
+                    Set<String> fullNames,
+                    Set<String> familyNames) {
+}
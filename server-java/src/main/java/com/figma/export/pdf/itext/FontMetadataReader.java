@@ -0,0 +1,234 @@
+package com.figma.export.pdf.itext;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Разбирает в TrueType/OpenType только таблицы name, OS/2 и head. Этого хватает для индекса гарнитур,
+ * а полноценный {@link com.itextpdf.io.font.FontProgram} создаётся позже, когда шрифт действительно нужен.
+ */
+final class FontMetadataReader {
+
+    private static final int TTCF_TAG = 0x74746366; // 'ttcf'
+    private static final int NAME_TAG = 0x6E616D65; // 'name'
+    private static final int OS2_TAG = 0x4F532F32; // 'O''S''/''2'
+    private static final int HEAD_TAG = 0x68656164; // 'head'
+    private static final int TABLE_DIR_OFFSET = 12;
+    private static final int TABLE_ENTRY_SIZE = 16;
+    private static final int MAX_TABLE_LENGTH = 16 * 1024 * 1024;
+
+    private static final int NAME_FAMILY = 1;
+    private static final int NAME_FULL = 4;
+    private static final int NAME_POSTSCRIPT = 6;
+    private static final int NAME_TYPOGRAPHIC_FAMILY = 16;
+
+    private FontMetadataReader() {
+    }
+
+    /**
+     * Разбирает шрифт, уже находящийся в памяти. Для TrueType Collection возвращает все начертания
+     * в порядке их индексов.
+     */
+    static List<FontMetadata> readFaces(byte[] bytes) throws IOException {
+        if (bytes == null || bytes.length < TABLE_DIR_OFFSET) {
+            throw new IOException("Данные слишком малы для шрифта");
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        if (buffer.getInt(0) != TTCF_TAG) {
+            return List.of(readFace(buffer, 0));
+        }
+        int numFonts = buffer.getInt(8);
+        checkRange(buffer, 12, (long) numFonts * 4);
+        List<FontMetadata> faces = new ArrayList<>(numFonts);
+        for (int i = 0; i < numFonts; i++) {
+            faces.add(readFace(buffer, buffer.getInt(12 + i * 4)));
+        }
+        return faces;
+    }
+
+    private static FontMetadata readFace(ByteBuffer buffer, int faceOffset) throws IOException {
+        checkRange(buffer, faceOffset, TABLE_DIR_OFFSET);
+        int numTables = readUnsignedShort(buffer, faceOffset + 4);
+        checkRange(buffer, faceOffset + TABLE_DIR_OFFSET, (long) numTables * TABLE_ENTRY_SIZE);
+        Map<Integer, ByteBuffer> tables = new HashMap<>();
+        for (TableRecord record : selectTables(buffer, faceOffset + TABLE_DIR_OFFSET, numTables)) {
+            checkRange(buffer, record.offset(), record.length());
+            tables.put(record.tag(), buffer.slice((int) record.offset(), record.length()));
+        }
+        return parse(tables);
+    }
+
+    private static List<TableRecord> selectTables(ByteBuffer directory, int start, int numTables) throws IOException {
+        List<TableRecord> records = new ArrayList<>(3);
+        for (int i = 0; i < numTables; i++) {
+            int entryOffset = start + i * TABLE_ENTRY_SIZE;
+            int tag = directory.getInt(entryOffset);
+            if (tag != NAME_TAG && tag != OS2_TAG && tag != HEAD_TAG) {
+                continue;
+            }
+            long offset = Integer.toUnsignedLong(directory.getInt(entryOffset + 8));
+            long length = Integer.toUnsignedLong(directory.getInt(entryOffset + 12));
+            if (length > MAX_TABLE_LENGTH) {
+                throw new IOException("Таблица шрифта слишком велика: " + length + " байт");
+            }
+            records.add(new TableRecord(tag, offset, (int) length));
+        }
+        return records;
+    }
+
+    private static FontMetadata parse(Map<Integer, ByteBuffer> tables) throws IOException {
+        ByteBuffer nameTable = tables.get(NAME_TAG);
+        if (nameTable == null) {
+            throw new IOException("В шрифте отсутствует таблица name");
+        }
+        NameCollector names = readNameTable(nameTable);
+
+        int weight = 400;
+        boolean italic = false;
+        ByteBuffer os2 = tables.get(OS2_TAG);
+        ByteBuffer head = tables.get(HEAD_TAG);
+        if (os2 != null && os2.limit() >= 64) {
+            weight = normalizeWeight(readUnsignedShort(os2, 4));
+            int fsSelection = readUnsignedShort(os2, 62);
+            italic = (fsSelection & 0x0001) != 0 || (fsSelection & 0x0200) != 0;
+        } else if (head != null && head.limit() >= 46) {
+            int macStyle = readUnsignedShort(head, 44);
+            weight = (macStyle & 0x01) != 0 ? 700 : 400;
+            italic = (macStyle & 0x02) != 0;
+        }
+
+        String fullName = names.best(NAME_FULL);
+        String fontName = names.best(NAME_POSTSCRIPT);
+        if (fontName == null && fullName != null) {
+            fontName = fullName.replace(' ', '-');
+        }
+        if (fontName == null) {
+            throw new IOException("В таблице name нет ни PostScript-, ни полного имени");
+        }
+        String familyName = names.best(NAME_TYPOGRAPHIC_FAMILY);
+        if (familyName == null) {
+            familyName = names.best(NAME_FAMILY);
+        }
+        Set<String> familyNames = new LinkedHashSet<>(names.all(NAME_FAMILY));
+        familyNames.addAll(names.all(NAME_TYPOGRAPHIC_FAMILY));
+        return new FontMetadata(
+                fontName,
+                familyName,
+                fullName != null ? fullName : fontName,
+                weight,
+                italic,
+                Set.copyOf(names.all(NAME_FULL)),
+                Set.copyOf(familyNames)
+        );
+    }
+
+    private static NameCollector readNameTable(ByteBuffer table) {
+        NameCollector collector = new NameCollector();
+        if (table.limit() < 6) {
+            return collector;
+        }
+        int count = readUnsignedShort(table, 2);
+        int stringOffset = readUnsignedShort(table, 4);
+        for (int i = 0; i < count; i++) {
+            int record = 6 + i * 12;
+            if (record + 12 > table.limit()) {
+                break;
+            }
+            int nameId = readUnsignedShort(table, record + 6);
+            if (nameId != NAME_FAMILY && nameId != NAME_FULL && nameId != NAME_POSTSCRIPT && nameId != NAME_TYPOGRAPHIC_FAMILY) {
+                continue;
+            }
+            int platformId = readUnsignedShort(table, record);
+            int encodingId = readUnsignedShort(table, record + 2);
+            int languageId = readUnsignedShort(table, record + 4);
+            int length = readUnsignedShort(table, record + 8);
+            int start = stringOffset + readUnsignedShort(table, record + 10);
+            if (start + length > table.limit()) {
+                continue;
+            }
+            Charset charset = charsetFor(platformId, encodingId);
+            if (charset == null) {
+                continue;
+            }
+            byte[] raw = new byte[length];
+            table.get(start, raw);
+            String value = new String(raw, charset).replace("\u0000", "").trim();
+            if (!value.isEmpty()) {
+                collector.add(nameId, value, score(platformId, languageId));
+            }
+        }
+        return collector;
+    }
+
+    private static Charset charsetFor(int platformId, int encodingId) {
+        if (platformId == 0 || platformId == 3) {
+            return StandardCharsets.UTF_16BE;
+        }
+        if (platformId == 1 && encodingId == 0) {
+            return StandardCharsets.ISO_8859_1;
+        }
+        return null;
+    }
+
+    private static int score(int platformId, int languageId) {
+        if (platformId == 3) {
+            return languageId == 0x409 ? 4 : 3;
+        }
+        if (platformId == 0) {
+            return 2;
+        }
+        return languageId == 0 ? 1 : 0;
+    }
+
+    private static int normalizeWeight(int weightClass) {
+        if (weightClass <= 0) {
+            return 400;
+        }
+        // Старые шрифты хранят вес в шкале 1..9.
+        return weightClass < 10 ? weightClass * 100 : Math.min(weightClass, 1000);
+    }
+
+    private static int readUnsignedShort(ByteBuffer buffer, int offset) {
+        return Short.toUnsignedInt(buffer.getShort(offset));
+    }
+
+    private static void checkRange(ByteBuffer buffer, long offset, long length) throws IOException {
+        if (offset < 0 || length < 0 || offset + length > buffer.limit()) {
+            throw new IOException("Некорректная структура шрифта: offset " + offset + ", length " + length);
+        }
+    }
+
+    private record TableRecord(int tag, long offset, int length) {
+    }
+
+    private static final class NameCollector {
+        private final Map<Integer, String> best = new HashMap<>();
+        private final Map<Integer, Integer> bestScore = new HashMap<>();
+        private final Map<Integer, Set<String>> all = new HashMap<>();
+
+        void add(int nameId, String value, int score) {
+            all.computeIfAbsent(nameId, id -> new LinkedHashSet<>()).add(value);
+            Integer current = bestScore.get(nameId);
+            if (current == null || score > current) {
+                best.put(nameId, value);
+                bestScore.put(nameId, score);
+            }
+        }
+
+        String best(int nameId) {
+            return best.get(nameId);
+        }
+
+        Set<String> all(int nameId) {
+            return all.getOrDefault(nameId, Set.of());
+        }
+    }
+}
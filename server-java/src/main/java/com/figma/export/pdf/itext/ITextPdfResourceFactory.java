@@ -1,35 +1,40 @@
 package com.figma.export.pdf.itext;
 
+import com.figma.export.cache.CacheDirectory;
+import com.figma.export.cache.CacheStats;
 import com.figma.export.color.ColorProfile;
 import com.figma.export.color.ColorProfileManager;
 import com.figma.export.exception.ConversionException;
-import com.itextpdf.io.font.FontProgram;
-import com.itextpdf.io.font.FontProgramFactory;
-import com.itextpdf.io.font.PdfEncodings;
-import com.itextpdf.kernel.exceptions.PdfException;
 import com.itextpdf.kernel.pdf.PdfDocument;
 import com.itextpdf.kernel.pdf.PdfOutputIntent;
 import com.itextpdf.kernel.pdf.PdfVersion;
 import com.itextpdf.kernel.pdf.WriterProperties;
-import com.itextpdf.kernel.font.PdfFont;
-import com.itextpdf.kernel.font.PdfFontFactory;
-import com.itextpdf.layout.font.FontSet;
+import jakarta.annotation.PreDestroy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ClassPathResource;
 import org.springframework.core.io.Resource;
 import org.springframework.core.io.support.ResourcePatternResolver;
 import org.springframework.stereotype.Component;
 
+import java.io.BufferedInputStream;
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
-import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Locale;
 import java.util.Objects;
-import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Загружает ресурсы (ICC-профили, шрифты) и предоставляет базовые настройки для iText 7.
@@ -42,20 +47,55 @@ public class ITextPdfResourceFactory {
     private static final String FONT_RESOURCE_LOCATION = "classpath*:fonts/**/*.";
     private static final String COLOR_PROFILE_REGISTRY = "http://www.color.org";
     private static final PdfVersion DEFAULT_PDF_VERSION = PdfVersion.PDF_1_6;
+    private static final String FONT_DIRECTORY = "fonts/";
 
     private final ColorProfileManager colorProfileManager;
     private final ResourcePatternResolver resourcePatternResolver;
-    private final List<Resource> embeddedFontResources;
+    private final FontIndexStore embeddedFontIndexStore;
+    private final SystemFontScanner systemFontScanner;
+    private final List<FontIndexEntry> embeddedFontEntries;
+    private final ScheduledExecutorService systemFontRefresher;
+    private volatile List<FontIndexEntry> systemFontEntries = List.of();
+    private volatile FontCatalog fontCatalog;
 
     public ITextPdfResourceFactory(ColorProfileManager colorProfileManager,
-                                   ResourcePatternResolver resourcePatternResolver) {
+                                   ResourcePatternResolver resourcePatternResolver,
+                                   CacheDirectory cacheDirectory,
+                                   @Value("${export.fonts.cache-max-mb:256}") long fontCacheMaxMb,
+                                   @Value("${export.fonts.subset-cache-max-mb:64}") long subsetCacheMaxMb,
+                                   @Value("${export.fonts.system.enabled:true}") boolean systemFontsEnabled,
+                                   @Value("${export.fonts.system.refresh-minutes:0}") long systemFontRefreshMinutes) {
         this.colorProfileManager = colorProfileManager;
         this.resourcePatternResolver = resourcePatternResolver;
-        this.embeddedFontResources = loadEmbeddedFontResources();
-        if (embeddedFontResources.isEmpty()) {
-            logger.info("Встроенные шрифты для iText не найдены. Будут использоваться стандартные и системные гарнитуры.");
+        Path indexDirectory = cacheDirectory.resolve("fonts").orElse(null);
+        this.embeddedFontIndexStore = new FontIndexStore(indexDirectory, "classpath-font-index.bin");
+        this.systemFontScanner = systemFontsEnabled
+                ? new SystemFontScanner(new FontIndexStore(indexDirectory, "system-font-index.bin"))
+                : null;
+
+        long startNs = System.nanoTime();
+        this.embeddedFontEntries = loadEmbeddedFontEntries();
+        if (systemFontScanner != null) {
+            List<FontIndexEntry> scanned = systemFontScanner.scanIfChanged();
+            this.systemFontEntries = scanned != null ? scanned : List.of();
         } else {
-            logger.info("Обнаружено {} шрифтов для iText в classpath.", embeddedFontResources.size());
+            logger.info("Системные шрифты отключены (export.fonts.system.enabled=false).");
+        }
+        this.fontCatalog = new FontCatalog(combinedFontEntries(), this::readFontBytes,
+                cacheDirectory.resolve("fonts/files").orElse(null),
+                fontCacheMaxMb * 1024L * 1024L, subsetCacheMaxMb * 1024L * 1024L);
+        logger.info("Индекс шрифтов iText готов: встроенных={}, системных={}, время={} мс",
+                embeddedFontEntries.size(), systemFontEntries.size(), (System.nanoTime() - startNs) / 1_000_000L);
+
+        this.systemFontRefresher = systemFontScanner != null && systemFontRefreshMinutes > 0
+                ? startSystemFontRefresh(systemFontRefreshMinutes)
+                : null;
+    }
+
+    @PreDestroy
+    void shutdown() {
+        if (systemFontRefresher != null) {
+            systemFontRefresher.shutdownNow();
         }
     }
 
@@ -71,35 +111,22 @@ public class ITextPdfResourceFactory {
     }
 
     /**
-     * Создаёт {@link FontProvider} с зарегистрированными стандартными, системными и встроенными шрифтами.
+     * Создаёт {@link com.itextpdf.layout.font.FontProvider}, в который заранее загружены гарнитуры,
+     * найденные в документе. Набор шрифтов не меняется во время рендеринга, и iText не пересобирает
+     * кэш выбора шрифтов на каждой новой гарнитуре.
+     *
+     * @param subsetFonts встраивать только использованные глифы; сабсеты кэшируются между запросами
      */
-    public NonSubsettingFontProvider createFontProvider() {
-        FontSet fontSet = new FontSet();
-        String defaultFamily = null;
-        for (Resource resource : embeddedFontResources) {
-            String displayName = safeName(resource);
-            FontProgram fontProgram = loadFontProgram(resource, displayName);
-            if (fontProgram == null) {
-                continue;
-            }
-
-            if (!registerFontProgram(fontSet, fontProgram, displayName)) {
-                continue;
-            }
-            if (defaultFamily == null) {
-                defaultFamily = fontProgram.getFontNames().getFontName();
-            }
-        }
+    public NonSubsettingFontProvider createFontProvider(Collection<String> fontFamilies, boolean subsetFonts) {
+        return new NonSubsettingFontProvider(fontCatalog, fontFamilies, subsetFonts);
+    }
 
-        String fallbackFamily = defaultFamily != null ? defaultFamily : "Helvetica";
-        NonSubsettingFontProvider provider = new NonSubsettingFontProvider(fontSet, fallbackFamily);
+    public CacheStats getFontCacheStats() {
+        return fontCatalog.cacheStats();
+    }
 
-        provider.addStandardPdfFonts();
-        provider.addSystemFonts();
-        if (provider.getFontSet().isEmpty()) {
-            logger.warn("FontProvider не содержит шрифтов после инициализации. SVG текст может быть не встроен.");
-        }
-        return provider;
+    public CacheStats getFontSubsetCacheStats() {
+        return fontCatalog.subsetCacheStats();
     }
 
     /**
@@ -154,179 +181,166 @@ public class ITextPdfResourceFactory {
         };
     }
 
-    private List<Resource> loadEmbeddedFontResources() {
-        List<Resource> resources = new ArrayList<>();
-        for (String pattern : fontPatterns()) {
-            try {
-                Resource[] found = resourcePatternResolver.getResources(pattern);
-                for (Resource resource : found) {
-                    if (!resource.isReadable()) {
-                        continue;
-                    }
-                    String name = resource.getFilename();
-                    if (name == null) {
-                        continue;
-                    }
-                    String lowerName = name.toLowerCase(Locale.ROOT);
-                    if (!(lowerName.endsWith(".ttf") || lowerName.endsWith(".otf"))) {
-                        continue;
-                    }
-                    resources.add(resource);
-                }
-            } catch (IOException ex) {
-                logger.warn("Не удалось загрузить шрифты по шаблону '{}'.", pattern, ex);
+    /**
+     * Возвращает записи встроенных шрифтов. Они берутся из манифеста, созданного при сборке; без него
+     * (запуск из IDE) classpath сканируется, а индекс сохраняется на диск и переиспользуется, пока
+     * набор шрифтов не изменится.
+     */
+    private List<FontIndexEntry> loadEmbeddedFontEntries() {
+        List<FontIndexEntry> manifestEntries = loadFontManifest();
+        if (!manifestEntries.isEmpty()) {
+            logger.info("Встроенные шрифты загружены из манифеста: {} записей.", manifestEntries.size());
+            return manifestEntries;
+        }
+        List<Resource> embeddedFontResources = loadEmbeddedFontResources();
+        if (embeddedFontResources.isEmpty()) {
+            logger.info("Встроенные шрифты для iText не найдены. Будут использоваться стандартные и системные гарнитуры.");
+            return List.of();
+        }
+        logger.info("Обнаружено {} шрифтов для iText в classpath.", embeddedFontResources.size());
+        List<String> fingerprints = new ArrayList<>(embeddedFontResources.size());
+        for (Resource resource : embeddedFontResources) {
+            fingerprints.add(fingerprint(resource));
+        }
+        String indexKey = FontIndexStore.computeKey(fingerprints);
+        List<FontIndexEntry> entries = embeddedFontIndexStore.load(indexKey);
+        if (entries == null) {
+            entries = new ArrayList<>();
+            for (Resource resource : embeddedFontResources) {
+                entries.addAll(indexClasspathFont(resource));
             }
+            embeddedFontIndexStore.save(indexKey, entries);
         }
-        return Collections.unmodifiableList(resources);
+        return entries;
     }
 
-    private List<String> fontPatterns() {
-        return List.of(
-                FONT_RESOURCE_LOCATION + "ttf",
-                FONT_RESOURCE_LOCATION + "otf"
-        );
+    private List<FontIndexEntry> combinedFontEntries() {
+        List<FontIndexEntry> entries = new ArrayList<>(embeddedFontEntries.size() + systemFontEntries.size());
+        entries.addAll(embeddedFontEntries);
+        entries.addAll(systemFontEntries);
+        return entries;
     }
 
-    private FontProgram loadFontProgram(Resource resource, String displayName) {
-        try (InputStream inputStream = resource.getInputStream()) {
-            byte[] bytes = FontEmbeddingUtil.ensureEmbeddable(inputStream.readAllBytes(), displayName, logger);
-            FontProgram fontProgram = FontProgramFactory.createFont(bytes);
-            return fontProgram;
-        } catch (com.itextpdf.io.exceptions.IOException ex) {
-            logger.warn("Шрифт '{}' пропущен: {}", displayName, ex.getMessage());
-            return null;
-        } catch (IOException ex) {
-            logger.warn("Не удалось прочитать шрифт '{}'.", displayName, ex);
-            return null;
-        }
+    private ScheduledExecutorService startSystemFontRefresh(long intervalMinutes) {
+        ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "system-font-refresh");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.scheduleWithFixedDelay(this::refreshSystemFonts, intervalMinutes, intervalMinutes, TimeUnit.MINUTES);
+        logger.info("Системные шрифты будут пересканироваться каждые {} мин.", intervalMinutes);
+        return executor;
     }
 
-    private boolean registerFontProgram(FontSet fontSet, FontProgram fontProgram, String displayName) {
+    /**
+     * Пересканирует системные каталоги и, если набор шрифтов изменился, подменяет каталог.
+     * Документы, уже получившие FontProvider, дорабатывают со старым каталогом.
+     */
+    private void refreshSystemFonts() {
         try {
-            PdfFont pdfFont = PdfFontFactory.createFont(fontProgram, PdfEncodings.IDENTITY_H);
-            pdfFont.setSubset(false);
-        } catch (PdfException | com.itextpdf.io.exceptions.IOException fontEx) {
-            logger.warn("Шрифт '{}' пропущен: {}", displayName, fontEx.getMessage());
-            return false;
-        }
-
-        String fontName = fontProgram.getFontNames().getFontName();
-        if (!isValidName(fontName)) {
-            logger.warn("Пропущен шрифт '{}': некорректное имя '{}'.", displayName, fontName);
-            return false;
+            List<FontIndexEntry> scanned = systemFontScanner.scanIfChanged();
+            if (scanned == null) {
+                return;
+            }
+            systemFontEntries = scanned;
+            fontCatalog = fontCatalog.withEntries(combinedFontEntries());
+            logger.info("Каталог шрифтов обновлён: системных записей={}", scanned.size());
+        } catch (RuntimeException ex) {
+            logger.warn("Не удалось обновить системные шрифты.", ex);
         }
+    }
 
-        fontSet.addFont(fontProgram, PdfEncodings.IDENTITY_H, fontName);
-
-        Set<String> aliases = collectFontAliases(fontProgram);
-        for (String alias : aliases) {
-            fontSet.addFont(fontProgram, PdfEncodings.IDENTITY_H, alias);
+    private List<FontIndexEntry> loadFontManifest() {
+        ClassPathResource manifest = new ClassPathResource(FontManifestGenerator.MANIFEST_LOCATION);
+        if (!manifest.exists()) {
+            return List.of();
         }
-        if (logger.isDebugEnabled()) {
-            if (!aliases.isEmpty()) {
-                logger.debug("Font '{}' registered with aliases: {}", displayName, aliases);
-            } else {
-                logger.debug("Font '{}' registered without additional aliases", displayName);
-            }
+        try (InputStream inputStream = new BufferedInputStream(manifest.getInputStream())) {
+            List<FontIndexEntry> entries = FontIndexStore.read(inputStream, null);
+            return entries != null ? entries : List.of();
+        } catch (IOException | RuntimeException ex) {
+            logger.warn("Манифест шрифтов повреждён, встроенные шрифты будут просканированы: {}", ex.getMessage());
+            return List.of();
         }
-        return true;
     }
 
-    private boolean isValidName(String name) {
-        return name != null && name.chars().anyMatch(Character::isLetter);
+    private List<FontIndexEntry> indexClasspathFont(Resource resource) {
+        String displayName = safeName(resource);
+        try (InputStream inputStream = resource.getInputStream()) {
+            String location = classpathLocation(resource);
+            return FontIndexer.index(FontIndexEntry.Origin.CLASSPATH, location, displayName, inputStream.readAllBytes());
+        } catch (IOException ex) {
+            logger.warn("Шрифт '{}' пропущен: {}", displayName, ex.getMessage());
+            return List.of();
+        }
     }
 
-    private Set<String> collectFontAliases(FontProgram fontProgram) {
-        Set<String> aliases = new LinkedHashSet<>();
-        String fontName = fontProgram.getFontNames().getFontName();
-        addSimpleVariants(aliases, fontName);
-        String[][] fullNames = fontProgram.getFontNames().getFullName();
-        if (fullNames != null) {
-            for (String[] full : fullNames) {
-                if (full != null && full.length > 0 && isValidName(full[0])) {
-                    aliases.add(full[0]);
-                    addSimpleVariants(aliases, full[0]);
-                }
-            }
+    private String fingerprint(Resource resource) {
+        try {
+            return "classpath:" + classpathLocation(resource) + ":" + resource.contentLength() + ":" + resource.lastModified();
+        } catch (IOException ex) {
+            return "classpath:" + resource.getDescription();
         }
-        aliases.remove(fontName);
-        return aliases;
     }
 
-    private void addSimpleVariants(Set<String> aliases, String name) {
-        if (name == null) {
-            return;
-        }
-        String trimmed = name.trim();
-        if (!isValidName(trimmed)) {
-            return;
+    private byte[] readFontBytes(FontIndexEntry entry) throws IOException {
+        if (entry.origin() == FontIndexEntry.Origin.FILE) {
+            return Files.readAllBytes(Path.of(entry.location()));
         }
-        aliases.add(trimmed);
-        aliases.add(trimmed.toLowerCase(Locale.ROOT));
-        aliases.add(trimmed.toUpperCase(Locale.ROOT));
-
-        String baseName = removeStyleSuffix(trimmed);
-        if (isValidName(baseName)) {
-            aliases.add(baseName);
-            aliases.add(baseName.toLowerCase(Locale.ROOT));
-            aliases.add(baseName.toUpperCase(Locale.ROOT));
+        try (InputStream inputStream = new ClassPathResource(entry.location()).getInputStream()) {
+            return inputStream.readAllBytes();
         }
+    }
 
-        int hyphenIndex = trimmed.indexOf('-');
-        if (hyphenIndex > 0) {
-            String prefix = trimmed.substring(0, hyphenIndex).trim();
-            if (isValidName(prefix)) {
-                aliases.add(prefix);
-                aliases.add(prefix.toLowerCase(Locale.ROOT));
-                aliases.add(prefix.toUpperCase(Locale.ROOT));
-            }
+    private String classpathLocation(Resource resource) throws IOException {
+        String url = resource.getURL().toString();
+        int archiveSeparator = url.lastIndexOf("!/");
+        String path = archiveSeparator >= 0 ? url.substring(archiveSeparator + 2) : url;
+        int fontsIndex = path.lastIndexOf("/" + FONT_DIRECTORY);
+        if (fontsIndex >= 0) {
+            path = path.substring(fontsIndex + 1);
         }
-
-        int spaceIndex = trimmed.indexOf(' ');
-        if (spaceIndex > 0) {
-            String prefix = trimmed.substring(0, spaceIndex).trim();
-            if (isValidName(prefix)) {
-                aliases.add(prefix);
-                aliases.add(prefix.toLowerCase(Locale.ROOT));
-                aliases.add(prefix.toUpperCase(Locale.ROOT));
-            }
+        if (!path.startsWith(FONT_DIRECTORY)) {
+            throw new IOException("Не удалось определить путь шрифта в classpath: " + url);
         }
+        return URLDecoder.decode(path, StandardCharsets.UTF_8);
     }
 
-    private String removeStyleSuffix(String name) {
-        if (name == null) {
-            return null;
-        }
-        String trimmed = name.trim();
-        if (trimmed.isEmpty()) {
-            return trimmed;
-        }
-        int lastSpace = trimmed.lastIndexOf(' ');
-        if (lastSpace > 0) {
-            String suffix = trimmed.substring(lastSpace + 1);
-            if (isStyleDescriptor(suffix)) {
-                return trimmed.substring(0, lastSpace);
-            }
-        }
-        int lastHyphen = trimmed.lastIndexOf('-');
-        if (lastHyphen > 0) {
-            String suffix = trimmed.substring(lastHyphen + 1);
-            if (isStyleDescriptor(suffix)) {
-                return trimmed.substring(0, lastHyphen);
+    private List<Resource> loadEmbeddedFontResources() {
+        List<Resource> resources = new ArrayList<>();
+        for (String pattern : fontPatterns()) {
+            try {
+                Resource[] found = resourcePatternResolver.getResources(pattern);
+                for (Resource resource : found) {
+                    if (!resource.isReadable()) {
+                        continue;
+                    }
+                    String name = resource.getFilename();
+                    if (name == null) {
+                        continue;
+                    }
+                    String lowerName = name.toLowerCase(Locale.ROOT);
+                    if (!(lowerName.endsWith(".ttf") || lowerName.endsWith(".otf"))) {
+                        continue;
+                    }
+                    resources.add(resource);
+                }
+            } catch (IOException ex) {
+                logger.warn("Не удалось загрузить шрифты по шаблону '{}'.", pattern, ex);
             }
         }
-        return trimmed;
+        return Collections.unmodifiableList(resources);
     }
 
-    private boolean isStyleDescriptor(String value) {
-        if (value == null || value.isBlank()) {
-            return false;
-        }
-        String normalized = value.trim().toLowerCase(Locale.ROOT);
-        return normalized.matches("(regular|italic|oblique|bold|semibold|medium|light|thin|extrathin|extralight|black|heavy|book|roman|condensed|expanded)");
+    private List<String> fontPatterns() {
+        return List.of(
+                FONT_RESOURCE_LOCATION + "ttf",
+                FONT_RESOURCE_LOCATION + "otf"
+        );
     }
 
     private String safeName(Resource resource) {
         return Objects.requireNonNullElse(resource.getFilename(), resource.getDescription());
     }
+
 }
@@ -1,36 +1,80 @@
 package com.figma.export.pdf.itext;
 
+import com.itextpdf.io.font.FontProgram;
+import com.itextpdf.io.font.PdfEncodings;
 import com.itextpdf.kernel.font.PdfFont;
 import com.itextpdf.layout.font.FontInfo;
 import com.itextpdf.layout.font.FontProvider;
 import com.itextpdf.layout.font.FontSet;
 
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+
 /**
- * Расширение FontProvider, отключающее сабсеттинг для всех создаваемых PdfFont.
+ * Расширение FontProvider, управляющее сабсеттингом всех создаваемых PdfFont. По умолчанию шрифты
+ * встраиваются целиком; сабсеттинг включается параметром запроса.
+ * Создаётся на один документ: начинает со стандартных PDF-шрифтов и добавляет из {@link FontCatalog}
+ * только гарнитуры, используемые документом. Набор шрифтов заполняется в конструкторе и во время
+ * рендеринга не меняется; для гарнитур, которых в нём нет, iText выбирает шрифт по умолчанию.
  */
 class NonSubsettingFontProvider extends FontProvider {
 
-    NonSubsettingFontProvider(FontSet fontSet, String defaultFontFamily) {
-        super(fontSet, defaultFontFamily);
+    private final FontCatalog catalog;
+    private final boolean subsetFonts;
+    private final Set<String> resolvedFamilies = new HashSet<>();
+
+    /**
+     * @param fontFamilies гарнитуры документа; загружаются вместе с гарнитурой по умолчанию до начала рендеринга
+     */
+    NonSubsettingFontProvider(FontCatalog catalog, Collection<String> fontFamilies, boolean subsetFonts) {
+        super(new FontSet(), catalog.defaultFamily());
+        this.catalog = catalog;
+        this.subsetFonts = subsetFonts;
+        addStandardPdfFonts();
+        if (fontFamilies != null) {
+            for (String family : fontFamilies) {
+                registerFamily(family);
+            }
+        }
+        registerFamily(catalog.defaultFamily());
     }
 
     @Override
     public PdfFont getPdfFont(FontInfo fontInfo) {
         PdfFont font = super.getPdfFont(fontInfo);
-        disableSubsetting(font);
+        applySubsetMode(font);
         return font;
     }
 
     @Override
     public PdfFont getPdfFont(FontInfo fontInfo, FontSet alternativeFontSet) {
         PdfFont font = super.getPdfFont(fontInfo, alternativeFontSet);
-        disableSubsetting(font);
+        applySubsetMode(font);
         return font;
     }
 
-    private void disableSubsetting(PdfFont font) {
+    /**
+     * Добавляет в набор документа все начертания гарнитуры, каждое один раз и под тем именем, которое
+     * запросил документ: iText сравнивает алиас с font-family без учёта регистра, поэтому вариантов
+     * написания не требуется.
+     */
+    private void registerFamily(String family) {
+        if (family == null || family.isBlank() || !resolvedFamilies.add(FontCatalog.normalizeFamily(family))) {
+            return;
+        }
+        FontSet fontSet = getFontSet();
+        for (FontIndexEntry entry : catalog.resolve(family)) {
+            FontProgram program = catalog.loadProgram(entry);
+            if (program != null) {
+                fontSet.addFont(program, PdfEncodings.IDENTITY_H, family.trim());
+            }
+        }
+    }
+
+    private void applySubsetMode(PdfFont font) {
         if (font != null) {
-            font.setSubset(false);
+            font.setSubset(subsetFonts);
         }
     }
 }
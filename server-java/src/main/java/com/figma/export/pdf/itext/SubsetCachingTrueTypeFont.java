@@ -0,0 +1,100 @@
+package com.figma.export.pdf.itext;
+
+import com.figma.export.cache.WeightedLruCache;
+import com.itextpdf.io.font.FontProgram;
+import com.itextpdf.io.font.FontProgramFactory;
+import com.itextpdf.io.font.TrueTypeFont;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Set;
+
+/**
+ * TrueType/OpenType шрифт, который запоминает построенные iText сабсеты. Повторный экспорт того же
+ * макета использует одинаковый набор глифов, поэтому байты сабсета берутся из общего кэша.
+ * Для CFF-шрифтов iText строит сабсет иначе, и кэш для них не используется.
+ * Начертания из TTC создаются обычной фабрикой iText без кэша сабсетов: конструкторы
+ * {@link TrueTypeFont} для коллекций недоступны вне пакета iText.
+ */
+final class SubsetCachingTrueTypeFont extends TrueTypeFont {
+
+    private final String fontId;
+    private final WeightedLruCache<SubsetKey, byte[]> subsetCache;
+
+    private SubsetCachingTrueTypeFont(String path, String fontId, WeightedLruCache<SubsetKey, byte[]> subsetCache)
+            throws IOException {
+        super(path);
+        this.fontId = fontId;
+        this.subsetCache = subsetCache;
+    }
+
+    private SubsetCachingTrueTypeFont(byte[] bytes, String fontId, WeightedLruCache<SubsetKey, byte[]> subsetCache)
+            throws IOException {
+        super(bytes);
+        this.fontId = fontId;
+        this.subsetCache = subsetCache;
+    }
+
+    static FontProgram fromFile(Path file, int ttcIndex, String fontId,
+                                WeightedLruCache<SubsetKey, byte[]> subsetCache) throws IOException {
+        String path = file.toString();
+        return ttcIndex >= 0
+                ? FontProgramFactory.createFont(path, ttcIndex, false)
+                : new SubsetCachingTrueTypeFont(path, fontId, subsetCache);
+    }
+
+    static FontProgram fromBytes(byte[] bytes, int ttcIndex, String fontId,
+                                 WeightedLruCache<SubsetKey, byte[]> subsetCache) throws IOException {
+        return ttcIndex >= 0
+                ? FontProgramFactory.createFont(bytes, ttcIndex, false)
+                : new SubsetCachingTrueTypeFont(bytes, fontId, subsetCache);
+    }
+
+    /**
+     * Возвращает байты шрифта для встраивания. Массив из кэша общий для всех документов и не должен
+     * изменяться; iText копирует его в поток PDF.
+     */
+    @Override
+    public byte[] getSubset(Set<Integer> glyphs, boolean subset) {
+        int[] sortedGlyphs = glyphs.stream().mapToInt(Integer::intValue).sorted().toArray();
+        SubsetKey key = new SubsetKey(fontId, subset, sortedGlyphs);
+        return subsetCache.computeIfAbsent(key, k -> super.getSubset(glyphs, subset));
+    }
+
+    /**
+     * Ключ сабсета: шрифт, режим ({@code subset=false} — целый шрифт) и отсортированный набор глифов.
+     */
+    static final class SubsetKey {
+        private final String fontId;
+        private final boolean subset;
+        private final int[] glyphs;
+        private final int hash;
+
+        SubsetKey(String fontId, boolean subset, int[] glyphs) {
+            this.fontId = fontId;
+            this.subset = subset;
+            this.glyphs = glyphs;
+            this.hash = 31 * (31 * fontId.hashCode() + Boolean.hashCode(subset)) + Arrays.hashCode(glyphs);
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (this == other) {
+                return true;
+            }
+            if (!(other instanceof SubsetKey that)) {
+                return false;
+            }
+            return hash == that.hash
+                    && subset == that.subset
+                    && fontId.equals(that.fontId)
+                    && Arrays.equals(glyphs, that.glyphs);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
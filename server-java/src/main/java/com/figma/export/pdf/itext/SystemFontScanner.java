@@ -0,0 +1,124 @@
+package com.figma.export.pdf.itext;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.stream.Stream;
+
+/**
+ * Находит шрифты в тех же системных каталогах, что и {@code FontProvider.addSystemFonts()}, и строит
+ * для них записи индекса. Листинг каталогов дешёвый; шрифты разбираются, только если набор файлов
+ * изменился с момента последнего сохранённого индекса.
+ */
+final class SystemFontScanner {
+
+    private static final Logger logger = LoggerFactory.getLogger(SystemFontScanner.class);
+
+    private static final List<String> SYSTEM_FONT_DIRECTORIES_RECURSIVE = List.of(
+            "/usr/share/X11/fonts",
+            "/usr/X/lib/X11/fonts",
+            "/usr/openwin/lib/X11/fonts",
+            "/usr/share/fonts",
+            "/usr/X11R6/lib/X11/fonts"
+    );
+    private static final List<String> SYSTEM_FONT_DIRECTORIES_FLAT = List.of(
+            "/Library/Fonts",
+            "/System/Library/Fonts"
+    );
+
+    private final FontIndexStore indexStore;
+    private String lastIndexKey;
+
+    SystemFontScanner(FontIndexStore indexStore) {
+        this.indexStore = indexStore;
+    }
+
+    /**
+     * Возвращает записи системных шрифтов или {@code null}, если набор файлов не изменился с
+     * предыдущего вызова.
+     */
+    synchronized List<FontIndexEntry> scanIfChanged() {
+        List<Path> files = listFontFiles();
+        List<String> fingerprints = new ArrayList<>(files.size());
+        for (Path path : files) {
+            fingerprints.add(fingerprint(path));
+        }
+        String indexKey = FontIndexStore.computeKey(fingerprints);
+        if (indexKey.equals(lastIndexKey)) {
+            return null;
+        }
+
+        List<FontIndexEntry> entries = indexStore.load(indexKey);
+        if (entries == null) {
+            entries = new ArrayList<>();
+            for (Path path : files) {
+                entries.addAll(indexFontFile(path));
+            }
+            indexStore.save(indexKey, entries);
+        }
+        lastIndexKey = indexKey;
+        logger.info("Системные шрифты: файлов={}, записей индекса={}", files.size(), entries.size());
+        return entries;
+    }
+
+    private List<Path> listFontFiles() {
+        List<Path> files = new ArrayList<>();
+        String windowsDir = System.getenv("windir");
+        List<String> recursive = new ArrayList<>(SYSTEM_FONT_DIRECTORIES_RECURSIVE);
+        if (windowsDir != null) {
+            recursive.add(0, windowsDir + "/fonts");
+        }
+        for (String directory : recursive) {
+            listFontDirectory(Path.of(directory), Integer.MAX_VALUE, files);
+        }
+        for (String directory : SYSTEM_FONT_DIRECTORIES_FLAT) {
+            listFontDirectory(Path.of(directory), 1, files);
+        }
+        return files;
+    }
+
+    private void listFontDirectory(Path directory, int maxDepth, List<Path> files) {
+        if (!Files.isDirectory(directory)) {
+            return;
+        }
+        try (Stream<Path> paths = Files.walk(directory, maxDepth)) {
+            paths.filter(Files::isRegularFile)
+                    .filter(path -> isSupportedFontFile(path.getFileName().toString()))
+                    .sorted()
+                    .forEach(files::add);
+        } catch (IOException | UncheckedIOException ex) {
+            logger.warn("Не удалось просканировать каталог шрифтов '{}'.", directory, ex);
+        }
+    }
+
+    private List<FontIndexEntry> indexFontFile(Path path) {
+        String location = path.toAbsolutePath().toString();
+        String displayName = path.getFileName().toString();
+        try {
+            return FontIndexer.index(FontIndexEntry.Origin.FILE, location, displayName, Files.readAllBytes(path));
+        } catch (IOException ex) {
+            logger.debug("Системный шрифт '{}' пропущен: {}", location, ex.getMessage());
+            return List.of();
+        }
+    }
+
+    private String fingerprint(Path path) {
+        try {
+            return "file:" + path.toAbsolutePath() + ":" + Files.size(path) + ":" + Files.getLastModifiedTime(path).toMillis();
+        } catch (IOException ex) {
+            return "file:" + path.toAbsolutePath();
+        }
+    }
+
+    private boolean isSupportedFontFile(String fileName) {
+        String lowerName = fileName.toLowerCase(Locale.ROOT);
+        return lowerName.endsWith(".ttf") || lowerName.endsWith(".otf") || lowerName.endsWith(".ttc");
+    }
+}
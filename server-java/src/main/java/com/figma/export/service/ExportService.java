@@ -7,34 +7,47 @@ import com.figma.export.model.ExportRequest;
 import com.figma.export.model.ExportResponse;
 import com.figma.export.model.UploadType;
 import com.figma.export.pdf.itext.ITextPdfResourceFactory;
+import com.figma.export.svg.SvgComplexity;
+import com.figma.export.svg.SvgComplexityScanner;
+import com.figma.export.svg.SvgRasterizer;
 import com.figma.export.svg.SvgRenderer;
 import com.itextpdf.io.image.ImageData;
 import com.itextpdf.io.image.ImageDataFactory;
 import com.itextpdf.kernel.geom.PageSize;
+import com.itextpdf.kernel.geom.Rectangle;
 import com.itextpdf.kernel.pdf.PdfDocument;
 import com.itextpdf.kernel.pdf.PdfDocumentInfo;
 import com.itextpdf.kernel.pdf.PdfName;
+import com.itextpdf.kernel.pdf.PdfPage;
 import com.itextpdf.kernel.pdf.PdfReader;
 import com.itextpdf.kernel.pdf.PdfWriter;
 import com.itextpdf.kernel.pdf.WriterProperties;
+import com.itextpdf.kernel.pdf.canvas.PdfCanvas;
 import com.itextpdf.kernel.utils.PdfMerger;
 import com.itextpdf.layout.font.FontProvider;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.ContentDisposition;
 import org.springframework.http.MediaType;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.awt.Color;
+import java.awt.geom.Dimension2D;
 import java.awt.image.BufferedImage;
+import java.awt.image.ColorModel;
+import java.awt.image.WritableRaster;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Locale;
+import java.util.Set;
 import java.util.zip.Deflater;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipOutputStream;
@@ -49,34 +62,49 @@ public class ExportService {
     private static final int DEFAULT_PPI = 96;
     private static final int DEFAULT_TIFF_PPI = 300;
     private static final double PX_TO_POINT = 72d / DEFAULT_PPI;
-    private static final int MAX_TIFF_DIMENSION = 6000;
-    private static final long MAX_TIFF_TOTAL_PIXELS = 36_000_000L;
+    private static final int TIFF_STREAM_BAND_PIXELS = 1 << 20;
+    private static final int TIFF_STREAM_MAX_ROWS = 128;
     private static final String TIFF_QUALITY_STANDARD = "standard";
     private static final String TIFF_QUALITY_SUPERSAMPLE = "supersample";
     private static final String TIFF_QUALITY_TEXT_HINT = "texthint";
 
     private final SvgRenderer svgRenderer;
+    private final SvgRasterizer svgRasterizer;
     private final ImageProcessingService imageProcessingService;
     private final ImageInputLoader imageInputLoader;
     private final TiffWriter tiffWriter;
     private final JpegWriter jpegWriter;
     private final ColorProfileManager colorProfileManager;
     private final ITextPdfResourceFactory pdfResourceFactory;
+    private final HeavyJobLane heavyJobLane;
+    private final int maxTiffDimension;
+    private final long maxTiffTotalPixels;
+    private final long maxTiffStreamPixels;
 
     public ExportService(SvgRenderer svgRenderer,
+                         SvgRasterizer svgRasterizer,
                          ImageProcessingService imageProcessingService,
                          ImageInputLoader imageInputLoader,
                          TiffWriter tiffWriter,
                          JpegWriter jpegWriter,
                          ColorProfileManager colorProfileManager,
-                         ITextPdfResourceFactory pdfResourceFactory) {
+                         ITextPdfResourceFactory pdfResourceFactory,
+                         HeavyJobLane heavyJobLane,
+                         @Value("${export.tiff.max-dimension:6000}") int maxTiffDimension,
+                         @Value("${export.tiff.max-total-pixels:36000000}") long maxTiffTotalPixels,
+                         @Value("${export.tiff.stream-max-pixels:64000000}") long maxTiffStreamPixels) {
         this.svgRenderer = svgRenderer;
+        this.svgRasterizer = svgRasterizer;
         this.imageProcessingService = imageProcessingService;
         this.imageInputLoader = imageInputLoader;
         this.tiffWriter = tiffWriter;
         this.jpegWriter = jpegWriter;
         this.colorProfileManager = colorProfileManager;
         this.pdfResourceFactory = pdfResourceFactory;
+        this.heavyJobLane = heavyJobLane;
+        this.maxTiffDimension = maxTiffDimension;
+        this.maxTiffTotalPixels = maxTiffTotalPixels;
+        this.maxTiffStreamPixels = maxTiffStreamPixels;
     }
 
     public ExportResponse convert(MultipartFile file, ExportRequest request) {
@@ -89,12 +117,14 @@ public class ExportService {
         try {
             byte[] data = file.getBytes();
             UploadType uploadType = detectUploadType(file, format);
+            SvgComplexity complexity = uploadType == UploadType.SVG ? SvgComplexityScanner.scan(data) : null;
+            String targetFormat = format;
 
-            return switch (format) {
+            return heavyJobLane.run(baseName, complexity, () -> switch (targetFormat) {
                 case FORMAT_PDF -> convertToPdf(data, uploadType, request, baseName);
                 case FORMAT_TIFF -> convertToTiff(data, uploadType, request, baseName);
                 default -> throw new ConversionException("Неподдерживаемый формат экспорта: " + request.getFormat());
-            };
+            });
         } catch (ConversionException ex) {
             throw ex;
         } catch (IOException e) {
@@ -115,7 +145,7 @@ public class ExportService {
         String baseName = sanitizeName(request.getName(), "combined");
         
         try {
-            return convertMultipleToPdf(files, request, baseName);
+            return heavyJobLane.run(baseName, scanSvgUploads(files), () -> convertMultipleToPdf(files, request, baseName));
         } catch (ConversionException ex) {
             throw ex;
         } catch (IOException e) {
@@ -140,70 +170,8 @@ public class ExportService {
         String zipBaseName = sanitizeName(rawZipName, "export");
 
         try {
-            List<ExportResponseItem> items = new ArrayList<>();
-
-            if (FORMAT_PDF.equals(format)) {
-                for (int i = 0; i < files.size(); i++) {
-                    MultipartFile file = files.get(i);
-                    byte[] data = file.getBytes();
-                    UploadType uploadType = detectUploadType(file, format);
-
-                    String itemBaseName = zipBaseName + "_" + (i + 1);
-
-                    ExportRequest itemRequest = new ExportRequest();
-                    itemRequest.setFormat(request.getFormat());
-                    itemRequest.setName(itemBaseName);
-                    itemRequest.setPpi(request.getPpi());
-                    itemRequest.setWidthPx(request.getWidthPx(i));
-                    itemRequest.setHeightPx(request.getHeightPx(i));
-                    itemRequest.setSvgTextMode(request.getSvgTextMode());
-
-                    ExportResponse itemResponse = convertToPdf(data, uploadType, itemRequest, itemBaseName);
-                    items.add(new ExportResponseItem(
-                            itemResponse.contentDisposition().getFilename(),
-                            itemResponse.payload()
-                    ));
-                }
-            } else if (FORMAT_TIFF.equals(format)) {
-                for (int i = 0; i < files.size(); i++) {
-                    MultipartFile file = files.get(i);
-                    byte[] data = file.getBytes();
-                    UploadType uploadType = detectUploadType(file, format);
-
-                    String itemBaseName = zipBaseName + "_" + (i + 1);
-
-                    ExportRequest itemRequest = new ExportRequest();
-                    itemRequest.setFormat(request.getFormat());
-                    itemRequest.setName(itemBaseName);
-                    itemRequest.setPpi(request.getPpi());
-                    itemRequest.setTiffLzw(request.isTiffLzw());
-                    itemRequest.setTiffQuality(request.getTiffQuality());
-                    itemRequest.setWidthPx(request.getWidthPx(i));
-                    itemRequest.setHeightPx(request.getHeightPx(i));
-
-                    ExportResponse itemResponse = convertToTiff(data, uploadType, itemRequest, itemBaseName);
-                    items.add(new ExportResponseItem(
-                            itemResponse.contentDisposition().getFilename(),
-                            itemResponse.payload()
-                    ));
-                }
-            } else {
-                throw new ConversionException("Неподдерживаемый формат экспорта для пакетного режима: " + request.getFormat());
-            }
-
-            byte[] zipBytes = createZipArchive(items);
-            double zipMb = zipBytes.length / (1024d * 1024d);
-            logger.info("Пакетный экспорт завершён: format={}, items={}, zipSizeBytes={}, zipSizeMb={}, zipName={}",
-                    format,
-                    items.size(),
-                    zipBytes.length,
-                    String.format(Locale.ROOT, "%.2f", zipMb),
-                    zipBaseName);
-
-            ContentDisposition disposition = ContentDisposition.attachment()
-                    .filename(zipBaseName + ".zip", StandardCharsets.UTF_8)
-                    .build();
-            return new ExportResponse(zipBytes, "application/zip", disposition);
+            String targetFormat = format;
+            return heavyJobLane.run(zipBaseName, scanSvgUploads(files), () -> convertBatchItems(files, request, targetFormat, zipBaseName));
         } catch (ConversionException ex) {
             throw ex;
         } catch (IOException e) {
@@ -211,6 +179,94 @@ public class ExportService {
         }
     }
 
+    private ExportResponse convertBatchItems(List<MultipartFile> files, ExportRequest request, String format, String zipBaseName) throws IOException {
+        List<ExportResponseItem> items = new ArrayList<>();
+
+        if (FORMAT_PDF.equals(format)) {
+            for (int i = 0; i < files.size(); i++) {
+                MultipartFile file = files.get(i);
+                byte[] data = file.getBytes();
+                UploadType uploadType = detectUploadType(file, format);
+
+                String itemBaseName = zipBaseName + "_" + (i + 1);
+
+                ExportRequest itemRequest = new ExportRequest();
+                itemRequest.setFormat(request.getFormat());
+                itemRequest.setName(itemBaseName);
+                itemRequest.setPpi(request.getPpi());
+                itemRequest.setWidthPx(request.getWidthPx(i));
+                itemRequest.setHeightPx(request.getHeightPx(i));
+                itemRequest.setSvgTextMode(request.getSvgTextMode());
+                itemRequest.setSvgOutlineRenderer(request.getSvgOutlineRenderer());
+                itemRequest.setFontSubset(request.isFontSubset());
+
+                ExportResponse itemResponse = convertToPdf(data, uploadType, itemRequest, itemBaseName);
+                items.add(new ExportResponseItem(
+                        itemResponse.contentDisposition().getFilename(),
+                        itemResponse.payload()
+                ));
+            }
+        } else if (FORMAT_TIFF.equals(format)) {
+            for (int i = 0; i < files.size(); i++) {
+                MultipartFile file = files.get(i);
+                byte[] data = file.getBytes();
+                UploadType uploadType = detectUploadType(file, format);
+
+                String itemBaseName = zipBaseName + "_" + (i + 1);
+
+                ExportRequest itemRequest = new ExportRequest();
+                itemRequest.setFormat(request.getFormat());
+                itemRequest.setName(itemBaseName);
+                itemRequest.setPpi(request.getPpi());
+                itemRequest.setTiffLzw(request.isTiffLzw());
+                itemRequest.setTiffQuality(request.getTiffQuality());
+                itemRequest.setWidthPx(request.getWidthPx(i));
+                itemRequest.setHeightPx(request.getHeightPx(i));
+
+                ExportResponse itemResponse = convertToTiff(data, uploadType, itemRequest, itemBaseName);
+                items.add(new ExportResponseItem(
+                        itemResponse.contentDisposition().getFilename(),
+                        itemResponse.payload()
+                ));
+            }
+        } else {
+            throw new ConversionException("Неподдерживаемый формат экспорта для пакетного режима: " + request.getFormat());
+        }
+
+        byte[] zipBytes = createZipArchive(items);
+        double zipMb = zipBytes.length / (1024d * 1024d);
+        logger.info("Пакетный экспорт завершён: format={}, items={}, zipSizeBytes={}, zipSizeMb={}, zipName={}",
+                format,
+                items.size(),
+                zipBytes.length,
+                String.format(Locale.ROOT, "%.2f", zipMb),
+                zipBaseName);
+
+        ContentDisposition disposition = ContentDisposition.attachment()
+                .filename(zipBaseName + ".zip", StandardCharsets.UTF_8)
+                .build();
+        return new ExportResponse(zipBytes, "application/zip", disposition);
+    }
+
+    /**
+     * Суммарная сложность всех SVG в запросе; файлы читаются потоково, без копии в памяти.
+     */
+    private SvgComplexity scanSvgUploads(List<MultipartFile> files) throws IOException {
+        SvgComplexity total = SvgComplexity.EMPTY;
+        if (files == null) {
+            return total;
+        }
+        for (MultipartFile file : files) {
+            if (detectUploadType(file) != UploadType.SVG) {
+                continue;
+            }
+            try (InputStream input = file.getInputStream()) {
+                total = total.plus(SvgComplexityScanner.scan(input));
+            }
+        }
+        return total;
+    }
+
     private ExportResponse convertMultipleToPdf(java.util.List<org.springframework.web.multipart.MultipartFile> files, ExportRequest request, String baseName) throws IOException {
         if (files == null || files.isEmpty()) {
             throw new ConversionException("Не переданы элементы для объединения в PDF.");
@@ -219,16 +275,25 @@ public class ExportService {
         ColorProfile colorProfile = colorProfileManager.getDefaultProfile();
         int dpi = Math.max(request.getPpi(), DEFAULT_PPI);
 
+        // Гарнитуры собираются лёгким проходом по байтам: FontProvider заполняется до рендеринга, а
+        // сами элементы читаются и готовятся по одному, и в памяти живёт только текущий.
+        Set<String> fontFamilies = new LinkedHashSet<>();
+        for (MultipartFile file : files) {
+            if (detectUploadType(file) == UploadType.SVG) {
+                fontFamilies.addAll(svgRenderer.scanFontFamilies(file.getBytes(), request.isSvgTextAsOutlines()));
+            }
+        }
+
+        // Все элементы рисуются в один документ с общим FontProvider, а не в промежуточные PDF,
+        // которые потом сливаются: одинаковые файлы шрифтов SVG-страниц встраиваются один раз.
         ByteArrayOutputStream destination = new ByteArrayOutputStream();
         WriterProperties writerProperties = pdfResourceFactory.createWriterProperties(null);
         try (PdfDocument mergedDocument = new PdfDocument(new PdfWriter(destination, writerProperties))) {
+            FontProvider fontProvider = pdfResourceFactory.createFontProvider(fontFamilies, request.isFontSubset());
             PdfMerger merger = new PdfMerger(mergedDocument);
 
             for (int i = 0; i < files.size(); i++) {
-                org.springframework.web.multipart.MultipartFile file = files.get(i);
-                byte[] data = file.getBytes();
-                UploadType uploadType = detectUploadType(file);
-
+                MultipartFile file = files.get(i);
                 ExportRequest itemRequest = new ExportRequest();
                 itemRequest.setFormat(request.getFormat());
                 itemRequest.setName(baseName + "_" + (i + 1));
@@ -236,10 +301,20 @@ public class ExportService {
                 itemRequest.setWidthPx(request.getWidthPx(i));
                 itemRequest.setHeightPx(request.getHeightPx(i));
                 itemRequest.setSvgTextMode(request.getSvgTextMode());
+                itemRequest.setSvgOutlineRenderer(request.getSvgOutlineRenderer());
+                itemRequest.setFontSubset(request.isFontSubset());
 
-                byte[] prepared = preparePdfDocumentBytes(data, uploadType, itemRequest, dpi, colorProfile);
-                try (PdfDocument sourceDocument = new PdfDocument(new PdfReader(new ByteArrayInputStream(prepared)))) {
-                    merger.merge(sourceDocument, 1, sourceDocument.getNumberOfPages());
+                byte[] data = file.getBytes();
+                switch (detectUploadType(file)) {
+                    case SVG -> renderSvgPage(svgRenderer.prepareSvg(data, request.isSvgTextAsOutlines(),
+                            request.getSvgOutlineRenderer()), itemRequest, mergedDocument, fontProvider, colorProfile);
+                    case IMAGE -> addImagePage(data, itemRequest, mergedDocument, colorProfile, dpi);
+                    case PDF -> {
+                        try (PdfDocument sourceDocument = new PdfDocument(new PdfReader(new ByteArrayInputStream(data)))) {
+                            merger.merge(sourceDocument, 1, sourceDocument.getNumberOfPages());
+                        }
+                    }
+                    default -> throw new ConversionException("Неподдерживаемый тип загруженного файла для экспорта в PDF.");
                 }
             }
 
@@ -264,6 +339,17 @@ public class ExportService {
     }
 
     private ExportResponse convertToTiff(byte[] data, UploadType uploadType, ExportRequest request, String baseName) throws IOException {
+        if (uploadType != UploadType.SVG) {
+            return convertToTiff(data, uploadType, request, baseName, null);
+        }
+        // Дерево GVT строится один раз: по нему определяется размер холста и рисуются все полосы.
+        try (SvgRasterizer.Scene svgScene = svgRasterizer.load(data)) {
+            return convertToTiff(data, uploadType, request, baseName, svgScene);
+        }
+    }
+
+    private ExportResponse convertToTiff(byte[] data, UploadType uploadType, ExportRequest request, String baseName,
+                                         SvgRasterizer.Scene svgScene) throws IOException {
         long startNs = System.nanoTime();
         int ppi = request.getPpi() > 0 ? request.getPpi() : DEFAULT_TIFF_PPI;
         ColorProfile colorProfile = colorProfileManager.getDefaultProfile();
@@ -276,15 +362,35 @@ public class ExportService {
             tiffQuality = TIFF_QUALITY_STANDARD;
         }
         boolean textHint = TIFF_QUALITY_TEXT_HINT.equals(tiffQuality);
-        if (uploadType != UploadType.IMAGE) {
-            throw new ConversionException("Для экспорта TIFF принимаются только PNG-изображения.");
+        BufferedImage sourceImage = null;
+        int targetWidth;
+        int targetHeight;
+        if (uploadType == UploadType.SVG) {
+            Dimension2D svgSize = svgScene.canvasSize();
+            double pxScale = (double) ppi / DEFAULT_PPI;
+            targetWidth = positiveOrDefault(request.getWidthPx(), (int) Math.round(svgSize.getWidth() * pxScale));
+            targetHeight = positiveOrDefault(request.getHeightPx(), (int) Math.round(svgSize.getHeight() * pxScale));
+            logMemoryUsage("source", baseName, data.length, null);
+        } else if (uploadType == UploadType.IMAGE) {
+            if (!TIFF_QUALITY_SUPERSAMPLE.equals(tiffQuality)) {
+                PngRowReader pngReader = PngRowReader.open(data);
+                if (pngReader != null) {
+                    if (positiveOrDefault(request.getWidthPx(), pngReader.width()) == pngReader.width()
+                            && positiveOrDefault(request.getHeightPx(), pngReader.height()) == pngReader.height()
+                            && (long) pngReader.width() * pngReader.height() <= maxTiffStreamPixels) {
+                        byte[] tiffBytes = streamPngToTiff(pngReader, ppi, useLzw, colorProfile, baseName);
+                        return tiffResponse(tiffBytes, baseName, ppi, useLzw, tiffQuality, startNs);
+                    }
+                    pngReader.close();
+                }
+            }
+            sourceImage = readBufferedImage(data);
+            logTiffStage("source", baseName, sourceImage);
+            targetWidth = positiveOrDefault(request.getWidthPx(), sourceImage.getWidth());
+            targetHeight = positiveOrDefault(request.getHeightPx(), sourceImage.getHeight());
+        } else {
+            throw new ConversionException("Для экспорта TIFF принимаются только PNG- и SVG-файлы.");
         }
-        BufferedImage sourceImage = readBufferedImage(data);
-
-        logTiffStage("source", baseName, sourceImage);
-
-        int targetWidth = positiveOrDefault(request.getWidthPx(), sourceImage.getWidth());
-        int targetHeight = positiveOrDefault(request.getHeightPx(), sourceImage.getHeight());
 
         int[] limitedSize = enforceTiffSizeLimits(targetWidth, targetHeight);
         if (limitedSize[0] != targetWidth || limitedSize[1] != targetHeight) {
@@ -298,9 +404,9 @@ public class ExportService {
             long supersamplePixels = (long) targetWidth * 2 * (long) targetHeight * 2;
             logger.info("Supersample запрошен: target={}x{}, supersample={}x{}, pixels={}", 
                 targetWidth, targetHeight, targetWidth * 2, targetHeight * 2, supersamplePixels);
-            if (targetWidth * 2 > MAX_TIFF_DIMENSION
-                    || targetHeight * 2 > MAX_TIFF_DIMENSION
-                    || supersamplePixels > MAX_TIFF_TOTAL_PIXELS) {
+            if (targetWidth * 2 > maxTiffDimension
+                    || targetHeight * 2 > maxTiffDimension
+                    || supersamplePixels > maxTiffTotalPixels) {
                 logger.info("Supersample требует изображение {}x{}, превышающее лимиты. Используется стандартное качество.", targetWidth * 2, targetHeight * 2);
                 supersample = false;
             } else {
@@ -311,25 +417,21 @@ public class ExportService {
         int workWidth = supersample ? targetWidth * 2 : targetWidth;
         int workHeight = supersample ? targetHeight * 2 : targetHeight;
 
-        if (sourceImage.getWidth() != workWidth || sourceImage.getHeight() != workHeight) {
-            sourceImage = imageProcessingService.scaleImage(sourceImage, workWidth, workHeight, textHint);
-            logTiffStage("scaled", baseName, sourceImage);
-        }
-
-        BufferedImage argb = imageProcessingService.ensureArgb(sourceImage);
-        logTiffStage("argb", baseName, argb);
-        flushIfDifferent(sourceImage, argb);
-        sourceImage = null;
-
-        BufferedImage flattened = imageProcessingService.flattenTransparency(argb, Color.WHITE, textHint);
-        logTiffStage("flattened", baseName, flattened);
-        flushIfDifferent(argb, flattened);
-        argb = null;
+        BufferedImage cmyk;
+        if (sourceImage == null) {
+            cmyk = rasterizeSvgToCmyk(svgScene, workWidth, workHeight, textHint, colorProfile);
+            logTiffStage("cmyk", baseName, cmyk);
+        } else {
+            if (sourceImage.getWidth() != workWidth || sourceImage.getHeight() != workHeight) {
+                sourceImage = imageProcessingService.scaleImage(sourceImage, workWidth, workHeight, textHint);
+                logTiffStage("scaled", baseName, sourceImage);
+            }
 
-        BufferedImage cmyk = imageProcessingService.convertToCmyk(flattened, colorProfile);
-        logTiffStage("cmyk", baseName, cmyk);
-        flushIfDifferent(flattened, cmyk);
-        flattened = null;
+            cmyk = imageProcessingService.flattenToCmyk(sourceImage, Color.WHITE, colorProfile);
+            logTiffStage("cmyk", baseName, cmyk);
+            flushIfDifferent(sourceImage, cmyk);
+            sourceImage = null;
+        }
 
         if (supersample && (cmyk.getWidth() != targetWidth || cmyk.getHeight() != targetHeight)) {
             BufferedImage downscaled = imageProcessingService.scaleImage(cmyk, targetWidth, targetHeight, textHint);
@@ -341,7 +443,42 @@ public class ExportService {
         byte[] tiffBytes = tiffWriter.write(cmyk, ppi, useLzw);
         flushIfDifferent(cmyk, null);
         cmyk = null;
+        return tiffResponse(tiffBytes, baseName, ppi, useLzw, tiffQuality, startNs);
+    }
+
+    /**
+     * PNG в исходном размере проходит конвейер полосами: строки распаковываются, смешиваются с белым
+     * фоном, переводятся в CMYK и сразу кодируются в TIFF. Промежуточные буферы зависят от высоты
+     * полосы, а не от площади, поэтому полноразмерных ARGB/CMYK-растров нет. Исходный PNG и итоговый
+     * TIFF при этом целиком лежат в памяти: без сжатия это {@code width * height * 4} байт в одном
+     * массиве. Поэтому потоком идут только PNG не больше {@code export.tiff.stream-max-pixels}
+     * (по умолчанию 64 Мп — 256 МБ несжатого TIFF); более крупные читаются целиком и уменьшаются
+     * под обычные лимиты TIFF, как и раньше.
+     */
+    private byte[] streamPngToTiff(PngRowReader reader, int ppi, boolean useLzw, ColorProfile colorProfile, String baseName) throws IOException {
+        int width = reader.width();
+        int height = reader.height();
+        long pixels = (long) width * height;
+        try (reader) {
+            logger.info("TIFF стадия stream-start: name={}, размер={}x{}, пикселей={}", baseName, width, height, pixels);
+            int bandRows = Math.max(1, Math.min(Math.min(height, TIFF_STREAM_MAX_ROWS), TIFF_STREAM_BAND_PIXELS / width));
+            ImageProcessingService.CmykStripConverter converter =
+                    imageProcessingService.createCmykStripConverter(width, bandRows, Color.WHITE, colorProfile);
+            TiffStripWriter stripWriter = tiffWriter.openStripWriter(width, height, ppi, useLzw,
+                    colorProfile.getColorSpace().getProfile());
+            int[] argb = new int[width * bandRows];
+            byte[] cmyk = new byte[width * bandRows * 4];
+            for (int top = 0; top < height; top += bandRows) {
+                int rows = Math.min(bandRows, height - top);
+                reader.readRows(argb, rows);
+                converter.convert(argb, 0, rows, reader.hasAlpha(), cmyk, 0);
+                stripWriter.writeRows(cmyk, 0, rows);
+            }
+            return stripWriter.finish();
+        }
+    }
 
+    private ExportResponse tiffResponse(byte[] tiffBytes, String baseName, int ppi, boolean useLzw, String tiffQuality, long startNs) {
         long elapsedMs = (System.nanoTime() - startNs) / 1_000_000L;
         double bytesMb = tiffBytes.length / (1024d * 1024d);
         logMemoryUsage("tiff-bytes", baseName, tiffBytes.length, null);
@@ -360,6 +497,21 @@ public class ExportService {
         return new ExportResponse(tiffBytes, "image/tiff", disposition);
     }
 
+    /**
+     * SVG растеризуется полосами параллельно, и каждая полоса сразу переводится в CMYK в своём
+     * потоке: полноразмерные ARGB/RGB-копии не создаются, в памяти остаётся только итоговый растр.
+     */
+    private BufferedImage rasterizeSvgToCmyk(SvgRasterizer.Scene scene, int width, int height, boolean textHint,
+                                             ColorProfile colorProfile) {
+        ColorModel cmykModel = imageProcessingService.cmykColorModel(colorProfile);
+        WritableRaster raster = cmykModel.createCompatibleWritableRaster(width, height);
+        svgRasterizer.rasterize(scene, width, height, textHint, (band, top) -> {
+            BufferedImage bandCmyk = imageProcessingService.convertToCmykExact(band, colorProfile);
+            raster.setDataElements(0, top, bandCmyk.getRaster());
+        });
+        return new BufferedImage(cmykModel, raster, false, null);
+    }
+
     private byte[] preparePdfDocumentBytes(byte[] data, UploadType uploadType, ExportRequest request, int dpi, ColorProfile colorProfile) throws IOException {
         return switch (uploadType) {
             case SVG -> createPdfFromSvg(data, request, colorProfile);
@@ -370,19 +522,40 @@ public class ExportService {
     }
 
     private byte[] createPdfFromSvg(byte[] data, ExportRequest request, ColorProfile colorProfile) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        WriterProperties writerProperties = pdfResourceFactory.createWriterProperties(null);
+        PdfWriter writer = new PdfWriter(output, writerProperties);
+        PdfDocument pdfDocument = new PdfDocument(writer);
+        try {
+            SvgRenderer.PreparedSvg svg = svgRenderer.prepareSvg(data, request.isSvgTextAsOutlines(), request.getSvgOutlineRenderer());
+            FontProvider fontProvider = pdfResourceFactory.createFontProvider(svg.fontFamilies(), request.isFontSubset());
+            renderSvgPage(svg, request, pdfDocument, fontProvider, colorProfile);
+            applyPdfDefaults(pdfDocument, colorProfile);
+        } finally {
+            pdfDocument.close();
+        }
+        return output.toByteArray();
+    }
+
+    private void renderSvgPage(SvgRenderer.PreparedSvg svg,
+                               ExportRequest request,
+                               PdfDocument pdfDocument,
+                               FontProvider fontProvider,
+                               ColorProfile colorProfile) {
         int targetWidthPx = positiveOrDefault(request.getWidthPx(), 0);
         int targetHeightPx = positiveOrDefault(request.getHeightPx(), 0);
         float targetWidthPt = targetWidthPx > 0 ? pxToPoints(targetWidthPx) : 0f;
         float targetHeightPt = targetHeightPx > 0 ? pxToPoints(targetHeightPx) : 0f;
+        svgRenderer.renderSvg(svg, pdfDocument, targetWidthPt, targetHeightPt, fontProvider, request.isFontSubset(),
+                colorProfile);
+    }
 
+    private byte[] createPdfFromImage(byte[] data, ExportRequest request, ColorProfile colorProfile, int dpi) throws IOException {
         ByteArrayOutputStream output = new ByteArrayOutputStream();
         WriterProperties writerProperties = pdfResourceFactory.createWriterProperties(null);
-        PdfWriter writer = new PdfWriter(output, writerProperties);
-        PdfDocument pdfDocument = new PdfDocument(writer);
+        PdfDocument pdfDocument = new PdfDocument(new PdfWriter(output, writerProperties));
         try {
-            FontProvider fontProvider = pdfResourceFactory.createFontProvider();
-            boolean outlineText = request.isSvgTextAsOutlines();
-            svgRenderer.renderSvg(data, pdfDocument, targetWidthPt, targetHeightPt, fontProvider, outlineText);
+            addImagePage(data, request, pdfDocument, colorProfile, dpi);
             applyPdfDefaults(pdfDocument, colorProfile);
         } finally {
             pdfDocument.close();
@@ -390,7 +563,7 @@ public class ExportService {
         return output.toByteArray();
     }
 
-    private byte[] createPdfFromImage(byte[] data, ExportRequest request, ColorProfile colorProfile, int dpi) throws IOException {
+    private void addImagePage(byte[] data, ExportRequest request, PdfDocument pdfDocument, ColorProfile colorProfile, int dpi) throws IOException {
         BufferedImage image = readBufferedImage(data);
         if (image == null) {
             throw new ConversionException("Не удалось прочитать растровое изображение для PDF.");
@@ -404,18 +577,10 @@ public class ExportService {
             image = scaled;
         }
 
-        BufferedImage argb = imageProcessingService.ensureArgb(image);
-        flushIfDifferent(image, argb);
+        BufferedImage cmyk = imageProcessingService.flattenToCmyk(image, Color.WHITE, colorProfile);
+        flushIfDifferent(image, cmyk);
         image = null;
 
-        BufferedImage flattened = imageProcessingService.flattenTransparency(argb, Color.WHITE);
-        flushIfDifferent(argb, flattened);
-        argb = null;
-
-        BufferedImage cmyk = imageProcessingService.convertToCmyk(flattened, colorProfile);
-        flushIfDifferent(flattened, cmyk);
-        flattened = null;
-
         int targetPpi = request.getPpi() > 0 ? request.getPpi() : dpi;
         byte[] jpegBytes = jpegWriter.writeCmyk(cmyk, 0.92f, targetPpi);
         flushIfDifferent(cmyk, null);
@@ -424,23 +589,11 @@ public class ExportService {
         float widthPt = pxToPoints(targetWidth);
         float heightPt = pxToPoints(targetHeight);
 
-        ByteArrayOutputStream output = new ByteArrayOutputStream();
-        WriterProperties writerProperties = pdfResourceFactory.createWriterProperties(null);
-        PdfWriter writer = new PdfWriter(output, writerProperties);
-        PdfDocument pdfDocument = new PdfDocument(writer);
-        pdfDocument.setDefaultPageSize(new PageSize(widthPt, heightPt));
-        com.itextpdf.layout.Document document = new com.itextpdf.layout.Document(pdfDocument, new PageSize(widthPt, heightPt));
-        try {
-            ImageData imageData = ImageDataFactory.create(jpegBytes);
-            com.itextpdf.layout.element.Image imageElement = new com.itextpdf.layout.element.Image(imageData)
-                    .scaleAbsolute(widthPt, heightPt)
-                    .setFixedPosition(0, 0);
-            document.add(imageElement);
-            applyPdfDefaults(pdfDocument, colorProfile);
-        } finally {
-            document.close();
-        }
-        return output.toByteArray();
+        PdfPage page = pdfDocument.addNewPage(new PageSize(widthPt, heightPt));
+        PdfCanvas canvas = new PdfCanvas(page);
+        ImageData imageData = ImageDataFactory.create(jpegBytes);
+        canvas.addImageFittedIntoRectangle(imageData, new Rectangle(0, 0, widthPt, heightPt), false);
+        canvas.release();
     }
 
     private byte[] processExistingPdf(byte[] data, ColorProfile colorProfile) throws IOException {
@@ -477,8 +630,8 @@ public class ExportService {
     private UploadType detectUploadType(MultipartFile file, String format) {
         UploadType uploadType = detectUploadType(file);
         if (FORMAT_TIFF.equals(format)) {
-            if (uploadType != UploadType.IMAGE || !isPng(file)) {
-                throw new ConversionException("Для экспорта TIFF необходимо прикладывать PNG-файл.");
+            if (uploadType != UploadType.SVG && (uploadType != UploadType.IMAGE || !isPng(file))) {
+                throw new ConversionException("Для экспорта TIFF необходимо прикладывать PNG- или SVG-файл.");
             }
         }
         return uploadType;
@@ -545,16 +698,16 @@ public class ExportService {
         int clampedHeight = Math.max(1, height);
         double scale = 1.0;
 
-        if (clampedWidth > MAX_TIFF_DIMENSION) {
-            scale = Math.min(scale, (double) MAX_TIFF_DIMENSION / clampedWidth);
+        if (clampedWidth > maxTiffDimension) {
+            scale = Math.min(scale, (double) maxTiffDimension / clampedWidth);
         }
-        if (clampedHeight > MAX_TIFF_DIMENSION) {
-            scale = Math.min(scale, (double) MAX_TIFF_DIMENSION / clampedHeight);
+        if (clampedHeight > maxTiffDimension) {
+            scale = Math.min(scale, (double) maxTiffDimension / clampedHeight);
         }
 
         long totalPixels = (long) clampedWidth * clampedHeight;
-        if (totalPixels > MAX_TIFF_TOTAL_PIXELS) {
-            double pixelScale = Math.sqrt((double) MAX_TIFF_TOTAL_PIXELS / totalPixels);
+        if (totalPixels > maxTiffTotalPixels) {
+            double pixelScale = Math.sqrt((double) maxTiffTotalPixels / totalPixels);
             scale = Math.min(scale, pixelScale);
         }
 
@@ -0,0 +1,102 @@
+package com.figma.export.service;
+
+import com.figma.export.exception.ConversionException;
+import com.figma.export.exception.ServerBusyException;
+import com.figma.export.svg.SvgComplexity;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Отдельная очередь для тяжёлых SVG. Лёгкие документы конвертируются прямо в потоке запроса,
+ * тяжёлые выполняются на ограниченном пуле: одновременно их обрабатывается не больше
+ * {@code export.heavy.threads}, ещё {@code export.heavy.queue-capacity} ждут, остальные получают 503.
+ * Поток запроса при этом ждёт результата, так что тяжёлые экспорты занимают не более
+ * {@code threads + queue-capacity} потоков веб-сервера и не отбирают процессор у мелких.
+ */
+@Component
+public class HeavyJobLane {
+
+    private static final Logger logger = LoggerFactory.getLogger(HeavyJobLane.class);
+
+    @FunctionalInterface
+    public interface Job<T> {
+        T run() throws IOException;
+    }
+
+    private final long costThreshold;
+    private final ThreadPoolExecutor executor;
+
+    public HeavyJobLane(@Value("${export.heavy.cost-threshold:500000}") long costThreshold,
+                        @Value("${export.heavy.threads:2}") int threads,
+                        @Value("${export.heavy.queue-capacity:4}") int queueCapacity) {
+        this.costThreshold = costThreshold;
+        int poolSize = Math.max(1, threads);
+        AtomicInteger counter = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(poolSize, poolSize, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, queueCapacity)),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "heavy-export-" + counter.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    public boolean isHeavy(SvgComplexity complexity) {
+        return complexity != null && complexity.cost() >= costThreshold;
+    }
+
+    /**
+     * Выполняет {@code job} в текущем потоке или, если документ тяжёлый, на выделенном пуле.
+     */
+    public <T> T run(String name, SvgComplexity complexity, Job<T> job) throws IOException {
+        if (!isHeavy(complexity)) {
+            return job.run();
+        }
+        Future<T> future;
+        try {
+            future = executor.submit(job::run);
+        } catch (RejectedExecutionException ex) {
+            logger.warn("Очередь тяжёлых экспортов переполнена, {} отклонён: cost={}, {}", name, complexity.cost(), complexity);
+            throw new ServerBusyException("Сервер занят обработкой больших файлов, повторите запрос позже.");
+        }
+        logger.info("Тяжёлый SVG {} направлен в отдельную очередь: cost={}, {}, в очереди={}",
+                name, complexity.cost(), complexity, executor.getQueue().size());
+        try {
+            return future.get();
+        } catch (InterruptedException ex) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new ConversionException("Экспорт прерван.", ex);
+        } catch (ExecutionException ex) {
+            Throwable cause = ex.getCause();
+            if (cause instanceof IOException ioException) {
+                throw ioException;
+            }
+            if (cause instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            if (cause instanceof Error error) {
+                throw error;
+            }
+            throw new ConversionException("Не удалось выполнить экспорт.", cause);
+        }
+    }
+}
@@ -1,7 +1,10 @@
 package com.figma.export.service;
 
+import com.figma.export.color.CmykLut;
 import com.figma.export.color.ColorProfile;
 import com.figma.export.color.ColorProfileManager;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.awt.AlphaComposite;
@@ -9,22 +12,61 @@ import java.awt.Color;
 import java.awt.Graphics2D;
 import java.awt.RenderingHints;
 import java.awt.Transparency;
-import java.awt.color.ColorSpace;
 import java.awt.color.ICC_ColorSpace;
 import java.awt.image.BufferedImage;
 import java.awt.image.ColorConvertOp;
 import java.awt.image.ComponentColorModel;
 import java.awt.image.DataBuffer;
+import java.awt.image.DataBufferByte;
+import java.awt.image.DataBufferInt;
 import java.awt.image.Raster;
+import java.awt.image.SinglePixelPackedSampleModel;
 import java.awt.image.WritableRaster;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
 
 @Service
 public class ImageProcessingService {
 
+    private static final int CMYK_STRIP_ROWS = 256;
+    private static final int MIN_BAND_PIXELS = 64 * 1024;
+    private static final int DEFAULT_EXACT_COLOR_PALETTE = 4096;
+
     private final ColorProfileManager colorProfileManager;
+    private final ForkJoinPool renderPool;
+    private final int parallelism;
+    private final boolean useCmykLut;
+    private final int exactColorMaxPalette;
 
+    /**
+     * Однопоточный вариант без пула и без LUT: точный путь через движок ICC — для тестов и утилит.
+     */
     public ImageProcessingService(ColorProfileManager colorProfileManager) {
+        this(colorProfileManager, null, 1, false, DEFAULT_EXACT_COLOR_PALETTE);
+    }
+
+    /**
+     * @param parallelism сколько полос одного изображения конвертируются одновременно;
+     *                    {@code 0} — по параллелизму {@code renderPool}
+     * @param useCmykLut  переводить пиксели через {@link CmykLut} профиля вместо {@link ColorConvertOp}
+     * @param exactColorMaxPalette сколько различных цветов изображения переводится точно, по одному разу
+     *                             на цвет; при большей палитре — LUT или поток ICC. {@code 0} — выключено
+     */
+    @Autowired
+    public ImageProcessingService(ColorProfileManager colorProfileManager,
+                                  ForkJoinPool renderPool,
+                                  @Value("${export.cmyk.parallelism:0}") int parallelism,
+                                  @Value("${export.color.cmyk-lut:true}") boolean useCmykLut,
+                                  @Value("${export.cmyk.exact-color-max-palette:4096}") int exactColorMaxPalette) {
         this.colorProfileManager = colorProfileManager;
+        this.renderPool = renderPool;
+        this.useCmykLut = useCmykLut;
+        this.exactColorMaxPalette = Math.max(0, exactColorMaxPalette);
+        int poolParallelism = renderPool != null ? renderPool.getParallelism() : 1;
+        this.parallelism = parallelism > 0 ? Math.min(parallelism, poolParallelism) : poolParallelism;
     }
 
     public BufferedImage ensureArgb(BufferedImage source) {
@@ -57,6 +99,8 @@ public class ImageProcessingService {
             graphics.setComposite(AlphaComposite.Src);
             graphics.setColor(background);
             graphics.fillRect(0, 0, source.getWidth(), source.getHeight());
+            // Src копирует цвет без учёта альфы, поэтому картинка кладётся поверх фона через SrcOver.
+            graphics.setComposite(AlphaComposite.SrcOver);
             graphics.drawImage(source, 0, 0, null);
         } finally {
             graphics.dispose();
@@ -93,20 +137,436 @@ public class ImageProcessingService {
         return convertToCmyk(sourceRgb, null);
     }
 
+    /**
+     * Крупные изображения делятся на горизонтальные полосы, которые конвертируются параллельно на
+     * {@code renderPool} тем же ядром, что и {@link #flattenToCmyk}. ICC-преобразование попиксельное,
+     * поэтому результат совпадает с однопоточным до байта.
+     */
     public BufferedImage convertToCmyk(BufferedImage sourceRgb, ColorProfile profile) {
-        BufferedImage rgb = ensureRgb(sourceRgb);
+        return convertInBands(ensureRgb(sourceRgb), false, Color.WHITE, profile, useCmykLut);
+    }
+
+    /**
+     * Как {@link #convertToCmyk(BufferedImage, ColorProfile)}, но без {@link CmykLut}: только палитра
+     * и поток ICC, которые дают одинаковые байты. Для частей одного изображения, которые
+     * конвертируются по отдельности (полосы SVG): путь выбирается для каждой части заново, и если
+     * одна из них ушла бы в LUT, а соседняя в палитру, на стыке была бы видна ступенька.
+     */
+    public BufferedImage convertToCmykExact(BufferedImage sourceRgb, ColorProfile profile) {
+        return convertInBands(ensureRgb(sourceRgb), false, Color.WHITE, profile, false);
+    }
+
+    /**
+     * Однопроходная замена цепочки {@link #ensureArgb} → {@link #flattenTransparency} →
+     * {@link #convertToCmyk}: пиксели источника читаются один раз, смешиваются с фоном и полосами
+     * по {@value #CMYK_STRIP_ROWS} строк переводятся в CMYK прямо в итоговый растр. Промежуточные
+     * полноразмерные ARGB/RGB-копии не создаются, кроме результата в памяти живёт по одной полосе
+     * на поток.
+     */
+    public BufferedImage flattenToCmyk(BufferedImage source, Color background, ColorProfile profile) {
+        return convertInBands(source, source.getColorModel().hasAlpha(), background, profile, useCmykLut);
+    }
+
+    /**
+     * Каждая параллельная полоса конвертируется через собственные буферы {@link CmykStripConverter}
+     * и только потом копируется в общий растр. {@link ColorConvertOp} над подызображениями общего
+     * растра из нескольких потоков портит соседние полосы: нативный код может работать с копией
+     * всего массива и записывать её обратно целиком.
+     * <p>
+     * Путь перевода выбирается один раз на изображение, до деления на полосы: если различных цветов
+     * не больше {@code exactColorMaxPalette}, все полосы читают одну заранее переведённую палитру,
+     * иначе все идут через LUT (или поток ICC). Разные пути в соседних полосах дали бы ступеньку
+     * на стыке: ошибка LUT доходит до нескольких уровней канала.
+     */
+    private BufferedImage convertInBands(BufferedImage source, boolean hasAlpha, Color background, ColorProfile profile,
+                                         boolean allowLut) {
+        int width = source.getWidth();
+        int height = source.getHeight();
         ColorProfile effectiveProfile = profile != null ? profile : colorProfileManager.getDefaultProfile();
-        ICC_ColorSpace cmykSpace = effectiveProfile.getColorSpace();
-        int width = rgb.getWidth();
-        int height = rgb.getHeight();
-        int[] bits = {8, 8, 8, 8};
-        ColorSpace rgbSpace = rgb.getColorModel().getColorSpace();
-        ComponentColorModel colorModel = new ComponentColorModel(cmykSpace, bits, false, false, Transparency.OPAQUE, DataBuffer.TYPE_BYTE);
         WritableRaster raster = Raster.createInterleavedRaster(DataBuffer.TYPE_BYTE, width, height, 4, null);
-        BufferedImage cmykImage = new BufferedImage(colorModel, raster, false, null);
-        ColorConvertOp convertOp = new ColorConvertOp(rgbSpace, cmykSpace, null);
-        convertOp.filter(rgb, cmykImage);
-        return cmykImage;
+        byte[] cmykBytes = ((DataBufferByte) raster.getDataBuffer()).getData();
+
+        int[] sourcePixels = packedPixels(source);
+        ICC_ColorSpace cmykSpace = effectiveProfile.getColorSpace();
+        RgbColorCache palette = collectPalette(source, sourcePixels, hasAlpha, background.getRGB(), cmykSpace);
+        CmykLut lut = palette == null && allowLut ? colorProfileManager.getCmykLut(effectiveProfile) : null;
+        forEachBand(width, height, (bandTop, bandRows) -> {
+            CmykStripConverter converter = new CmykStripConverter(width, Math.min(bandRows, CMYK_STRIP_ROWS),
+                    background, cmykSpace, lut, 0, palette);
+            int stripRows = converter.maxRows();
+            int[] argb = sourcePixels != null ? null : new int[width * stripRows];
+            for (int top = bandTop, end = bandTop + bandRows; top < end; top += stripRows) {
+                int rows = Math.min(stripRows, end - top);
+                if (sourcePixels != null) {
+                    converter.convert(sourcePixels, top * width, rows, hasAlpha, cmykBytes, top * width * 4);
+                } else {
+                    source.getRGB(0, top, width, rows, argb, 0, width);
+                    converter.convert(argb, 0, rows, hasAlpha, cmykBytes, top * width * 4);
+                }
+            }
+        });
+        return new BufferedImage(createCmykColorModel(effectiveProfile.getColorSpace()), raster, false, null);
+    }
+
+    /**
+     * Собирает различные цвета изображения (после смешивания с фоном) и переводит их одним вызовом
+     * ICC. Возвращает {@code null}, как только цветов становится больше {@code exactColorMaxPalette}:
+     * для фотографий это происходит на первых строках, и проход почти ничего не стоит. Готовая
+     * таблица только читается, поэтому её можно отдать всем полосам сразу.
+     */
+    private RgbColorCache collectPalette(BufferedImage source, int[] sourcePixels, boolean hasAlpha, int backgroundRgb,
+                                         ICC_ColorSpace cmykSpace) {
+        int width = source.getWidth();
+        int height = source.getHeight();
+        int maxEntries = (int) Math.min(exactColorMaxPalette, (long) width * height);
+        if (maxEntries <= 0) {
+            return null;
+        }
+        RgbColorCache palette = new RgbColorCache(maxEntries);
+        int[] colors = new int[maxEntries];
+        int[] slots = new int[maxEntries];
+        int stripRows = Math.max(1, Math.min(height, CMYK_STRIP_ROWS));
+        int[] strip = sourcePixels != null && !hasAlpha ? null : new int[width * stripRows];
+        for (int top = 0; top < height; top += stripRows) {
+            int rows = Math.min(stripRows, height - top);
+            int count = rows * width;
+            int[] rgb = sourcePixels;
+            int offset = top * width;
+            if (strip != null) {
+                if (sourcePixels != null) {
+                    System.arraycopy(sourcePixels, offset, strip, 0, count);
+                } else {
+                    source.getRGB(0, top, width, rows, strip, 0, width);
+                }
+                if (hasAlpha) {
+                    compositeOver(strip, count, backgroundRgb);
+                }
+                rgb = strip;
+                offset = 0;
+            }
+            for (int i = 0; i < count; i++) {
+                int color = rgb[offset + i];
+                int slot = palette.find(color);
+                if (slot >= 0) {
+                    continue;
+                }
+                if (palette.isFull()) {
+                    return null;
+                }
+                colors[palette.size()] = color;
+                slots[palette.size()] = -slot - 1;
+                palette.insert(-slot - 1, color);
+            }
+        }
+
+        int size = palette.size();
+        BufferedImage rgbColors = new BufferedImage(size, 1, BufferedImage.TYPE_INT_RGB);
+        System.arraycopy(colors, 0, ((DataBufferInt) rgbColors.getRaster().getDataBuffer()).getData(), 0, size);
+        BufferedImage cmykColors = new BufferedImage(createCmykColorModel(cmykSpace),
+                Raster.createInterleavedRaster(DataBuffer.TYPE_BYTE, size, 1, 4, null), false, null);
+        new ColorConvertOp(rgbColors.getColorModel().getColorSpace(), cmykSpace, null).filter(rgbColors, cmykColors);
+        byte[] converted = ((DataBufferByte) cmykColors.getRaster().getDataBuffer()).getData();
+        for (int i = 0; i < size; i++) {
+            palette.setValue(slots[i], CmykStripConverter.packCmyk(converted, i * 4));
+        }
+        return palette;
+    }
+
+    /**
+     * Модель цвета растров, которые возвращают {@link #convertToCmyk} и {@link #flattenToCmyk}:
+     * 8 бит на канал CMYK профиля, без альфа-канала.
+     */
+    public ComponentColorModel cmykColorModel(ColorProfile profile) {
+        ColorProfile effectiveProfile = profile != null ? profile : colorProfileManager.getDefaultProfile();
+        return createCmykColorModel(effectiveProfile.getColorSpace());
+    }
+
+    /**
+     * Конвертер полос для потоковых конвейеров: буферы на {@code maxRows} строк выделяются один раз
+     * и переиспользуются. Один экземпляр переводит одно изображение сверху вниз и не потокобезопасен.
+     */
+    public CmykStripConverter createCmykStripConverter(int width, int maxRows, Color background, ColorProfile profile) {
+        ColorProfile effectiveProfile = profile != null ? profile : colorProfileManager.getDefaultProfile();
+        CmykLut lut = useCmykLut ? colorProfileManager.getCmykLut(effectiveProfile) : null;
+        int rows = Math.max(1, maxRows);
+        // Палитра больше числа пикселей полосы не нужна: такая полоса всё равно переводится одним вызовом ICC.
+        int paletteSize = (int) Math.min(exactColorMaxPalette, (long) width * rows);
+        return new CmykStripConverter(width, rows, background, effectiveProfile.getColorSpace(), lut, paletteSize, null);
+    }
+
+    /**
+     * Смешивает неумноженные ARGB-пиксели с фоном и переводит их в чередующиеся байты CMYK.
+     * <p>
+     * Плоские растры из Figma содержат немного различных цветов, поэтому сначала пиксели идут через
+     * палитру {@link RgbColorCache}: каждый новый цвет переводится движком ICC один раз, пачкой за
+     * полосу, остальные берутся из таблицы. Палитра либо собрана заранее по всему изображению и
+     * общая для всех конвертеров, либо своя и пополняется по ходу. Своя палитра при переполнении
+     * уступает место {@link CmykLut}, только если через неё ещё ничего не прошло; иначе изображение
+     * дописывается потоковым {@link ColorConvertOp}, который даёт те же байты, что и палитра, и
+     * стыка между верхней и нижней частью нет.
+     */
+    public static final class CmykStripConverter {
+
+        private final int width;
+        private final int maxRows;
+        private final int backgroundRgb;
+        private final ComponentColorModel colorModel;
+        private final BufferedImage rgbStrip;
+        private final int[] rgbPixels;
+        private final BufferedImage cmykStrip;
+        private final byte[] cmykStripBytes;
+        private final ColorConvertOp convertOp;
+        private final RgbColorCache sharedPalette;
+        private CmykLut lut;
+        private RgbColorCache palette;
+        private boolean paletteUsed;
+        private final BufferedImage paletteRgb;
+        private final int[] paletteRgbPixels;
+        private final BufferedImage paletteCmyk;
+        private final byte[] paletteCmykBytes;
+        private final int[] paletteSlots;
+
+        private CmykStripConverter(int width, int maxRows, Color background, ICC_ColorSpace cmykSpace, CmykLut lut,
+                                   int paletteSize, RgbColorCache sharedPalette) {
+            this.width = width;
+            this.maxRows = maxRows;
+            this.backgroundRgb = background.getRGB();
+            this.colorModel = createCmykColorModel(cmykSpace);
+            this.lut = lut;
+            this.sharedPalette = sharedPalette;
+            this.rgbStrip = new BufferedImage(width, maxRows, BufferedImage.TYPE_INT_RGB);
+            this.rgbPixels = ((DataBufferInt) rgbStrip.getRaster().getDataBuffer()).getData();
+            // LUT и общая палитра пишут прямо в выходной массив; поток ICC нужен без них или как запасной
+            // путь для своей палитры
+            boolean needsIcc = (lut == null && sharedPalette == null) || paletteSize > 0;
+            if (!needsIcc) {
+                this.cmykStrip = null;
+                this.cmykStripBytes = null;
+            } else {
+                this.cmykStrip = new BufferedImage(colorModel,
+                        Raster.createInterleavedRaster(DataBuffer.TYPE_BYTE, width, maxRows, 4, null), false, null);
+                this.cmykStripBytes = ((DataBufferByte) cmykStrip.getRaster().getDataBuffer()).getData();
+            }
+            if (paletteSize > 0) {
+                this.palette = new RgbColorCache(paletteSize);
+                this.paletteRgb = new BufferedImage(paletteSize, 1, BufferedImage.TYPE_INT_RGB);
+                this.paletteRgbPixels = ((DataBufferInt) paletteRgb.getRaster().getDataBuffer()).getData();
+                this.paletteCmyk = new BufferedImage(colorModel,
+                        Raster.createInterleavedRaster(DataBuffer.TYPE_BYTE, paletteSize, 1, 4, null), false, null);
+                this.paletteCmykBytes = ((DataBufferByte) paletteCmyk.getRaster().getDataBuffer()).getData();
+                this.paletteSlots = new int[paletteSize];
+            } else {
+                this.paletteRgb = null;
+                this.paletteRgbPixels = null;
+                this.paletteCmyk = null;
+                this.paletteCmykBytes = null;
+                this.paletteSlots = null;
+            }
+            this.convertOp = needsIcc
+                    ? new ColorConvertOp(rgbStrip.getColorModel().getColorSpace(), cmykSpace, null)
+                    : null;
+        }
+
+        public int maxRows() {
+            return maxRows;
+        }
+
+        public ComponentColorModel colorModel() {
+            return colorModel;
+        }
+
+        /**
+         * Переводит {@code rows} строк из {@code argb} (начиная с {@code argbOffset}) и пишет
+         * {@code rows * width * 4} байт в {@code cmyk} начиная с {@code cmykOffset}.
+         */
+        public void convert(int[] argb, int argbOffset, int rows, boolean hasAlpha, byte[] cmyk, int cmykOffset) {
+            if (rows <= 0 || rows > maxRows) {
+                throw new IllegalArgumentException("rows must be in [1, " + maxRows + "]: " + rows);
+            }
+            int count = rows * width;
+            int[] pixels = argb;
+            int offset = argbOffset;
+            if (hasAlpha) {
+                System.arraycopy(argb, argbOffset, rgbPixels, 0, count);
+                compositeOver(rgbPixels, count, backgroundRgb);
+                pixels = rgbPixels;
+                offset = 0;
+            }
+            if (sharedPalette != null) {
+                for (int i = 0; i < count; i++) {
+                    writeCmyk(sharedPalette.value(sharedPalette.find(pixels[offset + i])), cmyk, cmykOffset + i * 4);
+                }
+                return;
+            }
+            if (palette != null && convertThroughPalette(pixels, offset, count, cmyk, cmykOffset)) {
+                paletteUsed = true;
+                return;
+            }
+            if (lut != null) {
+                lut.convert(pixels, offset, count, cmyk, cmykOffset);
+                return;
+            }
+            if (pixels != rgbPixels) {
+                System.arraycopy(pixels, offset, rgbPixels, 0, count);
+            }
+            if (rows == maxRows) {
+                convertOp.filter(rgbStrip, cmykStrip);
+            } else {
+                convertOp.filter(rgbStrip.getSubimage(0, 0, width, rows), cmykStrip.getSubimage(0, 0, width, rows));
+            }
+            System.arraycopy(cmykStripBytes, 0, cmyk, cmykOffset, count * 4);
+        }
+
+        /**
+         * @return {@code false}, если палитра переполнилась: тогда она отключается, а полоса
+         * целиком переводится обычным путём — LUT, если палитра ещё не использовалась, иначе ICC
+         */
+        private boolean convertThroughPalette(int[] rgb, int offset, int count, byte[] cmyk, int cmykOffset) {
+            RgbColorCache cache = palette;
+            int misses = 0;
+            for (int i = 0; i < count; i++) {
+                int color = rgb[offset + i];
+                int slot = cache.find(color);
+                if (slot >= 0) {
+                    writeCmyk(cache.value(slot), cmyk, cmykOffset + i * 4);
+                    continue;
+                }
+                if (cache.isFull()) {
+                    palette = null;
+                    if (paletteUsed) {
+                        lut = null;
+                    }
+                    return false;
+                }
+                slot = -slot - 1;
+                cache.insert(slot, color);
+                paletteRgbPixels[misses] = color;
+                paletteSlots[misses++] = slot;
+            }
+            if (misses == 0) {
+                return true;
+            }
+
+            if (misses == cache.maxEntries()) {
+                convertOp.filter(paletteRgb, paletteCmyk);
+            } else {
+                convertOp.filter(paletteRgb.getSubimage(0, 0, misses, 1), paletteCmyk.getSubimage(0, 0, misses, 1));
+            }
+            byte[] converted = paletteCmykBytes;
+            for (int i = 0; i < misses; i++) {
+                int base = i * 4;
+                cache.setValue(paletteSlots[i], packCmyk(converted, base));
+            }
+            for (int i = 0; i < count; i++) {
+                writeCmyk(cache.value(cache.find(rgb[offset + i])), cmyk, cmykOffset + i * 4);
+            }
+            return true;
+        }
+
+        private static int packCmyk(byte[] cmyk, int offset) {
+            return (cmyk[offset] & 0xFF) << 24 | (cmyk[offset + 1] & 0xFF) << 16
+                    | (cmyk[offset + 2] & 0xFF) << 8 | (cmyk[offset + 3] & 0xFF);
+        }
+
+        private static void writeCmyk(int packed, byte[] cmyk, int offset) {
+            cmyk[offset] = (byte) (packed >>> 24);
+            cmyk[offset + 1] = (byte) (packed >>> 16);
+            cmyk[offset + 2] = (byte) (packed >>> 8);
+            cmyk[offset + 3] = (byte) packed;
+        }
+    }
+
+    @FunctionalInterface
+    private interface BandAction {
+        void run(int top, int rows);
+    }
+
+    /**
+     * Делит изображение на равные горизонтальные полосы (не больше {@code parallelism} и не меньше
+     * {@value #MIN_BAND_PIXELS} пикселей в каждой) и выполняет их на {@code renderPool}. Если вызов
+     * уже идёт из рабочего потока пула (полосы SVG, встроенные картинки), полосы отдаются через
+     * {@link ForkJoinTask#invokeAll}, и ожидающий поток сам помогает их выполнять.
+     */
+    private void forEachBand(int width, int height, BandAction action) {
+        long pixels = (long) width * height;
+        int bands = (int) Math.min(Math.min(parallelism, height), pixels / MIN_BAND_PIXELS);
+        if (renderPool == null || bands <= 1) {
+            action.run(0, height);
+            return;
+        }
+        List<ForkJoinTask<?>> tasks = new ArrayList<>(bands);
+        int top = 0;
+        for (int i = 0; i < bands; i++) {
+            int bandTop = top;
+            int bandRows = height / bands + (i < height % bands ? 1 : 0);
+            tasks.add(ForkJoinTask.adapt(() -> action.run(bandTop, bandRows)));
+            top += bandRows;
+        }
+        if (ForkJoinTask.getPool() == renderPool) {
+            ForkJoinTask.invokeAll(tasks);
+        } else {
+            renderPool.invoke(new RecursiveAction() {
+                @Override
+                protected void compute() {
+                    invokeAll(tasks);
+                }
+            });
+        }
+    }
+
+    /**
+     * Пиксели TYPE_INT_RGB/TYPE_INT_ARGB без отступов строк; для прочих растров — {@code null}.
+     */
+    private static int[] packedPixels(BufferedImage source) {
+        int type = source.getType();
+        if (type != BufferedImage.TYPE_INT_ARGB && type != BufferedImage.TYPE_INT_RGB) {
+            return null;
+        }
+        WritableRaster raster = source.getRaster();
+        if (raster.getSampleModelTranslateX() != 0 || raster.getSampleModelTranslateY() != 0
+                || !(raster.getSampleModel() instanceof SinglePixelPackedSampleModel sampleModel)
+                || sampleModel.getScanlineStride() != source.getWidth()
+                || raster.getDataBuffer().getOffset() != 0) {
+            return null;
+        }
+        return ((DataBufferInt) raster.getDataBuffer()).getData();
+    }
+
+    /**
+     * Смешивает неумноженные ARGB-пиксели с непрозрачным фоном на месте.
+     */
+    private static void compositeOver(int[] pixels, int count, int backgroundRgb) {
+        int backgroundR = (backgroundRgb >> 16) & 0xFF;
+        int backgroundG = (backgroundRgb >> 8) & 0xFF;
+        int backgroundB = backgroundRgb & 0xFF;
+        for (int i = 0; i < count; i++) {
+            int argb = pixels[i];
+            int alpha = argb >>> 24;
+            if (alpha == 0xFF) {
+                continue;
+            }
+            if (alpha == 0) {
+                pixels[i] = backgroundRgb;
+                continue;
+            }
+            int inverse = 0xFF - alpha;
+            int r = div255(((argb >> 16) & 0xFF) * alpha + backgroundR * inverse);
+            int g = div255(((argb >> 8) & 0xFF) * alpha + backgroundG * inverse);
+            int b = div255((argb & 0xFF) * alpha + backgroundB * inverse);
+            pixels[i] = (r << 16) | (g << 8) | b;
+        }
+    }
+
+    /**
+     * Округлённое {@code value / 255} для {@code value} в [0, 255 * 255].
+     */
+    private static int div255(int value) {
+        value += 128;
+        return (value + (value >> 8)) >> 8;
+    }
+
+    private static ComponentColorModel createCmykColorModel(ICC_ColorSpace cmykSpace) {
+        return new ComponentColorModel(cmykSpace, new int[]{8, 8, 8, 8}, false, false, Transparency.OPAQUE, DataBuffer.TYPE_BYTE);
     }
 
     private BufferedImage ensureRgb(BufferedImage source) {
@@ -0,0 +1,356 @@
+package com.figma.export.service;
+
+import com.figma.export.exception.ConversionException;
+
+import java.io.ByteArrayInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Построчное чтение PNG без декодирования всего изображения: IDAT-чанки распаковываются потоком,
+ * строки снимаются с фильтров по мере чтения и отдаются как неумноженные ARGB. В памяти держатся
+ * только текущая и предыдущая строки. Поддерживаются RGB, RGBA и палитра любой допустимой глубины.
+ * Для серых изображений, файлов со встроенным ICC-профилем и чересстрочных (Adam7) файлов
+ * {@link #open(byte[])} возвращает {@code null}: ImageIO переводит их цвета иначе, и такие файлы
+ * идут через обычное декодирование, чтобы результат не зависел от выбранного пути.
+ */
+final class PngRowReader implements AutoCloseable {
+
+    private static final long PNG_SIGNATURE = 0x89504E470D0A1A0AL;
+    private static final int TYPE_IHDR = 0x49484452;
+    private static final int TYPE_PLTE = 0x504C5445;
+    private static final int TYPE_TRNS = 0x74524E53;
+    private static final int TYPE_ICCP = 0x69434350;
+    private static final int TYPE_IDAT = 0x49444154;
+    private static final int TYPE_IEND = 0x49454E44;
+
+    private static final int COLOR_GRAY = 0;
+    private static final int COLOR_RGB = 2;
+    private static final int COLOR_INDEXED = 3;
+    private static final int COLOR_GRAY_ALPHA = 4;
+    private static final int COLOR_RGBA = 6;
+
+    private final int width;
+    private final int height;
+    private final int bitDepth;
+    private final int colorType;
+    private final int[] palette;
+    private final long transparentRgb;
+    private final boolean hasAlpha;
+    private final int bytesPerPixel;
+    private final InputStream pixels;
+
+    private byte[] currentRow;
+    private byte[] previousRow;
+    private int rowsRead;
+
+    private PngRowReader(Header header, int[] palette, long transparentRgb, boolean hasAlpha,
+                         InputStream pixels) {
+        this.width = header.width();
+        this.height = header.height();
+        this.bitDepth = header.bitDepth();
+        this.colorType = header.colorType();
+        this.palette = palette;
+        this.transparentRgb = transparentRgb;
+        this.hasAlpha = hasAlpha;
+        this.bytesPerPixel = Math.max(1, channels(colorType) * bitDepth / 8);
+        int rowBytes = (int) (((long) width * channels(colorType) * bitDepth + 7) / 8);
+        this.currentRow = new byte[rowBytes + 1];
+        this.previousRow = new byte[rowBytes + 1];
+        this.pixels = pixels;
+    }
+
+    /**
+     * Разбирает заголовок PNG. Возвращает {@code null}, если данные не PNG или файл нужно читать через ImageIO.
+     */
+    static PngRowReader open(byte[] data) {
+        if (data.length < 8 + 25 || readLong(data, 0) != PNG_SIGNATURE) {
+            return null;
+        }
+        Header header = null;
+        int[] palette = null;
+        byte[] transparency = null;
+        boolean iccProfile = false;
+        List<InputStream> idat = new ArrayList<>();
+        int position = 8;
+        while (position + 8 <= data.length) {
+            int length = readInt(data, position);
+            int type = readInt(data, position + 4);
+            int start = position + 8;
+            if (length < 0 || start + (long) length + 4 > data.length) {
+                throw new ConversionException("PNG повреждён: чанк выходит за пределы файла.");
+            }
+            switch (type) {
+                case TYPE_IHDR -> header = parseHeader(data, start, length);
+                case TYPE_PLTE -> palette = parsePalette(data, start, length);
+                case TYPE_TRNS -> transparency = Arrays.copyOfRange(data, start, start + length);
+                case TYPE_IDAT -> idat.add(new ByteArrayInputStream(data, start, length));
+                case TYPE_ICCP -> iccProfile = true;
+                default -> {
+                }
+            }
+            position = start + length + 4;
+            if (type == TYPE_IEND) {
+                break;
+            }
+        }
+        if (header == null || idat.isEmpty()) {
+            throw new ConversionException("PNG повреждён: нет заголовка или данных изображения.");
+        }
+        if (header.interlaced() || iccProfile || header.colorType() == COLOR_GRAY_ALPHA
+                || header.colorType() == COLOR_GRAY) {
+            return null;
+        }
+        if (header.colorType() == COLOR_INDEXED && palette == null) {
+            throw new ConversionException("PNG повреждён: индексированное изображение без палитры.");
+        }
+
+        long transparentRgb = -1;
+        boolean hasAlpha = header.colorType() == COLOR_RGBA;
+        if (transparency != null) {
+            switch (header.colorType()) {
+                case COLOR_INDEXED -> {
+                    for (int i = 0; i < Math.min(transparency.length, palette.length); i++) {
+                        palette[i] = (palette[i] & 0xFFFFFF) | ((transparency[i] & 0xFF) << 24);
+                    }
+                    hasAlpha = true;
+                }
+                case COLOR_RGB -> {
+                    if (transparency.length >= 6) {
+                        int mask = (1 << header.bitDepth()) - 1;
+                        transparentRgb = 0;
+                        for (int channel = 0; channel < 3; channel++) {
+                            transparentRgb |= (long) (readShort(transparency, channel * 2) & mask) << (channel * 16);
+                        }
+                        hasAlpha = true;
+                    }
+                }
+                default -> {
+                }
+            }
+        }
+        InputStream pixels = new InflaterInputStream(new SequenceInputStream(Collections.enumeration(idat)));
+        return new PngRowReader(header, palette, transparentRgb, hasAlpha, pixels);
+    }
+
+    int width() {
+        return width;
+    }
+
+    int height() {
+        return height;
+    }
+
+    boolean hasAlpha() {
+        return hasAlpha;
+    }
+
+    /**
+     * Читает следующие {@code rows} строк в {@code argb} как неумноженные ARGB без отступов.
+     */
+    void readRows(int[] argb, int rows) throws IOException {
+        if (rowsRead + rows > height) {
+            throw new IllegalStateException("PNG has only " + (height - rowsRead) + " rows left");
+        }
+        for (int row = 0; row < rows; row++) {
+            byte[] swap = previousRow;
+            previousRow = currentRow;
+            currentRow = swap;
+            readFully(currentRow);
+            unfilter();
+            expandRow(argb, row * width);
+            rowsRead++;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        pixels.close();
+    }
+
+    private void readFully(byte[] buffer) throws IOException {
+        int offset = 0;
+        while (offset < buffer.length) {
+            int read = pixels.read(buffer, offset, buffer.length - offset);
+            if (read < 0) {
+                throw new EOFException("PNG image data ended after " + rowsRead + " rows");
+            }
+            offset += read;
+        }
+    }
+
+    private void unfilter() {
+        byte[] row = currentRow;
+        byte[] prior = previousRow;
+        int filter = row[0];
+        int length = row.length;
+        switch (filter) {
+            case 0 -> {
+            }
+            case 1 -> {
+                for (int i = 1 + bytesPerPixel; i < length; i++) {
+                    row[i] += row[i - bytesPerPixel];
+                }
+            }
+            case 2 -> {
+                for (int i = 1; i < length; i++) {
+                    row[i] += prior[i];
+                }
+            }
+            case 3 -> {
+                for (int i = 1; i < length; i++) {
+                    int left = i > bytesPerPixel ? row[i - bytesPerPixel] & 0xFF : 0;
+                    row[i] += (byte) ((left + (prior[i] & 0xFF)) >>> 1);
+                }
+            }
+            case 4 -> {
+                for (int i = 1; i < length; i++) {
+                    int left = i > bytesPerPixel ? row[i - bytesPerPixel] & 0xFF : 0;
+                    int upperLeft = i > bytesPerPixel ? prior[i - bytesPerPixel] & 0xFF : 0;
+                    row[i] += (byte) paeth(left, prior[i] & 0xFF, upperLeft);
+                }
+            }
+            default -> throw new ConversionException("PNG повреждён: неизвестный фильтр строки " + filter + ".");
+        }
+    }
+
+    private void expandRow(int[] argb, int offset) {
+        byte[] row = currentRow;
+        switch (colorType) {
+            case COLOR_RGBA -> {
+                int step = bitDepth == 16 ? 2 : 1;
+                for (int x = 0, i = 1; x < width; x++, i += 4 * step) {
+                    argb[offset + x] = (sample8(row, i + 3 * step) << 24) | (sample8(row, i) << 16)
+                            | (sample8(row, i + step) << 8) | sample8(row, i + 2 * step);
+                }
+            }
+            case COLOR_RGB -> {
+                int step = bitDepth == 16 ? 2 : 1;
+                for (int x = 0, i = 1; x < width; x++, i += 3 * step) {
+                    int rgb = (sample8(row, i) << 16) | (sample8(row, i + step) << 8) | sample8(row, i + 2 * step);
+                    int alpha = transparentRgb >= 0 && rawRgb(row, i, step) == transparentRgb ? 0 : 0xFF;
+                    argb[offset + x] = (alpha << 24) | rgb;
+                }
+            }
+            case COLOR_INDEXED -> {
+                for (int x = 0; x < width; x++) {
+                    int index = rawSample(row, x);
+                    argb[offset + x] = index < palette.length ? palette[index] : 0xFF000000;
+                }
+            }
+            default -> throw new IllegalStateException("color type " + colorType);
+        }
+    }
+
+    /**
+     * Отсчёт 8 или 16 бит по смещению {@code i}, приведённый к 8 битам.
+     */
+    private int sample8(byte[] row, int i) {
+        if (bitDepth == 16) {
+            return scale16(((row[i] & 0xFF) << 8) | (row[i + 1] & 0xFF));
+        }
+        return row[i] & 0xFF;
+    }
+
+    private static long rawRgb(byte[] row, int i, int step) {
+        long value = 0;
+        for (int channel = 0; channel < 3; channel++) {
+            int offset = i + channel * step;
+            int sample = step == 2 ? ((row[offset] & 0xFF) << 8) | (row[offset + 1] & 0xFF) : row[offset] & 0xFF;
+            value |= (long) sample << (channel * 16);
+        }
+        return value;
+    }
+
+    /**
+     * Индекс палитры для пикселя {@code x}.
+     */
+    private int rawSample(byte[] row, int x) {
+        return switch (bitDepth) {
+            case 8 -> row[1 + x] & 0xFF;
+            default -> {
+                int bit = x * bitDepth;
+                int shift = 8 - bitDepth - (bit & 7);
+                yield ((row[1 + (bit >> 3)] & 0xFF) >> shift) & ((1 << bitDepth) - 1);
+            }
+        };
+    }
+
+    private static int scale16(int value) {
+        return (value * 255 + 32767) / 65535;
+    }
+
+    private static int paeth(int a, int b, int c) {
+        int p = a + b - c;
+        int pa = Math.abs(p - a);
+        int pb = Math.abs(p - b);
+        int pc = Math.abs(p - c);
+        if (pa <= pb && pa <= pc) {
+            return a;
+        }
+        return pb <= pc ? b : c;
+    }
+
+    private static Header parseHeader(byte[] data, int start, int length) {
+        if (length != 13) {
+            throw new ConversionException("PNG повреждён: некорректный заголовок IHDR.");
+        }
+        int width = readInt(data, start);
+        int height = readInt(data, start + 4);
+        int bitDepth = data[start + 8] & 0xFF;
+        int colorType = data[start + 9] & 0xFF;
+        boolean interlaced = data[start + 12] != 0;
+        boolean valid = width > 0 && height > 0 && switch (colorType) {
+            case COLOR_GRAY -> bitDepth == 1 || bitDepth == 2 || bitDepth == 4 || bitDepth == 8 || bitDepth == 16;
+            case COLOR_INDEXED -> bitDepth == 1 || bitDepth == 2 || bitDepth == 4 || bitDepth == 8;
+            case COLOR_RGB, COLOR_GRAY_ALPHA, COLOR_RGBA -> bitDepth == 8 || bitDepth == 16;
+            default -> false;
+        };
+        if (!valid) {
+            throw new ConversionException("PNG повреждён: неподдерживаемый формат пикселей.");
+        }
+        return new Header(width, height, bitDepth, colorType, interlaced);
+    }
+
+    private static int[] parsePalette(byte[] data, int start, int length) {
+        int[] palette = new int[length / 3];
+        for (int i = 0; i < palette.length; i++) {
+            int offset = start + i * 3;
+            palette[i] = 0xFF000000 | ((data[offset] & 0xFF) << 16) | ((data[offset + 1] & 0xFF) << 8)
+                    | (data[offset + 2] & 0xFF);
+        }
+        return palette;
+    }
+
+    private static int channels(int colorType) {
+        return switch (colorType) {
+            case COLOR_RGB -> 3;
+            case COLOR_GRAY_ALPHA -> 2;
+            case COLOR_RGBA -> 4;
+            default -> 1;
+        };
+    }
+
+    private static int readShort(byte[] data, int offset) {
+        return ((data[offset] & 0xFF) << 8) | (data[offset + 1] & 0xFF);
+    }
+
+    private static int readInt(byte[] data, int offset) {
+        return ((data[offset] & 0xFF) << 24) | ((data[offset + 1] & 0xFF) << 16)
+                | ((data[offset + 2] & 0xFF) << 8) | (data[offset + 3] & 0xFF);
+    }
+
+    private static long readLong(byte[] data, int offset) {
+        return ((long) readInt(data, offset) << 32) | (readInt(data, offset + 4) & 0xFFFFFFFFL);
+    }
+
+    private record Header(int width, int height, int bitDepth, int colorType, boolean interlaced) {
+    }
+}
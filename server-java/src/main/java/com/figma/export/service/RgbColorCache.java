@@ -0,0 +1,83 @@
+package com.figma.export.service;
+
+/**
+ * Таблица с открытой адресацией {@code RGB → упакованный CMYK} на примитивных массивах: без боксинга
+ * и без выделений на каждый пиксель. Ёмкость фиксирована, удаления нет. Экземпляр не потокобезопасен.
+ */
+final class RgbColorCache {
+
+    /**
+     * Ключ хранится с установленным старшим байтом, поэтому {@code 0} означает пустую ячейку.
+     */
+    private static final int KEY_MARK = 0xFF000000;
+
+    private final int[] keys;
+    private final int[] values;
+    private final int mask;
+    private final int maxEntries;
+    private int size;
+
+    /**
+     * @param maxEntries сколько различных цветов помещается; заполненность таблицы не выше 50%
+     */
+    RgbColorCache(int maxEntries) {
+        if (maxEntries <= 0) {
+            throw new IllegalArgumentException("maxEntries must be positive: " + maxEntries);
+        }
+        int capacity = Integer.highestOneBit(Math.max(2, maxEntries * 2 - 1)) << 1;
+        this.keys = new int[capacity];
+        this.values = new int[capacity];
+        this.mask = capacity - 1;
+        this.maxEntries = maxEntries;
+    }
+
+    /**
+     * Ищет цвет {@code 0x??RRGGBB} (альфа игнорируется).
+     *
+     * @return номер ячейки с цветом или {@code -(ячейка для вставки) - 1}, если цвета нет
+     */
+    int find(int rgb) {
+        int key = rgb | KEY_MARK;
+        int hash = key * 0x9E3779B9;
+        int slot = (hash ^ (hash >>> 16)) & mask;
+        while (true) {
+            int stored = keys[slot];
+            if (stored == key) {
+                return slot;
+            }
+            if (stored == 0) {
+                return -slot - 1;
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    /**
+     * Занимает ячейку, которую вернул {@link #find(int)} для отсутствующего цвета; значение
+     * записывается позже через {@link #setValue(int, int)}.
+     */
+    void insert(int slot, int rgb) {
+        keys[slot] = rgb | KEY_MARK;
+        size++;
+    }
+
+    int value(int slot) {
+        return values[slot];
+    }
+
+    void setValue(int slot, int value) {
+        values[slot] = value;
+    }
+
+    boolean isFull() {
+        return size >= maxEntries;
+    }
+
+    int size() {
+        return size;
+    }
+
+    int maxEntries() {
+        return maxEntries;
+    }
+}
@@ -0,0 +1,114 @@
+package com.figma.export.service;
+
+import java.util.Arrays;
+
+/**
+ * LZW в варианте TIFF 6.0: коды пишутся старшими битами вперёд, ширина кода растёт с 9 до 12 бит
+ * на одну запись раньше заполнения таблицы («early change»), каждая полоса начинается с ClearCode
+ * и заканчивается EndOfInformation. Таблица строк хранится в открытой хэш-таблице на массивах,
+ * поэтому кодирование полосы не создаёт объектов.
+ */
+final class TiffLzwEncoder {
+
+    private static final int CLEAR_CODE = 256;
+    private static final int END_OF_INFORMATION = 257;
+    private static final int FIRST_CODE = 258;
+    private static final int MIN_CODE_LENGTH = 9;
+    private static final int MAX_CODE_LENGTH = 12;
+    private static final int TABLE_LIMIT = (1 << MAX_CODE_LENGTH) - 2;
+    private static final int HASH_SIZE = 1 << 13;
+    private static final int HASH_MASK = HASH_SIZE - 1;
+
+    private final int[] hashKeys = new int[HASH_SIZE];
+    private final short[] hashCodes = new short[HASH_SIZE];
+
+    private byte[] output = new byte[64 * 1024];
+    private int outputLength;
+    private int bitBuffer;
+    private int bitCount;
+    private int codeLength;
+    private int nextCode;
+
+    /**
+     * Кодирует {@code length} байт из {@code data}; результат доступен до следующего вызова
+     * через {@link #output()} и {@link #outputLength()}.
+     */
+    void encode(byte[] data, int offset, int length) {
+        outputLength = 0;
+        bitBuffer = 0;
+        bitCount = 0;
+        resetTable();
+        writeCode(CLEAR_CODE);
+        if (length > 0) {
+            int prefix = data[offset] & 0xFF;
+            for (int i = offset + 1, end = offset + length; i < end; i++) {
+                int symbol = data[i] & 0xFF;
+                int key = (prefix << 8) | symbol;
+                int slot = find(key);
+                if (hashKeys[slot] == key) {
+                    prefix = hashCodes[slot];
+                    continue;
+                }
+                writeCode(prefix);
+                hashKeys[slot] = key;
+                hashCodes[slot] = (short) nextCode++;
+                if (nextCode == TABLE_LIMIT) {
+                    writeCode(CLEAR_CODE);
+                    resetTable();
+                } else if (nextCode == 1 << codeLength) {
+                    // декодер отстаёт на одну запись и расширяет код, когда его таблица доходит до 2^n - 1
+                    codeLength++;
+                }
+                prefix = symbol;
+            }
+            writeCode(prefix);
+            if (nextCode == (1 << codeLength) - 1) {
+                // прочитав последний код, декодер добавит запись и может расширить код уже для EOI
+                codeLength++;
+            }
+        }
+        writeCode(END_OF_INFORMATION);
+        if (bitCount > 0) {
+            put((byte) (bitBuffer << (8 - bitCount)));
+        }
+    }
+
+    byte[] output() {
+        return output;
+    }
+
+    int outputLength() {
+        return outputLength;
+    }
+
+    private int find(int key) {
+        int slot = (key * 0x9E3779B1 >>> 19) & HASH_MASK;
+        while (hashKeys[slot] != -1 && hashKeys[slot] != key) {
+            slot = (slot + 1) & HASH_MASK;
+        }
+        return slot;
+    }
+
+    private void resetTable() {
+        Arrays.fill(hashKeys, -1);
+        codeLength = MIN_CODE_LENGTH;
+        nextCode = FIRST_CODE;
+    }
+
+    private void writeCode(int code) {
+        bitBuffer = (bitBuffer << codeLength) | code;
+        bitCount += codeLength;
+        while (bitCount >= 8) {
+            bitCount -= 8;
+            put((byte) (bitBuffer >>> bitCount));
+        }
+        bitBuffer &= (1 << bitCount) - 1;
+    }
+
+    private void put(byte value) {
+        if (outputLength == output.length) {
+            output = Arrays.copyOf(output, output.length * 2);
+        }
+        output[outputLength++] = value;
+    }
+}
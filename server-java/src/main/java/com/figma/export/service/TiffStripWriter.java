@@ -0,0 +1,330 @@
+package com.figma.export.service;
+
+import com.figma.export.exception.ConversionException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Потоковая запись CMYK TIFF (8 бит на канал, чередование пикселей) полосами. Строки поступают
+ * порциями произвольной высоты, нарезаются на полосы по {@code RowsPerStrip} и сразу кодируются,
+ * поэтому растр целиком не нужен. Заголовок и IFD лежат в начале файла: их размер известен заранее,
+ * после записи последней полосы остаётся только проставить смещения и длины полос.
+ * Без сжатия размер файла известен точно, и полосы пишутся прямо в итоговый массив. Сжатые полосы
+ * копятся отдельными массивами точной длины и склеиваются в {@link #finish()}, так что оценка
+ * размера не выделяется заранее.
+ */
+final class TiffStripWriter {
+
+    private static final int TYPE_ASCII = 2;
+    private static final int TYPE_SHORT = 3;
+    private static final int TYPE_LONG = 4;
+    private static final int TYPE_RATIONAL = 5;
+    private static final int TYPE_UNDEFINED = 7;
+
+    private static final int COMPRESSION_NONE = 1;
+    private static final int COMPRESSION_LZW = 5;
+    private static final int PHOTOMETRIC_SEPARATED = 5;
+    private static final int PREDICTOR_HORIZONTAL_DIFFERENCING = 2;
+    private static final int INK_SET_CMYK = 1;
+    private static final int RESOLUTION_UNIT_INCH = 2;
+    private static final int SAMPLES_PER_PIXEL = 4;
+    private static final int MAX_FILE_SIZE = Integer.MAX_VALUE - 8;
+
+    private final int width;
+    private final int height;
+    private final int rowsPerStrip;
+    private final int bytesPerRow;
+    private final boolean lzw;
+    private final TiffLzwEncoder encoder;
+    private final long[] stripOffsets;
+    private final long[] stripByteCounts;
+    private final int stripOffsetsPosition;
+    private final int stripByteCountsPosition;
+    private final byte[] strip;
+    private final List<byte[]> compressedStrips;
+
+    private byte[] output;
+    private int outputLength;
+    private long compressedLength;
+    private int stripFill;
+    private int stripIndex;
+    private int rowsWritten;
+
+    TiffStripWriter(int width, int height, int rowsPerStrip, int ppi, boolean lzw,
+                    byte[] iccProfile, String software, String dateTime) {
+        if (width <= 0 || height <= 0) {
+            throw new IllegalArgumentException("TIFF size must be positive: " + width + "x" + height);
+        }
+        this.width = width;
+        this.height = height;
+        this.rowsPerStrip = Math.max(1, Math.min(rowsPerStrip, height));
+        this.bytesPerRow = width * SAMPLES_PER_PIXEL;
+        this.lzw = lzw;
+        this.encoder = lzw ? new TiffLzwEncoder() : null;
+        int stripCount = (height + this.rowsPerStrip - 1) / this.rowsPerStrip;
+        this.stripOffsets = new long[stripCount];
+        this.stripByteCounts = new long[stripCount];
+        this.strip = new byte[this.rowsPerStrip * bytesPerRow];
+        this.compressedStrips = lzw ? new ArrayList<>(stripCount) : null;
+
+        byte[] softwareBytes = ascii(software);
+        byte[] dateTimeBytes = ascii(dateTime);
+        int entryCount = 17 + (lzw ? 1 : 0) + (iccProfile != null ? 1 : 0);
+        int ifdSize = 2 + entryCount * 12 + 4;
+        int extraSize = 8 + (stripCount > 1 ? 2 * stripCount * 4 : 0) + 2 * 8
+                + even(softwareBytes.length) + even(dateTimeBytes.length)
+                + (iccProfile != null ? even(iccProfile.length) : 0);
+        long headerSize = 8L + ifdSize + extraSize;
+        long capacity = lzw ? headerSize : headerSize + (long) bytesPerRow * height;
+        if (capacity > MAX_FILE_SIZE) {
+            throw tooLarge();
+        }
+        this.output = new byte[(int) capacity];
+
+        // Заголовок: big-endian, как у прежнего ImageIO-писателя; IFD сразу за ним.
+        putBytes('M', 'M');
+        putShort(42);
+        putInt(8);
+
+        int extra = 8 + ifdSize;
+        putShort(entryCount);
+        putEntry(256, TYPE_LONG, 1, width);
+        putEntry(257, TYPE_LONG, 1, height);
+        putEntry(258, TYPE_SHORT, SAMPLES_PER_PIXEL, extra);
+        int bitsPerSamplePosition = extra;
+        extra += 8;
+        putEntry(259, TYPE_SHORT, 1, lzw ? COMPRESSION_LZW : COMPRESSION_NONE);
+        putEntry(262, TYPE_SHORT, 1, PHOTOMETRIC_SEPARATED);
+        this.stripOffsetsPosition = stripCount > 1 ? extra : outputLength + 8;
+        putEntry(273, TYPE_LONG, stripCount, stripCount > 1 ? extra : 0);
+        if (stripCount > 1) {
+            extra += stripCount * 4;
+        }
+        putEntry(274, TYPE_SHORT, 1, 1);
+        putEntry(277, TYPE_SHORT, 1, SAMPLES_PER_PIXEL);
+        putEntry(278, TYPE_LONG, 1, this.rowsPerStrip);
+        this.stripByteCountsPosition = stripCount > 1 ? extra : outputLength + 8;
+        putEntry(279, TYPE_LONG, stripCount, stripCount > 1 ? extra : 0);
+        if (stripCount > 1) {
+            extra += stripCount * 4;
+        }
+        int xResolutionPosition = extra;
+        putEntry(282, TYPE_RATIONAL, 1, extra);
+        extra += 8;
+        putEntry(283, TYPE_RATIONAL, 1, extra);
+        extra += 8;
+        putEntry(284, TYPE_SHORT, 1, 1);
+        putEntry(296, TYPE_SHORT, 1, RESOLUTION_UNIT_INCH);
+        int softwarePosition = extra;
+        putEntry(305, TYPE_ASCII, softwareBytes.length, extra);
+        extra += even(softwareBytes.length);
+        int dateTimePosition = extra;
+        putEntry(306, TYPE_ASCII, dateTimeBytes.length, extra);
+        extra += even(dateTimeBytes.length);
+        if (lzw) {
+            putEntry(317, TYPE_SHORT, 1, PREDICTOR_HORIZONTAL_DIFFERENCING);
+        }
+        putEntry(332, TYPE_SHORT, 1, INK_SET_CMYK);
+        int iccPosition = extra;
+        if (iccProfile != null) {
+            putEntry(34675, TYPE_UNDEFINED, iccProfile.length, extra);
+            extra += even(iccProfile.length);
+        }
+        putInt(0);
+
+        // Значения, не поместившиеся в записи IFD.
+        outputLength = bitsPerSamplePosition;
+        for (int i = 0; i < SAMPLES_PER_PIXEL; i++) {
+            putShort(8);
+        }
+        outputLength = xResolutionPosition;
+        putInt(Math.max(1, ppi));
+        putInt(1);
+        putInt(Math.max(1, ppi));
+        putInt(1);
+        outputLength = softwarePosition;
+        putPadded(softwareBytes);
+        outputLength = dateTimePosition;
+        putPadded(dateTimeBytes);
+        if (iccProfile != null) {
+            outputLength = iccPosition;
+            putPadded(iccProfile);
+        }
+        outputLength = extra;
+    }
+
+    /**
+     * Принимает {@code rows} строк CMYK ({@code rows * width * 4} байт) начиная с {@code offset}.
+     */
+    void writeRows(byte[] cmyk, int offset, int rows) {
+        if (rowsWritten + rows > height) {
+            throw new IllegalStateException("TIFF already has " + rowsWritten + " of " + height + " rows");
+        }
+        int remaining = rows * bytesPerRow;
+        int position = offset;
+        while (remaining > 0) {
+            int chunk = Math.min(remaining, strip.length - stripFill);
+            System.arraycopy(cmyk, position, strip, stripFill, chunk);
+            stripFill += chunk;
+            position += chunk;
+            remaining -= chunk;
+            if (stripFill == strip.length) {
+                flushStrip();
+            }
+        }
+        rowsWritten += rows;
+    }
+
+    /**
+     * Дописывает неполную последнюю полосу, проставляет смещения полос и возвращает файл.
+     * Без сжатия возвращается массив, в который писались полосы, без копирования.
+     */
+    byte[] finish() {
+        if (rowsWritten != height) {
+            throw new IllegalStateException("TIFF has " + rowsWritten + " of " + height + " rows");
+        }
+        if (stripFill > 0) {
+            flushStrip();
+        }
+        int end = outputLength;
+        if (stripOffsets.length == 1) {
+            outputLength = stripOffsetsPosition;
+            putInt((int) stripOffsets[0]);
+            outputLength = stripByteCountsPosition;
+            putInt((int) stripByteCounts[0]);
+        } else {
+            outputLength = stripOffsetsPosition;
+            for (long stripOffset : stripOffsets) {
+                putInt((int) stripOffset);
+            }
+            outputLength = stripByteCountsPosition;
+            for (long stripByteCount : stripByteCounts) {
+                putInt((int) stripByteCount);
+            }
+        }
+        outputLength = end;
+        if (!lzw) {
+            return output.length == end ? output : Arrays.copyOf(output, end);
+        }
+        byte[] file = Arrays.copyOf(output, (int) (end + compressedLength));
+        int position = end;
+        for (int i = 0; i < compressedStrips.size(); i++) {
+            byte[] compressed = compressedStrips.set(i, null);
+            System.arraycopy(compressed, 0, file, position, compressed.length);
+            position += compressed.length;
+        }
+        return file;
+    }
+
+    private void flushStrip() {
+        if (lzw) {
+            applyHorizontalPredictor(stripFill / bytesPerRow);
+            encoder.encode(strip, 0, stripFill);
+            int length = encoder.outputLength();
+            long offset = outputLength + compressedLength;
+            if (offset + even(length) > MAX_FILE_SIZE) {
+                throw tooLarge();
+            }
+            // Массив чётной длины: полосы выравниваются по слову, добавочный байт остаётся нулём.
+            byte[] compressed = new byte[even(length)];
+            System.arraycopy(encoder.output(), 0, compressed, 0, length);
+            compressedStrips.add(compressed);
+            compressedLength += even(length);
+            stripOffsets[stripIndex] = offset;
+            stripByteCounts[stripIndex] = length;
+        } else {
+            stripOffsets[stripIndex] = outputLength;
+            putBytes(strip, stripFill);
+            stripByteCounts[stripIndex] = stripFill;
+        }
+        stripIndex++;
+        stripFill = 0;
+    }
+
+    /**
+     * Predictor 2: каждый отсчёт заменяется разностью с тем же каналом предыдущего пикселя строки.
+     */
+    private void applyHorizontalPredictor(int rows) {
+        for (int row = 0; row < rows; row++) {
+            int rowStart = row * bytesPerRow;
+            for (int i = rowStart + bytesPerRow - 1; i >= rowStart + SAMPLES_PER_PIXEL; i--) {
+                strip[i] -= strip[i - SAMPLES_PER_PIXEL];
+            }
+        }
+    }
+
+    private void putEntry(int tag, int type, int count, int value) {
+        putShort(tag);
+        putShort(type);
+        putInt(count);
+        if (type == TYPE_SHORT && count == 1) {
+            putShort(value);
+            putShort(0);
+        } else {
+            putInt(value);
+        }
+    }
+
+    private void putPadded(byte[] bytes) {
+        putBytes(bytes, bytes.length);
+        if ((bytes.length & 1) != 0) {
+            putBytes(0);
+        }
+    }
+
+    private void putShort(int value) {
+        putBytes(value >>> 8, value);
+    }
+
+    private void putInt(int value) {
+        putBytes(value >>> 24, value >>> 16, value >>> 8, value);
+    }
+
+    private void putBytes(int... values) {
+        ensureCapacity(values.length);
+        for (int value : values) {
+            output[outputLength++] = (byte) value;
+        }
+    }
+
+    private void putBytes(byte[] bytes, int length) {
+        ensureCapacity(length);
+        System.arraycopy(bytes, 0, output, outputLength, length);
+        outputLength += length;
+    }
+
+    private void ensureCapacity(int extra) {
+        long required = (long) outputLength + extra;
+        if (required <= output.length) {
+            return;
+        }
+        if (required > MAX_FILE_SIZE) {
+            throw tooLarge();
+        }
+        long grown = Math.max(required, output.length + (output.length >> 1));
+        output = Arrays.copyOf(output, (int) Math.min(MAX_FILE_SIZE, grown));
+    }
+
+    private static ConversionException tooLarge() {
+        return new ConversionException("Итоговый TIFF превышает 2 ГБ. Уменьшите размер или включите LZW-сжатие.");
+    }
+
+    /**
+     * Строка с завершающим нулём; значения короче четырёх байт не поддерживаются,
+     * поскольку всегда пишутся по смещению.
+     */
+    private static byte[] ascii(String value) {
+        byte[] text = value.getBytes(StandardCharsets.US_ASCII);
+        if (text.length < 4) {
+            throw new IllegalArgumentException("TIFF ASCII value is too short: " + value);
+        }
+        return Arrays.copyOf(text, text.length + 1);
+    }
+
+    private static int even(int length) {
+        return length + (length & 1);
+    }
+}
@@ -16,6 +16,11 @@ import java.awt.color.ColorSpace;
 import java.awt.color.ICC_ColorSpace;
 import java.awt.color.ICC_Profile;
 import java.awt.image.BufferedImage;
+import java.awt.image.ComponentSampleModel;
+import java.awt.image.DataBuffer;
+import java.awt.image.DataBufferByte;
+import java.awt.image.PixelInterleavedSampleModel;
+import java.awt.image.WritableRaster;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.time.LocalDateTime;
@@ -74,7 +79,16 @@ public class TiffWriter {
                     image.getWidth(), image.getHeight(), ppi, lzwCompression ? "LZW" : "NONE");
         }
 
-        byte[] result = writeWithImageIO(image, ppi, lzwCompression);
+        byte[] interleaved = interleavedCmykBytes(image);
+        byte[] result;
+        if (interleaved != null) {
+            TiffStripWriter stripWriter = openStripWriter(image.getWidth(), image.getHeight(), ppi, lzwCompression,
+                    iccProfileOf(image));
+            stripWriter.writeRows(interleaved, 0, image.getHeight());
+            result = stripWriter.finish();
+        } else {
+            result = writeWithImageIO(image, ppi, lzwCompression);
+        }
 
         if (logger.isInfoEnabled()) {
             long elapsedMs = (System.nanoTime() - startNs) / 1_000_000L;
@@ -83,6 +97,50 @@ public class TiffWriter {
         return result;
     }
 
+    /**
+     * Потоковая запись CMYK TIFF с тем же набором тегов, что и у {@link #write}: вызывающий код
+     * отдаёт строки порциями, и в памяти не нужен растр целиком.
+     */
+    TiffStripWriter openStripWriter(int width, int height, int ppi, boolean lzwCompression, ICC_Profile profile) {
+        return new TiffStripWriter(width, height, calculateRowsPerStrip(width, height, 4), ppi, lzwCompression,
+                profile != null ? profile.getData() : null, SOFTWARE_NAME, DATE_TIME_FORMATTER.format(LocalDateTime.now()));
+    }
+
+    /**
+     * Байты растра, если он уже лежит как 8-битный CMYK с чередованием каналов без отступов,
+     * то есть в том виде, в каком его пишет {@link TiffStripWriter}; иначе {@code null}.
+     */
+    private static byte[] interleavedCmykBytes(BufferedImage image) {
+        if (image.getColorModel().getColorSpace().getType() != ColorSpace.TYPE_CMYK
+                || image.getColorModel().hasAlpha()) {
+            return null;
+        }
+        WritableRaster raster = image.getRaster();
+        if (!(raster.getSampleModel() instanceof PixelInterleavedSampleModel sampleModel)
+                || raster.getDataBuffer().getDataType() != DataBuffer.TYPE_BYTE
+                || raster.getDataBuffer().getNumBanks() != 1
+                || raster.getDataBuffer().getOffset() != 0
+                || raster.getSampleModelTranslateX() != 0 || raster.getSampleModelTranslateY() != 0
+                || !isSequentialCmyk(sampleModel, image.getWidth())) {
+            return null;
+        }
+        byte[] data = ((DataBufferByte) raster.getDataBuffer()).getData();
+        return data.length == image.getWidth() * image.getHeight() * 4 ? data : null;
+    }
+
+    private static boolean isSequentialCmyk(ComponentSampleModel sampleModel, int width) {
+        int[] offsets = sampleModel.getBandOffsets();
+        return sampleModel.getNumBands() == 4 && sampleModel.getPixelStride() == 4
+                && sampleModel.getScanlineStride() == width * 4
+                && offsets[0] == 0 && offsets[1] == 1 && offsets[2] == 2 && offsets[3] == 3;
+    }
+
+    private static ICC_Profile iccProfileOf(BufferedImage image) {
+        return image.getColorModel().getColorSpace() instanceof ICC_ColorSpace iccColorSpace
+                ? iccColorSpace.getProfile()
+                : null;
+    }
+
     private byte[] writeWithImageIO(BufferedImage image, int ppi, boolean lzwCompression) throws IOException {
         ImageTypeSpecifier typeSpecifier = ImageTypeSpecifier.createFromRenderedImage(image);
         ImageWriter writer = selectSunTiffWriter();
@@ -236,7 +294,8 @@ public class TiffWriter {
             replaceTiffField(ifd, TAG_ORIENTATION,
                     createShortField(TAG_ORIENTATION, "Orientation", ORIENTATION_TOP_LEFT));
 
-            int rowsPerStrip = calculateRowsPerStrip(image);
+            int rowsPerStrip = calculateRowsPerStrip(image.getWidth(), image.getHeight(),
+                    image.getSampleModel().getNumBands());
             replaceTiffField(ifd, TAG_ROWS_PER_STRIP,
                     createLongField(TAG_ROWS_PER_STRIP, "RowsPerStrip", rowsPerStrip));
 
@@ -264,12 +323,10 @@ public class TiffWriter {
         }
     }
 
-    private int calculateRowsPerStrip(BufferedImage image) {
-        int imageHeight = image.getHeight();
-        int maxRows = Math.max(1, imageHeight);
+    private static int calculateRowsPerStrip(int width, int height, int samplesPerPixel) {
+        int maxRows = Math.max(1, height);
 
-        int samplesPerPixel = image.getSampleModel().getNumBands();
-        int bytesPerRow = Math.max(1, image.getWidth() * samplesPerPixel);
+        int bytesPerRow = Math.max(1, width * samplesPerPixel);
         // Целим в ~32 КБ несжатых данных, что даст ~16-24 КБ после LZW
         int compressionTarget = 32 * 1024;
         int limitBySize = Math.max(1, compressionTarget / bytesPerRow);
@@ -0,0 +1,230 @@
+package com.figma.export.svg;
+
+import com.figma.export.cache.CacheStats;
+import com.figma.export.cache.WeightedLruCache;
+import com.figma.export.color.ColorProfile;
+import com.figma.export.exception.ConversionException;
+import com.figma.export.service.ImageProcessingService;
+import com.itextpdf.kernel.pdf.PdfArray;
+import com.itextpdf.kernel.pdf.PdfDictionary;
+import com.itextpdf.kernel.pdf.PdfName;
+import com.itextpdf.kernel.pdf.PdfNumber;
+import com.itextpdf.kernel.pdf.PdfObject;
+import com.itextpdf.kernel.pdf.PdfStream;
+import com.itextpdf.kernel.pdf.filters.FlateDecodeFilter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.imageio.ImageIO;
+import java.awt.Transparency;
+import java.awt.color.ColorSpace;
+import java.awt.image.BufferedImage;
+import java.awt.image.ComponentColorModel;
+import java.awt.image.DataBuffer;
+import java.awt.image.DataBufferByte;
+import java.awt.image.Raster;
+import java.awt.image.WritableRaster;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * Переводит растровые картинки из SVG (data:-URI, которые iText превращает в RGB image XObject)
+ * в DeviceCMYK. Сжатые байты снимаются с потоков в вызывающем потоке, распаковка, конвертация
+ * через {@link ImageProcessingService} и хэширование идут параллельно на {@code renderPool},
+ * пока вызывающий поток переписывает векторные операторы. Результат кэшируется по SHA-256
+ * исходных байтов, поэтому повторяющиеся заливки конвертируются один раз.
+ */
+final class EmbeddedImageCmykConverter {
+
+    private static final Logger logger = LoggerFactory.getLogger(EmbeddedImageCmykConverter.class);
+
+    private final ImageProcessingService imageProcessingService;
+    private final ForkJoinPool renderPool;
+    private final WeightedLruCache<String, byte[]> cache;
+
+    EmbeddedImageCmykConverter(ImageProcessingService imageProcessingService, ForkJoinPool renderPool, long maxBytes) {
+        this.imageProcessingService = imageProcessingService;
+        this.renderPool = renderPool;
+        this.cache = new WeightedLruCache<>("svg-image-cmyk", maxBytes, bytes -> bytes.length);
+    }
+
+    CacheStats stats() {
+        return cache.stats();
+    }
+
+    /**
+     * Запускает конвертацию подходящих картинок; потоки PDF не меняются до {@link Pending#apply()}.
+     */
+    Pending start(List<PdfStream> images, ColorProfile colorProfile) {
+        List<PdfStream> targets = new ArrayList<>();
+        List<Future<byte[]>> futures = new ArrayList<>();
+        for (PdfStream image : images) {
+            Source source = describe(image);
+            if (source == null) {
+                continue;
+            }
+            targets.add(image);
+            futures.add(renderPool.submit(() -> convert(source, colorProfile)));
+        }
+        return new Pending(targets, futures);
+    }
+
+    final class Pending {
+
+        private final List<PdfStream> targets;
+        private final List<Future<byte[]>> futures;
+
+        private Pending(List<PdfStream> targets, List<Future<byte[]>> futures) {
+            this.targets = targets;
+            this.futures = futures;
+        }
+
+        /**
+         * Дожидается конвертации и записывает CMYK-данные в потоки; вызывается из потока документа.
+         */
+        void apply() {
+            int converted = 0;
+            for (int i = 0; i < targets.size(); i++) {
+                byte[] cmyk = await(futures.get(i));
+                if (cmyk == null) {
+                    continue;
+                }
+                PdfStream image = targets.get(i);
+                image.setData(cmyk);
+                image.remove(PdfName.Filter);
+                image.remove(PdfName.DecodeParms);
+                image.remove(PdfName.Decode);
+                image.put(PdfName.ColorSpace, PdfName.DeviceCMYK);
+                image.put(PdfName.BitsPerComponent, new PdfNumber(8));
+                converted++;
+            }
+            if (converted > 0) {
+                logger.debug("Встроенных изображений переведено в CMYK: {}", converted);
+            }
+        }
+
+        private byte[] await(Future<byte[]> future) {
+            try {
+                return future.get();
+            } catch (InterruptedException ex) {
+                futures.forEach(pending -> pending.cancel(true));
+                Thread.currentThread().interrupt();
+                throw new ConversionException("Конвертация изображений SVG прервана.", ex);
+            } catch (ExecutionException ex) {
+                logger.warn("Встроенное изображение SVG оставлено в RGB: {}", ex.getCause().getMessage());
+                return null;
+            }
+        }
+    }
+
+    private byte[] convert(Source source, ColorProfile colorProfile) throws IOException {
+        String key = key(source, colorProfile);
+        byte[] cached = cache.get(key);
+        if (cached != null) {
+            return cached;
+        }
+        BufferedImage rgb = source.jpeg() ? ImageIO.read(new ByteArrayInputStream(source.data())) : decodeFlate(source);
+        if (rgb == null || rgb.getWidth() != source.width() || rgb.getHeight() != source.height()) {
+            return null;
+        }
+        BufferedImage cmyk = imageProcessingService.convertToCmyk(rgb, colorProfile);
+        byte[] pixels = ((DataBufferByte) cmyk.getRaster().getDataBuffer()).getData();
+        return cache.putIfAbsent(key, pixels);
+    }
+
+    private static BufferedImage decodeFlate(Source source) {
+        byte[] decoded = source.data();
+        if (source.flate()) {
+            decoded = FlateDecodeFilter.flateDecode(decoded, false);
+            if (source.decodeParms() != null) {
+                decoded = FlateDecodeFilter.decodePredictor(decoded, source.decodeParms());
+            }
+        }
+        int width = source.width();
+        int height = source.height();
+        if (decoded.length < width * height * 3) {
+            return null;
+        }
+        WritableRaster raster = Raster.createInterleavedRaster(new DataBufferByte(decoded, decoded.length),
+                width, height, width * 3, 3, new int[]{0, 1, 2}, null);
+        ComponentColorModel colorModel = new ComponentColorModel(ColorSpace.getInstance(ColorSpace.CS_sRGB),
+                false, false, Transparency.OPAQUE, DataBuffer.TYPE_BYTE);
+        return new BufferedImage(colorModel, raster, false, null);
+    }
+
+    /**
+     * Берёт из словаря картинки всё, что нужно для конвертации, или {@code null}, если картинка
+     * не 8-битная RGB либо сжата чем-то кроме Flate/DCT. ICCBased с тремя компонентами считается sRGB.
+     */
+    private static Source describe(PdfStream image) {
+        if (!PdfName.Image.equals(image.getAsName(PdfName.Subtype))
+                || image.containsKey(PdfName.ImageMask) && Boolean.TRUE.equals(image.getAsBool(PdfName.ImageMask))
+                || image.containsKey(PdfName.Decode)
+                || !isRgb(image.get(PdfName.ColorSpace))) {
+            return null;
+        }
+        PdfNumber bits = image.getAsNumber(PdfName.BitsPerComponent);
+        PdfNumber width = image.getAsNumber(PdfName.Width);
+        PdfNumber height = image.getAsNumber(PdfName.Height);
+        if (bits == null || bits.intValue() != 8 || width == null || height == null
+                || width.intValue() <= 0 || height.intValue() <= 0) {
+            return null;
+        }
+        PdfObject filter = image.get(PdfName.Filter);
+        if (filter instanceof PdfArray array) {
+            if (array.size() != 1) {
+                return null;
+            }
+            filter = array.get(0);
+        }
+        boolean flate = PdfName.FlateDecode.equals(filter);
+        boolean jpeg = PdfName.DCTDecode.equals(filter);
+        if (filter != null && !flate && !jpeg) {
+            return null;
+        }
+        PdfObject decodeParms = image.get(PdfName.DecodeParms);
+        if (decodeParms instanceof PdfArray array) {
+            decodeParms = array.size() > 0 ? array.get(0) : null;
+        }
+        byte[] data = image.getBytes(false);
+        return new Source(data, width.intValue(), height.intValue(), flate, jpeg,
+                decodeParms instanceof PdfDictionary dictionary ? dictionary : null);
+    }
+
+    private static boolean isRgb(PdfObject colorSpace) {
+        if (PdfName.DeviceRGB.equals(colorSpace)) {
+            return true;
+        }
+        if (colorSpace instanceof PdfArray array && array.size() == 2 && PdfName.ICCBased.equals(array.get(0))) {
+            PdfStream profile = array.getAsStream(1);
+            PdfNumber components = profile != null ? profile.getAsNumber(PdfName.N) : null;
+            return components != null && components.intValue() == 3;
+        }
+        return false;
+    }
+
+    private static String key(Source source, ColorProfile colorProfile) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(source.data());
+            digest.update((source.width() + "x" + source.height() + (source.jpeg() ? "/dct/" : "/flate/")
+                    + (source.decodeParms() != null ? source.decodeParms().toString() : "") + "/"
+                    + colorProfile.getId()).getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException("SHA-256 недоступен", ex);
+        }
+    }
+
+    private record Source(byte[] data, int width, int height, boolean flate, boolean jpeg, PdfDictionary decodeParms) {
+    }
+}
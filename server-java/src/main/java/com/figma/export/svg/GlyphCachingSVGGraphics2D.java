@@ -0,0 +1,42 @@
+package com.figma.export.svg;
+
+import org.apache.batik.svggen.SVGGeneratorContext;
+import org.apache.batik.svggen.SVGGraphics2D;
+
+import java.awt.Graphics;
+import java.awt.font.GlyphVector;
+import java.awt.geom.Path2D;
+
+/**
+ * {@link SVGGraphics2D} для режима «текст в кривые», который берёт контуры глифов из
+ * {@link GlyphOutlineCache} вместо повторной векторизации каждого символа.
+ */
+final class GlyphCachingSVGGraphics2D extends SVGGraphics2D {
+
+    private final GlyphOutlineCache glyphOutlineCache;
+
+    GlyphCachingSVGGraphics2D(SVGGeneratorContext generatorContext, GlyphOutlineCache glyphOutlineCache) {
+        super(generatorContext, true);
+        this.glyphOutlineCache = glyphOutlineCache;
+    }
+
+    private GlyphCachingSVGGraphics2D(GlyphCachingSVGGraphics2D source) {
+        super(source);
+        this.glyphOutlineCache = source.glyphOutlineCache;
+    }
+
+    @Override
+    public Graphics create() {
+        return new GlyphCachingSVGGraphics2D(this);
+    }
+
+    @Override
+    public void drawGlyphVector(GlyphVector glyphs, float x, float y) {
+        int glyphCount = glyphs.getNumGlyphs();
+        Path2D.Float outline = new Path2D.Float(Path2D.WIND_NON_ZERO);
+        for (int i = 0; i < glyphCount; i++) {
+            outline.append(glyphOutlineCache.outline(glyphs, i, x, y), false);
+        }
+        fill(outline);
+    }
+}
@@ -0,0 +1,65 @@
+package com.figma.export.svg;
+
+import com.figma.export.cache.CacheStats;
+import com.figma.export.cache.WeightedLruCache;
+
+import java.awt.Font;
+import java.awt.Shape;
+import java.awt.font.FontRenderContext;
+import java.awt.font.GlyphVector;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Path2D;
+import java.awt.geom.PathIterator;
+import java.awt.geom.Point2D;
+
+/**
+ * Общий для всех запросов кэш контуров глифов. Контур хранится в координатах глифа (без позиции
+ * в строке), поэтому одинаковые символы заголовков и основного текста векторизуются один раз.
+ * Batik передаёт текст шрифтом фиксированного кегля с масштабом в матрице, так что ключ
+ * (шрифт, контекст, код глифа) не зависит от размера текста в макете.
+ */
+final class GlyphOutlineCache {
+
+    private static final int PATH_OVERHEAD_BYTES = 64;
+    private static final int SEGMENT_BYTES = 1 + 6 * Float.BYTES;
+
+    private final WeightedLruCache<GlyphKey, Path2D.Float> outlines;
+
+    GlyphOutlineCache(long maxBytes) {
+        this.outlines = new WeightedLruCache<>("svg-glyph-outlines", maxBytes, GlyphOutlineCache::estimateWeight);
+    }
+
+    /**
+     * Возвращает контур глифа {@code index}, смещённый в точку ({@code x}, {@code y}). Глифы с
+     * собственным преобразованием (повороты отдельных символов) не кэшируются.
+     */
+    Shape outline(GlyphVector glyphs, int index, float x, float y) {
+        if (glyphs.getGlyphTransform(index) != null) {
+            return glyphs.getGlyphOutline(index, x, y);
+        }
+        Point2D position = glyphs.getGlyphPosition(index);
+        GlyphKey key = new GlyphKey(glyphs.getFont(), glyphs.getFontRenderContext(), glyphs.getGlyphCode(index));
+        Path2D.Float local = outlines.computeIfAbsent(key, k -> {
+            Shape outline = glyphs.getGlyphOutline(index);
+            AffineTransform toOrigin = AffineTransform.getTranslateInstance(-position.getX(), -position.getY());
+            return new Path2D.Float(outline, toOrigin);
+        });
+        AffineTransform placement = AffineTransform.getTranslateInstance(x + position.getX(), y + position.getY());
+        return local.createTransformedShape(placement);
+    }
+
+    CacheStats stats() {
+        return outlines.stats();
+    }
+
+    private static long estimateWeight(Path2D.Float path) {
+        long segments = 0;
+        for (PathIterator iterator = path.getPathIterator(null); !iterator.isDone(); iterator.next()) {
+            segments++;
+        }
+        return PATH_OVERHEAD_BYTES + segments * SEGMENT_BYTES;
+    }
+
+    private record GlyphKey(Font font, FontRenderContext renderContext, int glyphCode) {
+    }
+}
@@ -0,0 +1,118 @@
+package com.figma.export.svg;
+
+import com.figma.export.color.CmykColorConverter;
+import com.figma.export.color.ColorProfile;
+import com.figma.export.exception.ConversionException;
+import com.figma.export.pdf.CmykPdfColorMapper;
+import com.itextpdf.kernel.pdf.PdfDocument;
+import com.itextpdf.kernel.pdf.PdfReader;
+import com.itextpdf.kernel.pdf.xobject.PdfFormXObject;
+import de.rototor.pdfbox.graphics2d.PdfBoxGraphics2D;
+import org.apache.batik.anim.dom.SAXSVGDocumentFactory;
+import org.apache.batik.bridge.BridgeContext;
+import org.apache.batik.bridge.DocumentLoader;
+import org.apache.batik.bridge.GVTBuilder;
+import org.apache.batik.bridge.UserAgent;
+import org.apache.batik.bridge.UserAgentAdapter;
+import org.apache.batik.gvt.GraphicsNode;
+import org.apache.batik.util.XMLResourceDescriptor;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.pdmodel.graphics.form.PDFormXObject;
+import org.w3c.dom.svg.SVGDocument;
+
+import java.awt.Dimension;
+import java.awt.geom.Dimension2D;
+import java.awt.geom.Rectangle2D;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+/**
+ * Режим «текст в кривые» без промежуточного SVG: дерево GVT из Batik рисуется прямо в
+ * {@link PdfBoxGraphics2D} с переводом цветов в CMYK, а готовая страница переносится в документ
+ * iText как form XObject. Текст Batik отдаёт контурами глифов, поэтому шрифты в результат не попадают.
+ */
+final class Graphics2DSvgRenderer {
+
+    private static final float PX_TO_PT = 72f / 96f;
+
+    private final CmykColorConverter colorConverter;
+
+    Graphics2DSvgRenderer(CmykColorConverter colorConverter) {
+        this.colorConverter = colorConverter;
+    }
+
+    PdfFormXObject render(byte[] svgBytes, PdfDocument document, ColorProfile colorProfile) {
+        byte[] pdfBytes;
+        try (ByteArrayInputStream input = new ByteArrayInputStream(svgBytes)) {
+            SAXSVGDocumentFactory factory = new SAXSVGDocumentFactory(XMLResourceDescriptor.getXMLParserClassName());
+            SVGDocument svgDocument = (SVGDocument) factory.createDocument("memory", input);
+
+            UserAgent userAgent = new UserAgentAdapter();
+            DocumentLoader loader = new DocumentLoader(userAgent);
+            BridgeContext context = new BridgeContext(userAgent, loader);
+            context.setDynamicState(BridgeContext.STATIC);
+            try {
+                GraphicsNode graphicsNode = new GVTBuilder().build(context, svgDocument);
+                Dimension2D canvasSize = resolveCanvasSize(svgDocument, context, graphicsNode);
+                pdfBytes = paintToPdf(graphicsNode, canvasSize, colorProfile);
+            } finally {
+                context.dispose();
+                loader.dispose();
+            }
+        } catch (IOException ex) {
+            throw new ConversionException("Не удалось отрисовать SVG в кривых через Graphics2D.", ex);
+        }
+
+        try (PdfDocument source = new PdfDocument(new PdfReader(new ByteArrayInputStream(pdfBytes)))) {
+            return source.getFirstPage().copyAsFormXObject(document);
+        } catch (IOException ex) {
+            throw new ConversionException("Не удалось перенести отрисованный SVG в PDF.", ex);
+        }
+    }
+
+    private byte[] paintToPdf(GraphicsNode graphicsNode, Dimension2D canvasSize, ColorProfile colorProfile)
+            throws IOException {
+        float widthPt = (float) canvasSize.getWidth() * PX_TO_PT;
+        float heightPt = (float) canvasSize.getHeight() * PX_TO_PT;
+        try (PDDocument pdf = new PDDocument()) {
+            PdfBoxGraphics2D graphics = new PdfBoxGraphics2D(pdf, widthPt, heightPt);
+            graphics.setColorMapper(new CmykPdfColorMapper(colorConverter, colorProfile));
+            try {
+                graphics.scale(PX_TO_PT, PX_TO_PT);
+                graphicsNode.paint(graphics);
+            } finally {
+                graphics.dispose();
+            }
+            PDFormXObject form = graphics.getXFormObject();
+
+            PDPage page = new PDPage(new PDRectangle(widthPt, heightPt));
+            pdf.addPage(page);
+            try (PDPageContentStream content = new PDPageContentStream(pdf, page)) {
+                content.drawForm(form);
+            }
+            ByteArrayOutputStream output = new ByteArrayOutputStream();
+            pdf.save(output);
+            return output.toByteArray();
+        }
+    }
+
+    private Dimension2D resolveCanvasSize(SVGDocument svgDocument, BridgeContext context, GraphicsNode graphicsNode) {
+        Dimension declared = SvgRenderer.determineCanvasSize(svgDocument.getDocumentElement());
+        if (declared != null) {
+            return declared;
+        }
+        Dimension2D documentSize = context.getDocumentSize();
+        if (documentSize != null && documentSize.getWidth() > 1 && documentSize.getHeight() > 1) {
+            return documentSize;
+        }
+        Rectangle2D bounds = graphicsNode.getPrimitiveBounds();
+        if (bounds != null && bounds.getWidth() > 0 && bounds.getHeight() > 0) {
+            return new Dimension((int) Math.ceil(bounds.getMaxX()), (int) Math.ceil(bounds.getMaxY()));
+        }
+        throw new ConversionException("SVG не содержит графики для конвертации в PDF.");
+    }
+}
@@ -0,0 +1,288 @@
+package com.figma.export.svg;
+
+import java.util.Arrays;
+
+/**
+ * Перезаписывает операторы {@code rg}/{@code RG} потока содержимого PDF в {@code k}/{@code K} за один
+ * проход по байтам. Токенизатор знает строки, шестнадцатеричные строки, комментарии и данные
+ * встроенных изображений ({@code BI … ID … EI}) и не заглядывает внутрь них, поэтому похожие на
+ * оператор байты в тексте или картинке не портятся. Выходной буфер создаётся при первой замене.
+ */
+final class PdfContentColorRewriter {
+
+    /**
+     * Преобразование цвета RGB → CMYK; компоненты в диапазоне [0, 1], результат пишется в {@code cmyk}.
+     */
+    @FunctionalInterface
+    interface ColorConverter {
+        void toCmyk(double r, double g, double b, double[] cmyk);
+    }
+
+    private static final int FRACTION_DIGITS = 6;
+    private static final long FRACTION_SCALE = 1_000_000L;
+
+    private final byte[] input;
+    private final ColorConverter converter;
+    private final int[] operandStart = new int[3];
+    private final double[] operandValue = new double[3];
+    private final double[] cmyk = new double[4];
+    private int numericOperands;
+
+    private byte[] output;
+    private int outputLength;
+    private int copiedUpTo;
+
+    private PdfContentColorRewriter(byte[] input, ColorConverter converter) {
+        this.input = input;
+        this.converter = converter;
+    }
+
+    /**
+     * @return перезаписанный поток или {@code content}, если RGB-операторов в нём нет
+     */
+    static byte[] rewrite(byte[] content, ColorConverter converter) {
+        if (content == null || content.length == 0) {
+            return content;
+        }
+        PdfContentColorRewriter rewriter = new PdfContentColorRewriter(content, converter);
+        rewriter.run();
+        return rewriter.result();
+    }
+
+    private void run() {
+        int length = input.length;
+        int i = 0;
+        while (i < length) {
+            byte b = input[i];
+            if (isWhitespace(b)) {
+                i++;
+            } else if (b == '%') {
+                while (i < length && input[i] != '\n' && input[i] != '\r') {
+                    i++;
+                }
+            } else if (b == '(') {
+                i = skipLiteralString(i + 1);
+                numericOperands = 0;
+            } else if (b == '<') {
+                if (i + 1 < length && input[i + 1] == '<') {
+                    i += 2;
+                } else {
+                    i = skipHexString(i + 1);
+                }
+                numericOperands = 0;
+            } else if (b == '>' || b == '[' || b == ']' || b == '{' || b == '}' || b == ')') {
+                i++;
+                numericOperands = 0;
+            } else if (b == '/') {
+                i = skipRegular(i + 1);
+                numericOperands = 0;
+            } else if (isNumberStart(b)) {
+                int end = skipRegular(i);
+                if (!pushNumber(i, end)) {
+                    i = handleOperator(i, end);
+                } else {
+                    i = end;
+                }
+            } else {
+                i = handleOperator(i, skipRegular(i));
+            }
+        }
+    }
+
+    private int handleOperator(int start, int end) {
+        int length = end - start;
+        boolean fill = length == 2 && input[start] == 'r' && input[start + 1] == 'g';
+        boolean stroke = length == 2 && input[start] == 'R' && input[start + 1] == 'G';
+        if (fill || stroke) {
+            if (numericOperands >= 3) {
+                replaceColor(stroke, end);
+            }
+        } else if (length == 2 && input[start] == 'I' && input[start + 1] == 'D') {
+            numericOperands = 0;
+            return skipInlineImageData(end);
+        }
+        numericOperands = 0;
+        return end;
+    }
+
+    private boolean pushNumber(int start, int end) {
+        double value = parseNumber(start, end);
+        if (Double.isNaN(value)) {
+            return false;
+        }
+        if (numericOperands == 3) {
+            operandStart[0] = operandStart[1];
+            operandStart[1] = operandStart[2];
+            operandValue[0] = operandValue[1];
+            operandValue[1] = operandValue[2];
+            numericOperands = 2;
+        }
+        operandStart[numericOperands] = start;
+        operandValue[numericOperands] = value;
+        numericOperands++;
+        return true;
+    }
+
+    private void replaceColor(boolean stroke, int operatorEnd) {
+        converter.toCmyk(clamp(operandValue[0]), clamp(operandValue[1]), clamp(operandValue[2]), cmyk);
+        if (output == null) {
+            output = new byte[input.length + 64];
+        }
+        int from = operandStart[0];
+        append(input, copiedUpTo, from - copiedUpTo);
+        ensureCapacity(4 * (FRACTION_DIGITS + 3) + 1);
+        for (int c = 0; c < 4; c++) {
+            writeFixed(clamp(cmyk[c]));
+            output[outputLength++] = ' ';
+        }
+        output[outputLength++] = (byte) (stroke ? 'K' : 'k');
+        copiedUpTo = operatorEnd;
+    }
+
+    /**
+     * Пишет число с не более чем шестью знаками после точки, без хвостовых нулей.
+     */
+    private void writeFixed(double value) {
+        long scaled = Math.round(value * FRACTION_SCALE);
+        long integerPart = scaled / FRACTION_SCALE;
+        long fraction = scaled % FRACTION_SCALE;
+        output[outputLength++] = (byte) ('0' + integerPart);
+        if (fraction == 0) {
+            return;
+        }
+        output[outputLength++] = '.';
+        long divisor = FRACTION_SCALE / 10;
+        while (fraction != 0) {
+            long digit = fraction / divisor;
+            output[outputLength++] = (byte) ('0' + digit);
+            fraction -= digit * divisor;
+            divisor /= 10;
+        }
+    }
+
+    private double parseNumber(int start, int end) {
+        int i = start;
+        boolean negative = false;
+        if (input[i] == '+' || input[i] == '-') {
+            negative = input[i] == '-';
+            i++;
+        }
+        double value = 0d;
+        double scale = 0d;
+        boolean digits = false;
+        for (; i < end; i++) {
+            byte b = input[i];
+            if (b >= '0' && b <= '9') {
+                digits = true;
+                if (scale == 0d) {
+                    value = value * 10d + (b - '0');
+                } else {
+                    value += (b - '0') * scale;
+                    scale /= 10d;
+                }
+            } else if (b == '.' && scale == 0d) {
+                scale = 0.1d;
+            } else {
+                return Double.NaN;
+            }
+        }
+        if (!digits) {
+            return Double.NaN;
+        }
+        return negative ? -value : value;
+    }
+
+    private int skipLiteralString(int from) {
+        int depth = 1;
+        int i = from;
+        while (i < input.length) {
+            byte b = input[i++];
+            if (b == '\\') {
+                i++;
+            } else if (b == '(') {
+                depth++;
+            } else if (b == ')' && --depth == 0) {
+                return i;
+            }
+        }
+        return input.length;
+    }
+
+    private int skipHexString(int from) {
+        int i = from;
+        while (i < input.length && input[i] != '>') {
+            i++;
+        }
+        return Math.min(i + 1, input.length);
+    }
+
+    /**
+     * Пропускает двоичные данные встроенного изображения: после {@code ID} идёт один пробельный
+     * байт, данные заканчиваются оператором {@code EI}, окружённым пробельными символами.
+     */
+    private int skipInlineImageData(int from) {
+        int length = input.length;
+        for (int i = from + 1; i + 1 < length; i++) {
+            if (input[i] == 'E' && input[i + 1] == 'I' && isWhitespace(input[i - 1])
+                    && (i + 2 == length || isWhitespace(input[i + 2]) || isDelimiter(input[i + 2]))) {
+                return i + 2;
+            }
+        }
+        return length;
+    }
+
+    private int skipRegular(int from) {
+        int i = from;
+        while (i < input.length && !isWhitespace(input[i]) && !isDelimiter(input[i])) {
+            i++;
+        }
+        return Math.max(i, from + 1);
+    }
+
+    private void append(byte[] source, int offset, int count) {
+        if (count <= 0) {
+            return;
+        }
+        ensureCapacity(count);
+        System.arraycopy(source, offset, output, outputLength, count);
+        outputLength += count;
+    }
+
+    private void ensureCapacity(int extra) {
+        if (outputLength + extra > output.length) {
+            output = Arrays.copyOf(output, Math.max(output.length * 2, outputLength + extra));
+        }
+    }
+
+    private byte[] result() {
+        if (output == null) {
+            return input;
+        }
+        append(input, copiedUpTo, input.length - copiedUpTo);
+        copiedUpTo = input.length;
+        return outputLength == output.length ? output : Arrays.copyOf(output, outputLength);
+    }
+
+    private static double clamp(double value) {
+        if (value < 0d) {
+            return 0d;
+        }
+        if (value > 1d) {
+            return 1d;
+        }
+        return value;
+    }
+
+    private static boolean isNumberStart(byte b) {
+        return (b >= '0' && b <= '9') || b == '.' || b == '-' || b == '+';
+    }
+
+    private static boolean isWhitespace(byte b) {
+        return b == ' ' || b == '\n' || b == '\r' || b == '\t' || b == '\f' || b == 0;
+    }
+
+    private static boolean isDelimiter(byte b) {
+        return b == '(' || b == ')' || b == '<' || b == '>' || b == '[' || b == ']'
+                || b == '{' || b == '}' || b == '/' || b == '%';
+    }
+}
@@ -0,0 +1,45 @@
+package com.figma.export.svg;
+
+/**
+ * Грубая оценка трудоёмкости отрисовки SVG по результатам {@link SvgComplexityScanner}.
+ *
+ * @param elements           число открывающих тегов
+ * @param pathDataBytes      суммарная длина атрибутов {@code d} и {@code points}
+ * @param embeddedImageBytes суммарная длина data:-URI в {@code href}/{@code xlink:href}
+ * @param textNodes          число элементов {@code text}, {@code tspan}, {@code textPath}
+ * @param filterPrimitives   число примитивов фильтров ({@code feGaussianBlur} и т. п.)
+ * @param filterUses         число ссылок на фильтры в атрибутах {@code filter}
+ */
+public record SvgComplexity(long elements,
+                            long pathDataBytes,
+                            long embeddedImageBytes,
+                            long textNodes,
+                            long filterPrimitives,
+                            long filterUses) {
+
+    public static final SvgComplexity EMPTY = new SvgComplexity(0, 0, 0, 0, 0, 0);
+
+    /**
+     * Стоимость в условных единицах. Веса подобраны так, чтобы иконка укладывалась в тысячи,
+     * а многомегабайтная иллюстрация — в миллионы: фильтры растеризуются по площади и стоят дороже
+     * всего, текст требует раскладки и поиска шрифтов, геометрия и картинки — пропорционально объёму.
+     */
+    public long cost() {
+        return elements * 4
+                + pathDataBytes / 8
+                + embeddedImageBytes / 32
+                + textNodes * 40
+                + filterPrimitives * 2_000
+                + filterUses * 10_000;
+    }
+
+    public SvgComplexity plus(SvgComplexity other) {
+        return new SvgComplexity(
+                elements + other.elements,
+                pathDataBytes + other.pathDataBytes,
+                embeddedImageBytes + other.embeddedImageBytes,
+                textNodes + other.textNodes,
+                filterPrimitives + other.filterPrimitives,
+                filterUses + other.filterUses);
+    }
+}
@@ -0,0 +1,269 @@
+package com.figma.export.svg;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Потоковый предварительный проход по SVG для оценки {@link SvgComplexity}. Документ читается
+ * блоками и разбирается конечным автоматом на уровне байтов: DOM не строится, значения атрибутов
+ * не копируются (запоминаются только их длины), комментарии, CDATA и объявления пропускаются.
+ */
+public final class SvgComplexityScanner {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int MAX_NAME_LENGTH = 32;
+    private static final byte[] DATA_URI = {'d', 'a', 't', 'a', ':'};
+    private static final byte[] COMMENT_OPEN = {'-', '-'};
+    private static final byte[] CDATA_OPEN = {'[', 'C', 'D', 'A', 'T', 'A', '['};
+
+    private enum State {
+        TEXT, MARKUP_START, BANG, COMMENT, CDATA, SKIP_TO_CLOSE, TAG_NAME, IN_TAG,
+        ATTR_NAME, AFTER_ATTR_NAME, BEFORE_VALUE, ATTR_VALUE
+    }
+
+    private enum ValueKind {
+        OTHER, PATH, HREF, FILTER
+    }
+
+    private State state = State.TEXT;
+    private final byte[] name = new byte[MAX_NAME_LENGTH];
+    private int nameLength;
+    private int bangMatched;
+    private byte[] bangTarget;
+    private byte previous;
+    private byte beforePrevious;
+    private byte quote;
+    private ValueKind valueKind = ValueKind.OTHER;
+    private long valueLength;
+    private boolean valueIsDataUri;
+    private boolean valueIsNone;
+
+    private long elements;
+    private long pathDataBytes;
+    private long embeddedImageBytes;
+    private long textNodes;
+    private long filterPrimitives;
+    private long filterUses;
+
+    private SvgComplexityScanner() {
+    }
+
+    public static SvgComplexity scan(byte[] svgBytes) {
+        try {
+            return scan(new ByteArrayInputStream(svgBytes));
+        } catch (IOException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    public static SvgComplexity scan(InputStream input) throws IOException {
+        SvgComplexityScanner scanner = new SvgComplexityScanner();
+        byte[] buffer = new byte[BUFFER_SIZE];
+        int read;
+        while ((read = input.read(buffer)) > 0) {
+            for (int i = 0; i < read; i++) {
+                scanner.accept(buffer[i]);
+            }
+        }
+        return new SvgComplexity(scanner.elements, scanner.pathDataBytes, scanner.embeddedImageBytes,
+                scanner.textNodes, scanner.filterPrimitives, scanner.filterUses);
+    }
+
+    private void accept(byte b) {
+        switch (state) {
+            case TEXT -> {
+                if (b == '<') {
+                    state = State.MARKUP_START;
+                }
+            }
+            case MARKUP_START -> {
+                if (b == '!') {
+                    bangMatched = 0;
+                    state = State.BANG;
+                } else if (b == '?' || b == '/') {
+                    state = State.SKIP_TO_CLOSE;
+                } else if (isNameStart(b)) {
+                    elements++;
+                    nameLength = 0;
+                    appendName(b);
+                    state = State.TAG_NAME;
+                } else {
+                    state = State.TEXT;
+                }
+            }
+            case BANG -> acceptBang(b);
+            case COMMENT -> {
+                if (b == '>' && previous == '-' && beforePrevious == '-') {
+                    state = State.TEXT;
+                }
+            }
+            case CDATA -> {
+                if (b == '>' && previous == ']' && beforePrevious == ']') {
+                    state = State.TEXT;
+                }
+            }
+            case SKIP_TO_CLOSE -> {
+                if (b == '>') {
+                    state = State.TEXT;
+                }
+            }
+            case TAG_NAME -> {
+                if (isWhitespace(b) || b == '/' || b == '>') {
+                    countElement();
+                    state = b == '>' ? State.TEXT : State.IN_TAG;
+                } else {
+                    appendName(b);
+                }
+            }
+            case IN_TAG -> {
+                if (b == '>') {
+                    state = State.TEXT;
+                } else if (!isWhitespace(b) && b != '/') {
+                    nameLength = 0;
+                    appendName(b);
+                    state = State.ATTR_NAME;
+                }
+            }
+            case ATTR_NAME -> {
+                if (b == '=') {
+                    state = State.BEFORE_VALUE;
+                } else if (isWhitespace(b)) {
+                    state = State.AFTER_ATTR_NAME;
+                } else if (b == '>') {
+                    state = State.TEXT;
+                } else {
+                    appendName(b);
+                }
+            }
+            case AFTER_ATTR_NAME -> {
+                if (b == '=') {
+                    state = State.BEFORE_VALUE;
+                } else if (b == '>') {
+                    state = State.TEXT;
+                } else if (!isWhitespace(b) && b != '/') {
+                    nameLength = 0;
+                    appendName(b);
+                    state = State.ATTR_NAME;
+                }
+            }
+            case BEFORE_VALUE -> {
+                if (b == '"' || b == '\'') {
+                    quote = b;
+                    valueKind = classifyAttribute();
+                    valueLength = 0;
+                    valueIsDataUri = valueKind == ValueKind.HREF;
+                    valueIsNone = valueKind == ValueKind.FILTER;
+                    state = State.ATTR_VALUE;
+                } else if (b == '>') {
+                    state = State.TEXT;
+                }
+            }
+            case ATTR_VALUE -> acceptValue(b);
+        }
+        beforePrevious = previous;
+        previous = b;
+    }
+
+    private void acceptBang(byte b) {
+        if (bangMatched == 0) {
+            bangTarget = b == '-' ? COMMENT_OPEN : b == '[' ? CDATA_OPEN : null;
+        }
+        if (bangTarget != null && b == bangTarget[bangMatched]) {
+            bangMatched++;
+            if (bangMatched == bangTarget.length) {
+                state = bangTarget == COMMENT_OPEN ? State.COMMENT : State.CDATA;
+            }
+            return;
+        }
+        state = b == '>' ? State.TEXT : State.SKIP_TO_CLOSE;
+    }
+
+    private void acceptValue(byte b) {
+        if (b == quote) {
+            switch (valueKind) {
+                case PATH -> pathDataBytes += valueLength;
+                case HREF -> {
+                    if (valueIsDataUri && valueLength >= DATA_URI.length) {
+                        embeddedImageBytes += valueLength;
+                    }
+                }
+                case FILTER -> {
+                    if (valueLength > 0 && !(valueIsNone && valueLength == 4)) {
+                        filterUses++;
+                    }
+                }
+                default -> {
+                }
+            }
+            state = State.IN_TAG;
+            return;
+        }
+        if (valueKind == ValueKind.HREF && valueIsDataUri && valueLength < DATA_URI.length) {
+            valueIsDataUri = b == DATA_URI[(int) valueLength];
+        } else if (valueKind == ValueKind.FILTER && valueIsNone) {
+            valueIsNone = valueLength < 4 && b == "none".charAt((int) valueLength);
+        }
+        valueLength++;
+    }
+
+    private void countElement() {
+        int start = localNameStart();
+        if (matches(start, "text") || matches(start, "tspan") || matches(start, "textPath")) {
+            textNodes++;
+        } else if (nameLength - start > 2 && name[start] == 'f' && name[start + 1] == 'e'
+                && name[start + 2] >= 'A' && name[start + 2] <= 'Z') {
+            filterPrimitives++;
+        }
+    }
+
+    private ValueKind classifyAttribute() {
+        int start = localNameStart();
+        if (matches(start, "d") || matches(start, "points")) {
+            return ValueKind.PATH;
+        }
+        if (matches(start, "href")) {
+            return ValueKind.HREF;
+        }
+        if (matches(start, "filter")) {
+            return ValueKind.FILTER;
+        }
+        return ValueKind.OTHER;
+    }
+
+    private int localNameStart() {
+        for (int i = Math.min(nameLength, MAX_NAME_LENGTH) - 1; i >= 0; i--) {
+            if (name[i] == ':') {
+                return i + 1;
+            }
+        }
+        return 0;
+    }
+
+    private boolean matches(int start, String expected) {
+        if (nameLength - start != expected.length()) {
+            return false;
+        }
+        for (int i = 0; i < expected.length(); i++) {
+            if (name[start + i] != expected.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void appendName(byte b) {
+        if (nameLength < MAX_NAME_LENGTH) {
+            name[nameLength] = b;
+        }
+        nameLength++;
+    }
+
+    private static boolean isNameStart(byte b) {
+        return (b >= 'a' && b <= 'z') || (b >= 'A' && b <= 'Z') || b == '_' || b == ':' || b < 0;
+    }
+
+    private static boolean isWhitespace(byte b) {
+        return b == ' ' || b == '\n' || b == '\r' || b == '\t';
+    }
+}
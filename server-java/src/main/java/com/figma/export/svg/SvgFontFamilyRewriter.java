@@ -0,0 +1,437 @@
+package com.figma.export.svg;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
+
+/**
+ * Однопроходная перезапись font-family прямо в байтах SVG. Разметка разбирается ровно настолько,
+ * чтобы отличать атрибуты, комментарии и CDATA: значения прочих атрибутов (в том числе base64 из
+ * data:-URI) просто пропускаются до закрывающей кавычки и копируются в результат одним блоком.
+ * Выходной буфер создаётся только при первой правке; если правок нет, возвращается исходный массив.
+ */
+final class SvgFontFamilyRewriter {
+
+    private static final Logger logger = LoggerFactory.getLogger(SvgFontFamilyRewriter.class);
+    private static final byte[] FONT_FAMILY = "font-family".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] STYLE = "style".getBytes(StandardCharsets.US_ASCII);
+    private static final Set<String> loggedFontFamilies = Collections.newSetFromMap(new ConcurrentHashMap<>());
+
+    enum Mode {
+        /** Оставляет в font-family только основную гарнитуру. */
+        NORMALIZE,
+        /** Удаляет font-family из атрибутов и стилей. */
+        STRIP,
+        /** Только собирает основные гарнитуры, как {@link #NORMALIZE}, и ничего не копирует. */
+        COLLECT
+    }
+
+    private final byte[] input;
+    private final Mode mode;
+    private final Set<String> fontFamilies;
+    private final Predicate<String> excludedFamily;
+
+    private byte[] output;
+    private int outputLength;
+    private int copiedUpTo;
+
+    private SvgFontFamilyRewriter(byte[] input, Mode mode, Set<String> fontFamilies, Predicate<String> excludedFamily) {
+        this.input = input;
+        this.mode = mode;
+        this.fontFamilies = fontFamilies;
+        this.excludedFamily = excludedFamily;
+    }
+
+    /**
+     * @param fontFamilies куда складываются основные гарнитуры в режиме {@link Mode#NORMALIZE};
+     *                     может быть {@code null}
+     * @return перезаписанный документ или {@code svgBytes}, если менять было нечего
+     */
+    static byte[] rewrite(byte[] svgBytes, Mode mode, Set<String> fontFamilies) {
+        return rewrite(svgBytes, mode, fontFamilies, null);
+    }
+
+    /**
+     * @param excludedFamily гарнитуры, объявления которых в режиме {@link Mode#NORMALIZE} удаляются
+     *                       целиком (текст получит шрифт по умолчанию); может быть {@code null}
+     */
+    static byte[] rewrite(byte[] svgBytes, Mode mode, Set<String> fontFamilies, Predicate<String> excludedFamily) {
+        SvgFontFamilyRewriter rewriter = new SvgFontFamilyRewriter(svgBytes, mode, fontFamilies, excludedFamily);
+        rewriter.run();
+        return rewriter.result();
+    }
+
+    private void run() {
+        int length = input.length;
+        int position = 0;
+        while (position < length) {
+            int tagStart = indexOf((byte) '<', position, length);
+            int textEnd = tagStart < 0 ? length : tagStart;
+            rewriteCss(position, textEnd, (byte) 0);
+            if (tagStart < 0) {
+                return;
+            }
+            position = scanMarkup(tagStart);
+        }
+    }
+
+    private int scanMarkup(int start) {
+        int length = input.length;
+        if (startsWith("<!--", start)) {
+            return endAfter("-->", start + 4);
+        }
+        if (startsWith("<![CDATA[", start)) {
+            int contentStart = start + 9;
+            int end = indexOf("]]>", contentStart);
+            rewriteCss(contentStart, end < 0 ? length : end, (byte) 0);
+            return end < 0 ? length : end + 3;
+        }
+        if (startsWith("<?", start)) {
+            return endAfter("?>", start + 2);
+        }
+        if (startsWith("<!", start)) {
+            int depth = 0;
+            for (int i = start + 2; i < length; i++) {
+                byte b = input[i];
+                if (b == '[') {
+                    depth++;
+                } else if (b == ']') {
+                    depth--;
+                } else if (b == '>' && depth <= 0) {
+                    return i + 1;
+                }
+            }
+            return length;
+        }
+        return scanTag(start + 1);
+    }
+
+    private int scanTag(int start) {
+        int length = input.length;
+        int i = start;
+        if (i < length && input[i] == '/') {
+            i++;
+        }
+        while (i < length && !isSpace(input[i]) && input[i] != '>' && input[i] != '/') {
+            i++;
+        }
+        while (true) {
+            i = skipSpaces(i, length);
+            if (i >= length) {
+                return length;
+            }
+            byte b = input[i];
+            if (b == '>') {
+                return i + 1;
+            }
+            if (b == '/') {
+                i++;
+                continue;
+            }
+            int nameStart = i;
+            while (i < length && !isSpace(input[i]) && input[i] != '=' && input[i] != '>' && input[i] != '/') {
+                i++;
+            }
+            int nameEnd = i;
+            if (nameEnd == nameStart) {
+                i++;
+                continue;
+            }
+            int j = skipSpaces(i, length);
+            if (j >= length || input[j] != '=') {
+                continue;
+            }
+            j = skipSpaces(j + 1, length);
+            if (j < length && (input[j] == '"' || input[j] == '\'')) {
+                byte quote = input[j];
+                int valueStart = j + 1;
+                int valueEnd = indexOf(quote, valueStart, length);
+                if (valueEnd < 0) {
+                    valueEnd = length;
+                }
+                handleAttribute(nameStart, nameEnd, valueStart, valueEnd, quote);
+                i = Math.min(valueEnd + 1, length);
+            } else {
+                while (j < length && !isSpace(input[j]) && input[j] != '>') {
+                    j++;
+                }
+                i = j;
+            }
+        }
+    }
+
+    private void handleAttribute(int nameStart, int nameEnd, int valueStart, int valueEnd, byte quote) {
+        if (regionEqualsIgnoreCase(nameStart, nameEnd, FONT_FAMILY)) {
+            if (mode == Mode.STRIP) {
+                replace(nameStart, Math.min(valueEnd + 1, input.length), null);
+                return;
+            }
+            String rawFamilies = decode(valueStart, valueEnd);
+            String primary = extractPrimaryFontFamily(rawFamilies);
+            if (primary == null || primary.isBlank()) {
+                return;
+            }
+            if (isExcluded(primary)) {
+                replace(nameStart, Math.min(valueEnd + 1, input.length), null);
+                return;
+            }
+            logFontFamilyMapping(rawFamilies, primary, "attribute");
+            addFamily(primary);
+            String formatted = primary.replace("\"", "").replace("'", "");
+            if (!formatted.equals(rawFamilies)) {
+                replace(valueStart, valueEnd, formatted.getBytes(StandardCharsets.UTF_8));
+            }
+        } else if (regionEqualsIgnoreCase(nameStart, nameEnd, STYLE)) {
+            rewriteCss(valueStart, valueEnd, quote);
+        }
+    }
+
+    /**
+     * Обрабатывает объявления font-family в CSS: в тексте, CDATA ({@code quote == 0}) или в значении
+     * атрибута style, ограниченном кавычкой {@code quote}.
+     */
+    private void rewriteCss(int start, int end, byte quote) {
+        int i = start;
+        while (i < end) {
+            int propertyStart = indexOfIgnoreCase(FONT_FAMILY, i, end);
+            if (propertyStart < 0) {
+                return;
+            }
+            i = propertyStart + FONT_FAMILY.length;
+            if (propertyStart > start && isNameByte(input[propertyStart - 1])) {
+                continue;
+            }
+            int colon = skipSpaces(i, end);
+            if (colon >= end || input[colon] != ':') {
+                continue;
+            }
+            int valueStart = skipSpaces(colon + 1, end);
+            int declarationEnd = cssValueEnd(valueStart, end, quote);
+            int removeEnd = declarationEnd < end && input[declarationEnd] == ';' ? declarationEnd + 1 : declarationEnd;
+            i = declarationEnd;
+            if (mode == Mode.STRIP) {
+                replace(propertyStart, removeEnd, null);
+                continue;
+            }
+            int valueEnd = declarationEnd;
+            while (valueEnd > valueStart && isSpace(input[valueEnd - 1])) {
+                valueEnd--;
+            }
+            String rawFamilies = decode(valueStart, valueEnd);
+            String primary = extractPrimaryFontFamily(rawFamilies);
+            if (primary == null || primary.isBlank()) {
+                continue;
+            }
+            if (isExcluded(primary)) {
+                replace(propertyStart, removeEnd, null);
+                continue;
+            }
+            logFontFamilyMapping(rawFamilies, primary, "style");
+            addFamily(primary);
+            String formatted = formatCssFontFamily(primary, quote);
+            if (!formatted.equals(rawFamilies)) {
+                replace(valueStart, valueEnd, formatted.getBytes(StandardCharsets.UTF_8));
+            }
+        }
+    }
+
+    private int cssValueEnd(int start, int end, byte attributeQuote) {
+        byte stringQuote = 0;
+        for (int i = start; i < end; i++) {
+            byte b = input[i];
+            if (stringQuote != 0) {
+                if (b == stringQuote) {
+                    stringQuote = 0;
+                }
+            } else if (b == '"' || b == '\'') {
+                stringQuote = b;
+            } else if (b == ';' || b == '}' || (attributeQuote == 0 && b == '<')) {
+                return i;
+            }
+        }
+        return end;
+    }
+
+    private boolean isExcluded(String family) {
+        return excludedFamily != null && excludedFamily.test(family);
+    }
+
+    private void addFamily(String family) {
+        if (fontFamilies != null) {
+            fontFamilies.add(family);
+        }
+    }
+
+    static String extractPrimaryFontFamily(String rawFamilies) {
+        if (rawFamilies == null) {
+            return null;
+        }
+        String[] parts = rawFamilies.split(",");
+        for (String part : parts) {
+            String candidate = part.trim();
+            if (candidate.isEmpty()) {
+                continue;
+            }
+            if ((candidate.startsWith("\"") && candidate.endsWith("\""))
+                    || (candidate.startsWith("'") && candidate.endsWith("'"))) {
+                candidate = candidate.substring(1, candidate.length() - 1).trim();
+            }
+            if (!candidate.isEmpty()) {
+                return candidate;
+            }
+        }
+        return rawFamilies.trim();
+    }
+
+    /**
+     * Имя гарнитуры для CSS: простые имена без кавычек, остальные — в кавычках, которые не
+     * конфликтуют с кавычкой атрибута style.
+     */
+    private static String formatCssFontFamily(String family, byte attributeQuote) {
+        if (family.matches("[A-Za-z0-9_-]+")) {
+            return family;
+        }
+        char quote = attributeQuote == '\'' ? '"' : '\'';
+        String escaped = family.replace(String.valueOf(quote), "\\" + quote);
+        return quote + escaped + quote;
+    }
+
+    private static void logFontFamilyMapping(String rawFamilies, String primary, String source) {
+        String effectivePrimary = primary.trim();
+        if (effectivePrimary.isEmpty()) {
+            return;
+        }
+        String key = source + "|" + rawFamilies.trim() + "->" + effectivePrimary;
+        if (loggedFontFamilies.add(key)) {
+            logger.info("SVG font-family ({}): raw='{}' -> '{}'", source, rawFamilies, effectivePrimary);
+        }
+    }
+
+    /**
+     * Заменяет диапазон [{@code from}, {@code to}) исходника на {@code replacement} ({@code null} — удаление).
+     * Правки идут строго по возрастанию позиций.
+     */
+    private void replace(int from, int to, byte[] replacement) {
+        if (mode == Mode.COLLECT) {
+            return;
+        }
+        if (output == null) {
+            output = new byte[input.length + 256];
+        }
+        append(input, copiedUpTo, from - copiedUpTo);
+        if (replacement != null) {
+            append(replacement, 0, replacement.length);
+        }
+        copiedUpTo = to;
+    }
+
+    private void append(byte[] source, int offset, int count) {
+        if (count <= 0) {
+            return;
+        }
+        if (outputLength + count > output.length) {
+            output = Arrays.copyOf(output, Math.max(output.length * 2, outputLength + count));
+        }
+        System.arraycopy(source, offset, output, outputLength, count);
+        outputLength += count;
+    }
+
+    private byte[] result() {
+        if (output == null) {
+            return input;
+        }
+        append(input, copiedUpTo, input.length - copiedUpTo);
+        copiedUpTo = input.length;
+        return outputLength == output.length ? output : Arrays.copyOf(output, outputLength);
+    }
+
+    private String decode(int from, int to) {
+        return new String(input, from, to - from, StandardCharsets.UTF_8);
+    }
+
+    private int indexOf(byte value, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (input[i] == value) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private int indexOf(String marker, int from) {
+        int last = input.length - marker.length();
+        char first = marker.charAt(0);
+        for (int i = from; i <= last; i++) {
+            if (input[i] == first && startsWith(marker, i)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private int endAfter(String marker, int from) {
+        int index = indexOf(marker, from);
+        return index < 0 ? input.length : index + marker.length();
+    }
+
+    private boolean startsWith(String marker, int at) {
+        if (at + marker.length() > input.length) {
+            return false;
+        }
+        for (int i = 0; i < marker.length(); i++) {
+            if (input[at + i] != marker.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private int indexOfIgnoreCase(byte[] lowerCaseNeedle, int from, int to) {
+        int last = to - lowerCaseNeedle.length;
+        byte first = lowerCaseNeedle[0];
+        for (int i = from; i <= last; i++) {
+            if (toLower(input[i]) == first && regionEqualsIgnoreCase(i, i + lowerCaseNeedle.length, lowerCaseNeedle)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private boolean regionEqualsIgnoreCase(int from, int to, byte[] lowerCaseValue) {
+        if (to - from != lowerCaseValue.length) {
+            return false;
+        }
+        for (int i = 0; i < lowerCaseValue.length; i++) {
+            if (toLower(input[from + i]) != lowerCaseValue[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private int skipSpaces(int from, int to) {
+        int i = from;
+        while (i < to && isSpace(input[i])) {
+            i++;
+        }
+        return i;
+    }
+
+    private static byte toLower(byte b) {
+        return b >= 'A' && b <= 'Z' ? (byte) (b + ('a' - 'A')) : b;
+    }
+
+    private static boolean isSpace(byte b) {
+        return b == ' ' || b == '\t' || b == '\n' || b == '\r';
+    }
+
+    private static boolean isNameByte(byte b) {
+        return (b >= 'a' && b <= 'z') || (b >= 'A' && b <= 'Z') || (b >= '0' && b <= '9') || b == '-' || b == '_';
+    }
+}
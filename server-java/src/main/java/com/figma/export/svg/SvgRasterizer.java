@@ -0,0 +1,212 @@
+package com.figma.export.svg;
+
+import com.figma.export.exception.ConversionException;
+import org.apache.batik.anim.dom.SAXSVGDocumentFactory;
+import org.apache.batik.bridge.BridgeContext;
+import org.apache.batik.bridge.DocumentLoader;
+import org.apache.batik.bridge.GVTBuilder;
+import org.apache.batik.bridge.UserAgent;
+import org.apache.batik.bridge.UserAgentAdapter;
+import org.apache.batik.gvt.GraphicsNode;
+import org.apache.batik.util.XMLResourceDescriptor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+import org.w3c.dom.svg.SVGDocument;
+
+import java.awt.Color;
+import java.awt.Dimension;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.geom.Dimension2D;
+import java.awt.geom.Rectangle2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * Растеризация SVG горизонтальными полосами, которые рисуются параллельно на {@code renderPool}.
+ * Дерево GVT строится один раз на запрос ({@link #load}) и служит и для размеров холста, и для
+ * отрисовки. Ленивые кэши дерева (границы, раскладка текста, фильтры) заполняются при первой
+ * отрисовке, поэтому первая полоса рисуется в вызывающем потоке, а остальные — параллельно по уже
+ * заполненному дереву, которое после этого только читается. Память на сцену не растёт с числом
+ * потоков. Полоса отдаётся потребителю сразу после отрисовки, и полноразмерное RGB-изображение не создаётся.
+ */
+@Component
+public class SvgRasterizer {
+
+    private static final Logger logger = LoggerFactory.getLogger(SvgRasterizer.class);
+
+    private static final int MIN_BAND_HEIGHT = 64;
+    private static final int BANDS_PER_WORKER = 4;
+
+    /**
+     * Получает готовую полосу; вызывается из рабочих потоков, полосы не пересекаются по строкам.
+     */
+    @FunctionalInterface
+    public interface BandConsumer {
+        void accept(BufferedImage band, int top);
+    }
+
+    private final ForkJoinPool renderPool;
+
+    public SvgRasterizer(ForkJoinPool renderPool) {
+        this.renderPool = renderPool;
+    }
+
+    /**
+     * Разбирает SVG и строит дерево GVT. Сцену нужно закрыть после растеризации.
+     */
+    public Scene load(byte[] svgBytes) {
+        try (ByteArrayInputStream input = new ByteArrayInputStream(svgBytes)) {
+            SAXSVGDocumentFactory factory = new SAXSVGDocumentFactory(XMLResourceDescriptor.getXMLParserClassName());
+            SVGDocument svgDocument = (SVGDocument) factory.createDocument("memory", input);
+            UserAgent userAgent = new UserAgentAdapter();
+            DocumentLoader loader = new DocumentLoader(userAgent);
+            BridgeContext context = new BridgeContext(userAgent, loader);
+            context.setDynamicState(BridgeContext.STATIC);
+            try {
+                GraphicsNode root = new GVTBuilder().build(context, svgDocument);
+                return new Scene(svgDocument, context, loader, root);
+            } catch (RuntimeException ex) {
+                context.dispose();
+                loader.dispose();
+                throw ex;
+            }
+        } catch (IOException ex) {
+            throw new ConversionException("Не удалось прочитать SVG для растеризации.", ex);
+        }
+    }
+
+    /**
+     * Рисует сцену в {@code width × height} пикселей на белом фоне и отдаёт результат полосами типа
+     * {@link BufferedImage#TYPE_INT_RGB}. Возвращает управление, когда все полосы переданы.
+     */
+    public void rasterize(Scene scene, int width, int height, boolean textHint, BandConsumer consumer) {
+        long startNs = System.nanoTime();
+        Dimension2D canvasSize = scene.canvasSize();
+        double scaleX = width / canvasSize.getWidth();
+        double scaleY = height / canvasSize.getHeight();
+        int parallelism = renderPool.getParallelism();
+        int bandHeight = Math.max(MIN_BAND_HEIGHT, ceilDiv(height, parallelism * BANDS_PER_WORKER));
+        int bandCount = ceilDiv(height, bandHeight);
+
+        renderBand(scene, width, height, textHint, scaleX, scaleY, bandHeight, 0, consumer);
+        int workers = Math.min(parallelism, bandCount - 1);
+        List<Future<?>> futures = new ArrayList<>(workers);
+        for (int worker = 0; worker < workers; worker++) {
+            int firstBand = 1 + worker;
+            futures.add(renderPool.submit(() -> {
+                for (int band = firstBand; band < bandCount; band += workers) {
+                    renderBand(scene, width, height, textHint, scaleX, scaleY, bandHeight, band, consumer);
+                }
+            }));
+        }
+        try {
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (InterruptedException ex) {
+            futures.forEach(future -> future.cancel(true));
+            Thread.currentThread().interrupt();
+            throw new ConversionException("Растеризация SVG прервана.", ex);
+        } catch (ExecutionException ex) {
+            futures.forEach(future -> future.cancel(true));
+            Throwable cause = ex.getCause();
+            if (cause instanceof ConversionException conversionException) {
+                throw conversionException;
+            }
+            throw new ConversionException("Не удалось растеризовать SVG.", cause);
+        }
+        logger.info("SVG растеризован: {}x{}, полос={}, потоков={}, время={} мс",
+                width, height, bandCount, Math.max(1, workers), (System.nanoTime() - startNs) / 1_000_000L);
+    }
+
+    private static void renderBand(Scene scene, int width, int height, boolean textHint, double scaleX, double scaleY,
+                                   int bandHeight, int band, BandConsumer consumer) {
+        int top = band * bandHeight;
+        int rows = Math.min(bandHeight, height - top);
+        BufferedImage image = new BufferedImage(width, rows, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = image.createGraphics();
+        try {
+            applyHints(graphics, textHint);
+            graphics.setColor(Color.WHITE);
+            graphics.fillRect(0, 0, width, rows);
+            graphics.clipRect(0, 0, width, rows);
+            graphics.translate(0, -top);
+            graphics.scale(scaleX, scaleY);
+            scene.root().paint(graphics);
+        } finally {
+            graphics.dispose();
+        }
+        consumer.accept(image, top);
+    }
+
+    static void applyHints(Graphics2D graphics, boolean textHint) {
+        graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+        graphics.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        graphics.setRenderingHint(RenderingHints.KEY_STROKE_CONTROL, RenderingHints.VALUE_STROKE_PURE);
+        graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BICUBIC);
+        graphics.setRenderingHint(RenderingHints.KEY_COLOR_RENDERING, RenderingHints.VALUE_COLOR_RENDER_QUALITY);
+        if (textHint) {
+            graphics.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+            graphics.setRenderingHint(RenderingHints.KEY_FRACTIONALMETRICS, RenderingHints.VALUE_FRACTIONALMETRICS_ON);
+        }
+    }
+
+    private static int ceilDiv(int value, int divisor) {
+        return (value + divisor - 1) / divisor;
+    }
+
+    /**
+     * Разобранный SVG: документ, контекст Batik и дерево GVT.
+     */
+    public static final class Scene implements AutoCloseable {
+
+        private final SVGDocument document;
+        private final BridgeContext context;
+        private final DocumentLoader loader;
+        private final GraphicsNode root;
+
+        private Scene(SVGDocument document, BridgeContext context, DocumentLoader loader, GraphicsNode root) {
+            this.document = document;
+            this.context = context;
+            this.loader = loader;
+            this.root = root;
+        }
+
+        GraphicsNode root() {
+            return root;
+        }
+
+        /**
+         * Размер холста SVG в пикселях CSS (96 на дюйм).
+         */
+        public Dimension2D canvasSize() {
+            Dimension declared = SvgRenderer.determineCanvasSize(document.getDocumentElement());
+            if (declared != null) {
+                return declared;
+            }
+            Dimension2D documentSize = context.getDocumentSize();
+            if (documentSize != null && documentSize.getWidth() > 1 && documentSize.getHeight() > 1) {
+                return documentSize;
+            }
+            Rectangle2D bounds = root.getPrimitiveBounds();
+            if (bounds != null && bounds.getWidth() > 0 && bounds.getHeight() > 0) {
+                return new Dimension((int) Math.ceil(bounds.getMaxX()), (int) Math.ceil(bounds.getMaxY()));
+            }
+            throw new ConversionException("SVG не содержит графики для растеризации.");
+        }
+
+        @Override
+        public void close() {
+            context.dispose();
+            loader.dispose();
+        }
+    }
+}
@@ -1,6 +1,10 @@
 package com.figma.export.svg;
 
+import com.figma.export.cache.CacheStats;
+import com.figma.export.color.CmykColorConverter;
+import com.figma.export.color.ColorProfile;
 import com.figma.export.exception.ConversionException;
+import com.figma.export.service.ImageProcessingService;
 import com.itextpdf.kernel.geom.PageSize;
 import com.itextpdf.kernel.geom.Rectangle;
 import com.itextpdf.kernel.pdf.PdfArray;
@@ -25,9 +29,8 @@ import org.apache.batik.bridge.UserAgentAdapter;
 import org.apache.batik.gvt.GraphicsNode;
 import org.apache.batik.svggen.SVGGeneratorContext;
 import org.apache.batik.svggen.SVGGraphics2D;
-import org.apache.batik.transcoder.TranscoderInput;
-import org.apache.batik.transcoder.TranscoderOutput;
 import org.apache.batik.util.XMLResourceDescriptor;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 import org.w3c.dom.Element;
 import org.w3c.dom.svg.SVGDocument;
@@ -39,14 +42,15 @@ import java.io.InputStream;
 import java.io.StringWriter;
 import java.nio.charset.StandardCharsets;
 import java.nio.charset.UnsupportedCharsetException;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Locale;
 import java.util.Set;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.concurrent.ForkJoinPool;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -55,23 +59,233 @@ public class SvgRenderer {
 
     private static final Logger logger = LoggerFactory.getLogger(SvgRenderer.class);
     private static final double BLEED_SCALE = 1.001d;
-    private static final Pattern FILL_RGB_PATTERN = Pattern.compile("([0-9]*\\.?[0-9]+)\\s+([0-9]*\\.?[0-9]+)\\s+([0-9]*\\.?[0-9]+)\\s+rg");
-    private static final Pattern STROKE_RGB_PATTERN = Pattern.compile("([0-9]*\\.?[0-9]+)\\s+([0-9]*\\.?[0-9]+)\\s+([0-9]*\\.?[0-9]+)\\s+RG");
-    private static final Pattern FONT_FAMILY_ATTR_DOUBLE_PATTERN = Pattern.compile("(?i)(font-family\\s*=\\s*\\\")([^\\\"]+)(\\\")");
-    private static final Pattern FONT_FAMILY_ATTR_SINGLE_PATTERN = Pattern.compile("(?i)(font-family\\s*=\\s*')([^']+)(')");
-    private static final Pattern FONT_FAMILY_STYLE_PATTERN = Pattern.compile("(?i)(font-family\\s*:\\s*)([^;]+)");
-    private static final Set<String> loggedFontFamilies = Collections.newSetFromMap(new ConcurrentHashMap<>());
-
-    public SvgRenderResult renderSvg(byte[] svgBytes,
+    private static final String OUTLINE_RENDERER_GRAPHICS2D = "graphics2d";
+
+    private final GlyphOutlineCache glyphOutlineCache;
+    private final CmykColorConverter colorConverter;
+    private final SvgXObjectCache xObjectCache;
+    private final Graphics2DSvgRenderer graphics2DRenderer;
+    private final boolean graphics2DOutlineByDefault;
+    private final EmbeddedImageCmykConverter embeddedImageConverter;
+    private final UnsupportedFontFamilies unsupportedFontFamilies = new UnsupportedFontFamilies();
+
+    public SvgRenderer(CmykColorConverter colorConverter,
+                       ImageProcessingService imageProcessingService,
+                       ForkJoinPool renderPool,
+                       @Value("${export.svg.glyph-cache-max-mb:32}") long glyphCacheMaxMb,
+                       @Value("${export.svg.xobject-cache-max-mb:64}") long xObjectCacheMaxMb,
+                       @Value("${export.svg.outline-renderer:itext}") String defaultOutlineRenderer,
+                       @Value("${export.svg.image-cmyk-cache-max-mb:64}") long imageCmykCacheMaxMb) {
+        this.colorConverter = colorConverter;
+        this.graphics2DRenderer = new Graphics2DSvgRenderer(colorConverter);
+        this.graphics2DOutlineByDefault = OUTLINE_RENDERER_GRAPHICS2D.equalsIgnoreCase(
+                defaultOutlineRenderer != null ? defaultOutlineRenderer.trim() : null);
+        this.xObjectCache = new SvgXObjectCache(Math.max(0L, xObjectCacheMaxMb) * 1024L * 1024L);
+        this.glyphOutlineCache = new GlyphOutlineCache(Math.max(0L, glyphCacheMaxMb) * 1024L * 1024L);
+        this.embeddedImageConverter = new EmbeddedImageCmykConverter(imageProcessingService, renderPool,
+                Math.max(0L, imageCmykCacheMaxMb) * 1024L * 1024L);
+    }
+
+    /**
+     * Статистика кэша контуров глифов режима «текст в кривые».
+     */
+    public CacheStats getGlyphOutlineCacheStats() {
+        return glyphOutlineCache.stats();
+    }
+
+    /**
+     * Статистика кэша сконвертированных SVG (form XObject).
+     */
+    public CacheStats getXObjectCacheStats() {
+        return xObjectCache.stats();
+    }
+
+    /**
+     * Статистика кэша встроенных изображений SVG, переведённых в CMYK.
+     */
+    public CacheStats getEmbeddedImageCacheStats() {
+        return embeddedImageConverter.stats();
+    }
+
+    /**
+     * Готовит SVG к конвертации: нормализует font-family (в режиме контуров — убирает шрифты) и собирает
+     * основные гарнитуры документа, чтобы FontProvider можно было заполнить до начала рендеринга.
+     */
+    public PreparedSvg prepareSvg(byte[] svgBytes, boolean outlineText) {
+        return prepareSvg(svgBytes, outlineText, null);
+    }
+
+    /**
+     * @param outlineRenderer способ отрисовки текста в кривых: {@code itext} (через промежуточный SVG)
+     *                        или {@code graphics2d} (GVT сразу в PDF); {@code null} — значение по умолчанию
+     */
+    public PreparedSvg prepareSvg(byte[] svgBytes, boolean outlineText, String outlineRenderer) {
+        if (outlineText) {
+            byte[] sanitized = sanitizeSvgFonts(svgBytes);
+            boolean graphics2D = outlineRenderer != null
+                    ? OUTLINE_RENDERER_GRAPHICS2D.equalsIgnoreCase(outlineRenderer.trim())
+                    : graphics2DOutlineByDefault;
+            if (graphics2D) {
+                return new PreparedSvg(svgBytes, sanitized, Set.of(), true, true);
+            }
+            return new PreparedSvg(svgBytes, sanitized, Set.of(), true, false);
+        }
+        Set<String> fontFamilies = new LinkedHashSet<>();
+        byte[] normalized = normalizeSvgFontFamilies(svgBytes, fontFamilies);
+        return new PreparedSvg(svgBytes, normalized, Collections.unmodifiableSet(fontFamilies), false, false);
+    }
+
+    /**
+     * Гарнитуры, которые {@link #prepareSvg} соберёт в {@link PreparedSvg#fontFamilies()}, без
+     * подготовки самого документа: для заполнения общего FontProvider до рендеринга нескольких SVG.
+     */
+    public Set<String> scanFontFamilies(byte[] svgBytes, boolean outlineText) {
+        if (outlineText) {
+            return Set.of();
+        }
+        Set<String> fontFamilies = new LinkedHashSet<>();
+        SvgFontFamilyRewriter.rewrite(svgBytes, SvgFontFamilyRewriter.Mode.COLLECT, fontFamilies,
+                unsupportedFontFamilies::contains);
+        return Collections.unmodifiableSet(fontFamilies);
+    }
+
+    public SvgRenderResult renderSvg(PreparedSvg svg,
                                      PdfDocument document,
                                      float targetWidthPt,
                                      float targetHeightPt,
                                      FontProvider fontProvider,
-                                     boolean outlineText) {
-        ISvgConverterProperties properties = createConverterProperties(fontProvider, outlineText);
-        byte[] currentBytes = outlineText
-                ? convertTextToPaths(sanitizeSvgFonts(svgBytes))
-                : normalizeSvgFontFamilies(svgBytes);
+                                     ColorProfile colorProfile) {
+        return renderSvg(svg, document, targetWidthPt, targetHeightPt, fontProvider, false, colorProfile);
+    }
+
+    /**
+     * Ключ кэша XObject строится по исходному SVG и режиму, поэтому перевод текста в кривые и
+     * нормализация гарнитур при попадании не выполняются. Живой текст рисуется через шаблон
+     * {@link SvgXObjectCache#render}: шрифты из {@code fontProvider} создаются заново для шаблона, а
+     * не для {@code document}.
+     *
+     * @param subsetFonts встраивает ли {@code fontProvider} шрифты сабсетами; входит в ключ кэша
+     */
+    public SvgRenderResult renderSvg(PreparedSvg svg,
+                                     PdfDocument document,
+                                     float targetWidthPt,
+                                     float targetHeightPt,
+                                     FontProvider fontProvider,
+                                     boolean subsetFonts,
+                                     ColorProfile colorProfile) {
+        String renderMode = svg.graphics2DOutline() ? "outline-graphics2d"
+                : svg.outlineText() ? "outline"
+                : subsetFonts ? "embed-subset" : "embed";
+        String cacheKey = SvgXObjectCache.key(svg.originalBytes(), renderMode, colorProfile);
+        PdfFormXObject xObject = xObjectCache.get(cacheKey, document);
+        if (xObject == null) {
+            long startNs = System.nanoTime();
+            if (svg.graphics2DOutline()) {
+                xObject = graphics2DRenderer.render(svg.bytes(), document, colorProfile);
+                enforceCmykColors(xObject, colorProfile);
+                xObjectCache.put(cacheKey, xObject);
+            } else if (svg.outlineText()) {
+                xObject = convertToXObject(svg, convertTextToPaths(svg.bytes()), document, null, colorProfile);
+                xObjectCache.put(cacheKey, xObject);
+            } else {
+                xObject = renderWithFonts(svg, cacheKey, document, fontProvider, colorProfile);
+            }
+            if (logger.isInfoEnabled()) {
+                logger.info("SVG conversion ({}): {} ms", renderMode, (System.nanoTime() - startNs) / 1_000_000L);
+            }
+        } else {
+            logger.debug("SVG взят из кэша XObject, повторная конвертация пропущена.");
+        }
+        Rectangle bbox = extractBoundingBox(xObject);
+        float intrinsicWidth = bbox != null ? bbox.getWidth() : PageSize.A4.getWidth();
+        float intrinsicHeight = bbox != null ? bbox.getHeight() : PageSize.A4.getHeight();
+
+        float widthPt = targetWidthPt > 0 ? targetWidthPt : intrinsicWidth;
+        float heightPt = targetHeightPt > 0 ? targetHeightPt : intrinsicHeight;
+        if (widthPt <= 0 || Float.isNaN(widthPt)) {
+            widthPt = PageSize.A4.getWidth();
+        }
+        if (heightPt <= 0 || Float.isNaN(heightPt)) {
+            heightPt = PageSize.A4.getHeight();
+        }
+
+        if (logger.isInfoEnabled()) {
+            if (bbox != null) {
+                logger.info("SVG render bbox: x={}, y={}, w={}pt, h={}pt; target page: {}x{} pt", bbox.getX(), bbox.getY(), intrinsicWidth, intrinsicHeight, widthPt, heightPt);
+            } else {
+                logger.info("SVG render bbox: <null>; intrinsic={}x{} pt; target page: {}x{} pt", intrinsicWidth, intrinsicHeight, widthPt, heightPt);
+            }
+        }
+
+        PdfPage page = document.addNewPage(new PageSize(widthPt, heightPt));
+        PdfCanvas canvas = new PdfCanvas(page);
+
+        double scaleX = widthPt / (intrinsicWidth > 0 ? intrinsicWidth : widthPt);
+        double scaleY = heightPt / (intrinsicHeight > 0 ? intrinsicHeight : heightPt);
+        if (bbox != null) {
+            scaleX *= BLEED_SCALE;
+            scaleY *= BLEED_SCALE;
+        }
+
+        if (logger.isInfoEnabled()) {
+            logger.info("SVG render scale: scaleX={}, scaleY={}, bleedScale={}", scaleX, scaleY, BLEED_SCALE);
+        }
+        AffineTransform transform;
+        if (bbox != null) {
+            // Явно строим матрицу S * T, где T: перенос на -bbox.x/-bbox.y, S: масштаб.
+            // Это даёт x' = scaleX * (x - bbox.x), y' = scaleY * (y - bbox.y),
+            // чтобы bounding box точно (с небольшим BLEED) заполнял страницу.
+            double tx = -scaleX * bbox.getX();
+            double ty = -scaleY * bbox.getY();
+            transform = new AffineTransform(scaleX, 0d, 0d, scaleY, tx, ty);
+        } else {
+            transform = AffineTransform.getScaleInstance(scaleX, scaleY);
+        }
+
+        double[] matrix = new double[6];
+        transform.getMatrix(matrix);
+        canvas.concatMatrix(matrix[0], matrix[2], matrix[1], matrix[3], matrix[4], matrix[5]);
+        canvas.addXObject(xObject, 0, 0);
+        canvas.release();
+
+        return new SvgRenderResult(page, widthPt, heightPt);
+    }
+
+    /**
+     * PdfFont из кэша провайдера привязан к документу, в котором его впервые использовали, поэтому
+     * кэш сбрасывается до и после шаблона: шрифты создаются для шаблона и не утекают в следующий.
+     */
+    private PdfFormXObject renderWithFonts(PreparedSvg svg,
+                                           String cacheKey,
+                                           PdfDocument document,
+                                           FontProvider fontProvider,
+                                           ColorProfile colorProfile) {
+        if (fontProvider != null) {
+            fontProvider.reset();
+        }
+        try {
+            return xObjectCache.render(cacheKey, document,
+                    template -> convertToXObject(svg, svg.bytes(), template, fontProvider, colorProfile));
+        } finally {
+            if (fontProvider != null) {
+                fontProvider.reset();
+            }
+        }
+    }
+
+    private PdfFormXObject convertToXObject(PreparedSvg svg,
+                                            byte[] preparedBytes,
+                                            PdfDocument document,
+                                            FontProvider fontProvider,
+                                            ColorProfile colorProfile) {
+        boolean outlineText = svg.outlineText();
+        byte[] svgBytes = svg.originalBytes();
+        // Провайдер записывает в реестр гарнитуру, на которой iText не смог создать PdfFont.
+        UnsupportedFontFamilies.RecordingFontProvider recordingProvider = !outlineText && fontProvider != null
+                ? unsupportedFontFamilies.recording(fontProvider)
+                : null;
+        ISvgConverterProperties properties = createConverterProperties(recordingProvider, outlineText);
+        byte[] currentBytes = preparedBytes;
         boolean sanitizedAttempt = outlineText;
         while (true) {
             try (InputStream inputStream = new ByteArrayInputStream(currentBytes)) {
@@ -79,61 +293,18 @@ public class SvgRenderer {
                 if (xObject == null) {
                     throw new ConversionException("SVG не содержит графики для конвертации в PDF.");
                 }
-                enforceCmykColors(xObject);
-                Rectangle bbox = extractBoundingBox(xObject);
-                float intrinsicWidth = bbox != null ? bbox.getWidth() : PageSize.A4.getWidth();
-                float intrinsicHeight = bbox != null ? bbox.getHeight() : PageSize.A4.getHeight();
-
-                float widthPt = targetWidthPt > 0 ? targetWidthPt : intrinsicWidth;
-                float heightPt = targetHeightPt > 0 ? targetHeightPt : intrinsicHeight;
-                if (widthPt <= 0 || Float.isNaN(widthPt)) {
-                    widthPt = PageSize.A4.getWidth();
-                }
-                if (heightPt <= 0 || Float.isNaN(heightPt)) {
-                    heightPt = PageSize.A4.getHeight();
-                }
-
-                if (logger.isInfoEnabled()) {
-                    if (bbox != null) {
-                        logger.info("SVG render bbox: x={}, y={}, w={}pt, h={}pt; target page: {}x{} pt", bbox.getX(), bbox.getY(), intrinsicWidth, intrinsicHeight, widthPt, heightPt);
-                    } else {
-                        logger.info("SVG render bbox: <null>; intrinsic={}x{} pt; target page: {}x{} pt", intrinsicWidth, intrinsicHeight, widthPt, heightPt);
+                enforceCmykColors(xObject, colorProfile);
+                return xObject;
+            } catch (UnsupportedCharsetException ex) {
+                if (!sanitizedAttempt && recordingProvider != null && !recordingProvider.recorded().isEmpty()) {
+                    byte[] substituted = normalizeSvgFontFamilies(svgBytes, new LinkedHashSet<>());
+                    if (!Arrays.equals(substituted, currentBytes)) {
+                        currentBytes = substituted;
+                        logger.warn("Гарнитуры {} не поддерживаются (кодировка шрифта); они заменены стандартной гарнитурой.",
+                                recordingProvider.recorded());
+                        continue;
                     }
                 }
-
-                PdfPage page = document.addNewPage(new PageSize(widthPt, heightPt));
-                PdfCanvas canvas = new PdfCanvas(page);
-
-                double scaleX = widthPt / (intrinsicWidth > 0 ? intrinsicWidth : widthPt);
-                double scaleY = heightPt / (intrinsicHeight > 0 ? intrinsicHeight : heightPt);
-                if (bbox != null) {
-                    scaleX *= BLEED_SCALE;
-                    scaleY *= BLEED_SCALE;
-                }
-
-                if (logger.isInfoEnabled()) {
-                    logger.info("SVG render scale: scaleX={}, scaleY={}, bleedScale={}", scaleX, scaleY, BLEED_SCALE);
-                }
-                AffineTransform transform;
-                if (bbox != null) {
-                    // Явно строим матрицу S * T, где T: перенос на -bbox.x/-bbox.y, S: масштаб.
-                    // Это даёт x' = scaleX * (x - bbox.x), y' = scaleY * (y - bbox.y),
-                    // чтобы bounding box точно (с небольшим BLEED) заполнял страницу.
-                    double tx = -scaleX * bbox.getX();
-                    double ty = -scaleY * bbox.getY();
-                    transform = new AffineTransform(scaleX, 0d, 0d, scaleY, tx, ty);
-                } else {
-                    transform = AffineTransform.getScaleInstance(scaleX, scaleY);
-                }
-
-                double[] matrix = new double[6];
-                transform.getMatrix(matrix);
-                canvas.concatMatrix(matrix[0], matrix[2], matrix[1], matrix[3], matrix[4], matrix[5]);
-                canvas.addXObject(xObject, 0, 0);
-                canvas.release();
-
-                return new SvgRenderResult(page, widthPt, heightPt);
-            } catch (UnsupportedCharsetException ex) {
                 if (sanitizedAttempt) {
                     throw new ConversionException("SVG содержит шрифты с неподдерживаемой кодировкой.", ex);
                 }
@@ -150,22 +321,6 @@ public class SvgRenderer {
         }
     }
 
-    public BufferedImageTranscoderResult rasterize(byte[] svgBytes, float widthPx, float heightPx) throws java.io.IOException {
-        BufferedImageTranscoder transcoder = new BufferedImageTranscoder();
-        if (widthPx > 0) {
-            transcoder.addTranscodingHint(BufferedImageTranscoder.KEY_WIDTH, widthPx);
-        }
-        if (heightPx > 0) {
-            transcoder.addTranscodingHint(BufferedImageTranscoder.KEY_HEIGHT, heightPx);
-        }
-        try {
-            transcoder.transcode(new TranscoderInput(new ByteArrayInputStream(svgBytes)), (TranscoderOutput) null);
-        } catch (org.apache.batik.transcoder.TranscoderException e) {
-            throw new java.io.IOException("Не удалось растеризовать SVG", e);
-        }
-        return new BufferedImageTranscoderResult(transcoder.getBufferedImage(), transcoder.getWidth(), transcoder.getHeight());
-    }
-
     private ISvgConverterProperties createConverterProperties(FontProvider fontProvider, boolean outlineText) {
         SvgConverterProperties properties = new SvgConverterProperties();
         if (!outlineText && fontProvider != null) {
@@ -178,109 +333,23 @@ public class SvgRenderer {
         return properties;
     }
 
-    private byte[] sanitizeSvgFonts(byte[] svgBytes) {
-        String svg = new String(svgBytes, StandardCharsets.UTF_8);
-        String sanitized = svg
-                .replaceAll("(?i)font-family\\s*:[^;>]+;?", "")
-                .replaceAll("(?i)font-family\\s*=\\s*\"[^\"]*\"", "")
-                .replaceAll("(?i)font-family\\s*=\\s*'[^']*'", "");
-        return sanitized.getBytes(StandardCharsets.UTF_8);
-    }
-
-    private byte[] normalizeSvgFontFamilies(byte[] svgBytes) {
-        String svg = new String(svgBytes, StandardCharsets.UTF_8);
-        String normalized = normalizeFontFamilyAttributes(svg, FONT_FAMILY_ATTR_DOUBLE_PATTERN, true);
-        normalized = normalizeFontFamilyAttributes(normalized, FONT_FAMILY_ATTR_SINGLE_PATTERN, false);
-        normalized = normalizeFontFamilyStyles(normalized);
-        return normalized.getBytes(StandardCharsets.UTF_8);
-    }
-
-    private String normalizeFontFamilyAttributes(String input, Pattern pattern, boolean useDoubleQuotes) {
-        Matcher matcher = pattern.matcher(input);
-        StringBuffer buffer = new StringBuffer();
-        while (matcher.find()) {
-            String rawFamilies = matcher.group(2);
-            String primary = extractPrimaryFontFamily(rawFamilies);
-            if (primary == null || primary.isBlank()) {
-                continue;
-            }
-            logFontFamilyMapping(rawFamilies, primary, "attribute");
-            String replacement = matcher.group(1)
-                    + Matcher.quoteReplacement(formatAttributeFontFamily(primary, useDoubleQuotes))
-                    + matcher.group(3);
-            matcher.appendReplacement(buffer, Matcher.quoteReplacement(replacement));
-        }
-        matcher.appendTail(buffer);
-        return buffer.toString();
-    }
-
-    private String normalizeFontFamilyStyles(String input) {
-        Matcher matcher = FONT_FAMILY_STYLE_PATTERN.matcher(input);
-        StringBuffer buffer = new StringBuffer();
-        while (matcher.find()) {
-            String rawFamilies = matcher.group(2);
-            String primary = extractPrimaryFontFamily(rawFamilies);
-            if (primary == null || primary.isBlank()) {
-                continue;
-            }
-            logFontFamilyMapping(rawFamilies, primary, "style");
-            String replacement = matcher.group(1) + formatCssFontFamily(primary);
-            matcher.appendReplacement(buffer, Matcher.quoteReplacement(replacement));
-        }
-        matcher.appendTail(buffer);
-        return buffer.toString();
-    }
-
-    private String extractPrimaryFontFamily(String rawFamilies) {
-        if (rawFamilies == null) {
-            return null;
-        }
-        String[] parts = rawFamilies.split(",");
-        for (String part : parts) {
-            String candidate = part.trim();
-            if (candidate.isEmpty()) {
-                continue;
-            }
-            if ((candidate.startsWith("\"") && candidate.endsWith("\""))
-                    || (candidate.startsWith("'") && candidate.endsWith("'"))) {
-                candidate = candidate.substring(1, candidate.length() - 1).trim();
-            }
-            if (!candidate.isEmpty()) {
-                return candidate;
-            }
-        }
-        return rawFamilies.trim();
-    }
-
-    private String formatAttributeFontFamily(String family, boolean useDoubleQuotes) {
-        String sanitized = family.replace("\"", "").replace("'", "");
-        if (useDoubleQuotes) {
-            return sanitized;
-        }
-        return sanitized;
+    /**
+     * Запомнена ли гарнитура как неподдерживаемая; для тестов.
+     */
+    boolean isUnsupportedFontFamily(String family) {
+        return unsupportedFontFamilies.contains(family);
     }
 
-    private String formatCssFontFamily(String family) {
-        String sanitized = family.replace("'", "\\'");
-        if (sanitized.matches("[A-Za-z0-9_-]+")) {
-            return sanitized;
-        }
-        return "'" + sanitized + "'";
+    private byte[] sanitizeSvgFonts(byte[] svgBytes) {
+        return SvgFontFamilyRewriter.rewrite(svgBytes, SvgFontFamilyRewriter.Mode.STRIP, null);
     }
 
-    private void logFontFamilyMapping(String rawFamilies, String primary, String source) {
-        if (rawFamilies == null || primary == null) {
-            return;
-        }
-        String effectivePrimary = primary.trim();
-        if (effectivePrimary.isEmpty()) {
-            return;
-        }
-        String rawTrimmed = rawFamilies.trim();
-        String key = source + "|" + rawTrimmed + "->" + effectivePrimary;
-        if (loggedFontFamilies.add(key)) {
-            logger.info("SVG font-family ({}): raw='{}' -> '{}'", source, rawFamilies, effectivePrimary);
-        }
+    /**
+     * Гарнитуры из реестра неподдерживаемых удаляются уже здесь, чтобы не тратить на них попытку конвертации.
+     */
+    private byte[] normalizeSvgFontFamilies(byte[] svgBytes, Set<String> fontFamilies) {
+        return SvgFontFamilyRewriter.rewrite(svgBytes, SvgFontFamilyRewriter.Mode.NORMALIZE, fontFamilies,
+                unsupportedFontFamilies::contains);
     }
 
     private byte[] convertTextToPaths(byte[] svgBytes) {
@@ -301,7 +370,7 @@ public class SvgRenderer {
 
                 SVGGeneratorContext generatorContext = SVGGeneratorContext.createDefault(document);
                 generatorContext.setPrecision(8);
-                SVGGraphics2D svgGenerator = new SVGGraphics2D(generatorContext, true);
+                SVGGraphics2D svgGenerator = new GlyphCachingSVGGraphics2D(generatorContext, glyphOutlineCache);
 
                 Dimension canvasSize = determineCanvasSize(originalRoot);
                 if (canvasSize != null) {
@@ -309,6 +378,12 @@ public class SvgRenderer {
                 }
 
                 graphicsNode.paint(svgGenerator);
+                if (logger.isDebugEnabled()) {
+                    CacheStats stats = glyphOutlineCache.stats();
+                    logger.debug("Кэш контуров глифов: попаданий {}, промахов {}, доля попаданий {}, записей {}, {} байт",
+                            stats.hits(), stats.misses(), String.format(Locale.ROOT, "%.3f", stats.hitRatio()),
+                            stats.entries(), stats.weight());
+                }
 
                 Element outlineRoot = svgGenerator.getRoot();
                 copySizeAttributes(originalRoot, outlineRoot);
@@ -351,23 +426,42 @@ public class SvgRenderer {
         return px * 72d / 96d;
     }
 
-    private void enforceCmykColors(PdfFormXObject xObject) {
+    private void enforceCmykColors(PdfFormXObject xObject, ColorProfile colorProfile) {
         if (xObject == null) {
             return;
         }
+        // Сначала собираем дерево: картинки уходят на конвертацию в пул, а операторы цвета
+        // переписываются в этом потоке параллельно с ними.
         Set<PdfStream> visited = Collections.newSetFromMap(new IdentityHashMap<>());
-        enforceCmykColorsRecursive(xObject.getPdfObject(), visited);
+        List<PdfStream> contentStreams = new ArrayList<>();
+        List<PdfStream> images = new ArrayList<>();
+        collectStreams(xObject.getPdfObject(), visited, contentStreams, images);
+        EmbeddedImageCmykConverter.Pending pendingImages = embeddedImageConverter.start(images, colorProfile);
+
+        PdfContentColorRewriter.ColorConverter converter =
+                (r, g, b, cmyk) -> colorConverter.toCmyk(colorProfile, r, g, b, cmyk);
+        for (PdfStream stream : contentStreams) {
+            byte[] original = stream.getBytes();
+            byte[] converted = PdfContentColorRewriter.rewrite(original, converter);
+            if (converted != original) {
+                stream.setData(converted);
+            }
+        }
+        pendingImages.apply();
     }
 
-    private void enforceCmykColorsRecursive(PdfStream stream, Set<PdfStream> visited) {
+    /**
+     * Обходит form XObject и тайловые паттерны: потоки содержимого попадают в {@code contentStreams},
+     * image XObject — в {@code images}.
+     */
+    private void collectStreams(PdfStream stream,
+                                Set<PdfStream> visited,
+                                List<PdfStream> contentStreams,
+                                List<PdfStream> images) {
         if (stream == null || !visited.add(stream)) {
             return;
         }
-        byte[] original = stream.getBytes();
-        byte[] converted = convertRgbOperatorsToCmyk(original);
-        if (converted != original) {
-            stream.setData(converted);
-        }
+        contentStreams.add(stream);
 
         PdfDictionary resources = stream.getAsDictionary(PdfName.Resources);
         if (resources == null) {
@@ -377,78 +471,26 @@ public class SvgRenderer {
         if (xObjects != null) {
             for (PdfName name : xObjects.keySet()) {
                 PdfStream nested = xObjects.getAsStream(name);
-                if (nested != null && PdfName.Form.equals(nested.getAsName(PdfName.Subtype))) {
-                    enforceCmykColorsRecursive(nested, visited);
+                if (nested == null) {
+                    continue;
+                }
+                PdfName subtype = nested.getAsName(PdfName.Subtype);
+                if (PdfName.Form.equals(subtype)) {
+                    collectStreams(nested, visited, contentStreams, images);
+                } else if (PdfName.Image.equals(subtype) && visited.add(nested)) {
+                    images.add(nested);
                 }
             }
         }
-    }
-
-    private byte[] convertRgbOperatorsToCmyk(byte[] contentBytes) {
-        if (contentBytes == null || contentBytes.length == 0) {
-            return contentBytes;
-        }
-        String content = new String(contentBytes, StandardCharsets.ISO_8859_1);
-        String converted = replaceRgbOperators(content, FILL_RGB_PATTERN, false);
-        converted = replaceRgbOperators(converted, STROKE_RGB_PATTERN, true);
-        if (converted.equals(content)) {
-            return contentBytes;
-        }
-        return converted.getBytes(StandardCharsets.ISO_8859_1);
-    }
-
-    private String replaceRgbOperators(String content, Pattern pattern, boolean stroke) {
-        Matcher matcher = pattern.matcher(content);
-        StringBuffer buffer = new StringBuffer();
-        boolean changed = false;
-        while (matcher.find()) {
-            double r = clamp(Double.parseDouble(matcher.group(1)));
-            double g = clamp(Double.parseDouble(matcher.group(2)));
-            double b = clamp(Double.parseDouble(matcher.group(3)));
-            double[] cmyk = rgbToCmyk(r, g, b);
-            String replacement = formatCmyk(cmyk, stroke);
-            matcher.appendReplacement(buffer, Matcher.quoteReplacement(replacement));
-            changed = true;
-        }
-        if (changed) {
-            matcher.appendTail(buffer);
-            return buffer.toString();
-        }
-        return content;
-    }
-
-    private double[] rgbToCmyk(double r, double g, double b) {
-        double k = 1.0 - Math.max(r, Math.max(g, b));
-        if (almostOne(k)) {
-            return new double[]{0.0, 0.0, 0.0, 1.0};
-        }
-        double denominator = 1.0 - k;
-        double c = (1.0 - r - k) / denominator;
-        double m = (1.0 - g - k) / denominator;
-        double y = (1.0 - b - k) / denominator;
-        return new double[]{clamp(c), clamp(m), clamp(y), clamp(k)};
-    }
-
-    private String formatCmyk(double[] cmyk, boolean stroke) {
-        return String.format(Locale.US, "%.6f %.6f %.6f %.6f %s",
-                cmyk[0], cmyk[1], cmyk[2], cmyk[3], stroke ? "K" : "k");
-    }
-
-    private double clamp(double value) {
-        if (value < 0.0) {
-            return 0.0;
-        }
-        if (value > 1.0) {
-            return 1.0;
+        PdfDictionary patterns = resources.getAsDictionary(PdfName.Pattern);
+        if (patterns != null) {
+            for (PdfName name : patterns.keySet()) {
+                collectStreams(patterns.getAsStream(name), visited, contentStreams, images);
+            }
         }
-        return value;
     }
 
-    private boolean almostOne(double value) {
-        return value >= 0.999999d;
-    }
-
-    private Dimension determineCanvasSize(Element root) {
+    static Dimension determineCanvasSize(Element root) {
         if (root == null) {
             return null;
         }
@@ -471,7 +513,7 @@ public class SvgRenderer {
         return null;
     }
 
-    private int parseSvgLength(String value) {
+    private static int parseSvgLength(String value) {
         if (value == null || value.isBlank()) {
             return -1;
         }
@@ -487,7 +529,7 @@ public class SvgRenderer {
         }
     }
 
-    private double parseSvgDouble(String value) {
+    private static double parseSvgDouble(String value) {
         if (value == null || value.isBlank()) {
             return -1d;
         }
@@ -521,39 +563,22 @@ public class SvgRenderer {
         }
     }
 
-    public record SvgRenderResult(PdfPage page, float widthPt, float heightPt) {
-    }
-
-    public record BufferedImageTranscoderResult(java.awt.image.BufferedImage image, float widthPx, float heightPx) {
+    /**
+     * SVG, подготовленный к конвертации.
+     *
+     * @param originalBytes     исходный документ, нужен для повторной попытки без шрифтов
+     * @param fontFamilies      основные гарнитуры из font-family; пусто в режиме контуров
+     * @param bytes             документ для рендеринга; в режиме контуров — без шрифтов, а текст
+     *                          переводится в кривые только при промахе кэша XObject
+     * @param graphics2DOutline кривые рисуются из GVT напрямую в PDF, а не через промежуточный SVG
+     */
+    public record PreparedSvg(byte[] originalBytes,
+                              byte[] bytes,
+                              Set<String> fontFamilies,
+                              boolean outlineText,
+                              boolean graphics2DOutline) {
     }
 
-    private static class BufferedImageTranscoder extends org.apache.batik.transcoder.image.ImageTranscoder {
-        private java.awt.image.BufferedImage bufferedImage;
-        private float width;
-        private float height;
-
-        @Override
-        public java.awt.image.BufferedImage createImage(int w, int h) {
-            this.width = w;
-            this.height = h;
-            return new java.awt.image.BufferedImage(w, h, java.awt.image.BufferedImage.TYPE_INT_ARGB);
-        }
-
-        @Override
-        public void writeImage(java.awt.image.BufferedImage img, TranscoderOutput output) {
-            this.bufferedImage = img;
-        }
-
-        public java.awt.image.BufferedImage getBufferedImage() {
-            return bufferedImage;
-        }
-
-        public float getWidth() {
-            return width;
-        }
-
-        public float getHeight() {
-            return height;
-        }
+    public record SvgRenderResult(PdfPage page, float widthPt, float heightPt) {
     }
 }
@@ -0,0 +1,263 @@
+package com.figma.export.svg;
+
+import com.figma.export.cache.CacheStats;
+import com.figma.export.cache.WeightedLruCache;
+import com.figma.export.color.ColorProfile;
+import com.itextpdf.kernel.pdf.PdfArray;
+import com.itextpdf.kernel.pdf.PdfDictionary;
+import com.itextpdf.kernel.pdf.PdfDocument;
+import com.itextpdf.kernel.pdf.PdfIndirectReference;
+import com.itextpdf.kernel.pdf.PdfName;
+import com.itextpdf.kernel.pdf.PdfObject;
+import com.itextpdf.kernel.pdf.PdfPage;
+import com.itextpdf.kernel.pdf.PdfReader;
+import com.itextpdf.kernel.pdf.PdfStream;
+import com.itextpdf.kernel.pdf.PdfWriter;
+import com.itextpdf.kernel.pdf.canvas.PdfCanvas;
+import com.itextpdf.kernel.pdf.xobject.PdfFormXObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.lang.ref.WeakReference;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.function.Function;
+
+/**
+ * Кэш сконвертированных SVG в виде form XObject. Размер страницы задаётся только матрицей при
+ * размещении, поэтому один и тот же XObject подходит для любого {@code widthPx}/{@code heightPx}.
+ * XObject хранится сериализованным в одностраничный PDF-шаблон и копируется в целевой документ.
+ * <p>
+ * PdfFont дописывается в документ только при его закрытии, поэтому SVG с живым текстом рисуется
+ * сразу в шаблон через {@link #render}: после закрытия шаблона словари шрифтов в нём полные и
+ * копируются вместе с XObject, как при {@code PdfPage#copyAsFormXObject}. Файлы шрифтов при
+ * копировании сравниваются по содержимому, и одинаковые встраиваются в целевой документ один раз.
+ */
+final class SvgXObjectCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(SvgXObjectCache.class);
+
+    private static final PdfName[] FONT_FILE_KEYS = {PdfName.FontFile, PdfName.FontFile2, PdfName.FontFile3};
+
+    private final WeightedLruCache<String, Template> templates;
+    /**
+     * Уже встроенные файлы шрифтов по SHA-256 содержимого, для каждого целевого документа. Ссылки
+     * слабые: документ держит свои объекты сам, а запись исчезает вместе с документом.
+     */
+    private final Map<PdfDocument, Map<String, WeakReference<PdfIndirectReference>>> embeddedFontFiles =
+            Collections.synchronizedMap(new WeakHashMap<>());
+
+    SvgXObjectCache(long maxBytes) {
+        this.templates = new WeightedLruCache<>("svg-xobjects", maxBytes, template -> template.bytes().length);
+    }
+
+    /**
+     * Ключ записи: содержимое SVG, режим отрисовки и профиль. Профиль обязателен — весь CMYK-конвейер
+     * SVG работает только с конкретным ICC-профилем.
+     */
+    static String key(byte[] svgBytes, String renderMode, ColorProfile colorProfile) {
+        Objects.requireNonNull(colorProfile, "colorProfile");
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(svgBytes);
+            digest.update(renderMode.getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            digest.update(colorProfile.getId().getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException("SHA-256 недоступен", ex);
+        }
+    }
+
+    /**
+     * Копирует закэшированный XObject в {@code document}; {@code null}, если записи нет.
+     */
+    PdfFormXObject get(String key, PdfDocument document) {
+        Template template = templates.get(key);
+        if (template == null) {
+            return null;
+        }
+        return copy(template, document);
+    }
+
+    /**
+     * Рисует XObject через {@code renderer} в отдельный одностраничный документ-шаблон, закрывает его,
+     * сохраняет под {@code key} и возвращает копию в {@code document}. Для XObject со шрифтами.
+     */
+    PdfFormXObject render(String key, PdfDocument document, Function<PdfDocument, PdfFormXObject> renderer) {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        PdfName name;
+        try (PdfDocument target = new PdfDocument(new PdfWriter(output))) {
+            PdfFormXObject xObject = renderer.apply(target);
+            name = place(target, xObject);
+        }
+        Template template = new Template(output.toByteArray(), name);
+        templates.putIfAbsent(key, template);
+        PdfFormXObject copy = copy(template, document);
+        if (copy == null) {
+            throw new IllegalStateException("SVG XObject не удалось скопировать из шаблона");
+        }
+        return copy;
+    }
+
+    private PdfFormXObject copy(Template template, PdfDocument document) {
+        try (PdfDocument source = new PdfDocument(new PdfReader(new ByteArrayInputStream(template.bytes())))) {
+            PdfDictionary xObjects = source.getPage(1).getResources().getResource(PdfName.XObject);
+            PdfStream stream = xObjects != null ? xObjects.getAsStream(template.name()) : null;
+            if (stream == null) {
+                return null;
+            }
+            PdfStream copy = (PdfStream) stream.copyTo(document);
+            shareFontFiles(copy, document, Collections.newSetFromMap(new IdentityHashMap<>()));
+            return new PdfFormXObject(copy);
+        } catch (IOException | RuntimeException ex) {
+            logger.warn("Не удалось восстановить SVG из кэша XObject: {}", ex.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Сохраняет уже нарисованный XObject, если он не ссылается на шрифты: их словари в документе ещё
+     * не дописаны. XObject со шрифтами кэшируются через {@link #render}.
+     */
+    void put(String key, PdfFormXObject xObject) {
+        if (usesFonts(xObject.getPdfObject(), Collections.newSetFromMap(new IdentityHashMap<>()))) {
+            return;
+        }
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        PdfName name;
+        try (PdfDocument target = new PdfDocument(new PdfWriter(output))) {
+            name = place(target, new PdfFormXObject((PdfStream) xObject.getPdfObject().copyTo(target)));
+        } catch (RuntimeException ex) {
+            logger.debug("SVG XObject не помещён в кэш: {}", ex.getMessage());
+            return;
+        }
+        templates.putIfAbsent(key, new Template(output.toByteArray(), name));
+    }
+
+    CacheStats stats() {
+        return templates.stats();
+    }
+
+    private static PdfName place(PdfDocument template, PdfFormXObject xObject) {
+        PdfPage page = template.addNewPage();
+        PdfName name = page.getResources().addForm(xObject);
+        new PdfCanvas(page).addXObjectWithTransformationMatrix(xObject, 1, 0, 0, 1, 0, 0).release();
+        return name;
+    }
+
+    /**
+     * Заменяет файлы шрифтов скопированного XObject уже встроенными в {@code document} копиями с тем
+     * же содержимым; лишняя копия освобождается и не пишется в файл.
+     */
+    private void shareFontFiles(PdfStream stream, PdfDocument document, Set<PdfObject> visited) {
+        if (stream == null || !visited.add(stream)) {
+            return;
+        }
+        PdfDictionary resources = stream.getAsDictionary(PdfName.Resources);
+        if (resources == null) {
+            return;
+        }
+        PdfDictionary fonts = resources.getAsDictionary(PdfName.Font);
+        if (fonts != null) {
+            for (PdfName fontName : fonts.keySet()) {
+                PdfDictionary font = fonts.getAsDictionary(fontName);
+                if (font == null || !visited.add(font)) {
+                    continue;
+                }
+                shareFontFile(font.getAsDictionary(PdfName.FontDescriptor), document);
+                PdfArray descendants = font.getAsArray(PdfName.DescendantFonts);
+                if (descendants != null) {
+                    for (int i = 0; i < descendants.size(); i++) {
+                        PdfDictionary descendant = descendants.getAsDictionary(i);
+                        if (descendant != null) {
+                            shareFontFile(descendant.getAsDictionary(PdfName.FontDescriptor), document);
+                        }
+                    }
+                }
+            }
+        }
+        for (PdfName category : new PdfName[]{PdfName.XObject, PdfName.Pattern}) {
+            PdfDictionary entries = resources.getAsDictionary(category);
+            if (entries == null) {
+                continue;
+            }
+            for (PdfName entryName : entries.keySet()) {
+                shareFontFiles(entries.getAsStream(entryName), document, visited);
+            }
+        }
+    }
+
+    private void shareFontFile(PdfDictionary descriptor, PdfDocument document) {
+        if (descriptor == null) {
+            return;
+        }
+        for (PdfName fileKey : FONT_FILE_KEYS) {
+            PdfStream fontFile = descriptor.getAsStream(fileKey);
+            if (fontFile == null || fontFile.getIndirectReference() == null) {
+                continue;
+            }
+            String hash = sha256(fontFile.getBytes(false));
+            Map<String, WeakReference<PdfIndirectReference>> files =
+                    embeddedFontFiles.computeIfAbsent(document, ignored -> new HashMap<>());
+            WeakReference<PdfIndirectReference> existing = files.get(hash);
+            PdfIndirectReference reference = existing != null ? existing.get() : null;
+            if (reference != null && !reference.isFree()) {
+                PdfIndirectReference duplicate = fontFile.getIndirectReference();
+                descriptor.put(fileKey, reference);
+                duplicate.setFree();
+            } else {
+                files.put(hash, new WeakReference<>(fontFile.getIndirectReference()));
+            }
+        }
+    }
+
+    private static String sha256(byte[] bytes) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(bytes));
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException("SHA-256 недоступен", ex);
+        }
+    }
+
+    private static boolean usesFonts(PdfStream stream, Set<PdfObject> visited) {
+        if (stream == null || !visited.add(stream)) {
+            return false;
+        }
+        PdfDictionary resources = stream.getAsDictionary(PdfName.Resources);
+        if (resources == null) {
+            return false;
+        }
+        PdfDictionary fonts = resources.getAsDictionary(PdfName.Font);
+        if (fonts != null && !fonts.isEmpty()) {
+            return true;
+        }
+        for (PdfName category : new PdfName[]{PdfName.XObject, PdfName.Pattern}) {
+            PdfDictionary entries = resources.getAsDictionary(category);
+            if (entries == null) {
+                continue;
+            }
+            for (PdfName entryName : entries.keySet()) {
+                if (usesFonts(entries.getAsStream(entryName), visited)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private record Template(byte[] bytes, PdfName name) {
+    }
+}
@@ -0,0 +1,89 @@
+package com.figma.export.svg;
+
+import com.figma.export.pdf.itext.FontCatalog;
+import com.itextpdf.kernel.font.PdfFont;
+import com.itextpdf.layout.font.FontInfo;
+import com.itextpdf.layout.font.FontProvider;
+import com.itextpdf.layout.font.FontSet;
+
+import java.nio.charset.UnsupportedCharsetException;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Гарнитуры, на которых iText падает с {@link UnsupportedCharsetException}. Реестр общий для всех
+ * запросов: такие гарнитуры убираются из SVG ещё при подготовке, и обречённая первая попытка
+ * конвертации не повторяется. Имена сравниваются по {@link FontCatalog#normalizeFamily}.
+ */
+final class UnsupportedFontFamilies {
+
+    private final Set<String> families = ConcurrentHashMap.newKeySet();
+
+    boolean contains(String family) {
+        return family != null && families.contains(FontCatalog.normalizeFamily(family));
+    }
+
+    /**
+     * Оборачивает FontProvider документа так, что гарнитура, чей PdfFont не удалось создать из-за
+     * кодировки, попадает в реестр в момент сбоя. Набор шрифтов и кэш PdfFont остаются у {@code fontProvider}.
+     */
+    RecordingFontProvider recording(FontProvider fontProvider) {
+        return new RecordingFontProvider(fontProvider);
+    }
+
+    private void add(String family) {
+        families.add(FontCatalog.normalizeFamily(family));
+    }
+
+    final class RecordingFontProvider extends FontProvider {
+
+        private final FontProvider delegate;
+        private final Set<String> recorded = new LinkedHashSet<>();
+
+        private RecordingFontProvider(FontProvider delegate) {
+            super(delegate.getFontSet(), delegate.getDefaultFontFamily());
+            this.delegate = delegate;
+        }
+
+        /**
+         * Гарнитуры, записанные через этот провайдер (в написании документа).
+         */
+        Set<String> recorded() {
+            return recorded;
+        }
+
+        @Override
+        public PdfFont getPdfFont(FontInfo fontInfo) {
+            try {
+                return delegate.getPdfFont(fontInfo);
+            } catch (UnsupportedCharsetException ex) {
+                record(fontInfo);
+                throw ex;
+            }
+        }
+
+        @Override
+        public PdfFont getPdfFont(FontInfo fontInfo, FontSet additionalFonts) {
+            try {
+                return delegate.getPdfFont(fontInfo, additionalFonts);
+            } catch (UnsupportedCharsetException ex) {
+                record(fontInfo);
+                throw ex;
+            }
+        }
+
+        /**
+         * Алиас — имя, под которым гарнитура запрошена документом; у стандартных шрифтов его нет.
+         */
+        private void record(FontInfo fontInfo) {
+            String family = fontInfo.getAlias() != null
+                    ? fontInfo.getAlias()
+                    : fontInfo.getDescriptor().getFamilyNameLowerCase();
+            if (family != null && !family.isBlank()) {
+                recorded.add(family);
+                add(family);
+            }
+        }
+    }
+}
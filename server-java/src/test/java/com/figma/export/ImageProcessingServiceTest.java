@@ -7,7 +7,13 @@ import org.junit.jupiter.api.Test;
 
 import java.awt.*;
 import java.awt.image.BufferedImage;
+import java.awt.image.ColorConvertOp;
+import java.awt.image.DataBuffer;
+import java.awt.image.DataBufferByte;
+import java.awt.image.Raster;
 import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -37,4 +43,168 @@ class ImageProcessingServiceTest {
         assertEquals(source.getHeight(), cmyk.getHeight());
         assertEquals(4, cmyk.getColorModel().getNumComponents());
     }
+
+    @Test
+    void flattenToCmyk_matchesReferenceChain() {
+        // Нечётная ширина и высота больше одной полосы: проверяются и границы полос, и хвост.
+        BufferedImage source = new BufferedImage(97, 300, BufferedImage.TYPE_INT_ARGB);
+        for (int y = 0; y < source.getHeight(); y++) {
+            for (int x = 0; x < source.getWidth(); x++) {
+                int alpha = (x * 255 / (source.getWidth() - 1)) & 0xFF;
+                int rgb = ((x * 7) & 0xFF) << 16 | ((y * 3) & 0xFF) << 8 | ((x + y) & 0xFF);
+                source.setRGB(x, y, alpha << 24 | rgb);
+            }
+        }
+
+        // Эталон собран без кода сервиса: белый фон и drawImage средствами Java2D, затем один
+        // ColorConvertOp на всё изображение в цветовое пространство профиля по умолчанию.
+        BufferedImage flattened = new BufferedImage(source.getWidth(), source.getHeight(), BufferedImage.TYPE_INT_RGB);
+        Graphics2D g2 = flattened.createGraphics();
+        try {
+            g2.setColor(Color.WHITE);
+            g2.fillRect(0, 0, flattened.getWidth(), flattened.getHeight());
+            g2.drawImage(source, 0, 0, null);
+        } finally {
+            g2.dispose();
+        }
+        ColorProfileManager profiles = new ColorProfileManager();
+        BufferedImage reference = new BufferedImage(service.cmykColorModel(profiles.getDefaultProfile()),
+                Raster.createInterleavedRaster(DataBuffer.TYPE_BYTE, source.getWidth(), source.getHeight(), 4, null),
+                false, null);
+        new ColorConvertOp(flattened.getColorModel().getColorSpace(), reference.getColorModel().getColorSpace(), null)
+                .filter(flattened, reference);
+        BufferedImage fused = service.flattenToCmyk(source, Color.WHITE, null);
+
+        assertEquals(reference.getWidth(), fused.getWidth());
+        assertEquals(reference.getHeight(), fused.getHeight());
+        assertEquals(4, fused.getColorModel().getNumComponents());
+        byte[] expected = cmykBytes(reference);
+        byte[] actual = cmykBytes(fused);
+        assertEquals(expected.length, actual.length);
+        int maxDifference = 0;
+        for (int i = 0; i < expected.length; i++) {
+            maxDifference = Math.max(maxDifference, Math.abs((expected[i] & 0xFF) - (actual[i] & 0xFF)));
+        }
+        // Java2D округляет смешивание по слагаемым, ядро — один раз: допускаем расхождение в пару уровней.
+        assertTrue(maxDifference <= 2, "max CMYK difference " + maxDifference);
+    }
+
+    @Test
+    void parallelBands_matchSingleThreadedOutput() {
+        // Эталон — один ColorConvertOp на всё изображение; высота не делится на число полос.
+        BufferedImage source = new BufferedImage(613, 517, BufferedImage.TYPE_INT_ARGB);
+        Random random = new Random(7);
+        for (int y = 0; y < source.getHeight(); y++) {
+            for (int x = 0; x < source.getWidth(); x++) {
+                source.setRGB(x, y, random.nextInt());
+            }
+        }
+
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            ImageProcessingService parallel = new ImageProcessingService(new ColorProfileManager(), pool, 0, false, 0);
+            BufferedImage opaque = service.flattenTransparency(source, Color.WHITE);
+            BufferedImage reference = new BufferedImage(service.convertToCmyk(new BufferedImage(1, 1,
+                    BufferedImage.TYPE_INT_RGB)).getColorModel(), Raster.createInterleavedRaster(DataBuffer.TYPE_BYTE,
+                    opaque.getWidth(), opaque.getHeight(), 4, null), false, null);
+            new ColorConvertOp(opaque.getColorModel().getColorSpace(), reference.getColorModel().getColorSpace(), null)
+                    .filter(opaque, reference);
+            assertArrayEquals(cmykBytes(reference), cmykBytes(service.convertToCmyk(opaque)));
+            assertArrayEquals(cmykBytes(reference), cmykBytes(parallel.convertToCmyk(opaque)));
+            assertArrayEquals(cmykBytes(service.flattenToCmyk(source, Color.WHITE, null)),
+                    cmykBytes(parallel.flattenToCmyk(source, Color.WHITE, null)));
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void exactColorPalette_matchesIccStream() {
+        // Плоские полупрозрачные заливки: около сотни цветов, новые появляются в разных полосах.
+        BufferedImage source = new BufferedImage(701, 900, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g2 = source.createGraphics();
+        try {
+            Random random = new Random(11);
+            for (int i = 0; i < 40; i++) {
+                g2.setColor(new Color(random.nextInt(), true));
+                g2.fillOval(random.nextInt(600), random.nextInt(800), 20 + random.nextInt(200), 20 + random.nextInt(200));
+            }
+        } finally {
+            g2.dispose();
+        }
+
+        ImageProcessingService withoutPalette = new ImageProcessingService(new ColorProfileManager(), null, 1, false, 0);
+        assertArrayEquals(cmykBytes(withoutPalette.flattenToCmyk(source, Color.WHITE, null)),
+                cmykBytes(service.flattenToCmyk(source, Color.WHITE, null)));
+
+        // Палитра на 16 цветов переполняется посреди изображения и уступает потоковому пути.
+        ImageProcessingService tinyPalette = new ImageProcessingService(new ColorProfileManager(), null, 1, false, 16);
+        assertArrayEquals(cmykBytes(withoutPalette.flattenToCmyk(source, Color.WHITE, null)),
+                cmykBytes(tinyPalette.flattenToCmyk(source, Color.WHITE, null)));
+    }
+
+    @Test
+    void paletteOrLutIsChosenOncePerImage() {
+        // Верх плоский, низ — шум: полосы по отдельности выбрали бы разные пути.
+        BufferedImage mixed = new BufferedImage(600, 600, BufferedImage.TYPE_INT_RGB);
+        BufferedImage flat = new BufferedImage(600, 600, BufferedImage.TYPE_INT_RGB);
+        Random random = new Random(5);
+        for (int y = 0; y < 600; y++) {
+            for (int x = 0; x < 600; x++) {
+                int color = ((x / 60) * 0x151A1F + (y / 150) * 0x302010) & 0xFFFFFF;
+                flat.setRGB(x, y, color);
+                mixed.setRGB(x, y, y < 450 ? color : random.nextInt());
+            }
+        }
+
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            ImageProcessingService parallel = new ImageProcessingService(new ColorProfileManager(), pool, 4, true, 4096);
+            ImageProcessingService lutOnly = new ImageProcessingService(new ColorProfileManager(), null, 1, true, 0);
+            ImageProcessingService iccOnly = new ImageProcessingService(new ColorProfileManager(), null, 1, false, 0);
+
+            assertArrayEquals(cmykBytes(lutOnly.convertToCmyk(mixed)), cmykBytes(parallel.convertToCmyk(mixed)));
+            assertArrayEquals(cmykBytes(iccOnly.convertToCmyk(flat)), cmykBytes(parallel.convertToCmyk(flat)));
+            assertArrayEquals(cmykBytes(iccOnly.convertToCmyk(mixed)), cmykBytes(parallel.convertToCmykExact(mixed, null)));
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void stripConverter_switchesToIccAfterPaletteWasUsed() {
+        int width = 64;
+        int rows = 16;
+        int[] flatThenNoise = new int[width * 128];
+        int[] noise = new int[width * 128];
+        Random random = new Random(3);
+        for (int i = 0; i < flatThenNoise.length; i++) {
+            noise[i] = random.nextInt() & 0xFFFFFF;
+            flatThenNoise[i] = i < width * 64 ? (i / width / 16) * 0x203040 : noise[i];
+        }
+
+        ImageProcessingService lutWithPalette = new ImageProcessingService(new ColorProfileManager(), null, 1, true, 512);
+        ImageProcessingService lutOnly = new ImageProcessingService(new ColorProfileManager(), null, 1, true, 0);
+        ImageProcessingService iccOnly = new ImageProcessingService(new ColorProfileManager(), null, 1, false, 0);
+
+        // Палитра уже отдала плоский верх точно: шумный низ дописывается ICC, а не LUT.
+        assertArrayEquals(convertStrips(iccOnly, flatThenNoise, width, rows),
+                convertStrips(lutWithPalette, flatThenNoise, width, rows));
+        // Переполнение на первой полосе: изображение целиком идёт через LUT.
+        assertArrayEquals(convertStrips(lutOnly, noise, width, rows), convertStrips(lutWithPalette, noise, width, rows));
+    }
+
+    private static byte[] convertStrips(ImageProcessingService service, int[] rgb, int width, int rows) {
+        ImageProcessingService.CmykStripConverter converter =
+                service.createCmykStripConverter(width, rows, Color.WHITE, null);
+        byte[] cmyk = new byte[rgb.length * 4];
+        for (int offset = 0; offset < rgb.length; offset += width * rows) {
+            converter.convert(rgb, offset, rows, false, cmyk, offset * 4);
+        }
+        return cmyk;
+    }
+
+    private static byte[] cmykBytes(BufferedImage image) {
+        return ((DataBufferByte) image.getRaster().getDataBuffer()).getData();
+    }
 }
@@ -0,0 +1,54 @@
+package com.figma.export.cache;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WeightedLruCacheTest {
+
+    @Test
+    void evictsLeastRecentlyUsedUntilWeightFits() {
+        WeightedLruCache<String, String> cache = new WeightedLruCache<>("test", 10, String::length);
+        cache.putIfAbsent("a", "aaaa");
+        cache.putIfAbsent("b", "bbbb");
+        assertEquals("aaaa", cache.get("a"));
+
+        cache.putIfAbsent("c", "ccc");
+        assertNull(cache.get("b"));
+        assertEquals("aaaa", cache.get("a"));
+        assertEquals("ccc", cache.get("c"));
+        CacheStats stats = cache.stats();
+        assertEquals(2, stats.entries());
+        assertEquals(7, stats.weight());
+        assertEquals(1, stats.evictions());
+
+        cache.putIfAbsent("d", "dddddddd");
+        assertEquals(1, cache.stats().entries());
+        assertEquals(8, cache.stats().weight());
+        assertEquals(3, cache.stats().evictions());
+    }
+
+    @Test
+    void valuesHeavierThanLimitAreReturnedButNotCached() {
+        WeightedLruCache<String, String> cache = new WeightedLruCache<>("test", 3, String::length);
+        cache.putIfAbsent("a", "aa");
+        assertEquals("long", cache.putIfAbsent("big", "long"));
+        assertNull(cache.get("big"));
+        assertEquals("aa", cache.get("a"));
+        assertEquals(0, cache.stats().evictions());
+    }
+
+    @Test
+    void computeIfAbsentKeepsFirstValueAndSkipsNulls() {
+        WeightedLruCache<String, String> cache = new WeightedLruCache<>("test", 100, String::length);
+        assertNull(cache.computeIfAbsent("missing", key -> null));
+        assertEquals(0, cache.stats().entries());
+        assertEquals("first", cache.computeIfAbsent("k", key -> "first"));
+        assertEquals("first", cache.computeIfAbsent("k", key -> {
+            throw new AssertionError("значение уже в кэше");
+        }));
+        assertEquals("first", cache.putIfAbsent("k", "second"));
+        assertEquals(1, cache.stats().hits());
+        assertEquals(2, cache.stats().misses());
+    }
+}
@@ -0,0 +1,166 @@
+package com.figma.export.color;
+
+import com.figma.export.cache.CacheStats;
+import org.junit.jupiter.api.Test;
+
+import java.util.Locale;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CmykColorConverterTest {
+
+    /**
+     * Полшага 8-битного входа, пересчитанные в CMYK: на профиле по умолчанию около 0.012 (3 уровня из 255).
+     */
+    private static final double MAX_QUANTIZATION_ERROR = 0.015d;
+
+    private final ColorProfileManager manager = new ColorProfileManager();
+
+    @Test
+    void memoizedColorsMatchIccEngine() {
+        CmykColorConverter converter = new CmykColorConverter(65536);
+        Random random = new Random(14);
+        int[] colors = new int[200];
+        for (int i = 0; i < colors.length; i++) {
+            colors[i] = random.nextInt(0x1000000);
+        }
+        colors[0] = 0xFF0000;
+        colors[1] = 0x808080;
+        colors[2] = 0xFFFFFE;
+
+        for (ColorProfile profile : manager.getAvailableProfiles()) {
+            for (int rgb : colors) {
+                if (isOverridden(rgb)) {
+                    continue;
+                }
+                float[] expected = iccCmyk(profile, rgb);
+                assertArrayEquals(expected, converter.toCmyk(profile, rgb), profile.getId() + " #" + Integer.toHexString(rgb));
+                // Второй раз значение берётся из кэша и должно совпадать с первым.
+                assertArrayEquals(expected, converter.toCmyk(profile, rgb), profile.getId() + " #" + Integer.toHexString(rgb));
+            }
+        }
+        assertTrue(converter.getCacheStats().hits() >= converter.getCacheStats().misses());
+    }
+
+    @Test
+    void componentOverloadQuantizesToTheSameMemoizedColor() {
+        CmykColorConverter converter = new CmykColorConverter(65536);
+        ColorProfile profile = manager.getDefaultProfile();
+        double[] cmyk = new double[4];
+        converter.toCmyk(profile, 0.2, 0.5004, 1.3, cmyk);
+        float[] expected = iccCmyk(profile, 0x3380FF);
+        for (int i = 0; i < 4; i++) {
+            assertEquals(expected[i], cmyk[i], 0d);
+        }
+    }
+
+    @Test
+    void eightBitColorsSurviveQuantizationAndOthersShiftByHalfAStep() {
+        CmykColorConverter converter = new CmykColorConverter(65536);
+        ColorProfile profile = manager.getDefaultProfile();
+        double[] cmyk = new double[4];
+        // Уровни n/255 в том виде, в каком iText пишет их в контент, попадают в тот же 8-битный цвет.
+        for (int level = 0; level < 256; level++) {
+            double written = Float.parseFloat(String.format(Locale.ROOT, "%.5f", level / 255f));
+            int rgb = level << 16 | (255 - level) << 8 | (level * 7 & 0xFF);
+            converter.toCmyk(profile, written, (255 - level) / 255d, (level * 7 & 0xFF) / 255d, cmyk);
+            float[] expected = converter.toCmyk(profile, rgb);
+            for (int i = 0; i < 4; i++) {
+                assertEquals(expected[i], cmyk[i], 0d, "уровень " + level);
+            }
+        }
+
+        // Произвольные компоненты сдвигаются не больше чем на полшага до перевода.
+        Random random = new Random(21);
+        double maxError = 0d;
+        for (int sample = 0; sample < 2000; sample++) {
+            float r = random.nextFloat();
+            float g = random.nextFloat();
+            float b = random.nextFloat();
+            converter.toCmyk(profile, r, g, b, cmyk);
+            float[] exact = clamp(profile.getColorSpace().fromRGB(new float[]{r, g, b}));
+            for (int i = 0; i < 4; i++) {
+                maxError = Math.max(maxError, Math.abs(exact[i] - cmyk[i]));
+            }
+        }
+        assertTrue(maxError <= MAX_QUANTIZATION_ERROR, "max CMYK error " + maxError);
+    }
+
+    @Test
+    void cacheIsCappedAndReportsBytes() {
+        CmykColorConverter converter = new CmykColorConverter(4);
+        ColorProfile profile = manager.getDefaultProfile();
+        for (int rgb = 0x102030; rgb < 0x102036; rgb++) {
+            converter.toCmyk(profile, rgb);
+        }
+        // Последний цвет ещё в кэше, первый вытеснен.
+        converter.toCmyk(profile, 0x102035);
+        converter.toCmyk(profile, 0x102030);
+
+        CacheStats stats = converter.getCacheStats();
+        assertEquals(4, stats.entries());
+        assertEquals(4L * CmykColorConverter.ENTRY_BYTES, stats.weight());
+        assertEquals(4L * CmykColorConverter.ENTRY_BYTES, stats.maxWeight());
+        assertEquals(3, stats.evictions());
+        assertEquals(1, stats.hits());
+        assertEquals(7, stats.misses());
+    }
+
+    @Test
+    void whiteIsPaper() {
+        CmykColorConverter converter = new CmykColorConverter(65536);
+        for (ColorProfile profile : manager.getAvailableProfiles()) {
+            assertArrayEquals(new float[]{0f, 0f, 0f, 0f}, converter.toCmyk(profile, 0xFFFFFF), profile.getId());
+        }
+    }
+
+    @Test
+    void nearBlackNeutralsUseOnlyBlackInk() {
+        CmykColorConverter converter = new CmykColorConverter(65536);
+        for (ColorProfile profile : manager.getAvailableProfiles()) {
+            assertArrayEquals(new float[]{0f, 0f, 0f, 1f}, converter.toCmyk(profile, 0x000000), profile.getId());
+            assertArrayEquals(new float[]{0f, 0f, 0f, 1f}, converter.toCmyk(profile, 0x050505), profile.getId());
+            // Порог — 2% яркости: 6/255 уже выше, а не нейтральный цвет не трогается.
+            assertArrayEquals(iccCmyk(profile, 0x060606), converter.toCmyk(profile, 0x060606), profile.getId());
+            assertArrayEquals(iccCmyk(profile, 0x050504), converter.toCmyk(profile, 0x050504), profile.getId());
+        }
+    }
+
+    @Test
+    void returnedArraysDoNotAliasTheCache() {
+        CmykColorConverter converter = new CmykColorConverter(65536);
+        ColorProfile profile = manager.getDefaultProfile();
+        float[] first = converter.toCmyk(profile, 0x123456);
+        float[] expected = first.clone();
+        first[0] = 42f;
+        assertArrayEquals(expected, converter.toCmyk(profile, 0x123456));
+    }
+
+    @Test
+    void fullCacheStillConverts() {
+        CmykColorConverter converter = new CmykColorConverter(0);
+        ColorProfile profile = manager.getDefaultProfile();
+        assertArrayEquals(iccCmyk(profile, 0x336699), converter.toCmyk(profile, 0x336699));
+        assertArrayEquals(iccCmyk(profile, 0x336699), converter.toCmyk(profile, 0x336699));
+        assertEquals(0, converter.getCacheStats().entries());
+    }
+
+    private static boolean isOverridden(int rgb) {
+        int red = (rgb >> 16) & 0xFF;
+        return rgb == 0xFFFFFF || (red == ((rgb >> 8) & 0xFF) && red == (rgb & 0xFF) && red <= 5);
+    }
+
+    private static float[] iccCmyk(ColorProfile profile, int rgb) {
+        float[] cmyk = profile.getColorSpace().fromRGB(new float[]{
+                ((rgb >> 16) & 0xFF) / 255f, ((rgb >> 8) & 0xFF) / 255f, (rgb & 0xFF) / 255f});
+        return clamp(cmyk);
+    }
+
+    private static float[] clamp(float[] cmyk) {
+        for (int i = 0; i < cmyk.length; i++) {
+            cmyk[i] = Math.min(1f, Math.max(0f, cmyk[i]));
+        }
+        return cmyk;
+    }
+}
@@ -0,0 +1,113 @@
+package com.figma.export.color;
+
+import org.junit.jupiter.api.Test;
+
+import java.awt.Transparency;
+import java.awt.image.BufferedImage;
+import java.awt.image.ColorConvertOp;
+import java.awt.image.ComponentColorModel;
+import java.awt.image.DataBuffer;
+import java.awt.image.DataBufferByte;
+import java.awt.image.DataBufferInt;
+import java.awt.image.Raster;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CmykLutTest {
+
+    /**
+     * Шаг 3 не совпадает с шагом сетки (255/64), так что большинство цветов лежит между узлами.
+     * Эталон сам считается с 8-битной точностью, так что часть расхождения — его округление.
+     */
+    @Test
+    void lutMatchesIccEngine() {
+        int[] levels = new int[87];
+        for (int i = 0; i < 86; i++) {
+            levels[i] = i * 3;
+        }
+        levels[86] = 255;
+        int[] pixels = new int[levels.length * levels.length * levels.length];
+        int index = 0;
+        for (int r : levels) {
+            for (int g : levels) {
+                for (int b : levels) {
+                    pixels[index++] = r << 16 | g << 8 | b;
+                }
+            }
+        }
+        assertLutError(pixels, 6, 0.2);
+    }
+
+    /**
+     * Серые и цвета в пределах ±2 уровней от них: на нейтралях ошибка заметнее всего.
+     */
+    @Test
+    void lutKeepsNearNeutralGreys() {
+        int[] pixels = new int[256 * 27];
+        int index = 0;
+        for (int value = 0; value < 256; value++) {
+            for (int dr = -2; dr <= 2; dr += 2) {
+                for (int dg = -2; dg <= 2; dg += 2) {
+                    for (int db = -2; db <= 2; db += 2) {
+                        pixels[index++] = clamp(value + dr) << 16 | clamp(value + dg) << 8 | clamp(value + db);
+                    }
+                }
+            }
+        }
+        assertLutError(pixels, 2, 0.25);
+    }
+
+    private static void assertLutError(int[] pixels, int maxAllowed, double meanAllowed) {
+        ColorProfileManager manager = new ColorProfileManager();
+        int count = pixels.length;
+        BufferedImage rgb = new BufferedImage(count, 1, BufferedImage.TYPE_INT_RGB);
+        System.arraycopy(pixels, 0, ((DataBufferInt) rgb.getRaster().getDataBuffer()).getData(), 0, count);
+
+        for (ColorProfile profile : manager.getAvailableProfiles()) {
+            ComponentColorModel cmykModel = new ComponentColorModel(profile.getColorSpace(), false, false,
+                    Transparency.OPAQUE, DataBuffer.TYPE_BYTE);
+            BufferedImage reference = new BufferedImage(cmykModel,
+                    Raster.createInterleavedRaster(DataBuffer.TYPE_BYTE, count, 1, 4, null), false, null);
+            new ColorConvertOp(rgb.getColorModel().getColorSpace(), profile.getColorSpace(), null)
+                    .filter(rgb, reference);
+            byte[] expected = ((DataBufferByte) reference.getRaster().getDataBuffer()).getData();
+            byte[] actual = new byte[count * 4];
+            manager.getCmykLut(profile).convert(pixels, 0, count, actual, 0);
+
+            long totalDifference = 0;
+            int maxDifference = 0;
+            for (int i = 0; i < expected.length; i++) {
+                int difference = Math.abs((expected[i] & 0xFF) - (actual[i] & 0xFF));
+                totalDifference += difference;
+                maxDifference = Math.max(maxDifference, difference);
+            }
+            double meanDifference = (double) totalDifference / expected.length;
+            assertTrue(meanDifference < meanAllowed, profile.getId() + ": mean CMYK difference " + meanDifference);
+            assertTrue(maxDifference <= maxAllowed, profile.getId() + ": max CMYK difference " + maxDifference);
+        }
+    }
+
+    private static int clamp(int value) {
+        return Math.max(0, Math.min(255, value));
+    }
+
+    @Test
+    void storedLutRoundTripsAndRejectsForeignKey() throws IOException {
+        ColorProfile profile = new ColorProfileManager().getDefaultProfile();
+        CmykLut lut = CmykLut.build(profile.getColorSpace());
+        String key = CmykLutStore.computeKey(profile);
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        CmykLutStore.write(output, key, lut);
+        byte[] stored = output.toByteArray();
+
+        CmykLut restored = CmykLutStore.read(new ByteArrayInputStream(stored), key);
+        assertNotNull(restored, "таблица с тем же ключом должна читаться");
+        assertArrayEquals(lut.nodes(), restored.nodes());
+        assertNull(CmykLutStore.read(new ByteArrayInputStream(stored), "other"),
+                "таблица с чужим ключом должна пересобираться");
+    }
+}
@@ -0,0 +1,49 @@
+package com.figma.export.pdf.itext;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FontCatalogResolveTest {
+
+    @Test
+    void familyLookupIgnoresCaseQuotesAndSpacing() throws IOException {
+        List<FontIndexEntry> entries = TestFonts.index(TestFonts.JOST, TestFonts.FUTURIS_BOLD, TestFonts.FUTURIS_LIGHT);
+        FontCatalog catalog = new FontCatalog(entries, entry -> {
+            throw new AssertionError("поиск по имени не должен загружать шрифты");
+        }, null, 1024, 1024);
+        FontIndexEntry jost = entries.get(0);
+
+        for (String family : List.of("Jost", "jost", "JOST", "'Jost'", "\"Jost\"", "  Jost ", "' Jost '",
+                "Jost-Regular", "jost regular", "JOST   REGULAR")) {
+            assertEquals(List.of(jost), catalog.resolve(family), family);
+        }
+        assertEquals(List.of(entries.get(1)), catalog.resolve("futurafuturisc-BOLD"));
+        assertEquals(List.of(entries.get(1)), catalog.resolve("'FuturaFuturisC'"));
+        assertEquals(List.of(entries.get(2)), catalog.resolve("FUTURAFUTURISLIGHTC"));
+    }
+
+    @Test
+    void unknownOrMalformedNamesResolveToNothing() throws IOException {
+        FontCatalog catalog = new FontCatalog(TestFonts.index(TestFonts.JOST), entry -> {
+            throw new AssertionError("поиск по имени не должен загружать шрифты");
+        }, null, 1024, 1024);
+
+        assertEquals(List.of(), catalog.resolve(null));
+        assertEquals(List.of(), catalog.resolve(""));
+        assertEquals(List.of(), catalog.resolve("Jos"));
+        assertEquals(List.of(), catalog.resolve("'Jost\""));
+        assertEquals(List.of(), catalog.resolve("Jost, sans-serif"));
+    }
+
+    @Test
+    void normalizeFamilyFoldsCaseQuotesAndWhitespace() {
+        assertEquals("open sans", FontCatalog.normalizeFamily("  'Open \t  Sans'  "));
+        assertEquals("open sans", FontCatalog.normalizeFamily("\"OPEN SANS\""));
+        assertEquals("'open sans\"", FontCatalog.normalizeFamily("'Open Sans\""));
+        assertEquals("'", FontCatalog.normalizeFamily("'"));
+    }
+}
@@ -0,0 +1,123 @@
+package com.figma.export.pdf.itext;
+
+import com.itextpdf.io.font.FontProgram;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FontCatalogTest {
+
+    private static final long MB = 1024L * 1024L;
+
+    @Test
+    void defaultFamilyIsResolvedOnFirstUse() throws IOException {
+        TestFonts fonts = new TestFonts();
+        List<FontIndexEntry> entries = TestFonts.index(TestFonts.JOST, TestFonts.FUTURIS_BOLD);
+        FontCatalog catalog = new FontCatalog(entries, fonts.source(), null, 16 * MB, MB);
+        assertEquals(0, fonts.totalReads(), "каталог не должен разбирать шрифты при создании");
+        assertEquals(0, catalog.cacheStats().entries());
+
+        assertEquals(entries.get(0).fontName(), catalog.defaultFamily());
+        assertEquals(1, fonts.totalReads());
+        assertEquals(entries.get(0).fontName(), catalog.defaultFamily());
+        assertEquals(1, fonts.totalReads());
+    }
+
+    @Test
+    void defaultFamilySkipsBrokenFontsAndFallsBackToHelvetica() throws IOException {
+        List<FontIndexEntry> entries = TestFonts.index(TestFonts.JOST, TestFonts.FUTURIS_BOLD);
+        FontCatalog brokenFirst = new FontCatalog(entries, entry -> entry.location().equals(TestFonts.JOST)
+                ? new byte[]{0, 1, 0, 0}
+                : TestFonts.bytes(entry.location()), null, 16 * MB, MB);
+        assertEquals(entries.get(1).fontName(), brokenFirst.defaultFamily());
+
+        FontCatalog empty = new FontCatalog(List.of(), entry -> {
+            throw new AssertionError("пустой каталог не читает шрифты");
+        }, null, 16 * MB, MB);
+        assertEquals("Helvetica", empty.defaultFamily());
+    }
+
+    @Test
+    void loadedProgramsAreSharedAndRejectedFontsAreRemembered() throws IOException {
+        TestFonts fonts = new TestFonts();
+        List<FontIndexEntry> entries = TestFonts.index(TestFonts.JOST);
+        FontCatalog catalog = new FontCatalog(entries, entry -> {
+            fonts.source().read(entry);
+            return new byte[]{0, 1, 0, 0};
+        }, null, 16 * MB, MB);
+        assertNull(catalog.loadProgram(entries.get(0)));
+        assertNull(catalog.loadProgram(entries.get(0)));
+        assertEquals(1, fonts.reads(TestFonts.JOST), "негодный шрифт не должен перечитываться");
+
+        FontCatalog healthy = new FontCatalog(entries, fonts.source(), null, 16 * MB, MB);
+        FontProgram first = healthy.loadProgram(entries.get(0));
+        assertNotNull(first);
+        assertSame(first, healthy.loadProgram(entries.get(0)));
+        assertEquals(2, fonts.reads(TestFonts.JOST));
+        assertEquals(1, healthy.cacheStats().hits());
+    }
+
+    @Test
+    void programCacheEvictsLeastRecentlyUsedFontByFileSize() throws IOException {
+        TestFonts fonts = new TestFonts();
+        List<FontIndexEntry> entries = TestFonts.index(TestFonts.FUTURIS_LIGHT, TestFonts.FUTURIS_BLACK,
+                TestFonts.FUTURIS_BOLD);
+        FontIndexEntry light = entries.get(0);
+        FontIndexEntry black = entries.get(1);
+        FontIndexEntry bold = entries.get(2);
+        // Любые два шрифта помещаются, все три — нет.
+        long limit = black.length() + bold.length();
+        assertTrue(light.length() + black.length() + bold.length() > limit);
+        FontCatalog catalog = new FontCatalog(entries, fonts.source(), null, limit, MB);
+
+        catalog.loadProgram(light);
+        catalog.loadProgram(black);
+        catalog.loadProgram(light);
+        assertEquals(light.length() + black.length(), catalog.cacheStats().weight());
+
+        catalog.loadProgram(bold);
+        assertEquals(1, catalog.cacheStats().evictions());
+        assertEquals(light.length() + bold.length(), catalog.cacheStats().weight());
+
+        catalog.loadProgram(light);
+        assertEquals(1, fonts.reads(TestFonts.FUTURIS_LIGHT), "недавно использованный шрифт должен остаться в кэше");
+        catalog.loadProgram(black);
+        assertEquals(2, fonts.reads(TestFonts.FUTURIS_BLACK), "давно не использованный шрифт должен быть вытеснен");
+    }
+
+    @Test
+    void withEntriesKeepsLoadedProgramsAndRejectedFonts() throws IOException {
+        TestFonts fonts = new TestFonts();
+        FontIndexEntry jost = TestFonts.index(TestFonts.JOST).get(0);
+        FontIndexEntry bold = TestFonts.index(TestFonts.FUTURIS_BOLD).get(0);
+        FontIndexEntry broken = new FontIndexEntry("classpath:fonts/broken.ttf", FontIndexEntry.Origin.CLASSPATH,
+                "fonts/broken.ttf", -1, 4, 1, "Broken", "Broken", "Broken", 400, false, List.of());
+        FontCatalog.FontBytesSource source = fonts.source();
+        FontCatalog catalog = new FontCatalog(List.of(jost, broken), entry -> entry == broken
+                ? new byte[]{0, 1, 0, 0}
+                : source.read(entry), null, 16 * MB, MB);
+        FontProgram program = catalog.loadProgram(jost);
+        assertNull(catalog.loadProgram(broken));
+
+        FontCatalog refreshed = catalog.withEntries(List.of(bold, jost, broken));
+        assertSame(program, refreshed.loadProgram(jost));
+        assertNull(refreshed.loadProgram(broken));
+        assertEquals(1, fonts.reads(TestFonts.JOST));
+        assertEquals(List.of(bold), refreshed.resolve("FuturaFuturisC"));
+        assertEquals(List.of(), catalog.resolve("FuturaFuturisC"), "старый каталог не меняется");
+        assertEquals(bold.fontName(), refreshed.defaultFamily());
+        assertEquals(jost.fontName(), catalog.defaultFamily());
+
+        // Тот же файл с другой контрольной суммой — другой шрифт, он загружается заново.
+        FontIndexEntry changedJost = new FontIndexEntry(jost.id(), jost.origin(), jost.location(), jost.ttcIndex(),
+                jost.length(), jost.checksum() + 1, jost.fontName(), jost.familyName(), jost.fullName(),
+                jost.weight(), jost.italic(), jost.aliases());
+        FontProgram reloaded = catalog.withEntries(List.of(changedJost)).loadProgram(changedJost);
+        assertNotNull(reloaded);
+        assertNotSame(program, reloaded);
+        assertEquals(2, fonts.reads(TestFonts.JOST));
+    }
+}
@@ -0,0 +1,90 @@
+package com.figma.export.pdf.itext;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FontFileStoreTest {
+
+    private static final Logger logger = LoggerFactory.getLogger(FontFileStoreTest.class);
+
+    @TempDir
+    Path storeDirectory;
+
+    @TempDir
+    Path systemDirectory;
+
+    @Test
+    void restrictedFontIsExtractedOncePatched() throws IOException {
+        TestFonts fonts = new TestFonts();
+        FontIndexEntry entry = TestFonts.index(TestFonts.ARIAL_NARROW).get(0);
+        FontFileStore store = new FontFileStore(storeDirectory, fonts.source());
+
+        Path file = store.resolve(entry);
+        assertEquals(storeDirectory, file.getParent());
+        byte[] stored = Files.readAllBytes(file);
+        assertEquals(entry.length(), stored.length);
+        assertEquals(entry.checksum(), FontFileStore.checksum(stored));
+        assertSame(stored, FontEmbeddingUtil.ensureEmbeddable(stored, "stored", logger), "fsType не сброшен");
+        assertEquals(file, store.resolve(entry));
+        assertEquals(1, fonts.reads(TestFonts.ARIAL_NARROW));
+
+        FontFileStore restarted = new FontFileStore(storeDirectory, unexpected -> {
+            throw new AssertionError("извлечённый шрифт не должен читаться повторно");
+        });
+        assertEquals(file, restarted.resolve(entry));
+        assertEquals(List.of(file), listFiles(storeDirectory));
+    }
+
+    @Test
+    void embeddableSystemFontIsUsedInPlace() throws IOException {
+        Path font = systemDirectory.resolve("Jost-Regular.ttf");
+        Files.write(font, TestFonts.bytes(TestFonts.JOST));
+        FontIndexEntry entry = FontIndexer.index(FontIndexEntry.Origin.FILE, font.toString(), "Jost-Regular.ttf",
+                Files.readAllBytes(font)).get(0);
+        FontFileStore store = new FontFileStore(storeDirectory, indexed -> Files.readAllBytes(Path.of(indexed.location())));
+
+        assertEquals(font, store.resolve(entry));
+        assertEquals(List.of(), listFiles(storeDirectory));
+    }
+
+    @Test
+    void restrictedSystemFontIsCopiedIntoStore() throws IOException {
+        Path font = systemDirectory.resolve("ARIALN.TTF");
+        Files.write(font, TestFonts.bytes(TestFonts.ARIAL_NARROW));
+        FontIndexEntry entry = FontIndexer.index(FontIndexEntry.Origin.FILE, font.toString(), "ARIALN.TTF",
+                Files.readAllBytes(font)).get(0);
+        FontFileStore store = new FontFileStore(storeDirectory, indexed -> Files.readAllBytes(Path.of(indexed.location())));
+
+        Path file = store.resolve(entry);
+        assertEquals(storeDirectory, file.getParent());
+        assertEquals(entry.checksum(), FontFileStore.checksum(Files.readAllBytes(file)));
+        assertArrayEquals(TestFonts.bytes(TestFonts.ARIAL_NARROW), Files.readAllBytes(font), "системный файл изменён");
+    }
+
+    @Test
+    void catalogLoadsProgramsFromStoredFiles() throws IOException {
+        TestFonts fonts = new TestFonts();
+        List<FontIndexEntry> entries = TestFonts.index(TestFonts.ARIAL_NARROW);
+        FontCatalog catalog = new FontCatalog(entries, fonts.source(), storeDirectory, 16L * 1024 * 1024, 1024 * 1024);
+
+        assertNotNull(catalog.loadProgram(entries.get(0)));
+        assertEquals(1, listFiles(storeDirectory).size());
+        assertEquals(1, fonts.reads(TestFonts.ARIAL_NARROW));
+    }
+
+    private static List<Path> listFiles(Path directory) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.toList();
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package com.figma.export.pdf.itext;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FontIndexStoreTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void savedIndexIsReadBackUnchanged() throws IOException {
+        List<FontIndexEntry> entries = new ArrayList<>(TestFonts.index(TestFonts.JOST, TestFonts.FUTURIS_BOLD));
+        entries.add(new FontIndexEntry(FontIndexEntry.createId(FontIndexEntry.Origin.FILE, "/usr/share/fonts/x.ttc", 2),
+                FontIndexEntry.Origin.FILE, "/usr/share/fonts/x.ttc", 2, 1234L, 0xFFFFFFFFL,
+                "Collection-Face", null, null, 700, true, List.of()));
+        String key = FontIndexStore.computeKey(List.of("a:1", "b:2"));
+        FontIndexStore store = new FontIndexStore(directory, "index.bin");
+
+        store.save(key, entries);
+
+        assertEquals(entries, store.load(key));
+        try (Stream<Path> files = Files.list(directory)) {
+            assertEquals(List.of(directory.resolve("index.bin")), files.toList(), "временный файл не удалён");
+        }
+    }
+
+    @Test
+    void indexForAnotherFontSetIsRejected() throws IOException {
+        FontIndexStore store = new FontIndexStore(directory, "index.bin");
+        store.save(FontIndexStore.computeKey(List.of("fonts/a.ttf:1:100")), TestFonts.index(TestFonts.JOST));
+
+        assertNull(store.load(FontIndexStore.computeKey(List.of("fonts/a.ttf:1:200"))));
+        assertNull(store.load(FontIndexStore.computeKey(List.of("fonts/a.ttf:1:100", "fonts/b.ttf:1:100"))));
+        assertNotNull(store.load(FontIndexStore.computeKey(List.of("fonts/a.ttf:1:100"))));
+    }
+
+    @Test
+    void keyIgnoresFingerprintOrder() {
+        assertEquals(FontIndexStore.computeKey(List.of("a", "b", "c")), FontIndexStore.computeKey(List.of("c", "a", "b")));
+        assertNotEquals(FontIndexStore.computeKey(List.of("a", "b")), FontIndexStore.computeKey(List.of("ab")));
+    }
+
+    @Test
+    void damagedOrMissingIndexIsIgnored() throws IOException {
+        FontIndexStore store = new FontIndexStore(directory, "index.bin");
+        assertNull(store.load("key"));
+
+        Files.write(directory.resolve("index.bin"), new byte[]{1, 2, 3, 4, 5, 6, 7, 8});
+        assertNull(store.load("key"));
+
+        store.save("key", TestFonts.index(TestFonts.JOST));
+        byte[] saved = Files.readAllBytes(directory.resolve("index.bin"));
+        Files.write(directory.resolve("index.bin"), Arrays.copyOf(saved, saved.length / 2));
+        assertNull(store.load("key"));
+
+        FontIndexStore disabled = new FontIndexStore(null, "index.bin");
+        disabled.save("key", TestFonts.index(TestFonts.JOST));
+        assertNull(disabled.load("key"));
+    }
+}
@@ -0,0 +1,65 @@
+package com.figma.export.pdf.itext;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FontManifestGeneratorTest {
+
+    private static final Logger logger = LoggerFactory.getLogger(FontManifestGeneratorTest.class);
+
+    @TempDir
+    Path classes;
+
+    @Test
+    void patchesFontsDropsBrokenOnesAndWritesManifest() throws IOException {
+        Path fonts = Files.createDirectories(classes.resolve("fonts/sub"));
+        Files.write(classes.resolve(TestFonts.JOST), TestFonts.bytes(TestFonts.JOST));
+        Files.write(fonts.resolve("ARIALN.TTF"), TestFonts.bytes(TestFonts.ARIAL_NARROW));
+        Path broken = Files.write(classes.resolve("fonts/broken.ttf"), new byte[]{0, 1, 0, 0, 0, 0});
+        Path readme = Files.writeString(classes.resolve("fonts/README.md"), "not a font");
+
+        FontManifestGenerator.main(new String[]{classes.toString()});
+
+        assertFalse(Files.exists(broken), "негодный шрифт должен быть удалён из сборки");
+        assertTrue(Files.exists(readme));
+        byte[] patched = Files.readAllBytes(fonts.resolve("ARIALN.TTF"));
+        assertSame(patched, FontEmbeddingUtil.ensureEmbeddable(patched, "ARIALN.TTF", logger), "fsType не сброшен");
+
+        List<FontIndexEntry> entries;
+        try (InputStream input = Files.newInputStream(classes.resolve(FontManifestGenerator.MANIFEST_LOCATION))) {
+            entries = FontIndexStore.read(input, null);
+        }
+        assertNotNull(entries);
+        assertEquals(List.of("fonts/Jost-Regular.ttf", "fonts/sub/ARIALN.TTF"),
+                entries.stream().map(FontIndexEntry::location).toList());
+        FontIndexEntry arial = entries.get(1);
+        assertEquals(FontIndexEntry.Origin.CLASSPATH, arial.origin());
+        assertEquals(FontFileStore.checksum(patched), arial.checksum());
+        assertEquals(patched.length, arial.length());
+    }
+
+    @Test
+    void rerunOnProcessedClassesKeepsTheSameManifest() throws IOException {
+        Files.createDirectories(classes.resolve("fonts"));
+        Files.write(classes.resolve(TestFonts.ARIAL_NARROW), TestFonts.bytes(TestFonts.ARIAL_NARROW));
+        Path manifest = classes.resolve(FontManifestGenerator.MANIFEST_LOCATION);
+
+        FontManifestGenerator.main(new String[]{classes.toString()});
+        byte[] first = Files.readAllBytes(manifest);
+        byte[] font = Files.readAllBytes(classes.resolve(TestFonts.ARIAL_NARROW));
+        FontManifestGenerator.main(new String[]{classes.toString()});
+
+        assertArrayEquals(first, Files.readAllBytes(manifest));
+        assertArrayEquals(font, Files.readAllBytes(classes.resolve(TestFonts.ARIAL_NARROW)));
+    }
+}
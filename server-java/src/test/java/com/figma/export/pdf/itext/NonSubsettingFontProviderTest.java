@@ -0,0 +1,50 @@
+package com.figma.export.pdf.itext;
+
+import com.itextpdf.kernel.font.PdfFont;
+import com.itextpdf.layout.font.FontCharacteristics;
+import com.itextpdf.layout.font.FontInfo;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class NonSubsettingFontProviderTest {
+
+    @Test
+    void registersOnlyDocumentFamiliesAndTheDefault() throws IOException {
+        TestFonts fonts = new TestFonts();
+        List<FontIndexEntry> entries = TestFonts.index(TestFonts.JOST, TestFonts.FUTURIS_BOLD, TestFonts.FUTURIS_LIGHT);
+        FontCatalog catalog = new FontCatalog(entries, fonts.source(), null, 16L * 1024 * 1024, 1024 * 1024);
+        String futurisBold = entries.get(1).fontName();
+        // Стандартные PDF-шрифты и гарнитура по умолчанию.
+        int baseline = new NonSubsettingFontProvider(catalog, List.of(), false).getFontSet().size();
+
+        NonSubsettingFontProvider provider = new NonSubsettingFontProvider(catalog,
+                List.of(futurisBold.toUpperCase(), "'" + futurisBold + "'", "No Such Family"), false);
+
+        assertEquals(baseline + 1, provider.getFontSet().size(), "гарнитура документа добавляется один раз");
+        assertEquals(1, fonts.reads(TestFonts.JOST));
+        assertEquals(1, fonts.reads(TestFonts.FUTURIS_BOLD));
+        assertEquals(0, fonts.reads(TestFonts.FUTURIS_LIGHT), "неиспользуемые гарнитуры не загружаются");
+
+        FontInfo selected = provider.getFontSelector(List.of(futurisBold.toLowerCase()), new FontCharacteristics())
+                .bestMatch();
+        assertEquals(futurisBold, selected.getDescriptor().getFontName());
+    }
+
+    @Test
+    void subsetModeFollowsTheRequest() throws IOException {
+        TestFonts fonts = new TestFonts();
+        List<FontIndexEntry> entries = TestFonts.index(TestFonts.JOST);
+        FontCatalog catalog = new FontCatalog(entries, fonts.source(), null, 16L * 1024 * 1024, 1024 * 1024);
+        String jost = entries.get(0).fontName();
+        for (boolean subset : new boolean[]{false, true}) {
+            NonSubsettingFontProvider provider = new NonSubsettingFontProvider(catalog, List.of(jost), subset);
+            FontInfo info = provider.getFontSelector(List.of(jost), new FontCharacteristics()).bestMatch();
+            PdfFont font = provider.getPdfFont(info);
+            assertEquals(subset, font.isSubset());
+        }
+    }
+}
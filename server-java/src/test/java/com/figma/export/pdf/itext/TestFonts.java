@@ -0,0 +1,59 @@
+package com.figma.export.pdf.itext;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Небольшой набор встроенных шрифтов для тестов каталога и счётчик чтений их байтов.
+ */
+final class TestFonts {
+
+    static final String JOST = "fonts/Jost-Regular.ttf";
+    static final String FUTURIS_BOLD = "fonts/FuturaFuturisC-Bold.ttf";
+    static final String FUTURIS_LIGHT = "fonts/FuturaFuturisLightC.ttf";
+    static final String FUTURIS_BLACK = "fonts/FuturaFuturisBlackC.ttf";
+    /** Шрифт с запретом встраивания в fsType. */
+    static final String ARIAL_NARROW = "fonts/ARIALN.TTF";
+
+    private static final Path RESOURCES = Path.of("src/main/resources");
+
+    private final Map<String, AtomicInteger> reads = new ConcurrentHashMap<>();
+
+    static byte[] bytes(String location) throws IOException {
+        return Files.readAllBytes(RESOURCES.resolve(location));
+    }
+
+    static List<FontIndexEntry> index(String... locations) throws IOException {
+        List<FontIndexEntry> entries = new ArrayList<>();
+        for (String location : locations) {
+            String fileName = location.substring(location.lastIndexOf('/') + 1);
+            entries.addAll(FontIndexer.index(FontIndexEntry.Origin.CLASSPATH, location, fileName, bytes(location)));
+        }
+        return entries;
+    }
+
+    /**
+     * Источник байтов, считающий обращения к каждому файлу.
+     */
+    FontCatalog.FontBytesSource source() {
+        return entry -> {
+            reads.computeIfAbsent(entry.location(), key -> new AtomicInteger()).incrementAndGet();
+            return bytes(entry.location());
+        };
+    }
+
+    int reads(String location) {
+        AtomicInteger count = reads.get(location);
+        return count != null ? count.get() : 0;
+    }
+
+    int totalReads() {
+        return reads.values().stream().mapToInt(AtomicInteger::get).sum();
+    }
+}
@@ -0,0 +1,125 @@
+package com.figma.export.service;
+
+import com.figma.export.model.ExportRequest;
+import com.figma.export.model.ExportResponse;
+import com.itextpdf.kernel.geom.PageSize;
+import com.itextpdf.kernel.geom.Rectangle;
+import com.itextpdf.kernel.pdf.PdfDictionary;
+import com.itextpdf.kernel.pdf.PdfDocument;
+import com.itextpdf.kernel.pdf.PdfName;
+import com.itextpdf.kernel.pdf.PdfPage;
+import com.itextpdf.kernel.pdf.PdfReader;
+import com.itextpdf.kernel.pdf.PdfStream;
+import com.itextpdf.kernel.pdf.PdfWriter;
+import com.itextpdf.kernel.pdf.canvas.parser.PdfTextExtractor;
+import com.itextpdf.layout.Document;
+import com.itextpdf.layout.element.AreaBreak;
+import com.itextpdf.layout.element.Paragraph;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.web.multipart.MultipartFile;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+class ExportServiceMultiplePdfTest {
+
+    @Autowired
+    private ExportService exportService;
+
+    @Test
+    void mixedUploadsBecomePagesInUploadOrder() throws IOException {
+        byte[] svg = ("<svg xmlns='http://www.w3.org/2000/svg' width='200' height='100'>"
+                + "<rect x='0' y='0' width='200' height='100' fill='#ff8000'/>"
+                + "<text x='10' y='60' font-size='30'>Vector</text>"
+                + "</svg>").getBytes(StandardCharsets.UTF_8);
+        List<MultipartFile> files = List.of(
+                new MockMultipartFile("images", "first.svg", "image/svg+xml", svg),
+                new MockMultipartFile("images", "second.pdf", "application/pdf", twoPagePdf()),
+                new MockMultipartFile("images", "third.png", "image/png", png(120, 60)));
+        ExportRequest request = new ExportRequest();
+        request.setFormat("pdf");
+        request.setName("mixed");
+        request.setPpi(72);
+
+        ExportResponse response = exportService.convertMultiple(files, request);
+
+        assertEquals("application/pdf", response.contentType());
+        try (PdfDocument document = new PdfDocument(new PdfReader(new ByteArrayInputStream(response.payload())))) {
+            assertEquals(4, document.getNumberOfPages());
+
+            PdfPage svgPage = document.getPage(1);
+            assertSize(150f, 75f, svgPage.getPageSize());
+            assertFalse(hasImage(svgPage), "SVG должен остаться вектором");
+            assertTrue(PdfTextExtractor.getTextFromPage(svgPage).contains("Vector"));
+
+            assertSize(PageSize.A5.getWidth(), PageSize.A5.getHeight(), document.getPage(2).getPageSize());
+            assertEquals("First page", PdfTextExtractor.getTextFromPage(document.getPage(2)).trim());
+            assertEquals("Second page", PdfTextExtractor.getTextFromPage(document.getPage(3)).trim());
+
+            PdfPage pngPage = document.getPage(4);
+            assertTrue(hasImage(pngPage), "PNG должен попасть на страницу растром");
+            assertTrue(PdfTextExtractor.getTextFromPage(pngPage).isBlank());
+        }
+    }
+
+    private static void assertSize(float width, float height, Rectangle size) {
+        assertEquals(width, size.getWidth(), 0.5f);
+        assertEquals(height, size.getHeight(), 0.5f);
+    }
+
+    /**
+     * Ищет image XObject на странице и во вложенных формах.
+     */
+    private static boolean hasImage(PdfPage page) {
+        return hasImage(page.getResources().getPdfObject());
+    }
+
+    private static boolean hasImage(PdfDictionary resources) {
+        PdfDictionary xObjects = resources != null ? resources.getAsDictionary(PdfName.XObject) : null;
+        if (xObjects == null) {
+            return false;
+        }
+        for (PdfName name : xObjects.keySet()) {
+            PdfStream xObject = xObjects.getAsStream(name);
+            if (PdfName.Image.equals(xObject.getAsName(PdfName.Subtype))
+                    || hasImage(xObject.getAsDictionary(PdfName.Resources))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static byte[] twoPagePdf() {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        try (PdfDocument pdfDocument = new PdfDocument(new PdfWriter(output));
+             Document document = new Document(pdfDocument, PageSize.A5)) {
+            document.add(new Paragraph("First page"));
+            document.add(new AreaBreak());
+            document.add(new Paragraph("Second page"));
+        }
+        return output.toByteArray();
+    }
+
+    private static byte[] png(int width, int height) throws IOException {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                image.setRGB(x, y, x * 2 << 16 | y * 4 << 8 | 0x80);
+            }
+        }
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        ImageIO.write(image, "png", output);
+        return output.toByteArray();
+    }
+}
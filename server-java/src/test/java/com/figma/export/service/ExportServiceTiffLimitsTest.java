@@ -0,0 +1,81 @@
+package com.figma.export.service;
+
+import com.figma.export.model.ExportRequest;
+import com.figma.export.model.ExportResponse;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.mock.web.MockMultipartFile;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = {
+        "export.tiff.stream-max-pixels=2000",
+        "export.tiff.max-total-pixels=2500"
+})
+class ExportServiceTiffLimitsTest {
+
+    @Autowired
+    private ExportService exportService;
+
+    @BeforeAll
+    static void registerPlugins() {
+        ImageIO.scanForPlugins();
+    }
+
+    /**
+     * PNG больше {@code export.tiff.stream-max-pixels} не отклоняется, а читается целиком и
+     * уменьшается под {@code export.tiff.max-total-pixels}.
+     */
+    @Test
+    void pngOverStreamLimitIsDownscaledInMemory() throws IOException {
+        ExportRequest request = new ExportRequest();
+        request.setFormat("tiff");
+        request.setName("large");
+        request.setPpi(72);
+
+        ExportResponse response = exportService.convert(
+                new MockMultipartFile("image", "large.png", "image/png", png(100, 60)), request);
+
+        BufferedImage tiff = ImageIO.read(new ByteArrayInputStream(response.payload()));
+        assertNotNull(tiff, "ответ должен читаться как TIFF");
+        assertEquals(65, tiff.getWidth());
+        assertEquals(39, tiff.getHeight());
+        assertEquals(4, tiff.getColorModel().getNumComponents());
+    }
+
+    @Test
+    void pngWithinStreamLimitKeepsNativeSize() throws IOException {
+        ExportRequest request = new ExportRequest();
+        request.setFormat("tiff");
+        request.setName("small");
+        request.setPpi(72);
+
+        ExportResponse response = exportService.convert(
+                new MockMultipartFile("image", "small.png", "image/png", png(40, 30)), request);
+
+        BufferedImage tiff = ImageIO.read(new ByteArrayInputStream(response.payload()));
+        assertNotNull(tiff, "ответ должен читаться как TIFF");
+        assertEquals(40, tiff.getWidth());
+        assertEquals(30, tiff.getHeight());
+    }
+
+    private static byte[] png(int width, int height) throws IOException {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                image.setRGB(x, y, (x * 2) << 16 | (y * 4) << 8 | 0x80);
+            }
+        }
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        assertTrue(ImageIO.write(image, "png", output));
+        return output.toByteArray();
+    }
+}
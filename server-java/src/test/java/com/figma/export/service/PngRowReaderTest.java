@@ -0,0 +1,215 @@
+package com.figma.export.service;
+
+import org.junit.jupiter.api.Test;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.zip.CRC32;
+import java.util.zip.DeflaterOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PngRowReaderTest {
+
+    private static final int WIDTH = 13;
+    private static final int HEIGHT = 11;
+
+    @Test
+    void truecolorMatchesImageIO() throws IOException {
+        assertMatchesImageIO(2, 8, false);
+        assertMatchesImageIO(2, 16, false);
+        assertMatchesImageIO(6, 8, false);
+        assertMatchesImageIO(6, 16, false);
+    }
+
+    @Test
+    void truecolorWithTransparentColorMatchesImageIO() throws IOException {
+        assertMatchesImageIO(2, 8, true);
+        assertMatchesImageIO(2, 16, true);
+    }
+
+    @Test
+    void palettesOfEveryDepthMatchImageIO() throws IOException {
+        for (int bitDepth : new int[]{1, 2, 4, 8}) {
+            assertMatchesImageIO(3, bitDepth, false);
+            assertMatchesImageIO(3, bitDepth, true);
+        }
+    }
+
+    @Test
+    void grayImagesAreLeftToImageIO() {
+        assertNull(PngRowReader.open(png(0, 8, new byte[HEIGHT * (WIDTH + 1)], null, null)));
+        assertNull(PngRowReader.open(png(4, 8, new byte[HEIGHT * (WIDTH * 2 + 1)], null, null)));
+    }
+
+    /**
+     * Строит PNG со случайными пикселями, в котором строки по очереди используют все пять фильтров,
+     * и сравнивает построчное чтение с ImageIO.
+     */
+    private void assertMatchesImageIO(int colorType, int bitDepth, boolean transparency) throws IOException {
+        String name = "colorType=" + colorType + ", bitDepth=" + bitDepth + ", tRNS=" + transparency;
+        Random random = new Random(colorType * 100L + bitDepth * 2L + (transparency ? 1 : 0));
+        int channels = switch (colorType) {
+            case 2 -> 3;
+            case 6 -> 4;
+            default -> 1;
+        };
+        int rowBytes = (WIDTH * channels * bitDepth + 7) / 8;
+        int bytesPerPixel = Math.max(1, channels * bitDepth / 8);
+        byte[][] rows = new byte[HEIGHT][rowBytes];
+        for (byte[] row : rows) {
+            random.nextBytes(row);
+        }
+
+        byte[] palette = null;
+        byte[] trns = null;
+        if (colorType == 3) {
+            int entries = 1 << bitDepth;
+            palette = new byte[entries * 3];
+            random.nextBytes(palette);
+            if (transparency) {
+                // tRNS короче палитры: оставшиеся цвета непрозрачны.
+                trns = new byte[Math.max(1, entries / 2)];
+                random.nextBytes(trns);
+            }
+        } else if (colorType == 2 && transparency) {
+            // Прозрачный цвет — первый пиксель первой строки, плюс его копии в других строках.
+            int sampleBytes = bitDepth / 8;
+            trns = new byte[6];
+            for (int channel = 0; channel < 3; channel++) {
+                for (int b = 0; b < sampleBytes; b++) {
+                    trns[channel * 2 + 2 - sampleBytes + b] = rows[0][channel * sampleBytes + b];
+                }
+            }
+            for (int y = 2; y < HEIGHT; y += 3) {
+                System.arraycopy(rows[0], 0, rows[y], (y % WIDTH) * bytesPerPixel, bytesPerPixel);
+            }
+        }
+
+        byte[] filtered = new byte[HEIGHT * (rowBytes + 1)];
+        byte[] previous = new byte[rowBytes];
+        for (int y = 0; y < HEIGHT; y++) {
+            int filter = y % 5;
+            filtered[y * (rowBytes + 1)] = (byte) filter;
+            applyFilter(filter, rows[y], previous, bytesPerPixel, filtered, y * (rowBytes + 1) + 1);
+            previous = rows[y];
+        }
+        byte[] data = png(colorType, bitDepth, filtered, palette, trns);
+
+        BufferedImage expected = ImageIO.read(new ByteArrayInputStream(data));
+        assertNotNull(expected, name);
+        int[] actual = new int[WIDTH * HEIGHT];
+        try (PngRowReader reader = PngRowReader.open(data)) {
+            assertNotNull(reader, name);
+            assertEquals(WIDTH, reader.width());
+            assertEquals(HEIGHT, reader.height());
+            assertEquals(expected.getColorModel().hasAlpha(), reader.hasAlpha(), name);
+            int top = 0;
+            while (top < HEIGHT) {
+                int count = Math.min(HEIGHT - top, 1 + top % 4);
+                int[] chunk = new int[WIDTH * count];
+                reader.readRows(chunk, count);
+                System.arraycopy(chunk, 0, actual, top * WIDTH, chunk.length);
+                top += count;
+            }
+        }
+
+        for (int y = 0; y < HEIGHT; y++) {
+            for (int x = 0; x < WIDTH; x++) {
+                int want = expected.getRGB(x, y);
+                int got = actual[y * WIDTH + x];
+                for (int shift = 0; shift < 32; shift += 8) {
+                    int difference = Math.abs((want >>> shift & 0xFF) - (got >>> shift & 0xFF));
+                    // 16-битные отсчёты ImageIO приводит к 8 битам со своим округлением.
+                    if (difference > (bitDepth == 16 ? 1 : 0)) {
+                        fail(name + ": пиксель " + x + "," + y + " " + Integer.toHexString(got)
+                                + " вместо " + Integer.toHexString(want));
+                    }
+                }
+            }
+        }
+    }
+
+    private static void applyFilter(int filter, byte[] row, byte[] prior, int bpp, byte[] out, int offset) {
+        for (int i = 0; i < row.length; i++) {
+            int raw = row[i] & 0xFF;
+            int left = i >= bpp ? row[i - bpp] & 0xFF : 0;
+            int up = prior[i] & 0xFF;
+            int upperLeft = i >= bpp ? prior[i - bpp] & 0xFF : 0;
+            int predictor = switch (filter) {
+                case 1 -> left;
+                case 2 -> up;
+                case 3 -> (left + up) >>> 1;
+                case 4 -> paeth(left, up, upperLeft);
+                default -> 0;
+            };
+            out[offset + i] = (byte) (raw - predictor);
+        }
+    }
+
+    private static int paeth(int a, int b, int c) {
+        int p = a + b - c;
+        int pa = Math.abs(p - a);
+        int pb = Math.abs(p - b);
+        int pc = Math.abs(p - c);
+        if (pa <= pb && pa <= pc) {
+            return a;
+        }
+        return pb <= pc ? b : c;
+    }
+
+    private static byte[] png(int colorType, int bitDepth, byte[] filteredRows, byte[] palette, byte[] trns) {
+        try {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            DataOutputStream data = new DataOutputStream(out);
+            data.writeLong(0x89504E470D0A1A0AL);
+            ByteArrayOutputStream header = new ByteArrayOutputStream();
+            DataOutputStream headerData = new DataOutputStream(header);
+            headerData.writeInt(WIDTH);
+            headerData.writeInt(HEIGHT);
+            headerData.writeByte(bitDepth);
+            headerData.writeByte(colorType);
+            headerData.writeByte(0);
+            headerData.writeByte(0);
+            headerData.writeByte(0);
+            writeChunk(data, "IHDR", header.toByteArray());
+            if (palette != null) {
+                writeChunk(data, "PLTE", palette);
+            }
+            if (trns != null) {
+                writeChunk(data, "tRNS", trns);
+            }
+            ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+            try (DeflaterOutputStream deflater = new DeflaterOutputStream(compressed)) {
+                deflater.write(filteredRows);
+            }
+            // Данные разбиты на два IDAT, как это делают потоковые кодировщики.
+            byte[] idat = compressed.toByteArray();
+            int half = idat.length / 2;
+            writeChunk(data, "IDAT", Arrays.copyOfRange(idat, 0, half));
+            writeChunk(data, "IDAT", Arrays.copyOfRange(idat, half, idat.length));
+            writeChunk(data, "IEND", new byte[0]);
+            return out.toByteArray();
+        } catch (IOException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    private static void writeChunk(DataOutputStream out, String type, byte[] payload) throws IOException {
+        byte[] typeBytes = type.getBytes(StandardCharsets.US_ASCII);
+        CRC32 crc = new CRC32();
+        crc.update(typeBytes);
+        crc.update(payload);
+        out.writeInt(payload.length);
+        out.write(typeBytes);
+        out.write(payload);
+        out.writeInt((int) crc.getValue());
+    }
+}
@@ -0,0 +1,62 @@
+package com.figma.export.service;
+
+import org.junit.jupiter.api.Test;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.awt.image.Raster;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TiffStripWriterTest {
+
+    @Test
+    void lzwStripsRoundTripThroughImageIO() throws IOException {
+        // Шум не сжимается, поэтому таблица LZW переполняется и сбрасывается внутри каждой полосы.
+        assertRoundTrip(1000, 300, true, 1);
+        assertRoundTrip(257, 33, true, 2);
+    }
+
+    @Test
+    void uncompressedStripsRoundTripThroughImageIO() throws IOException {
+        assertRoundTrip(611, 97, false, 3);
+        assertRoundTrip(1, 1, false, 4);
+    }
+
+    private void assertRoundTrip(int width, int height, boolean lzw, long seed) throws IOException {
+        Random random = new Random(seed);
+        byte[] pixels = new byte[width * height * 4];
+        for (int i = 0; i < pixels.length; i++) {
+            // половина строк — шум, половина — плавный градиент
+            pixels[i] = (byte) ((i / (width * 4)) % 2 == 0 ? random.nextInt(256) : (i / 4 % width) * 3 + i % 4);
+        }
+
+        TiffStripWriter writer = new TiffStripWriter(width, height, 8, 300, lzw, null,
+                "Figma Export Server", "2024:01:01 00:00:00");
+        int top = 0;
+        while (top < height) {
+            int rows = Math.min(height - top, 1 + random.nextInt(20));
+            writer.writeRows(pixels, top * width * 4, rows);
+            top += rows;
+        }
+        byte[] tiff = writer.finish();
+
+        BufferedImage restored = ImageIO.read(new ByteArrayInputStream(tiff));
+        assertNotNull(restored, "TIFF должен читаться стандартным ImageIO");
+        Raster raster = restored.getRaster();
+        assertEquals(4, raster.getNumBands(), "CMYK");
+        int index = 0;
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                for (int band = 0; band < 4; band++) {
+                    if ((pixels[index++] & 0xFF) != raster.getSample(x, y, band)) {
+                        fail("Пиксель " + x + "," + y + " канал " + band + " не совпадает");
+                    }
+                }
+            }
+        }
+    }
+}
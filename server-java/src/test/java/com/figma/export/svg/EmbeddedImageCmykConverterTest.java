@@ -0,0 +1,154 @@
+package com.figma.export.svg;
+
+import com.figma.export.color.ColorProfile;
+import com.figma.export.color.ColorProfileManager;
+import com.figma.export.service.ImageProcessingService;
+import com.itextpdf.kernel.pdf.PdfArray;
+import com.itextpdf.kernel.pdf.PdfName;
+import com.itextpdf.kernel.pdf.PdfNumber;
+import com.itextpdf.kernel.pdf.PdfObject;
+import com.itextpdf.kernel.pdf.PdfStream;
+import org.junit.jupiter.api.Test;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EmbeddedImageCmykConverterTest {
+
+    private static final int WIDTH = 7;
+    private static final int HEIGHT = 5;
+
+    private final ColorProfileManager profiles = new ColorProfileManager();
+    private final ImageProcessingService imageProcessingService = new ImageProcessingService(profiles);
+    private final EmbeddedImageCmykConverter converter =
+            new EmbeddedImageCmykConverter(imageProcessingService, ForkJoinPool.commonPool(), 1024 * 1024);
+
+    @Test
+    void flateRgbBecomesDeviceCmyk() throws IOException {
+        ColorProfile profile = profiles.getDefaultProfile();
+        BufferedImage source = sample();
+        PdfStream image = imageStream(deflate(rgbBytes(source)), PdfName.DeviceRGB);
+        image.put(PdfName.Filter, PdfName.FlateDecode);
+
+        converter.start(List.of(image), profile).apply();
+
+        assertConvertedToCmyk(image);
+        byte[] expected = ((DataBufferByte) imageProcessingService.convertToCmyk(source, profile)
+                .getRaster().getDataBuffer()).getData();
+        assertArrayEquals(expected, image.getBytes());
+    }
+
+    @Test
+    void dctIccBasedRgbBecomesDeviceCmyk() throws IOException {
+        ByteArrayOutputStream jpeg = new ByteArrayOutputStream();
+        assertTrue(ImageIO.write(sample(), "jpg", jpeg));
+        PdfStream iccProfile = new PdfStream(new byte[0]);
+        iccProfile.put(PdfName.N, new PdfNumber(3));
+        PdfStream image = imageStream(jpeg.toByteArray(), new PdfArray(List.of(PdfName.ICCBased, iccProfile)));
+        image.put(PdfName.Filter, new PdfArray(PdfName.DCTDecode));
+
+        converter.start(List.of(image), profiles.getDefaultProfile()).apply();
+
+        assertConvertedToCmyk(image);
+    }
+
+    @Test
+    void identicalImagesAreConvertedOnce() throws IOException {
+        byte[] data = deflate(rgbBytes(sample()));
+        PdfStream first = imageStream(data, PdfName.DeviceRGB);
+        first.put(PdfName.Filter, PdfName.FlateDecode);
+        PdfStream second = imageStream(data.clone(), PdfName.DeviceRGB);
+        second.put(PdfName.Filter, PdfName.FlateDecode);
+
+        converter.start(List.of(first), profiles.getDefaultProfile()).apply();
+        converter.start(List.of(second), profiles.getDefaultProfile()).apply();
+
+        assertArrayEquals(first.getBytes(), second.getBytes());
+        assertEquals(1, converter.stats().entries());
+        assertEquals(1, converter.stats().hits());
+    }
+
+    @Test
+    void decodeArraysAndOtherBitDepthsAreLeftAlone() {
+        byte[] rgb = rgbBytes(sample());
+        PdfStream withDecode = imageStream(rgb.clone(), PdfName.DeviceRGB);
+        withDecode.put(PdfName.Decode, new PdfArray(new float[]{1, 0, 1, 0, 1, 0}));
+
+        byte[] sixteenBit = new byte[WIDTH * HEIGHT * 6];
+        PdfStream wide = imageStream(sixteenBit.clone(), PdfName.DeviceRGB);
+        wide.put(PdfName.BitsPerComponent, new PdfNumber(16));
+
+        PdfStream gray = imageStream(new byte[WIDTH * HEIGHT], PdfName.DeviceGray);
+
+        converter.start(List.of(withDecode, wide, gray), profiles.getDefaultProfile()).apply();
+
+        assertArrayEquals(rgb, withDecode.getBytes());
+        assertEquals(PdfName.DeviceRGB, withDecode.get(PdfName.ColorSpace));
+        assertNotNull(withDecode.get(PdfName.Decode));
+        assertArrayEquals(sixteenBit, wide.getBytes());
+        assertEquals(PdfName.DeviceRGB, wide.get(PdfName.ColorSpace));
+        assertEquals(16, wide.getAsNumber(PdfName.BitsPerComponent).intValue());
+        assertEquals(PdfName.DeviceGray, gray.get(PdfName.ColorSpace));
+        assertEquals(0, converter.stats().entries());
+    }
+
+    private static void assertConvertedToCmyk(PdfStream image) {
+        assertEquals(PdfName.DeviceCMYK, image.get(PdfName.ColorSpace));
+        assertEquals(8, image.getAsNumber(PdfName.BitsPerComponent).intValue());
+        assertNull(image.get(PdfName.Filter));
+        assertNull(image.get(PdfName.DecodeParms));
+        assertEquals(WIDTH * HEIGHT * 4, image.getBytes().length);
+    }
+
+    private static PdfStream imageStream(byte[] data, PdfObject colorSpace) {
+        PdfStream image = new PdfStream(data);
+        image.put(PdfName.Type, PdfName.XObject);
+        image.put(PdfName.Subtype, PdfName.Image);
+        image.put(PdfName.Width, new PdfNumber(WIDTH));
+        image.put(PdfName.Height, new PdfNumber(HEIGHT));
+        image.put(PdfName.BitsPerComponent, new PdfNumber(8));
+        image.put(PdfName.ColorSpace, colorSpace);
+        return image;
+    }
+
+    private static BufferedImage sample() {
+        BufferedImage image = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_3BYTE_BGR);
+        for (int y = 0; y < HEIGHT; y++) {
+            for (int x = 0; x < WIDTH; x++) {
+                image.setRGB(x, y, (x * 36) << 16 | (y * 60) << 8 | ((x + y) * 20));
+            }
+        }
+        return image;
+    }
+
+    private static byte[] rgbBytes(BufferedImage image) {
+        byte[] rgb = new byte[WIDTH * HEIGHT * 3];
+        int offset = 0;
+        for (int y = 0; y < HEIGHT; y++) {
+            for (int x = 0; x < WIDTH; x++) {
+                int pixel = image.getRGB(x, y);
+                rgb[offset++] = (byte) (pixel >> 16);
+                rgb[offset++] = (byte) (pixel >> 8);
+                rgb[offset++] = (byte) pixel;
+            }
+        }
+        return rgb;
+    }
+
+    private static byte[] deflate(byte[] data) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        try (DeflaterOutputStream deflater = new DeflaterOutputStream(output, new Deflater(Deflater.BEST_SPEED))) {
+            deflater.write(data);
+        }
+        return output.toByteArray();
+    }
+}
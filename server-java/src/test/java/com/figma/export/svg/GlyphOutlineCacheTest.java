@@ -0,0 +1,126 @@
+package com.figma.export.svg;
+
+import org.apache.batik.anim.dom.SVGDOMImplementation;
+import org.apache.batik.svggen.SVGGeneratorContext;
+import org.apache.batik.svggen.SVGGraphics2D;
+import org.junit.jupiter.api.Test;
+import org.w3c.dom.Document;
+
+import java.awt.Font;
+import java.awt.Shape;
+import java.awt.font.FontRenderContext;
+import java.awt.font.GlyphVector;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.PathIterator;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GlyphOutlineCacheTest {
+
+    private static final Font FONT = new Font(Font.SERIF, Font.PLAIN, 40);
+    private static final FontRenderContext PLAIN = new FontRenderContext(null, false, false);
+
+    @Test
+    void cachedOutlinesMatchGlyphVectorAndRepeatedGlyphsHitCache() {
+        GlyphOutlineCache cache = new GlyphOutlineCache(1024 * 1024);
+        GlyphVector glyphs = FONT.createGlyphVector(PLAIN, "Hello, hall");
+
+        for (float[] origin : new float[][]{{0f, 0f}, {12.5f, -3.25f}}) {
+            for (int i = 0; i < glyphs.getNumGlyphs(); i++) {
+                assertSameGeometry(glyphs.getGlyphOutline(i, origin[0], origin[1]),
+                        cache.outline(glyphs, i, origin[0], origin[1]), "глиф " + i);
+            }
+        }
+        // Уникальные глифы: H e l o , пробел h a.
+        assertEquals(8, cache.stats().entries());
+        assertEquals(2L * glyphs.getNumGlyphs() - 8, cache.stats().hits());
+    }
+
+    @Test
+    void differentRenderContextsGetDistinctOutlines() {
+        GlyphOutlineCache cache = new GlyphOutlineCache(1024 * 1024);
+        FontRenderContext scaled = new FontRenderContext(AffineTransform.getScaleInstance(0.37, 0.37), false, false);
+        FontRenderContext rotated = new FontRenderContext(AffineTransform.getRotateInstance(0.3), false, false);
+        List<GlyphVector> vectors = new ArrayList<>();
+        for (FontRenderContext context : List.of(PLAIN, scaled, rotated)) {
+            vectors.add(FONT.createGlyphVector(context, "Rg"));
+        }
+
+        for (GlyphVector glyphs : vectors) {
+            for (int i = 0; i < glyphs.getNumGlyphs(); i++) {
+                assertSameGeometry(glyphs.getGlyphOutline(i, 5f, 7f), cache.outline(glyphs, i, 5f, 7f),
+                        glyphs.getFontRenderContext().getTransform() + " глиф " + i);
+            }
+        }
+        assertEquals(6, cache.stats().entries());
+        assertEquals(0, cache.stats().hits());
+    }
+
+    @Test
+    void glyphsWithOwnTransformBypassTheCache() {
+        GlyphOutlineCache cache = new GlyphOutlineCache(1024 * 1024);
+        GlyphVector glyphs = FONT.createGlyphVector(PLAIN, "AB");
+        glyphs.setGlyphTransform(1, AffineTransform.getRotateInstance(0.5));
+
+        assertSameGeometry(glyphs.getGlyphOutline(1, 3f, 4f), cache.outline(glyphs, 1, 3f, 4f), "повёрнутый глиф");
+        assertEquals(0, cache.stats().entries());
+        cache.outline(glyphs, 0, 3f, 4f);
+        assertEquals(1, cache.stats().entries());
+    }
+
+    @Test
+    void cachingGraphicsWritesSameSvgAsBatik() throws IOException {
+        GlyphOutlineCache cache = new GlyphOutlineCache(1024 * 1024);
+        GlyphVector glyphs = FONT.createGlyphVector(PLAIN, "Outline text");
+
+        SVGGraphics2D reference = new SVGGraphics2D(newContext(), true);
+        reference.drawGlyphVector(glyphs, 10f, 50f);
+        String expected = serialize(reference);
+
+        for (int pass = 0; pass < 2; pass++) {
+            SVGGraphics2D cached = new GlyphCachingSVGGraphics2D(newContext(), cache);
+            cached.drawGlyphVector(glyphs, 10f, 50f);
+            assertEquals(expected, serialize(cached), "проход " + pass);
+        }
+        assertTrue(expected.contains("<path"));
+        assertFalse(expected.contains("<text"));
+        assertTrue(cache.stats().hits() >= glyphs.getNumGlyphs());
+    }
+
+    private static SVGGeneratorContext newContext() {
+        Document document = SVGDOMImplementation.getDOMImplementation()
+                .createDocument(SVGDOMImplementation.SVG_NAMESPACE_URI, "svg", null);
+        SVGGeneratorContext context = SVGGeneratorContext.createDefault(document);
+        context.setPrecision(8);
+        return context;
+    }
+
+    private static String serialize(SVGGraphics2D graphics) throws IOException {
+        StringWriter writer = new StringWriter();
+        graphics.stream(writer, true);
+        return writer.toString();
+    }
+
+    private static void assertSameGeometry(Shape expected, Shape actual, String message) {
+        List<double[]> expectedSegments = segments(expected);
+        List<double[]> actualSegments = segments(actual);
+        assertEquals(expectedSegments.size(), actualSegments.size(), message);
+        for (int i = 0; i < expectedSegments.size(); i++) {
+            assertArrayEquals(expectedSegments.get(i), actualSegments.get(i), 1e-3, message + ", сегмент " + i);
+        }
+    }
+
+    private static List<double[]> segments(Shape shape) {
+        List<double[]> segments = new ArrayList<>();
+        for (PathIterator iterator = shape.getPathIterator(null); !iterator.isDone(); iterator.next()) {
+            double[] coords = new double[7];
+            coords[6] = iterator.currentSegment(coords);
+            segments.add(coords);
+        }
+        return segments;
+    }
+}
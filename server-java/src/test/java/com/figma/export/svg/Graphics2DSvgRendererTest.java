@@ -0,0 +1,182 @@
+package com.figma.export.svg;
+
+import com.figma.export.color.CmykColorConverter;
+import com.figma.export.color.ColorProfileManager;
+import com.figma.export.service.ImageProcessingService;
+import com.itextpdf.io.source.PdfTokenizer;
+import com.itextpdf.io.source.RandomAccessFileOrArray;
+import com.itextpdf.io.source.RandomAccessSourceFactory;
+import com.itextpdf.kernel.geom.Rectangle;
+import com.itextpdf.kernel.pdf.PdfDictionary;
+import com.itextpdf.kernel.pdf.PdfDocument;
+import com.itextpdf.kernel.pdf.PdfName;
+import com.itextpdf.kernel.pdf.PdfObject;
+import com.itextpdf.kernel.pdf.PdfStream;
+import com.itextpdf.kernel.pdf.PdfWriter;
+import com.itextpdf.kernel.pdf.canvas.parser.util.PdfCanvasParser;
+import com.itextpdf.kernel.pdf.xobject.PdfFormXObject;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class Graphics2DSvgRendererTest {
+
+    private static final Logger logger = LoggerFactory.getLogger(Graphics2DSvgRendererTest.class);
+
+    private static final String SVG = "<svg xmlns='http://www.w3.org/2000/svg' width='240' height='120'>"
+            + "<rect x='0' y='0' width='240' height='120' fill='#ffffff'/>"
+            + "<rect x='10' y='10' width='60' height='40' fill='#ff0000' stroke='#0000ff' stroke-width='2'/>"
+            + "<text x='20' y='100' font-family='Serif' font-size='32' fill='#208040'>Outline</text>"
+            + "</svg>";
+
+    private static final Set<String> RGB_OPERATORS = Set.of("rg", "RG", "g", "G");
+
+    @Test
+    void textBecomesCmykPathsWithoutFonts() throws IOException {
+        ColorProfileManager profiles = new ColorProfileManager();
+        Graphics2DSvgRenderer renderer = new Graphics2DSvgRenderer(new CmykColorConverter(1024));
+        try (PdfDocument document = new PdfDocument(new PdfWriter(new ByteArrayOutputStream()))) {
+            PdfFormXObject xObject = renderer.render(SVG.getBytes(StandardCharsets.UTF_8), document,
+                    profiles.getDefaultProfile());
+
+            Rectangle bbox = xObject.getBBox().toRectangle();
+            assertEquals(180f, bbox.getWidth(), 0.01f);
+            assertEquals(90f, bbox.getHeight(), 0.01f);
+
+            List<String> operators = new ArrayList<>();
+            collectOperators(xObject.getPdfObject(), operators);
+            assertTrue(operators.contains("f") || operators.contains("f*"), "нет заливок: " + operators);
+            assertTrue(operators.contains("sc"), "нет цвета заливки: " + operators);
+            assertTrue(operators.contains("SC"), "нет цвета обводки: " + operators);
+            assertFalse(operators.contains("Tj") || operators.contains("TJ"), "текст остался текстом: " + operators);
+            for (String operator : operators) {
+                assertFalse(RGB_OPERATORS.contains(operator), "RGB/Gray-оператор " + operator);
+            }
+        }
+    }
+
+    /**
+     * Один и тот же документ через оба способа «текста в кривые»: размеры страницы совпадают, в обоих
+     * результатах нет шрифтов. Медианы времени пишутся в лог для сравнения путей на этой машине; кэш
+     * XObject выключен, чтобы каждый прогон был полной конвертацией.
+     */
+    @Test
+    void outlineRenderersAgreeAndTimingsAreRecorded() throws IOException {
+        ColorProfileManager profiles = new ColorProfileManager();
+        SvgRenderer renderer = new SvgRenderer(new CmykColorConverter(1024), new ImageProcessingService(profiles),
+                ForkJoinPool.commonPool(), 16, 0, "itext", 0);
+        byte[] svg = timingFixture();
+
+        Map<String, Long> medians = new LinkedHashMap<>();
+        Map<String, Rectangle> pageSizes = new LinkedHashMap<>();
+        for (String outlineRenderer : List.of("itext", "graphics2d")) {
+            long[] runs = new long[5];
+            for (int run = -1; run < runs.length; run++) {
+                try (PdfDocument document = new PdfDocument(new PdfWriter(new ByteArrayOutputStream()))) {
+                    long startNs = System.nanoTime();
+                    SvgRenderer.SvgRenderResult result = renderer.renderSvg(
+                            renderer.prepareSvg(svg, true, outlineRenderer), document, 0, 0, null,
+                            profiles.getDefaultProfile());
+                    long elapsedNs = System.nanoTime() - startNs;
+                    if (run >= 0) {
+                        runs[run] = elapsedNs;
+                    }
+                    pageSizes.put(outlineRenderer, result.page().getPageSize());
+                    PdfDictionary xObjects = result.page().getResources().getResource(PdfName.XObject);
+                    for (PdfName name : xObjects.keySet()) {
+                        collectOperators(xObjects.getAsStream(name), new ArrayList<>());
+                    }
+                }
+            }
+            Arrays.sort(runs);
+            medians.put(outlineRenderer, runs[runs.length / 2] / 1_000_000L);
+        }
+        logger.info("Текст в кривые, медиана из 5 прогонов: itext={} мс, graphics2d={} мс",
+                medians.get("itext"), medians.get("graphics2d"));
+
+        Rectangle itext = pageSizes.get("itext");
+        Rectangle graphics2D = pageSizes.get("graphics2d");
+        assertEquals(itext.getWidth(), graphics2D.getWidth(), 1f);
+        assertEquals(itext.getHeight(), graphics2D.getHeight(), 1f);
+    }
+
+    /**
+     * Карточка с заголовком, абзацами и фигурами — типичный макет с текстом.
+     */
+    private static byte[] timingFixture() {
+        StringBuilder svg = new StringBuilder("<svg xmlns='http://www.w3.org/2000/svg' width='600' height='800'>")
+                .append("<rect x='0' y='0' width='600' height='800' fill='#f4f1ea'/>")
+                .append("<text x='30' y='60' font-family='Serif' font-size='36' fill='#1a2b3c'>Quarterly report</text>");
+        for (int line = 0; line < 30; line++) {
+            svg.append("<text x='30' y='").append(110 + line * 22)
+                    .append("' font-family='SansSerif' font-size='14' fill='#303030'>")
+                    .append("Line ").append(line).append(": the quick brown fox jumps over the lazy dog")
+                    .append("</text>");
+        }
+        for (int shape = 0; shape < 12; shape++) {
+            svg.append("<circle cx='").append(60 + shape * 45).append("' cy='770' r='16' fill='#")
+                    .append(String.format("%02x%02x%02x", 20 * shape, 200 - 10 * shape, 120))
+                    .append("' stroke='#000000' stroke-width='1.5'/>");
+        }
+        return svg.append("</svg>").toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Обходит контент формы и вложенных форм: собирает операторы, проверяет, что цвета задаются
+     * только в DeviceCMYK, а в ресурсах нет шрифтов.
+     */
+    private static void collectOperators(PdfStream form, List<String> operators) throws IOException {
+        byte[] content = form.getBytes();
+        assertTrue(content.length > 0, "пустой контент формы");
+        PdfCanvasParser parser = new PdfCanvasParser(new PdfTokenizer(new RandomAccessFileOrArray(
+                new RandomAccessSourceFactory().createSource(content))));
+        List<PdfObject> operands = new ArrayList<>();
+        PdfDictionary resources = form.getAsDictionary(PdfName.Resources);
+        while (!parser.parse(operands).isEmpty()) {
+            String operator = operands.get(operands.size() - 1).toString();
+            operators.add(operator);
+            if (operator.equals("cs") || operator.equals("CS")) {
+                assertColorSpaceIsCmyk(resources, (PdfName) operands.get(0));
+            } else if (operator.equals("sc") || operator.equals("SC") || operator.equals("k") || operator.equals("K")) {
+                assertEquals(5, operands.size(), "у " + operator + " должно быть четыре компоненты: " + operands);
+            }
+        }
+
+        if (resources == null) {
+            return;
+        }
+        assertNull(resources.get(PdfName.Font), "в ресурсах формы остались шрифты");
+        PdfDictionary xObjects = resources.getAsDictionary(PdfName.XObject);
+        if (xObjects != null) {
+            for (PdfName name : xObjects.keySet()) {
+                PdfStream nested = xObjects.getAsStream(name);
+                if (PdfName.Form.equals(nested.getAsName(PdfName.Subtype))) {
+                    collectOperators(nested, operators);
+                }
+            }
+        }
+    }
+
+    private static void assertColorSpaceIsCmyk(PdfDictionary resources, PdfName name) {
+        if (PdfName.DeviceCMYK.equals(name)) {
+            return;
+        }
+        assertNotNull(resources, "цветовое пространство " + name + " без ресурсов");
+        PdfDictionary colorSpaces = resources.getAsDictionary(PdfName.ColorSpace);
+        assertNotNull(colorSpaces, "цветовое пространство " + name + " без ресурсов");
+        assertEquals(PdfName.DeviceCMYK, colorSpaces.get(name), "цветовое пространство " + name);
+    }
+}
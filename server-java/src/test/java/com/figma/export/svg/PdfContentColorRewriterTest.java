@@ -0,0 +1,89 @@
+package com.figma.export.svg;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PdfContentColorRewriterTest {
+
+    /**
+     * C, M, Y повторяют R, G, B, а K всегда 0.25 — так по результату видно, какие операнды попали в цвет.
+     */
+    private static final PdfContentColorRewriter.ColorConverter ECHO = (r, g, b, cmyk) -> {
+        cmyk[0] = r;
+        cmyk[1] = g;
+        cmyk[2] = b;
+        cmyk[3] = 0.25;
+    };
+
+    @Test
+    void rewritesFillAndStrokeOperators() {
+        assertEquals("q 0 0 0 0.25 k 1 0.5 0 0.25 K 10 20 m",
+                rewrite("q 0 0 0 rg 1 0.5 0 RG 10 20 m", ECHO));
+    }
+
+    @Test
+    void leavesStringsUntouched() {
+        assertEquals("(1 0 0 rg) Tj <3120302030207267> Tj 0 0 1 0.25 k",
+                rewrite("(1 0 0 rg) Tj <3120302030207267> Tj 0 0 1 rg", ECHO));
+        assertEquals("(a \\) 1 0 0 rg \\( (1 1 1 RG) b) Tj 1 1 0 0.25 K",
+                rewrite("(a \\) 1 0 0 rg \\( (1 1 1 RG) b) Tj 1 1 0 RG", ECHO));
+        // Строка между числами и оператором сбрасывает операнды.
+        String broken = "1 0 (x) 0 rg";
+        assertEquals(broken, rewrite(broken, ECHO));
+    }
+
+    @Test
+    void leavesCommentsUntouched() {
+        assertEquals("% 1 0 0 rg\n0 1 0 0.25 k % 0 0 0 RG\r0 0 0 0.25 K",
+                rewrite("% 1 0 0 rg\n0 1 0 rg % 0 0 0 RG\r0 0 0 RG", ECHO));
+    }
+
+    @Test
+    void skipsInlineImageData() {
+        String image = "BI /W 4 /H 1 /BPC 8 /CS /RGB ID \u0001 0 0 rg\u0002EI( 0 0 1 RG\n EI Q ";
+        assertEquals(image + "1 1 1 0.25 k", rewrite(image + "1 1 1 rg", ECHO));
+    }
+
+    @Test
+    void parsesSignedAndBareFractionNumbers() {
+        assertEquals("0 0.5 1 0.25 k", rewrite("-0.5 .5 +2 rg", ECHO));
+        assertEquals("0.2 0 0.3 0.4 0.25 K", rewrite("0.2 -0 0.3 0.4 RG", ECHO));
+        // В PDF нет экспоненциальной записи: 1e3 — не число, и у rg остаётся два операнда.
+        String exponent = "1e3 0 0 rg";
+        assertEquals(exponent, rewrite(exponent, ECHO));
+    }
+
+    @Test
+    void writesAtMostSixFractionDigits() {
+        PdfContentColorRewriter.ColorConverter converter = (r, g, b, cmyk) -> {
+            cmyk[0] = 0.1234567;
+            cmyk[1] = 1d / 3d;
+            cmyk[2] = 0.0000004;
+            cmyk[3] = 0.9999996;
+        };
+        assertEquals("0.123457 0.333333 0 1 k", rewrite("0.1 0.2 0.3 rg", converter));
+        PdfContentColorRewriter.ColorConverter outOfRange = (r, g, b, cmyk) -> {
+            cmyk[0] = -0.5;
+            cmyk[1] = 1.5;
+            cmyk[2] = 0.5;
+            cmyk[3] = 0.05;
+        };
+        assertEquals("0 1 0.5 0.05 K", rewrite("0 0 0 RG", outOfRange));
+    }
+
+    @Test
+    void returnsInputWhenNothingToRewrite() {
+        byte[] content = "BT /F1 12 Tf (rg RG) Tj ET 0 0 0 0 k".getBytes(StandardCharsets.US_ASCII);
+        assertSame(content, PdfContentColorRewriter.rewrite(content, ECHO));
+        byte[] empty = new byte[0];
+        assertSame(empty, PdfContentColorRewriter.rewrite(empty, ECHO));
+    }
+
+    private static String rewrite(String content, PdfContentColorRewriter.ColorConverter converter) {
+        byte[] result = PdfContentColorRewriter.rewrite(content.getBytes(StandardCharsets.ISO_8859_1), converter);
+        return new String(result, StandardCharsets.ISO_8859_1);
+    }
+}
@@ -0,0 +1,41 @@
+package com.figma.export.svg;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SvgComplexityScannerTest {
+
+    @Test
+    void countsElementsPathDataImagesTextAndFilters() {
+        String svg = "<?xml version=\"1.0\"?><svg xmlns:xlink=\"http://www.w3.org/1999/xlink\">"
+                + "<path d='M0 0L10 10'/><polygon points=\"1,2 3,4\"/>"
+                + "<text x=\"1\">hi<tspan>x</tspan></text>"
+                + "<filter id=\"f\"><feGaussianBlur stdDeviation=\"2\"/></filter>"
+                + "<g filter=\"url(#f)\"/><g filter=\"none\"/>"
+                + "<image xlink:href=\"data:image/png;base64,AAAA\"/><image href=\"https://example.com/a.png\"/>"
+                + "</svg>";
+
+        SvgComplexity complexity = SvgComplexityScanner.scan(svg.getBytes(StandardCharsets.UTF_8));
+
+        assertEquals(11, complexity.elements());
+        assertEquals("M0 0L10 10".length() + "1,2 3,4".length(), complexity.pathDataBytes());
+        assertEquals("data:image/png;base64,AAAA".length(), complexity.embeddedImageBytes());
+        assertEquals(2, complexity.textNodes());
+        assertEquals(1, complexity.filterPrimitives());
+        assertEquals(1, complexity.filterUses());
+    }
+
+    @Test
+    void ignoresMarkupInsideCommentsAndCdata() {
+        String svg = "<svg><!-- <path d=\"M0 0\"/> --><style><![CDATA[ a > b { } <text> ]]></style></svg>";
+
+        SvgComplexity complexity = SvgComplexityScanner.scan(svg.getBytes(StandardCharsets.UTF_8));
+
+        assertEquals(2, complexity.elements());
+        assertEquals(0, complexity.pathDataBytes());
+        assertEquals(0, complexity.textNodes());
+    }
+}
@@ -0,0 +1,92 @@
+package com.figma.export.svg;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SvgFontFamilyRewriterTest {
+
+    @Test
+    void normalizeKeepsPrimaryFamilyInAttributesAndStyles() {
+        String svg = "<svg xmlns=\"http://www.w3.org/2000/svg\">"
+                + "<style><![CDATA[.t { font-family: \"Roboto Mono\", monospace; }]]></style>"
+                + "<text font-family=\"Inter, sans-serif\">A</text>"
+                + "<text style=\"font-family: 'Open Sans', Arial; fill: red\">B</text>"
+                + "</svg>";
+        Set<String> families = new LinkedHashSet<>();
+
+        String result = rewrite(svg, SvgFontFamilyRewriter.Mode.NORMALIZE, families);
+
+        assertTrue(result.contains(".t { font-family: 'Roboto Mono'; }"), result);
+        assertTrue(result.contains("<text font-family=\"Inter\">A</text>"), result);
+        assertTrue(result.contains("style=\"font-family: 'Open Sans'; fill: red\""), result);
+        assertEquals(Set.of("Roboto Mono", "Inter", "Open Sans"), families);
+    }
+
+    @Test
+    void dataUriPayloadsAreCopiedAsIs() {
+        String svg = "<svg><image href=\"data:text/css;font-family:Evil,serif\"/>"
+                + "<text font-family='Inter'>A</text></svg>";
+        Set<String> families = new LinkedHashSet<>();
+
+        byte[] source = svg.getBytes(StandardCharsets.UTF_8);
+        byte[] result = SvgFontFamilyRewriter.rewrite(source, SvgFontFamilyRewriter.Mode.NORMALIZE, families);
+
+        assertSame(source, result);
+        assertEquals(Set.of("Inter"), families);
+    }
+
+    @Test
+    void normalizeDropsExcludedFamilies() {
+        String svg = "<svg><text font-family=\"Wingdings, serif\">A</text>"
+                + "<text style=\"font-family: Inter; fill: red\">B</text></svg>";
+        Set<String> families = new LinkedHashSet<>();
+
+        byte[] result = SvgFontFamilyRewriter.rewrite(svg.getBytes(StandardCharsets.UTF_8),
+                SvgFontFamilyRewriter.Mode.NORMALIZE, families, "wingdings"::equalsIgnoreCase);
+
+        assertEquals("<svg><text >A</text><text style=\"font-family: Inter; fill: red\">B</text></svg>",
+                new String(result, StandardCharsets.UTF_8));
+        assertEquals(Set.of("Inter"), families);
+    }
+
+    @Test
+    void stripRemovesFontFamilyDeclarations() {
+        String svg = "<svg><text font-family=\"Inter\" style=\"font-family: Inter; fill: red\">A</text>"
+                + "<!-- font-family: keep -->"
+                + "<style>.t { font-family: Arial }</style></svg>";
+
+        String result = rewrite(svg, SvgFontFamilyRewriter.Mode.STRIP, null);
+
+        assertEquals("<svg><text  style=\" fill: red\">A</text>"
+                + "<!-- font-family: keep -->"
+                + "<style>.t { }</style></svg>", result);
+    }
+
+    @Test
+    void collectReturnsSourceAndSameFamiliesAsNormalize() {
+        String svg = "<svg><style>.t { font-family: \"Roboto Mono\", monospace; }</style>"
+                + "<text font-family=\"Wingdings, serif\">A</text>"
+                + "<text style=\"font-family: 'Open Sans', Arial\">B</text></svg>";
+        byte[] source = svg.getBytes(StandardCharsets.UTF_8);
+        Set<String> normalized = new LinkedHashSet<>();
+        Set<String> collected = new LinkedHashSet<>();
+
+        SvgFontFamilyRewriter.rewrite(source, SvgFontFamilyRewriter.Mode.NORMALIZE, normalized, "wingdings"::equalsIgnoreCase);
+        byte[] result = SvgFontFamilyRewriter.rewrite(source, SvgFontFamilyRewriter.Mode.COLLECT, collected,
+                "wingdings"::equalsIgnoreCase);
+
+        assertSame(source, result);
+        assertEquals(Set.of("Roboto Mono", "Open Sans"), collected);
+        assertEquals(normalized, collected);
+    }
+
+    private static String rewrite(String svg, SvgFontFamilyRewriter.Mode mode, Set<String> families) {
+        byte[] result = SvgFontFamilyRewriter.rewrite(svg.getBytes(StandardCharsets.UTF_8), mode, families);
+        return new String(result, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,139 @@
+package com.figma.export.svg;
+
+import org.junit.jupiter.api.Test;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.geom.Dimension2D;
+import java.awt.image.BufferedImage;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SvgRasterizerTest {
+
+    private static final int WIDTH = 450;
+    private static final int HEIGHT = 750;
+
+    private static final String SVG = "<svg xmlns='http://www.w3.org/2000/svg' width='300' height='500'>"
+            + "<defs>"
+            + "<linearGradient id='g' x1='0' y1='0' x2='0' y2='1'>"
+            + "<stop offset='0' stop-color='#ff0000'/><stop offset='1' stop-color='#0000ff'/></linearGradient>"
+            + "<filter id='blur'><feGaussianBlur stdDeviation='6'/></filter>"
+            + "</defs>"
+            + "<rect x='10' y='10' width='120' height='470' fill='url(#g)'/>"
+            + "<circle cx='200' cy='170' r='77.3' fill='none' stroke='#208040' stroke-width='3.5'/>"
+            + "<line x1='0' y1='0' x2='300' y2='497' stroke='black' stroke-width='0.7'/>"
+            + "<rect x='150' y='300' width='100' height='120' fill='#e0a020' filter='url(#blur)'/>"
+            + "<g opacity='0.5'><rect x='40' y='40' width='220' height='90' fill='#3050c0'/></g>"
+            + "<text x='20' y='255' font-family='Serif' font-size='40'>Seam test</text>"
+            + "</svg>";
+
+    /**
+     * Полосы, нарисованные параллельно по общему дереву, совпадают попиксельно с теми же окнами,
+     * нарисованными последовательно по отдельно построенной сцене.
+     */
+    @Test
+    void parallelBandsOnSharedSceneMatchSequentialPaint() {
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            SvgRasterizer rasterizer = new SvgRasterizer(pool);
+            for (boolean textHint : new boolean[]{false, true}) {
+                Map<Integer, BufferedImage> bands = new ConcurrentHashMap<>();
+                try (SvgRasterizer.Scene scene = rasterizer.load(svg())) {
+                    rasterizer.rasterize(scene, WIDTH, HEIGHT, textHint, (band, top) -> {
+                        assertNull(bands.put(top, band), "полоса " + top + " пришла дважды");
+                    });
+                }
+                assertTrue(bands.size() > 4, "ожидалось несколько полос, а не " + bands.size());
+
+                BufferedImage banded = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_RGB);
+                int nextRow = 0;
+                try (SvgRasterizer.Scene reference = rasterizer.load(svg())) {
+                    for (Map.Entry<Integer, BufferedImage> entry : new TreeMap<>(bands).entrySet()) {
+                        int top = entry.getKey();
+                        BufferedImage band = entry.getValue();
+                        assertEquals(nextRow, top, "полосы должны покрывать изображение без пропусков");
+                        assertEquals(WIDTH, band.getWidth());
+                        assertPixelsEqual(paint(reference, top, band.getHeight(), textHint), band, "полоса " + top);
+                        banded.getRaster().setRect(0, top, band.getRaster());
+                        nextRow = top + band.getHeight();
+                    }
+                }
+                assertEquals(HEIGHT, nextRow);
+                assertNoVisibleSeams(banded, textHint);
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Склейка полос почти не отличается от отрисовки целиком. Побитового совпадения нет: Java2D
+     * по-разному аппроксимирует кривые в зависимости от клипа, и это даёт единичные пиксели на
+     * границах сглаживания — и внутри полос, и на стыках.
+     */
+    private static void assertNoVisibleSeams(BufferedImage banded, boolean textHint) {
+        BufferedImage whole;
+        try (SvgRasterizer.Scene scene = new SvgRasterizer(ForkJoinPool.commonPool()).load(svg())) {
+            whole = paint(scene, 0, HEIGHT, textHint);
+        }
+        int differing = 0;
+        for (int y = 0; y < HEIGHT; y++) {
+            for (int x = 0; x < WIDTH; x++) {
+                int delta = maxChannelDelta(whole.getRGB(x, y), banded.getRGB(x, y));
+                assertTrue(delta <= 40, "пиксель " + x + "," + y + " отличается на " + delta);
+                if (delta > 0) {
+                    differing++;
+                }
+            }
+        }
+        assertTrue(differing < WIDTH * HEIGHT / 100, "отличается " + differing + " пикселей");
+    }
+
+    private static BufferedImage paint(SvgRasterizer.Scene scene, int top, int rows, boolean textHint) {
+        Dimension2D canvas = scene.canvasSize();
+        BufferedImage image = new BufferedImage(WIDTH, rows, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = image.createGraphics();
+        try {
+            SvgRasterizer.applyHints(graphics, textHint);
+            graphics.setColor(Color.WHITE);
+            graphics.fillRect(0, 0, WIDTH, rows);
+            graphics.clipRect(0, 0, WIDTH, rows);
+            graphics.translate(0, -top);
+            graphics.scale(WIDTH / canvas.getWidth(), HEIGHT / canvas.getHeight());
+            scene.root().paint(graphics);
+        } finally {
+            graphics.dispose();
+        }
+        return image;
+    }
+
+    private static void assertPixelsEqual(BufferedImage expected, BufferedImage actual, String message) {
+        assertEquals(expected.getHeight(), actual.getHeight(), message);
+        for (int y = 0; y < expected.getHeight(); y++) {
+            for (int x = 0; x < expected.getWidth(); x++) {
+                if (expected.getRGB(x, y) != actual.getRGB(x, y)) {
+                    fail(message + ": пиксель " + x + "," + y + " равен " + Integer.toHexString(actual.getRGB(x, y))
+                            + " вместо " + Integer.toHexString(expected.getRGB(x, y)));
+                }
+            }
+        }
+    }
+
+    private static int maxChannelDelta(int first, int second) {
+        int delta = 0;
+        for (int shift = 0; shift < 24; shift += 8) {
+            delta = Math.max(delta, Math.abs(((first >> shift) & 0xFF) - ((second >> shift) & 0xFF)));
+        }
+        return delta;
+    }
+
+    private static byte[] svg() {
+        return SVG.getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,241 @@
+package com.figma.export.svg;
+
+import com.figma.export.cache.CacheStats;
+import com.figma.export.color.CmykColorConverter;
+import com.figma.export.color.ColorProfileManager;
+import com.figma.export.service.ImageProcessingService;
+import com.itextpdf.io.font.FontProgramFactory;
+import com.itextpdf.io.font.PdfEncodings;
+import com.itextpdf.io.font.constants.StandardFonts;
+import com.itextpdf.kernel.colors.DeviceCmyk;
+import com.itextpdf.kernel.font.PdfFont;
+import com.itextpdf.kernel.font.PdfFontFactory;
+import com.itextpdf.kernel.geom.Rectangle;
+import com.itextpdf.kernel.pdf.PdfArray;
+import com.itextpdf.kernel.pdf.PdfDictionary;
+import com.itextpdf.kernel.pdf.PdfDocument;
+import com.itextpdf.kernel.pdf.PdfName;
+import com.itextpdf.kernel.pdf.PdfReader;
+import com.itextpdf.kernel.pdf.PdfStream;
+import com.itextpdf.kernel.pdf.PdfWriter;
+import com.itextpdf.kernel.pdf.canvas.PdfCanvas;
+import com.itextpdf.kernel.pdf.canvas.parser.PdfTextExtractor;
+import com.itextpdf.kernel.pdf.extgstate.PdfExtGState;
+import com.itextpdf.kernel.pdf.xobject.PdfFormXObject;
+import com.itextpdf.layout.font.FontInfo;
+import com.itextpdf.layout.font.FontProvider;
+import com.itextpdf.layout.font.FontSet;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SvgXObjectCacheTest {
+
+    private static final String TEXT_SVG = "<svg xmlns='http://www.w3.org/2000/svg' width='200' height='60'>"
+            + "<text x='5' y='40' font-family='Arial Narrow' font-size='24' fill='#203040'>Cached text</text>"
+            + "</svg>";
+
+    @Test
+    void cachedXObjectIsCopiedIntoAnotherDocument() throws IOException {
+        SvgXObjectCache cache = new SvgXObjectCache(1024 * 1024);
+        byte[] expectedContent;
+        try (PdfDocument first = newDocument()) {
+            PdfFormXObject xObject = new PdfFormXObject(new Rectangle(5, 10, 200, 100));
+            PdfCanvas canvas = new PdfCanvas(xObject, first);
+            canvas.setExtGState(new PdfExtGState().setFillOpacity(0.5f))
+                    .setFillColor(new DeviceCmyk(0.1f, 0.2f, 0.3f, 0.4f))
+                    .rectangle(10, 20, 50, 40)
+                    .fill();
+            PdfFormXObject nested = new PdfFormXObject(new Rectangle(0, 0, 10, 10));
+            new PdfCanvas(nested, first).rectangle(0, 0, 10, 10).fill();
+            canvas.addXObjectAt(nested, 0, 0);
+            canvas.release();
+            expectedContent = xObject.getPdfObject().getBytes();
+            cache.put("svg", xObject);
+        }
+        assertEquals(1, cache.stats().entries());
+
+        try (PdfDocument second = newDocument()) {
+            PdfFormXObject restored = cache.get("svg", second);
+            assertNotNull(restored);
+            assertSame(second, restored.getPdfObject().getIndirectReference().getDocument());
+            Rectangle bbox = restored.getBBox().toRectangle();
+            assertEquals(5f, bbox.getX());
+            assertEquals(10f, bbox.getY());
+            assertEquals(200f, bbox.getWidth());
+            assertEquals(100f, bbox.getHeight());
+            assertArrayEquals(expectedContent, restored.getPdfObject().getBytes());
+
+            PdfDictionary resources = restored.getPdfObject().getAsDictionary(PdfName.Resources);
+            assertNotNull(resources.getAsDictionary(PdfName.ExtGState));
+            assertEquals(1, resources.getAsDictionary(PdfName.ExtGState).size());
+            PdfDictionary xObjects = resources.getAsDictionary(PdfName.XObject);
+            assertEquals(1, xObjects.size());
+            assertNotNull(xObjects.getAsStream(xObjects.keySet().iterator().next()));
+            new PdfCanvas(second.addNewPage()).addXObjectAt(restored, 0, 0).release();
+            assertNull(cache.get("other", second));
+        }
+    }
+
+    @Test
+    void xObjectsWithFontsAreNotCached() throws IOException {
+        SvgXObjectCache cache = new SvgXObjectCache(1024 * 1024);
+        try (PdfDocument document = newDocument()) {
+            PdfFormXObject direct = new PdfFormXObject(new Rectangle(100, 100));
+            new PdfCanvas(direct, document).beginText()
+                    .setFontAndSize(PdfFontFactory.createFont(StandardFonts.HELVETICA), 12)
+                    .showText("Aa")
+                    .endText()
+                    .release();
+            cache.put("direct", direct);
+
+            PdfFormXObject nestedText = new PdfFormXObject(new Rectangle(100, 100));
+            new PdfCanvas(nestedText, document).beginText()
+                    .setFontAndSize(PdfFontFactory.createFont(StandardFonts.COURIER), 12)
+                    .showText("Aa")
+                    .endText()
+                    .release();
+            PdfFormXObject outer = new PdfFormXObject(new Rectangle(100, 100));
+            new PdfCanvas(outer, document).addXObjectAt(nestedText, 0, 0).release();
+            cache.put("nested", outer);
+
+            assertNull(cache.get("direct", document));
+            assertNull(cache.get("nested", document));
+        }
+        assertEquals(0, cache.stats().entries());
+    }
+
+    @Test
+    void keyDependsOnModeAndProfile() {
+        ColorProfileManager manager = new ColorProfileManager();
+        byte[] svg = "<svg/>".getBytes(StandardCharsets.UTF_8);
+        String embed = SvgXObjectCache.key(svg, "embed", manager.getDefaultProfile());
+        assertEquals(embed, SvgXObjectCache.key(svg.clone(), "embed", manager.getDefaultProfile()));
+        assertNotEquals(embed, SvgXObjectCache.key(svg, "outline", manager.getDefaultProfile()));
+        manager.getAvailableProfiles().stream()
+                .filter(profile -> !profile.getId().equals(manager.getDefaultProfile().getId()))
+                .findFirst()
+                .ifPresent(profile -> assertNotEquals(embed, SvgXObjectCache.key(svg, "embed", profile)));
+        assertThrows(NullPointerException.class, () -> SvgXObjectCache.key(svg, "embed", null));
+    }
+
+    @Test
+    void textSvgIsCachedAndSharesFontFile() throws IOException {
+        ColorProfileManager profiles = new ColorProfileManager();
+        SvgRenderer renderer = new SvgRenderer(new CmykColorConverter(1024), new ImageProcessingService(profiles),
+                ForkJoinPool.commonPool(), 1, 16, "itext", 0);
+        byte[] svg = TEXT_SVG.getBytes(StandardCharsets.UTF_8);
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        try (PdfDocument document = new PdfDocument(new PdfWriter(output))) {
+            FontProvider fontProvider = fullFontProvider();
+            for (int i = 0; i < 3; i++) {
+                renderer.renderSvg(renderer.prepareSvg(svg, false), document, 0, 0, fontProvider, false,
+                        profiles.getDefaultProfile());
+            }
+        }
+
+        CacheStats stats = renderer.getXObjectCacheStats();
+        assertEquals(1, stats.misses());
+        assertEquals(2, stats.hits());
+        assertEquals(1, stats.entries());
+
+        try (PdfDocument document = new PdfDocument(new PdfReader(new ByteArrayInputStream(output.toByteArray())))) {
+            assertEquals(3, document.getNumberOfPages());
+            Set<Integer> fontFiles = new HashSet<>();
+            for (int page = 1; page <= 3; page++) {
+                assertEquals("Cached text", PdfTextExtractor.getTextFromPage(document.getPage(page)).trim());
+                PdfStream fontFile = fontFile(document.getPage(page).getResources().getResource(PdfName.XObject));
+                assertNotNull(fontFile, "в шаблоне нет файла шрифта");
+                assertTrue(fontFile.getBytes().length > 0);
+                fontFiles.add(fontFile.getIndirectReference().getObjNumber());
+            }
+            assertEquals(1, fontFiles.size(), "файл шрифта должен встраиваться один раз");
+        }
+    }
+
+    @Test
+    void outlineModeIsKeyedOnSourceAndOutlinesOnlyOnMiss() {
+        ColorProfileManager profiles = new ColorProfileManager();
+        SvgRenderer renderer = new SvgRenderer(new CmykColorConverter(1024), new ImageProcessingService(profiles),
+                ForkJoinPool.commonPool(), 1, 16, "itext", 0);
+        byte[] svg = TEXT_SVG.getBytes(StandardCharsets.UTF_8);
+        SvgRenderer.PreparedSvg prepared = renderer.prepareSvg(svg, true, "itext");
+        assertTrue(new String(prepared.bytes(), StandardCharsets.UTF_8).contains("<text"),
+                "текст переводится в кривые при рендеринге, а не при подготовке");
+
+        try (PdfDocument document = newDocument()) {
+            renderer.renderSvg(prepared, document, 0, 0, null, profiles.getDefaultProfile());
+            renderer.renderSvg(renderer.prepareSvg(svg, true, "itext"), document, 0, 0, null,
+                    profiles.getDefaultProfile());
+        }
+        assertEquals(1, renderer.getXObjectCacheStats().misses());
+        assertEquals(1, renderer.getXObjectCacheStats().hits());
+    }
+
+    /**
+     * Первый файл шрифта в XObject страницы или во вложенных формах.
+     */
+    private static PdfStream fontFile(PdfDictionary xObjects) {
+        if (xObjects == null) {
+            return null;
+        }
+        for (PdfName name : xObjects.keySet()) {
+            PdfStream form = xObjects.getAsStream(name);
+            PdfDictionary resources = form.getAsDictionary(PdfName.Resources);
+            if (resources == null) {
+                continue;
+            }
+            PdfDictionary fonts = resources.getAsDictionary(PdfName.Font);
+            if (fonts != null) {
+                for (PdfName fontName : fonts.keySet()) {
+                    PdfDictionary font = fonts.getAsDictionary(fontName);
+                    PdfArray descendants = font.getAsArray(PdfName.DescendantFonts);
+                    PdfDictionary descriptor = (descendants != null ? descendants.getAsDictionary(0) : font)
+                            .getAsDictionary(PdfName.FontDescriptor);
+                    if (descriptor != null && descriptor.getAsStream(PdfName.FontFile2) != null) {
+                        return descriptor.getAsStream(PdfName.FontFile2);
+                    }
+                }
+            }
+            PdfStream nested = fontFile(resources.getAsDictionary(PdfName.XObject));
+            if (nested != null) {
+                return nested;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Arial Narrow из тестовых ресурсов, встраивается целиком — как шрифты экспорта по умолчанию.
+     */
+    private static FontProvider fullFontProvider() throws IOException {
+        byte[] font;
+        try (InputStream input = SvgXObjectCacheTest.class.getResourceAsStream("/fonts/ARIALN.TTF")) {
+            assertNotNull(input, "fonts/ARIALN.TTF");
+            font = input.readAllBytes();
+        }
+        FontSet fontSet = new FontSet();
+        fontSet.addFont(FontProgramFactory.createFont(font, false), PdfEncodings.IDENTITY_H, "Arial Narrow");
+        return new FontProvider(fontSet, "Arial Narrow") {
+            @Override
+            public PdfFont getPdfFont(FontInfo fontInfo, FontSet additionalFonts) {
+                PdfFont pdfFont = super.getPdfFont(fontInfo, additionalFonts);
+                pdfFont.setSubset(false);
+                return pdfFont;
+            }
+        };
+    }
+
+    private static PdfDocument newDocument() {
+        return new PdfDocument(new PdfWriter(new ByteArrayOutputStream()));
+    }
+}
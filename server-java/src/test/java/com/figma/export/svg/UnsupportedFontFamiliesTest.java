@@ -0,0 +1,71 @@
+package com.figma.export.svg;
+
+import com.figma.export.color.CmykColorConverter;
+import com.figma.export.color.ColorProfileManager;
+import com.figma.export.service.ImageProcessingService;
+import com.itextpdf.io.font.FontProgramFactory;
+import com.itextpdf.kernel.pdf.PdfDocument;
+import com.itextpdf.kernel.pdf.PdfWriter;
+import com.itextpdf.layout.font.FontProvider;
+import com.itextpdf.layout.font.FontSet;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UnsupportedFontFamiliesTest {
+
+    private static final String SVG = "<svg xmlns='http://www.w3.org/2000/svg' width='200' height='60'>"
+            + "<text x='5' y='20' font-family='Broken Font'>Hello</text>"
+            + "<text x='5' y='50' font-family='Helvetica'>World</text>"
+            + "</svg>";
+
+    @Test
+    void familyFailingDuringConversionIsRecordedAndDroppedNextTime() throws IOException {
+        ColorProfileManager profiles = new ColorProfileManager();
+        SvgRenderer renderer = new SvgRenderer(new CmykColorConverter(1024),
+                new ImageProcessingService(profiles), ForkJoinPool.commonPool(), 1, 0, "itext", 0);
+        byte[] svg = SVG.getBytes(StandardCharsets.UTF_8);
+
+        SvgRenderer.PreparedSvg first = renderer.prepareSvg(svg, false);
+        assertTrue(first.fontFamilies().contains("Broken Font"));
+        try (PdfDocument document = new PdfDocument(new PdfWriter(new ByteArrayOutputStream()))) {
+            // iText падает на этой гарнитуре при создании PdfFont, а не на пробной строке.
+            renderer.renderSvg(first, document, 0, 0, brokenFontProvider(), profiles.getDefaultProfile());
+            assertEquals(1, document.getNumberOfPages());
+        }
+
+        assertTrue(renderer.isUnsupportedFontFamily("Broken Font"));
+        assertTrue(renderer.isUnsupportedFontFamily("'broken  FONT'"));
+        assertFalse(renderer.isUnsupportedFontFamily("Helvetica"));
+
+        SvgRenderer.PreparedSvg second = renderer.prepareSvg(svg, false);
+        assertFalse(second.fontFamilies().contains("Broken Font"));
+        assertFalse(new String(second.bytes(), StandardCharsets.UTF_8).contains("Broken Font"));
+        try (PdfDocument document = new PdfDocument(new PdfWriter(new ByteArrayOutputStream()))) {
+            renderer.renderSvg(second, document, 0, 0, brokenFontProvider(), profiles.getDefaultProfile());
+            assertEquals(1, document.getNumberOfPages());
+        }
+    }
+
+    /**
+     * Провайдер со шрифтом, зарегистрированным под несуществующей кодировкой.
+     */
+    private static FontProvider brokenFontProvider() throws IOException {
+        byte[] font;
+        try (InputStream input = UnsupportedFontFamiliesTest.class.getResourceAsStream("/fonts/ARIALN.TTF")) {
+            assertNotNull(input, "fonts/ARIALN.TTF");
+            font = input.readAllBytes();
+        }
+        FontSet fontSet = new FontSet();
+        fontSet.addFont(FontProgramFactory.createFont(font, false), "x-no-such-charset", "Broken Font");
+        FontProvider provider = new FontProvider(fontSet, "Helvetica");
+        provider.addStandardPdfFonts();
+        return provider;
+    }
+}